@@ -36,6 +36,7 @@ import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -206,6 +207,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private SelfNodeStatusCallback callback;
     private BestBlockImportCallback bestBlockCallback;
     ReentrantLock lock = new ReentrantLock();
+    // shared by all instances, the worker threads are only started when needed
+    private static final SignatureVerificationStage signatureVerification =
+            new SignatureVerificationStage(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
     private AtomicBoolean shutDownFlag = new AtomicBoolean();
 
     /**
@@ -263,6 +267,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
             eventMgr);
 
         isAmity = cfgAion.getNetwork().equals("amity");
+
+        if (cfgAion.getTx().isParallelExecution()) {
+            BulkExecutor.enableParallelExecution(Runtime.getRuntime().availableProcessors());
+        }
     }
 
     /**
@@ -493,6 +501,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return transactionStore.getTxInfo(txHash, blockHash);
     }
 
+    // returns the transaction info (tx receipts) for transactions from the same block
+    // using a single batch read from the transaction store
+    public List<AionTxInfo> getTransactionInfoLite(List<byte[]> txHashes, byte[] blockHash) {
+        return transactionStore.getTxInfoBatch(txHashes, blockHash);
+    }
+
     private Map<ByteArrayWrapper, AionTxInfo> getTransactionInfoByAlias(byte[] innerHash) {
         Set<ByteArrayWrapper> metaTxHashes = transactionStore.getAliases(innerHash);
 
@@ -614,8 +628,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         AionBlockSummary summary = null;
         try {
             savedState = pushState(block.getParentHash());
-            summary = add(blockWrapper).getLeft();
-            kernelStateUpdate(block, summary);
+            summary = addAndStore(blockWrapper);
         } catch (Exception e) {
             LOG.error("Unexpected error: ", e);
         } finally {
@@ -653,6 +666,54 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return summary;
     }
 
+    /**
+     * Executes the block and stores the results. When supported by the repository, all the
+     * resulting database writes are committed atomically across databases, and discarded when the
+     * block could not be stored.
+     */
+    private AionBlockSummary addAndStore(BlockWrapper blockWrapper) {
+        repository.startAtomicWrite();
+        AionBlockSummary summary;
+        try {
+            summary = add(blockWrapper).getLeft();
+            kernelStateUpdate(blockWrapper.block, summary);
+        } catch (RuntimeException | Error e) {
+            abortAtomicWrite(e);
+            throw e;
+        }
+        commitAtomicWrite();
+        return summary;
+    }
+
+    /**
+     * Commits the atomic batch of the stored block. A failure is fatal, because the in-memory
+     * state of the chain already includes the block that is missing from the database.
+     */
+    private void commitAtomicWrite() {
+        try {
+            repository.commitAtomicWrite();
+        } catch (IllegalStateException e) {
+            if (e.getMessage() != null && e.getMessage().contains("No space left on device")) {
+                LOG.error("Shutdown due to lack of disk space.", e);
+                System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
+            } else {
+                LOG.error("Shutdown due to a failure to store the imported block.", e);
+                System.exit(SystemExitCodes.DATABASE_CORRUPTION);
+            }
+        }
+    }
+
+    /**
+     * Discards the atomic batch of a block that failed to be stored. The failure is fatal, because
+     * the caches of the repository and the best block may already include updates that were never
+     * written to disk. The chain is consistent with the database after a restart.
+     */
+    private void abortAtomicWrite(Throwable cause) {
+        repository.abortAtomicWrite();
+        LOG.error("Shutdown due to a failure to store the imported block.", cause);
+        System.exit(SystemExitCodes.DATABASE_CORRUPTION);
+    }
+
     private void kernelStateUpdate(Block block, AionBlockSummary summary) {
         if (summary != null) {
             updateTotalDifficulty(block);
@@ -891,11 +952,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
      */
     public Triple<Long, Set<ByteArrayWrapper>, ImportResult> tryToConnect(final List<Block> blockRange, String peerDisplayId) {
 
+        // verify the transaction signatures of the whole batch ahead of the imports
+        List<List<Future<?>>> verifications = signatureVerification.submit(blockRange);
+
         lock.lock();
         try {
             ImportResult importResult = null;
             Set<ByteArrayWrapper> imported = new HashSet<>();
-            for (Block block : blockRange) {
+            for (int i = 0; i < blockRange.size(); i++) {
+                Block block = blockRange.get(i);
+                SignatureVerificationStage.await(verifications.get(i));
                 Pair<ImportResult, Long> result = tryToConnectWithTimedExecution(new BlockWrapper(block));
                 importResult = result.getLeft();
                 long importTime = result.getRight();
@@ -925,6 +991,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return Triple.of(bestBlock.getNumber(), imported, importResult);
         } finally{
             lock.unlock();
+            SignatureVerificationStage.cancel(verifications);
             checkKernelExit();
         }
     }
@@ -1029,8 +1096,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 cachedBlockNumberForAVM = forkLevel;
             }
 
-            summary = add(blockWrapper).getLeft();
-            kernelStateUpdate(block, summary);
+            summary = addAndStore(blockWrapper);
 
             ret = summary == null ? INVALID_BLOCK : IMPORTED_BEST;
 
@@ -1055,7 +1121,15 @@ public class AionBlockchainImpl implements IAionBlockchain {
                     cachedBlockNumberForAVM = 0;
                 }
 
-                summary = tryConnectAndFork(blockWrapper);
+                // the re-branching is committed atomically together with the block
+                repository.startAtomicWrite();
+                try {
+                    summary = tryConnectAndFork(blockWrapper);
+                } catch (RuntimeException | Error e) {
+                    abortAtomicWrite(e);
+                    throw e;
+                }
+                commitAtomicWrite();
                 ret =
                         summary == null
                                 ? INVALID_BLOCK
@@ -1237,16 +1311,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 LOG.warn("Tried to create 2 PoW blocks in a row");
                 return null;
             } else {
-                Block[] blockFamily = repository.getBlockStore().getTwoGenerationBlocksByHashWithInfo(parentHdr.getParentHash());
-                Objects.requireNonNull(blockFamily[0]);
-                parentMiningBlock = blockFamily[0].getHeader();
-                parentMiningBlocksParent = blockFamily[1].getHeader();
+                BlockHeader[] headerFamily = repository.getBlockStore().getTwoGenerationHeadersByHash(parentHdr.getParentHash());
+                Objects.requireNonNull(headerFamily[0]);
+                parentMiningBlock = headerFamily[0];
+                parentMiningBlocksParent = headerFamily[1];
                 diffCalculator = chainConfiguration.getUnityDifficultyCalculator();
             }
         } else {
             parentMiningBlock = parentHdr;
             if (!parentMiningBlock.isGenesis()) {
-                parentMiningBlocksParent = getParent(parentMiningBlock).getHeader();
+                parentMiningBlocksParent = getParentHeader(parentMiningBlock);
             }
             diffCalculator = chainConfiguration.getPreUnityDifficultyCalculator();
         }
@@ -1307,15 +1381,15 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 parentSeed = GENESIS_SEED;
                 newDiff = calculateFirstPoSDifficultyAtBlock(parent);
             } else if (forkUtility.isNonceForkBlock(parentHdr.getNumber())) {
-                BlockHeader parentStakingBlock = getParent(parentHdr).getHeader();
+                BlockHeader parentStakingBlock = getParentHeader(parentHdr);
                 parentSeed = ((StakingBlockHeader) parentStakingBlock).getSeedOrProof();
                 newDiff = calculateFirstPoSDifficultyAtBlock(parent);
                 forkUtility.setNonceForkResetDiff(newDiff);
             } else {
-                Block[] blockFamily = repository.getBlockStore().getTwoGenerationBlocksByHashWithInfo(parentHdr.getParentHash());
-                Objects.requireNonNull(blockFamily[0]);
-                BlockHeader parentStakingBlock = blockFamily[0].getHeader();
-                BlockHeader parentStakingBlocksParent = blockFamily[1].getHeader();
+                BlockHeader[] headerFamily = repository.getBlockStore().getTwoGenerationHeadersByHash(parentHdr.getParentHash());
+                Objects.requireNonNull(headerFamily[0]);
+                BlockHeader parentStakingBlock = headerFamily[0];
+                BlockHeader parentStakingBlocksParent = headerFamily[1];
                 parentSeed = ((StakingBlockHeader) parentStakingBlock).getSeedOrProof();
                 newDiff = chainConfiguration.getUnityDifficultyCalculator().calculateDifficulty(parentStakingBlock, parentStakingBlocksParent);
             }
@@ -1361,7 +1435,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
                 if (forkUtility.isNonceForkActive(parentHdr.getNumber() + 1)) {
                     // new seed generation
-                    BlockHeader parentStakingBlock = getParent(parentHdr).getHeader();
+                    BlockHeader parentStakingBlock = getParentHeader(parentHdr);
 
                     // retrieve components
                     parentSeed = ((StakingBlockHeader) parentStakingBlock).getSeedOrProof();
@@ -1552,23 +1626,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         repository.commitCachedVMs(block.getHashWrapper());
 
         if (blockWrapper.reBuild) {
-            List<AionTxExecSummary> execSummaries = summary.getSummaries();
-
-            for (int i = 0; i < receipts.size(); i++) {
-                AionTxInfo infoWithInternalTxs = AionTxInfo.newInstanceWithInternalTransactions(receipts.get(i), block.getHashWrapper(), i, execSummaries.get(i).getInternalTransactions());
-
-                if (storeInternalTransactions) {
-                    transactionStore.putTxInfoToBatch(infoWithInternalTxs);
-                } else {
-                    AionTxInfo info = AionTxInfo.newInstance(receipts.get(i), block.getHashWrapper(), i);
-                    transactionStore.putTxInfoToBatch(info);
-                }
-
-                if (execSummaries.get(i).getInternalTransactions().size() > 0) {
-                    transactionStore.putAliasesToBatch(infoWithInternalTxs);
-                }
-            }
-            transactionStore.flushBatch();
+            storeTransactionInfo(block, receipts, summary.getSummaries());
 
             repository.commitBlock(block.getHashWrapper(), block.getNumber(), block.getStateRoot());
 
@@ -1613,6 +1671,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return repository.getBlockStore().getBlockByHashWithInfo(header.getParentHash());
     }
 
+    private BlockHeader getParentHeader(BlockHeader header) {
+        return repository.getBlockStore().getBlockHeaderByHash(header.getParentHash());
+    }
+
     public boolean isValid(BlockHeader header) {
         /*
          * The block header should already be validated at this point by P2P or mining,
@@ -1622,25 +1684,26 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return false;
         }
 
-        Block[] threeGenParents = repository.getBlockStore().getThreeGenerationBlocksByHashWithInfo(header.getParentHash());
-        Block parentBlock = threeGenParents[0];
+        // only the parent block is needed in full, the older generations are validated by header
+        Block parentBlock = getParent(header);
         if (parentBlock == null) {
             return false;
         }
-        Block grandparentBlock = threeGenParents[1];
-        Block greatGrandparentBlock = threeGenParents[2];
+        BlockHeader[] olderGenerations = repository.getBlockStore().getTwoGenerationHeadersByHash(parentBlock.getParentHash());
+        BlockHeader grandparentHeader = olderGenerations[0];
+        BlockHeader greatGrandparentHeader = olderGenerations[1];
 
         if (header.getSealType() == Seal.PROOF_OF_WORK) {
             if (forkUtility.isUnityForkActive(header.getNumber())) {
-                if (grandparentBlock == null || greatGrandparentBlock == null) {
+                if (grandparentHeader == null || greatGrandparentHeader == null) {
                     return false;
                 }
 
                 return unityParentBlockHeaderValidator.validate(header, parentBlock.getHeader(), LOG, null) &&
-                        unityGreatGrandParentBlockHeaderValidator.validate(grandparentBlock.getHeader(), greatGrandparentBlock.getHeader(), header, LOG);
+                        unityGreatGrandParentBlockHeaderValidator.validate(grandparentHeader, greatGrandparentHeader, header, LOG);
             } else {
                 return preUnityParentBlockHeaderValidator.validate(header, parentBlock.getHeader(), LOG, null) &&
-                        preUnityGrandParentBlockHeaderValidator.validate(parentBlock.getHeader(), grandparentBlock == null ? null : grandparentBlock.getHeader(), header, LOG);
+                        preUnityGrandParentBlockHeaderValidator.validate(parentBlock.getHeader(), grandparentHeader, header, LOG);
             }
         } else  if (header.getSealType() == Seal.PROOF_OF_STAKE) {
             if (!forkUtility.isUnityForkActive(header.getNumber())) {
@@ -1648,7 +1711,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 return false;
             }
 
-            if (grandparentBlock == null) {
+            if (grandparentHeader == null) {
                 LOG.warn("Staking block {} cannot find its grandparent", header.getNumber());
                 return false;
             }
@@ -1658,7 +1721,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 if (!expectedDiff.equals(header.getDifficultyBI())) {
                     return false;
                 }
-                grandparentBlock = new GenesisStakingBlock(expectedDiff);
+                grandparentHeader = new GenesisStakingBlock(expectedDiff).getHeader();
             } else if (forkUtility.isNonceForkBlock(parentBlock.getNumber())) {
                 BigInteger expectedDiff = calculateFirstPoSDifficultyAtBlock(parentBlock);
                 if (!expectedDiff.equals(header.getDifficultyBI())) {
@@ -1678,13 +1741,13 @@ public class AionBlockchainImpl implements IAionBlockchain {
             boolean result = unityParentBlockHeaderValidator.validate(header, parentBlock.getHeader(), LOG, stake);
             if (result) {
                 if (forkUtility.isSignatureSwapForkActive(header.getNumber())) {
-                    result = vrfProofValidator.validate(parentBlock.getHeader(), grandparentBlock.getHeader(), header, LOG)
-                                && difficultyValidateAfterSeedNonceFork(grandparentBlock.getHeader(), greatGrandparentBlock.getHeader(), header);
+                    result = vrfProofValidator.validate(parentBlock.getHeader(), grandparentHeader, header, LOG)
+                                && difficultyValidateAfterSeedNonceFork(grandparentHeader, greatGrandparentHeader, header);
                 } else if (forkUtility.isNonceForkActive(header.getNumber())) {
-                    result = nonceSeedValidator.validate(grandparentBlock.getHeader(), parentBlock.getHeader(), header, LOG)
-                                && difficultyValidateAfterSeedNonceFork(grandparentBlock.getHeader(), greatGrandparentBlock.getHeader(), header);
+                    result = nonceSeedValidator.validate(grandparentHeader, parentBlock.getHeader(), header, LOG)
+                                && difficultyValidateAfterSeedNonceFork(grandparentHeader, greatGrandparentHeader, header);
                 } else {
-                    result = unityGreatGrandParentBlockHeaderValidator.validate(grandparentBlock.getHeader(), greatGrandparentBlock.getHeader(), header, LOG);
+                    result = unityGreatGrandParentBlockHeaderValidator.validate(grandparentHeader, greatGrandparentHeader, header, LOG);
                 }
             }
 
@@ -2054,27 +2117,33 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return chainConfiguration;
     }
 
-    private void storeBlock(Block block, List<AionTxReceipt> receipts, List<AionTxExecSummary> summaries) {
-
-        BigInteger td = totalDifficulty.get();
-
-        repository.getBlockStore().saveBlock(block, td, !fork);
-
+    /** Writes the information for all the transactions of the block with a single batch. */
+    private void storeTransactionInfo(Block block, List<AionTxReceipt> receipts, List<AionTxExecSummary> summaries) {
+        List<AionTxInfo> infos = new ArrayList<>(receipts.size());
         for (int i = 0; i < receipts.size(); i++) {
             AionTxInfo infoWithInternalTxs = AionTxInfo.newInstanceWithInternalTransactions(receipts.get(i), block.getHashWrapper(), i, summaries.get(i).getInternalTransactions());
 
             if (storeInternalTransactions) {
-                transactionStore.putTxInfoToBatch(infoWithInternalTxs);
+                infos.add(infoWithInternalTxs);
             } else {
-                AionTxInfo info = AionTxInfo.newInstance(receipts.get(i), block.getHashWrapper(), i);
-                transactionStore.putTxInfoToBatch(info);
+                infos.add(AionTxInfo.newInstance(receipts.get(i), block.getHashWrapper(), i));
             }
 
             if (summaries.get(i).getInternalTransactions().size() > 0) {
                 transactionStore.putAliasesToBatch(infoWithInternalTxs);
             }
         }
+        transactionStore.putBlockTxInfoToBatch(block.getHash(), infos);
         transactionStore.flushBatch();
+    }
+
+    private void storeBlock(Block block, List<AionTxReceipt> receipts, List<AionTxExecSummary> summaries) {
+
+        BigInteger td = totalDifficulty.get();
+
+        repository.getBlockStore().saveBlock(block, td, !fork);
+
+        storeTransactionInfo(block, receipts, summaries);
 
         repository.commitBlock(block.getHashWrapper(), block.getNumber(), block.getStateRoot());
 
@@ -2252,11 +2321,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return emptyList();
         }
 
-        // identifying block we'll move from
-        Block startBlock = getBlockByNumber(blockNumber);
+        // identifying block we'll move from without loading its transactions
+        byte[] startHash = repository.getBlockStore().getBlockHashByNumber(blockNumber);
 
         // if nothing found on main chain, return empty array
-        if (startBlock == null) {
+        if (startHash == null) {
             return emptyList();
         }
 
@@ -2306,13 +2375,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         startNumber = blockNumber + qty - 1;
 
-        Block block = getBlockByNumber(startNumber);
-
-        if (block == null) {
-            return null;
-        }
-
-        return block.getHash();
+        return repository.getBlockStore().getBlockHashByNumber(startNumber);
     }
 
     private void updateBestKnownBlock(byte[] hash, long number) {
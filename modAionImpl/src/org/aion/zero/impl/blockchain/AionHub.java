@@ -134,6 +134,7 @@ public class AionHub {
                         cfg.getTx().getPoolBackup(),
                         cfg.getTx().isSeedMode(),
                         cfg.getTx().getPoolDump(),
+                        cfg.getTx().isIncrementalRerun(),
                         pendingTxCallback,
                         networkBestBlockCallback,
                         transactionBroadcastCallback,
@@ -53,6 +53,8 @@ public class AionImpl implements IAionChain {
 
     private ReentrantLock lock;
 
+    private final CallResultCache callResultCache;
+
     private AionImpl(boolean forTest) {
         this.cfg = CfgAion.inst();
         if (forTest) {
@@ -80,6 +82,8 @@ public class AionImpl implements IAionChain {
         collector = new TxCollector(this.aionHub.getP2pMgr(), LOG_TX);
 
         lock = new ReentrantLock();
+
+        callResultCache = new CallResultCache(cfg.getApi().getCallCacheSize());
     }
 
     public static AionImpl inst() {
@@ -208,48 +212,21 @@ public class AionImpl implements IAionChain {
     }
 
     public long estimateTxNrg(AionTransaction tx, Block block) {
-        RepositoryCache repository =
-                aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
-
-        try {
-            // Booleans moved out here so their meaning is explicit.
-            boolean isLocalCall = true;
-            boolean incrementSenderNonce = true;
-            boolean fork040enabled = aionHub.isFork040Active(block.getNumber());
-            boolean checkBlockEnergyLimit = false;
-            boolean unityForkEnabled = aionHub.isForkUnityActive(block.getNumber());
-            boolean signatureSwapForkEnabled = aionHub.isForkSignatureSwapActive(block.getNumber());
-
-            return BulkExecutor.executeTransactionWithNoPostExecutionWork(
-                            block.getDifficulty(),
-                            block.getNumber(),
-                            block.getTimestamp(),
-                            block.getNrgLimit(),
-                            block.getCoinbase(),
-                            tx,
-                            repository,
-                            isLocalCall,
-                            incrementSenderNonce,
-                            fork040enabled,
-                            checkBlockEnergyLimit,
-                            LOG_VM,
-                            BlockCachingContext.CALL,
-                            block.getNumber(),
-                            unityForkEnabled,
-                            signatureSwapForkEnabled)
-                    .getReceipt()
-                    .getEnergyUsed();
-        } catch (VmFatalException e) {
-            LOG_GEN.error("Shutdown due to a VM fatal error.", e);
-            System.exit(SystemExitCodes.FATAL_VM_ERROR);
-            return 0;
-        } finally {
-            repository.rollback();
-        }
+        AionTxReceipt receipt = callConstant(tx, block);
+        return receipt == null ? 0 : receipt.getEnergyUsed();
     }
 
     @Override
     public AionTxReceipt callConstant(AionTransaction tx, Block block) {
+        return callResultCache.get(tx, block, this::executeLocalCall);
+    }
+
+    @Override
+    public CallResultCache getCallResultCache() {
+        return callResultCache;
+    }
+
+    private AionTxReceipt executeLocalCall(AionTransaction tx, Block block) {
         RepositoryCache repository =
                 aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
 
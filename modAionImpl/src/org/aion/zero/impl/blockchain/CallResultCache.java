@@ -0,0 +1,105 @@
+package org.aion.zero.impl.blockchain;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.function.BiFunction;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.rlp.RLP;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.types.Block;
+
+/**
+ * Bounded cache of the receipts of local calls, i.e. {@code eth_call} and gas estimates.
+ *
+ * <p>A local call is fully determined by the block it is executed on and by the fields of the
+ * call, so the cache key combines the block hash and state root with the sender, destination,
+ * nonce, value, data, energy limit, energy price and type of the transaction. The cached receipts
+ * are never invalidated explicitly: calls made on a new best block use a new key, and the receipts
+ * for older blocks are evicted as the cache fills up.
+ *
+ * @implNote The block context (number, timestamp, coinbase and difficulty) is visible to contracts,
+ *     so the block hash is part of the key together with the state root.
+ */
+public final class CallResultCache {
+
+    /** Default maximum number of cached receipts. */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final Cache<ByteArrayWrapper, AionTxReceipt> receipts;
+    private final long maxSize;
+
+    /** @param maxSize the maximum number of cached receipts; zero disables the cache */
+    public CallResultCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The call result cache size cannot be negative.");
+        }
+        this.maxSize = maxSize;
+        this.receipts = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    }
+
+    /**
+     * Returns the cached receipt of the given call on the given block or executes the call and
+     * caches its receipt.
+     *
+     * @param tx the local call
+     * @param block the block on which the call is executed
+     * @param execution executes the call when its receipt is not cached
+     * @return the receipt of the call
+     */
+    public AionTxReceipt get(AionTransaction tx, Block block, BiFunction<AionTransaction, Block, AionTxReceipt> execution) {
+        if (maxSize == 0) {
+            return execution.apply(tx, block);
+        }
+
+        ByteArrayWrapper key = key(tx, block);
+        AionTxReceipt receipt = receipts.getIfPresent(key);
+        if (receipt == null) {
+            receipt = execution.apply(tx, block);
+            if (receipt != null) {
+                receipts.put(key, receipt);
+            }
+        }
+        return receipt;
+    }
+
+    private static ByteArrayWrapper key(AionTransaction tx, Block block) {
+        return ByteArrayWrapper.wrap(
+                RLP.encodeList(
+                        RLP.encodeElement(block.getHash()),
+                        RLP.encodeElement(block.getStateRoot()),
+                        RLP.encodeElement(tx.getSenderAddress().toByteArray()),
+                        RLP.encodeElement(tx.getDestinationAddress() == null ? new byte[0] : tx.getDestinationAddress().toByteArray()),
+                        RLP.encodeElement(tx.getNonce()),
+                        RLP.encodeElement(tx.getValue()),
+                        RLP.encodeElement(tx.getData()),
+                        RLP.encodeLong(tx.getEnergyLimit()),
+                        RLP.encodeLong(tx.getEnergyPrice()),
+                        RLP.encodeByte(tx.getType())));
+    }
+
+    public long getHitCount() {
+        return receipts.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return receipts.stats().missCount();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = receipts.stats();
+        return "CallResultCache{receipts="
+                + receipts.size()
+                + ", maxSize="
+                + maxSize
+                + ", hits="
+                + stats.hitCount()
+                + ", misses="
+                + stats.missCount()
+                + ", hitRate="
+                + String.format("%.4f", stats.hitRate())
+                + "}";
+    }
+}
@@ -21,6 +21,8 @@ public interface IAionChain  extends RepoState {
 
     AionTxReceipt callConstant(AionTransaction tx, Block block);
 
+    CallResultCache getCallResultCache();
+
     Repository getRepository();
 
     Repository getPendingState();
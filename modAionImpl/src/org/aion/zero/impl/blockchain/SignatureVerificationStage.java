@@ -0,0 +1,102 @@
+package org.aion.zero.impl.blockchain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.AionTransaction;
+import org.aion.zero.impl.types.Block;
+
+/**
+ * Pipeline stage that verifies the transaction signatures of a batch of blocks on a pool of
+ * workers ahead of their import. The results are memoized by each {@link AionTransaction}, so the
+ * validation and execution of a block only wait for its own transactions to be verified while the
+ * workers continue with the following blocks.
+ *
+ * <p>The transaction senders are derived from the signature public keys when the transactions are
+ * decoded, which happens on the threads receiving the blocks, so only the signatures remain to be
+ * verified here.
+ */
+final class SignatureVerificationStage {
+
+    /** Number of transactions verified by a single task. */
+    private static final int TRANSACTIONS_PER_TASK = 128;
+
+    private final ExecutorService workers;
+
+    SignatureVerificationStage(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.workers =
+                Executors.newFixedThreadPool(
+                        threads,
+                        r -> {
+                            Thread thread = new Thread(r, "sig-verifier-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    /**
+     * Starts verifying the signatures of all the transactions in the given blocks, in block order.
+     *
+     * @return the pending verifications for each block, to be awaited with {@link #await(List)}
+     */
+    List<List<Future<?>>> submit(List<Block> blocks) {
+        List<List<Future<?>>> pending = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            List<AionTransaction> transactions = block.getTransactionsList();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < transactions.size(); from += TRANSACTIONS_PER_TASK) {
+                List<AionTransaction> chunk = transactions.subList(from, Math.min(from + TRANSACTIONS_PER_TASK, transactions.size()));
+                try {
+                    futures.add(workers.submit(() -> chunk.forEach(AionTransaction::isSignatureValid)));
+                } catch (RejectedExecutionException e) {
+                    // the signatures will be verified lazily by the import thread
+                    break;
+                }
+            }
+            pending.add(futures);
+        }
+        return pending;
+    }
+
+    /**
+     * Waits for the verification of the signatures of one block. If interrupted, the remaining
+     * signatures are verified on demand by the caller and the interrupt status is preserved.
+     */
+    static void await(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // the transaction will report the failure when verified again on demand
+            }
+        }
+    }
+
+    /** Cancels the verifications that have not started yet, e.g. after an invalid block. */
+    static void cancel(List<List<Future<?>>> pending) {
+        for (List<Future<?>> futures : pending) {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads. Verifications submitted afterwards are left to the import thread.
+     */
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -389,7 +389,7 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                 bc.setBestBlock(best);
                 bc.setTotalDifficulty(totalDiff);
                 bc.getRepository().loadImportableState(trieData, DatabaseType.STATE);
-                bc.getRepository().getWorldState().setRoot(best.getStateRoot());
+                bc.getRepository().setRoot(best.getStateRoot());
                 bc.getRepository().getWorldState().syncWithoutFlush();
             }
 
@@ -258,6 +258,36 @@ public class DevCLI {
         return Cli.ReturnType.EXIT;
     }
 
+    public static Cli.ReturnType rebuildStateSnapshot() {
+        // read database configuration
+        CfgAion.inst().dbFromXML();
+
+        AionLoggerFactory.initAll(Map.of(LogEnum.GEN, LogLevel.INFO));
+        final Logger log = AionLoggerFactory.getLogger(LogEnum.GEN.name());
+
+        // get the current repository
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+        boolean isSuccessful = repository.rebuildStateSnapshot(log);
+        repository.close();
+
+        return isSuccessful ? Cli.ReturnType.EXIT : Cli.ReturnType.ERROR;
+    }
+
+    public static Cli.ReturnType verifyStateSnapshot() {
+        // read database configuration
+        CfgAion.inst().dbFromXML();
+
+        AionLoggerFactory.initAll(Map.of(LogEnum.GEN, LogLevel.INFO));
+        final Logger log = AionLoggerFactory.getLogger(LogEnum.GEN.name());
+
+        // get the current repository
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+        boolean isValid = repository.verifyStateSnapshot(log);
+        repository.close();
+
+        return isValid ? Cli.ReturnType.EXIT : Cli.ReturnType.ERROR;
+    }
+
     public static Cli.ReturnType writeForTest(String[] parameters) {
         // read database configuration
         CfgAion.inst().dbFromXML();
@@ -331,6 +361,10 @@ public class DevCLI {
                 return stopAt(args.stopAtParam);
             } else if (args.fullSync != null) {
                 return fullSync();
+            } else if (args.rebuildSnapshot != null) {
+                return rebuildStateSnapshot();
+            } else if (args.verifySnapshot != null) {
+                return verifyStateSnapshot();
             }
         } catch (IllegalArgumentException e) {
             printUsage(System.out, this);
@@ -409,6 +443,16 @@ public class DevCLI {
             description = "Fully sync blocks from the given network and shutdown the kernel")
         private Boolean fullSync = null;
 
+        @CommandLine.Option(
+                names = {"rs", "rebuild-snapshot"},
+                description = "regenerates the flat state snapshot from the state trie of the top block")
+        private Boolean rebuildSnapshot = null;
+
+        @CommandLine.Option(
+                names = {"vs", "verify-snapshot"},
+                description = "checks that the flat state snapshot matches the state trie of the top block")
+        private Boolean verifySnapshot = null;
+
         void checkOptions() {
             if (stopAtParam == null
                     && queryAccountParams == null
@@ -419,7 +463,9 @@ public class DevCLI {
                     && help == null
                     && dumpStateParam == null
                     && dumpStateSizeParam == null
-                    && fullSync == null) {
+                    && fullSync == null
+                    && rebuildSnapshot == null
+                    && verifySnapshot == null) {
                 throw new IllegalArgumentException("Expected at least one argument");
             }
         }
@@ -463,5 +509,13 @@ public class DevCLI {
         void setFullSync(Boolean fullSync) {
             this.fullSync = fullSync;
         }
+
+        void setRebuildSnapshot(Boolean rebuildSnapshot) {
+            this.rebuildSnapshot = rebuildSnapshot;
+        }
+
+        void setVerifySnapshot(Boolean verifySnapshot) {
+            this.verifySnapshot = verifySnapshot;
+        }
     }
 }
@@ -16,10 +16,20 @@ public final class CfgApi {
     private CfgApiRpc rpc;
     private CfgApiNrg nrg;
 
+    /** Number of read-only AVM instances per AVM version used by local calls; 0 disables them. */
+    private int callVmPoolSize;
+    /** Maximum time in seconds that a local call waits for a read-only AVM instance. */
+    private int callVmTimeout;
+    /** Maximum number of cached local call results; 0 disables the cache. */
+    private int callCacheSize;
+
     public CfgApi() {
         this.rpc = new CfgApiRpc();
         this.zmq = new CfgApiZmq();
         this.nrg = new CfgApiNrg();
+        this.callVmPoolSize = 2;
+        this.callVmTimeout = 10;
+        this.callCacheSize = 4096;
     }
 
     public CfgApiRpc getRpc() {
@@ -34,6 +44,18 @@ public final class CfgApi {
         return this.nrg;
     }
 
+    public int getCallVmPoolSize() {
+        return this.callVmPoolSize;
+    }
+
+    public int getCallVmTimeout() {
+        return this.callVmTimeout;
+    }
+
+    public int getCallCacheSize() {
+        return this.callCacheSize;
+    }
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -50,6 +72,27 @@ public final class CfgApi {
                         case "nrg-recommendation":
                             this.nrg.fromXML(sr);
                             break;
+                        case "call-vm-pool-size":
+                            try {
+                                callVmPoolSize = Math.max(0, Integer.parseInt(ConfigUtil.readValue(sr)));
+                            } catch (NumberFormatException e) {
+                                System.out.println("failed to read config node: aion.api.call-vm-pool-size; using preset: " + callVmPoolSize);
+                            }
+                            break;
+                        case "call-cache-size":
+                            try {
+                                callCacheSize = Math.max(0, Integer.parseInt(ConfigUtil.readValue(sr)));
+                            } catch (NumberFormatException e) {
+                                System.out.println("failed to read config node: aion.api.call-cache-size; using preset: " + callCacheSize);
+                            }
+                            break;
+                        case "call-vm-timeout":
+                            try {
+                                callVmTimeout = Math.max(1, Integer.parseInt(ConfigUtil.readValue(sr)));
+                            } catch (NumberFormatException e) {
+                                System.out.println("failed to read config node: aion.api.call-vm-timeout; using preset: " + callVmTimeout);
+                            }
+                            break;
                         default:
                             ConfigUtil.skipElement(sr);
                             break;
@@ -76,6 +119,27 @@ public final class CfgApi {
             xmlWriter.writeCharacters(this.zmq.toXML());
             xmlWriter.writeCharacters(this.nrg.toXML());
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("number of read-only AVM instances per AVM version for eth_call and gas estimates, 0 shares the AVM used by block import");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("call-vm-pool-size");
+            xmlWriter.writeCharacters(String.valueOf(this.callVmPoolSize));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("maximum time in seconds that a call waits for a read-only AVM instance");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("call-vm-timeout");
+            xmlWriter.writeCharacters(String.valueOf(this.callVmTimeout));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("maximum number of cached eth_call and gas estimate results, 0 disables the cache");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("call-cache-size");
+            xmlWriter.writeCharacters(String.valueOf(this.callCacheSize));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -95,13 +159,16 @@ public final class CfgApi {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CfgApi cfgApi = (CfgApi) o;
-        return Objects.equal(zmq, cfgApi.zmq)
+        return callVmPoolSize == cfgApi.callVmPoolSize
+                && callVmTimeout == cfgApi.callVmTimeout
+                && callCacheSize == cfgApi.callCacheSize
+                && Objects.equal(zmq, cfgApi.zmq)
                 && Objects.equal(rpc, cfgApi.rpc)
                 && Objects.equal(nrg, cfgApi.nrg);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(zmq, rpc, nrg);
+        return Objects.hashCode(zmq, rpc, nrg, callVmPoolSize, callVmTimeout, callCacheSize);
     }
 }
@@ -20,6 +20,8 @@ public class CfgDb {
         public static final String DEFAULT = "default";
 
         public static final String BLOCK = "block";
+        public static final String BLOCK_BODY = "blockBody";
+        public static final String BLOCK_NUMBER = "blockNumber";
         public static final String INDEX = "index";
         public static final String PENDING_BLOCK = "pendingBlock";
 
@@ -32,6 +34,8 @@ public class CfgDb {
 
         public static final String STATE = "state";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String STATE_JOURNAL = "stateJournal";
+        public static final String STATE_SNAPSHOT = "stateSnapshot";
         public static final String TRANSACTION = "transaction";
 
         public static final String TX_CACHE = "pendingtxCache";
@@ -50,7 +54,11 @@ public class CfgDb {
         public static final String ENABLE_AUTO_COMMIT = "enable_auto_commit";
         public static final String ENABLE_DB_CACHE = "enable_db_cache";
         public static final String ENABLE_DB_COMPRESSION = "enable_db_compression";
+        public static final String ENABLE_COLUMN_FAMILIES = "enable_column_families";
         public static final String DB_CACHE_SIZE = "cache_size";
+        public static final String TRIE_NODE_CACHE_SIZE = "trie_node_cache_size";
+        public static final String FREEZER_DEPTH = "freezer_depth";
+        public static final String FREEZER_PATH = "freezer_path";
 
         public static final String ENABLE_LOCKING = "enable_locking";
 
@@ -64,10 +72,14 @@ public class CfgDb {
     private String path;
     private String vendor;
     private boolean compression;
+    private boolean columnFamilies;
     private boolean check_integrity;
     private CfgPrune prune;
     private PruneOption prune_option;
     private boolean internalTxStorage;
+    private int trieNodeCacheSize;
+    private long freezerDepth;
+    private String freezerPath;
 
     /**
      * Enabling expert mode allows more detailed database configurations.
@@ -83,9 +95,13 @@ public class CfgDb {
         this.path = "database";
         this.vendor = "leveldb";
         this.compression = false;
+        this.columnFamilies = false;
         this.check_integrity = true;
         this.prune = new CfgPrune(false);
         this.prune_option = PruneOption.FULL;
+        this.trieNodeCacheSize = 256;
+        this.freezerDepth = 0;
+        this.freezerPath = "ancient";
 
         if (expert) {
             this.specificConfig = new HashMap<>();
@@ -113,6 +129,15 @@ public class CfgDb {
                         case "internal-tx-storage":
                             this.internalTxStorage = Boolean.parseBoolean(ConfigUtil.readValue(sr));
                             break;
+                        case Props.TRIE_NODE_CACHE_SIZE:
+                            this.trieNodeCacheSize = Math.max(0, Integer.parseInt(ConfigUtil.readValue(sr)));
+                            break;
+                        case Props.FREEZER_DEPTH:
+                            this.freezerDepth = Math.max(0, Long.parseLong(ConfigUtil.readValue(sr)));
+                            break;
+                        case Props.FREEZER_PATH:
+                            this.freezerPath = ConfigUtil.readValue(sr);
+                            break;
                             // parameter considered only when expert==false
                         case "vendor":
                             this.vendor = ConfigUtil.readValue(sr);
@@ -121,6 +146,9 @@ public class CfgDb {
                         case Props.ENABLE_DB_COMPRESSION:
                             this.compression = Boolean.parseBoolean(ConfigUtil.readValue(sr));
                             break;
+                        case Props.ENABLE_COLUMN_FAMILIES:
+                            this.columnFamilies = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                             // parameter considered only when expert==true
                         case Names.DEFAULT:
                             {
@@ -252,6 +280,27 @@ public class CfgDb {
             xmlWriter.writeCharacters(String.valueOf(internalTxStorage));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("Size in MB of the in-memory cache of decoded state and storage trie nodes shared by all tries. The value 0 disables the cache.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.TRIE_NODE_CACHE_SIZE);
+            xmlWriter.writeCharacters(String.valueOf(trieNodeCacheSize));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("Number of blocks under the best block kept in the block database. Older main chain blocks are moved to append-only freezer files. The value 0 disables moving blocks to the freezer.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.FREEZER_DEPTH);
+            xmlWriter.writeCharacters(String.valueOf(freezerDepth));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("Directory of the freezer files; relative paths are resolved against the database directory.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.FREEZER_PATH);
+            xmlWriter.writeCharacters(freezerPath);
+            xmlWriter.writeEndElement();
+
             if (!expert) {
                 xmlWriter.writeCharacters("\r\n\t\t");
                 xmlWriter.writeComment(
@@ -271,6 +320,17 @@ public class CfgDb {
                 xmlWriter.writeStartElement(Props.ENABLE_DB_COMPRESSION);
                 xmlWriter.writeCharacters(String.valueOf(this.compression));
                 xmlWriter.writeEndElement();
+
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Boolean value. Used only with rocksdb. Store all databases as column families of a single instance with a shared cache and atomic block commits.");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeComment(
+                        "Caution: changing this option requires re-syncing from genesis!");
+                xmlWriter.writeCharacters("\r\n\t\t");
+                xmlWriter.writeStartElement(Props.ENABLE_COLUMN_FAMILIES);
+                xmlWriter.writeCharacters(String.valueOf(this.columnFamilies));
+                xmlWriter.writeEndElement();
             } else {
                 for (Map.Entry<String, CfgDbDetails> entry : specificConfig.entrySet()) {
                     entry.getValue().toXML(entry.getKey(), xmlWriter, expert);
@@ -303,6 +363,14 @@ public class CfgDb {
         return compression;
     }
 
+    public void setColumnFamilies(boolean columnFamilies) {
+        this.columnFamilies = columnFamilies;
+    }
+
+    public boolean isColumnFamilies() {
+        return columnFamilies;
+    }
+
     public String getPath() {
         return path;
     }
@@ -327,6 +395,30 @@ public class CfgDb {
         this.internalTxStorage = isEnabled;
     }
 
+    public int getTrieNodeCacheSize() {
+        return trieNodeCacheSize;
+    }
+
+    public void setTrieNodeCacheSize(int trieNodeCacheSize) {
+        this.trieNodeCacheSize = trieNodeCacheSize;
+    }
+
+    public long getFreezerDepth() {
+        return freezerDepth;
+    }
+
+    public void setFreezerDepth(long freezerDepth) {
+        this.freezerDepth = freezerDepth;
+    }
+
+    public String getFreezerPath() {
+        return freezerPath;
+    }
+
+    public void setFreezerPath(String freezerPath) {
+        this.freezerPath = freezerPath;
+    }
+
     public CfgPrune getPrune() {
         return this.prune;
     }
@@ -404,11 +496,19 @@ public class CfgDb {
 
             Properties props = propSet.get(Names.DEFAULT);
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.ENABLE_COLUMN_FAMILIES, String.valueOf(this.columnFamilies));
+            props.setProperty(Props.TRIE_NODE_CACHE_SIZE, String.valueOf(trieNodeCacheSize * Utils.MEGA_BYTE));
+            props.setProperty(Props.FREEZER_DEPTH, String.valueOf(freezerDepth));
+            props.setProperty(Props.FREEZER_PATH, freezerPath);
         } else {
             Properties props = new Properties();
             props.setProperty(Props.DB_TYPE, this.vendor);
             props.setProperty(Props.ENABLE_DB_COMPRESSION, String.valueOf(this.compression));
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.ENABLE_COLUMN_FAMILIES, String.valueOf(this.columnFamilies));
+            props.setProperty(Props.TRIE_NODE_CACHE_SIZE, String.valueOf(trieNodeCacheSize * Utils.MEGA_BYTE));
+            props.setProperty(Props.FREEZER_DEPTH, String.valueOf(freezerDepth));
+            props.setProperty(Props.FREEZER_PATH, freezerPath);
 
             props.setProperty(Props.ENABLE_DB_CACHE, "true");
             props.setProperty(Props.DB_CACHE_SIZE, String.valueOf(128 * (int) Utils.MEGA_BYTE));
@@ -436,6 +536,10 @@ public class CfgDb {
         if (o == null || getClass() != o.getClass()) return false;
         CfgDb cfgDb = (CfgDb) o;
         return compression == cfgDb.compression
+                && columnFamilies == cfgDb.columnFamilies
+                && trieNodeCacheSize == cfgDb.trieNodeCacheSize
+                && freezerDepth == cfgDb.freezerDepth
+                && Objects.equal(freezerPath, cfgDb.freezerPath)
                 && check_integrity == cfgDb.check_integrity
                 && expert == cfgDb.expert
                 && Objects.equal(path, cfgDb.path)
@@ -451,6 +555,10 @@ public class CfgDb {
                 path,
                 vendor,
                 compression,
+                columnFamilies,
+                trieNodeCacheSize,
+                freezerDepth,
+                freezerPath,
                 check_integrity,
                 prune,
                 prune_option,
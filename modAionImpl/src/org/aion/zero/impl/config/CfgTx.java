@@ -19,6 +19,8 @@ public class CfgTx {
         this.poolBackup = false;
         this.pendingTransactionTimeout = 3600;
         this.seedMode = false;
+        this.parallelExecution = false;
+        this.incrementalRerun = true;
     }
 
     private int cacheMax;
@@ -31,6 +33,10 @@ public class CfgTx {
 
     private boolean seedMode;
 
+    private boolean parallelExecution;
+
+    private boolean incrementalRerun;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -62,6 +68,12 @@ public class CfgTx {
                         case "seedmode":
                             this.seedMode = Boolean.parseBoolean(ConfigUtil.readValue(sr));
                             break;
+                        case "parallelexecution":
+                            this.parallelExecution = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
+                        case "incrementalrerun":
+                            this.incrementalRerun = Boolean.parseBoolean(ConfigUtil.readValue(sr));
+                            break;
                         default:
                             ConfigUtil.skipElement(sr);
                             break;
@@ -104,6 +116,20 @@ public class CfgTx {
             xmlWriter.writeCharacters(String.valueOf(this.getPoolBackup()));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("Enables the optimistic parallel execution of the FVM transactions in a block");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("parallelExecution");
+            xmlWriter.writeCharacters(String.valueOf(this.isParallelExecution()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment("Re-executes only the pending transactions affected by a new best block");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("incrementalRerun");
+            xmlWriter.writeCharacters(String.valueOf(this.isIncrementalRerun()));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -134,6 +160,14 @@ public class CfgTx {
         return poolBackup;
     }
 
+    public boolean isParallelExecution() {
+        return parallelExecution;
+    }
+
+    public boolean isIncrementalRerun() {
+        return incrementalRerun;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -142,12 +176,14 @@ public class CfgTx {
         return cacheMax == cfgTx.cacheMax
                 && poolDump == cfgTx.poolDump
                 && poolBackup == cfgTx.poolBackup
-                && pendingTransactionTimeout == cfgTx.pendingTransactionTimeout;
+                && pendingTransactionTimeout == cfgTx.pendingTransactionTimeout
+                && parallelExecution == cfgTx.parallelExecution
+                && incrementalRerun == cfgTx.incrementalRerun;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(cacheMax, poolDump, poolBackup, pendingTransactionTimeout);
+        return Objects.hashCode(cacheMax, poolDump, poolBackup, pendingTransactionTimeout, parallelExecution, incrementalRerun);
     }
 
     public boolean isSeedMode() {
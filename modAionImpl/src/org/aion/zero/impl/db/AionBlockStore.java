@@ -11,10 +11,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.base.AionTransaction;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.store.ArrayStore;
 import org.aion.db.store.ObjectStore;
@@ -37,10 +39,22 @@ public class AionBlockStore {
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
     private static final Logger LOG_CONS = AionLoggerFactory.getLogger(LogEnum.CONS.name());
 
-    protected Lock lock = new ReentrantLock();
+    // Reads share the lock and run concurrently, while writes to the index and the block databases
+    // are exclusive. Blocks are returned as new instances built on the immutable cached headers,
+    // so concurrent readers never modify shared objects.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
 
     private ArrayStore<List<BlockInfo>> index;
-    private ObjectStore<Block> blocks;
+    private ObjectStore<BlockHeader> headers;
+    // Raw access to the header database, which holds full blocks stored before the bodies were
+    // kept separately, until they are migrated by {@link #migrateLegacyBlocks()}.
+    private ByteArrayKeyValueDatabase headerDatabase;
+    // Encoded transaction lists of the blocks, by block hash.
+    private ByteArrayKeyValueDatabase bodies;
+    // Storage for the ancient main chain blocks. Null when disabled.
+    private final BlockFreezer freezer;
 
     private boolean checkIntegrity;
 
@@ -48,45 +62,105 @@ public class AionBlockStore {
             preBranchingBlk = new ArrayDeque<>();
     private long branchingLevel;
 
+    // Headers are small and read repeatedly by the sync and validation, so they are cached
+    // regardless of the configured block cache size.
+    private static final int HEADER_CACHE_SIZE = 256;
+
+    // Number of levels split into headers and bodies between commits when migrating old databases.
+    private static final long MIGRATION_BATCH_SIZE = 10_000L;
+
     @VisibleForTesting
-    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity) {
-        this(index, blocks, checkIntegrity, 0);
+    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase headers, ByteArrayKeyValueDatabase bodies, boolean checkIntegrity) {
+        this(index, headers, bodies, checkIntegrity, 0);
+    }
+
+    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase headers, ByteArrayKeyValueDatabase bodies, boolean checkIntegrity, int blockCacheSize) {
+        this(index, headers, bodies, checkIntegrity, blockCacheSize, null);
     }
 
-    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase blocks, boolean checkIntegrity, int blockCacheSize) {
+    /**
+     * Creates a block store that keeps the block headers and bodies in separate databases and moves
+     * the ancient main chain blocks to the given freezer.
+     *
+     * @param headers the database of block headers by hash
+     * @param bodies the database of encoded block transactions by hash
+     * @param freezer the storage for the ancient blocks; can be {@code null} to keep all the blocks
+     *     in the block databases
+     */
+    public AionBlockStore(ByteArrayKeyValueDatabase index, ByteArrayKeyValueDatabase headers, ByteArrayKeyValueDatabase bodies, boolean checkIntegrity, int blockCacheSize, BlockFreezer freezer) {
         if (index == null) {
             throw new NullPointerException("index db is null");
         }
 
-        if (blocks == null) {
+        if (headers == null) {
             throw new NullPointerException("block db is null");
         }
 
+        if (bodies == null) {
+            throw new NullPointerException("block body db is null");
+        }
+
         this.index = Stores.newArrayStore(index, BLOCK_INFO_SERIALIZER);
 
-        // Note: because of cache use the blocks db should write lock on get as well
-        this.blocks = Stores.newObjectStoreWithCache(blocks, BLOCK_SERIALIZER, blockCacheSize, false);
+        // the header cache is shared by the concurrent readers
+        this.headers =
+                Stores.newConcurrentObjectStoreWithCache(
+                        headers,
+                        HEADER_SERIALIZER,
+                        blockCacheSize > 0 ? Math.max(blockCacheSize, HEADER_CACHE_SIZE) : 0);
+        this.headerDatabase = headers;
+        this.bodies = bodies;
         this.checkIntegrity = checkIntegrity;
+        this.freezer = freezer;
+
+        if (freezer != null) {
+            // complete the removal of frozen blocks interrupted by a shutdown
+            clearFrozenLevels();
+        }
     }
 
-    private static final Serializer<Block> BLOCK_SERIALIZER =
+    private static final Serializer<BlockHeader> HEADER_SERIALIZER =
         new Serializer<>() {
             @Override
-            public byte[] serialize(Block block) {
-                return block.getEncoded();
+            public byte[] serialize(BlockHeader header) {
+                return header.getEncoded();
             }
 
             @Override
-            public Block deserialize(byte[] bytes) {
-                Block block = BlockUtil.newBlockFromRlp(bytes);
-                if (block != null) {
-                    return block;
+            public BlockHeader deserialize(byte[] bytes) {
+                SharedRLPList list = (SharedRLPList) RLP.decode2SharedList(bytes).get(0);
+                if (isLegacyBlock(list)) {
+                    list = (SharedRLPList) list.get(0);
+                }
+
+                BlockHeader header = BlockUtil.newHeaderFromSharedRLPList(list);
+                if (header != null) {
+                    return header;
                 } else {
                     throw new NullPointerException("Invalid rlp encode data: " + ByteUtil.toHexString(bytes));
                 }
             }
         };
 
+    /**
+     * Returns {@code true} when the given decoded header database entry is a full block, as stored
+     * before the block bodies were kept in a separate database. Headers start with a value while
+     * blocks start with the header list.
+     */
+    private static boolean isLegacyBlock(SharedRLPList entry) {
+        return !entry.isEmpty() && entry.get(0).isList();
+    }
+
+    /** @return the encoding of the given block's transaction list as kept in the body database */
+    static byte[] encodeBody(Block block) {
+        List<AionTransaction> transactions = block.getTransactionsList();
+        byte[][] encodings = new byte[transactions.size()][];
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = transactions.get(i).getEncoded();
+        }
+        return RLP.encodeList(encodings);
+    }
+
     /**
      *  Get current highest block data, usually use this method when the kernel need to know the
      *  block information itself.
@@ -94,7 +168,7 @@ public class AionBlockStore {
      * @see #getBestBlockWithInfo()
      */
     public Block getBestBlock() {
-        lock.lock();
+        readLock.lock();
 
         try {
             long maxLevel = index.size() - 1L;
@@ -127,7 +201,7 @@ public class AionBlockStore {
 
             return bestBlock;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -140,7 +214,7 @@ public class AionBlockStore {
      * @see #getBestBlock()
      */
     public Block getBestBlockWithInfo() {
-        lock.lock();
+        readLock.lock();
 
         try {
             long maxLevel = index.size() - 1L;
@@ -171,12 +245,12 @@ public class AionBlockStore {
 
             return bestBlock;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
     public byte[] getBlockHashByNumber(long blockNumber) {
-        lock.lock();
+        readLock.lock();
 
         try {
             if (blockNumber < 0L || blockNumber >= index.size()) {
@@ -193,7 +267,7 @@ public class AionBlockStore {
 
             return null;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -202,23 +276,23 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
-            Block branchBlock = blocks.get(branchBlockHash);
-            if (branchBlock.getNumber() < blockNumber) {
+            BlockHeader branchHeader = getHeader(branchBlockHash);
+            if (branchHeader.getNumber() < blockNumber) {
                 throw new IllegalArgumentException(
                     "Requested block number > branch hash number: "
                         + blockNumber
                         + " < "
-                        + branchBlock.getNumber());
+                        + branchHeader.getNumber());
             }
-            while (branchBlock.getNumber() > blockNumber) {
-                branchBlock = blocks.get(branchBlock.getParentHash());
+            while (branchHeader.getNumber() > blockNumber) {
+                branchHeader = getHeader(branchHeader.getParentHash());
             }
-            return branchBlock.getHash();
+            return branchHeader.getHash();
         } finally{
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -231,7 +305,7 @@ public class AionBlockStore {
             throw new NullPointerException("Total difficulty is null");
         }
 
-        lock.lock();
+        writeLock.lock();
 
         try {
             if (!block.getHeader().isGenesis()) {
@@ -265,11 +339,19 @@ public class AionBlockStore {
 
             blockInfos.add(new BlockInfo(block.getHash(), totalDifficulty, mainChain));
 
-            blocks.put(block.getHash(), block);
-            blocks.commit(); // TODO AKI-309: flush in bulk by the repository
+            bodies.put(block.getHash(), encodeBody(block));
+            headers.put(block.getHash(), block.getHeader());
+            commitBlocks(); // TODO AKI-309: flush in bulk by the repository
             index.set(block.getNumber(), blockInfos);
+
+            if (mainChain && freezer != null && freezer.isFreezing()) {
+                long limit = blockNumber - freezer.getDepth();
+                if (limit - freezer.count() >= freezer.getBatchSize()) {
+                    freeze(limit);
+                }
+            }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -278,7 +360,7 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             List<Block> result = new ArrayList<>();
@@ -301,12 +383,12 @@ public class AionBlockStore {
 
             return result;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
     public Block getChainBlockByNumber(long number) {
-        lock.lock();
+        readLock.lock();
 
         try {
             long size = index.size();
@@ -326,7 +408,7 @@ public class AionBlockStore {
             for (BlockInfo blockInfo : blockInfos) {
                 if (blockInfo.isMainChain()) {
                     byte[] hash = blockInfo.getHash();
-                    Block block = blocks.get(hash);
+                    Block block = isFrozen(number) ? freezer.getBlock(number) : getBlock(hash);
                     if (block != null) {
                         block.setTotalDifficulty(blockInfo.getTotalDifficulty());
                         block.setMainChain();
@@ -338,7 +420,7 @@ public class AionBlockStore {
 
             return null;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -348,7 +430,7 @@ public class AionBlockStore {
      * @return list of blocks in the given block level.
      */
     List<Block> getAllChainBlockByNumber(long number, Logger log) {
-        lock.lock();
+        readLock.lock();
 
         try {
             long size = index.size();
@@ -369,7 +451,7 @@ public class AionBlockStore {
 
             List<Block> blockList = new ArrayList<>();
             for (BlockInfo blockInfo : blockInfos) {
-                Block b = blocks.get(blockInfo.getHash());
+                Block b = getBlock(blockInfo.getHash());
 
                 if (b == null) {
                     log.error(
@@ -390,7 +472,7 @@ public class AionBlockStore {
 
             return blockList;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -413,7 +495,7 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             Block block = getChainBlockByNumber(first);
@@ -424,28 +506,22 @@ public class AionBlockStore {
 
             if (first == last) {
                 return List.of(block);
-            } else if (first > last) { // first is highest -> can query directly by parent hash
-                List<Block> blocks = new ArrayList<>();
-                blocks.add(block);
-
+            } else if (first > last) { // first is highest
+                List<Long> numbers = new ArrayList<>();
                 for (long i = first - 1; i >= (last > 0 ? last : 1); i--) {
-                    block = getBlockByHashWithInfo(block.getParentHash());
-                    if (block == null) {
-                        // the block should have been stored but null was returned above
-                        LOG.error(
-                                "Encountered a kernel database corruption: cannot find block at level {} in data store.",
-                                i);
-                        LOG.error(
-                                " Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
-                                i - 1);
-                        return null; // stops at any invalid data
-                    } else {
-                        blocks.add(block);
-                    }
+                    numbers.add(i);
+                }
+
+                List<Block> range = getChainBlocksByNumbers(numbers);
+                if (range == null) {
+                    return null; // stops at any invalid data
                 }
+
+                List<Block> blocks = new ArrayList<>(range.size() + 1);
+                blocks.add(block);
+                blocks.addAll(range);
                 return blocks;
             } else { // last is highest
-                LinkedList<Block> blocks = new LinkedList<>();
                 Block lastBlock = getChainBlockByNumber(last);
 
                 if (lastBlock == null) { // assuming height was above best block
@@ -472,32 +548,111 @@ public class AionBlockStore {
                 // or  it was higher than the best block and replaced with the best block
 
                 // building existing range
-                blocks.addFirst(lastBlock);
-                long newLast = lastBlock.getNumber();
-                for (long i = newLast - 1; i > first; i--) {
-                    lastBlock = getBlockByHashWithInfo(lastBlock.getParentHash());
-                    if (lastBlock == null) {
-                        LOG.error(
-                                "Encountered a kernel database corruption: cannot find block at level {} in block data store.",
-                                i);
-                        LOG.error(
-                                " Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
-                                i - 1);
-                        return null;
-                    } else {
-                        // always adding at the beginning of the list
-                        // to return the expected order of blocks
-                        blocks.addFirst(lastBlock);
-                    }
+                List<Long> numbers = new ArrayList<>();
+                for (long i = first + 1; i < lastBlock.getNumber(); i++) {
+                    numbers.add(i);
                 }
 
-                // adding the initial block
-                blocks.addFirst(block);
+                List<Block> range = getChainBlocksByNumbers(numbers);
+                if (range == null) {
+                    return null; // stops at any invalid data
+                }
+
+                List<Block> blocks = new ArrayList<>(range.size() + 2);
+                blocks.add(block);
+                blocks.addAll(range);
+                blocks.add(lastBlock);
                 return blocks;
             }
         } finally {
-            lock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the main chain blocks at the given heights. The hashes are taken from the index and
+     * the block data is read with a single batch request to the block database. Frozen blocks are
+     * read from the freezer by height.
+     *
+     * @param numbers the heights of the requested blocks
+     * @return the main chain blocks in the order of the given heights, with unity protocol info; or
+     *     {@code null} if any of the blocks cannot be found
+     */
+    @VisibleForTesting
+    List<Block> getChainBlocksByNumbers(List<Long> numbers) {
+        BlockInfo[] infos = new BlockInfo[numbers.size()];
+        Block[] result = new Block[numbers.size()];
+        List<Integer> positions = new ArrayList<>(numbers.size());
+        List<byte[]> hashes = new ArrayList<>(numbers.size());
+        long size = index.size();
+
+        for (int i = 0; i < infos.length; i++) {
+            long number = numbers.get(i);
+            BlockInfo mainChainInfo = null;
+            List<BlockInfo> blockInfos = number >= 0L && number < size ? index.get(number) : null;
+            if (blockInfos != null) {
+                for (BlockInfo blockInfo : blockInfos) {
+                    if (blockInfo.isMainChain()) {
+                        mainChainInfo = blockInfo;
+                        break;
+                    }
+                }
+            }
+
+            if (mainChainInfo == null) {
+                LOG.error(
+                        "Encountered a kernel database corruption: cannot find block at level {} in index data store.",
+                        number);
+                LOG.error(
+                        " Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
+                        number - 1);
+                return null;
+            }
+            infos[i] = mainChainInfo;
+
+            if (isFrozen(number)) {
+                result[i] = freezer.getBlock(number);
+            } else {
+                positions.add(i);
+                hashes.add(mainChainInfo.getHash());
+            }
+        }
+
+        if (!hashes.isEmpty()) {
+            List<BlockHeader> storedHeaders = headers.getBatch(hashes);
+            List<byte[]> storedBodies = bodies.getBatch(hashes);
+            for (int i = 0; i < hashes.size(); i++) {
+                BlockHeader header = storedHeaders.get(i);
+                if (header != null) {
+                    byte[] body = storedBodies.get(i);
+                    SharedRLPList transactions =
+                            body != null
+                                    ? (SharedRLPList) RLP.decode2SharedList(body).get(0)
+                                    : getBody(hashes.get(i));
+                    if (transactions != null) {
+                        result[positions.get(i)] = BlockUtil.newBlockWithHeader(header, transactions);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < result.length; i++) {
+            Block block = result[i];
+            if (block == null) {
+                // the block should have been stored but null was returned above
+                LOG.error(
+                        "Encountered a kernel database corruption: cannot find block at level {} in block data store.",
+                        numbers.get(i));
+                LOG.error(
+                        " Please shutdown the kernel and rollback the database by executing:\t./aion.sh -n <network> -r {}",
+                        numbers.get(i) - 1);
+                return null;
+            }
+            block.setTotalDifficulty(infos[i].getTotalDifficulty());
+            block.setMainChain();
         }
+
+        return new ArrayList<>(Arrays.asList(result));
     }
 
     /**
@@ -512,12 +667,32 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
+
+        try {
+            return getBlock(hash);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Get the header of the block with the given hash without reading the block transactions.
+     *
+     * @param hash the block hash
+     * @return the block header or {@code null} if the block is not stored
+     */
+    public BlockHeader getBlockHeaderByHash(byte[] hash) {
+        if (hash == null) {
+            return null;
+        }
+
+        readLock.lock();
 
         try {
-            return blocks.get(hash);
+            return getHeader(hash);
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -532,17 +707,17 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             // the index size is cached, making this check faster than reading from the db
             if (number >= index.size()) {
                 return false;
             } else {
-                return blocks.get(hash) != null;
+                return getHeader(hash) != null;
             }
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -557,12 +732,12 @@ public class AionBlockStore {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             return getBlockWithInfo(hash);
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -572,7 +747,7 @@ public class AionBlockStore {
      * @return the block data has matched hash with unity protocol info
      */
     private Block getBlockWithInfo(byte[] hash) {
-        Block returnBlock = blocks.get(hash);
+        Block returnBlock = getBlock(hash);
         if (returnBlock == null) {
             return null;
         } else {
@@ -641,51 +816,72 @@ public class AionBlockStore {
     }
 
     public long getMaxNumber() {
-        lock.lock();
+        readLock.lock();
 
         try {
             return index.size() - 1L;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
     public List<byte[]> getListHashesEndWith(byte[] hash, long number) {
-        lock.lock();
+        readLock.lock();
 
         try {
-            List<Block> blocks = getListBlocksEndWith(hash, number);
-            List<byte[]> hashes = new ArrayList<>(blocks.size());
+            List<BlockHeader> headers = getListHeadersEndWithInternal(hash, number);
+            List<byte[]> hashes = new ArrayList<>(headers.size());
 
-            for (Block b : blocks) {
-                hashes.add(b.getHash());
+            for (BlockHeader header : headers) {
+                hashes.add(header.getHash());
             }
 
             return hashes;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
+    /**
+     * Retrieves the given number of headers ending with the given hash. Only the header database
+     * is read, i.e. the block transactions are not loaded.
+     *
+     * @param hash the hash of the last header
+     * @param qty the maximum number of headers to retrieve
+     * @return the headers in descending order of their numbers
+     */
     public List<BlockHeader> getListHeadersEndWith(byte[] hash, long qty) {
         if (hash == null || qty < 0) {
             return null;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
-            List<Block> blocks = getListBlocksEndWith(hash, qty);
-            List<BlockHeader> headers = new ArrayList<>(blocks.size());
+            return getListHeadersEndWithInternal(hash, qty);
+        } finally {
+            readLock.unlock();
+        }
+    }
 
-            for (Block b : blocks) {
-                headers.add(b.getHeader());
-            }
+    /** @implNote The method calling this method must handle the locking. */
+    private List<BlockHeader> getListHeadersEndWithInternal(byte[] hash, long qty) {
+        BlockHeader header = getHeader(hash);
+        if (header == null) {
+            return new ArrayList<>();
+        }
 
-            return headers;
-        } finally {
-            lock.unlock();
+        List<BlockHeader> result = new ArrayList<>((int) qty);
+
+        for (int i = 0; i < qty; ++i) {
+            result.add(header);
+            header = getHeader(header.getParentHash());
+            if (header == null) {
+                break;
+            }
         }
+
+        return result;
     }
 
     public List<Block> getListBlocksEndWith(byte[] hash, long qty) {
@@ -693,7 +889,7 @@ public class AionBlockStore {
             return null;
         }
 
-        Block block = this.blocks.get(hash);
+        Block block = getBlock(hash);
 
         if (block == null) {
             return new ArrayList<>();
@@ -703,7 +899,7 @@ public class AionBlockStore {
 
         for (int i = 0; i < qty; ++i) {
             result.add(block);
-            block = this.blocks.get(block.getParentHash());
+            block = getBlock(block.getParentHash());
             if (block == null) {
                 break;
             }
@@ -714,7 +910,7 @@ public class AionBlockStore {
 
     /** @return the common block that was found during the re-branching */
     public long reBranch(Block forkBlock) {
-        lock.lock();
+        writeLock.lock();
 
         try {
             Block bestBlock = getBestBlock();
@@ -734,7 +930,7 @@ public class AionBlockStore {
                         setBlockInfoForLevel(currentLevel, blocks);
 
                         // For collecting branching blocks
-                        branchingBlk.push(this.blocks.get(blockInfo.getHash()));
+                        branchingBlk.push(getBlock(blockInfo.getHash()));
                     } else {
                         LOG.error(
                                 "Encountered a kernel database corruption: cannot find block with fork line hash {} at the level {} in index data store.",
@@ -743,7 +939,7 @@ public class AionBlockStore {
                         LOG.error(
                                 "Please reboot your node to trigger automatic database recovery by the kernel.");
                     }
-                    forkLine = this.blocks.get(forkLine.getParentHash());
+                    forkLine = getBlock(forkLine.getParentHash());
                     --currentLevel;
                 }
             }
@@ -760,7 +956,7 @@ public class AionBlockStore {
                         setBlockInfoForLevel(currentLevel, blocks);
 
                         // For collecting prebranching blocks
-                        preBranchingBlk.push(this.blocks.get(blockInfo.getHash()));
+                        preBranchingBlk.push(getBlock(blockInfo.getHash()));
                     } else {
                         LOG.error(
                                 "Encountered a kernel database corruption: cannot find block with best line hash {} at the level {} in index data store.",
@@ -769,7 +965,7 @@ public class AionBlockStore {
                         LOG.error(
                                 "Please reboot your node to trigger automatic database recovery by the kernel.");
                     }
-                    bestLine = this.blocks.get(bestLine.getParentHash());
+                    bestLine = getBlock(bestLine.getParentHash());
                     --currentLevel;
                 }
             }
@@ -781,7 +977,7 @@ public class AionBlockStore {
 
             return commonBlockNumber;
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -830,7 +1026,7 @@ public class AionBlockStore {
                 setBlockInfoForLevel(currentLevel, levelBlocks);
 
                 // For collecting preBranching blocks
-                preBranchingBlk.push(this.blocks.get(bestInfo.getHash()));
+                preBranchingBlk.push(getBlock(bestInfo.getHash()));
             } else {
                 LOG.error(
                         "Encountered a kernel database corruption: cannot find block with best line hash {} at the level {} in index data store.",
@@ -846,7 +1042,7 @@ public class AionBlockStore {
                 setBlockInfoForLevel(currentLevel, levelBlocks);
 
                 // For collecting branching blocks
-                branchingBlk.push(this.blocks.get(forkInfo.getHash()));
+                branchingBlk.push(getBlock(forkInfo.getHash()));
             } else {
                 LOG.error(
                         "Encountered a kernel database corruption: cannot find block with fork line hash {} at the level {} in index data store.",
@@ -856,8 +1052,8 @@ public class AionBlockStore {
                         "Please reboot your node to trigger automatic database recovery by the kernel.");
             }
 
-            bestLine = this.blocks.get(bestLine.getParentHash());
-            forkLine = this.blocks.get(forkLine.getParentHash());
+            bestLine = getBlock(bestLine.getParentHash());
+            forkLine = getBlock(forkLine.getParentHash());
 
             --currentLevel;
         }
@@ -880,7 +1076,7 @@ public class AionBlockStore {
      * @param targetLevel the height of the blockchain that we must revert to
      */
     public void revert(long targetLevel, Logger log) {
-        lock.lock();
+        writeLock.lock();
 
         try {
             log.info("Block store revert STARTED.");
@@ -902,6 +1098,9 @@ public class AionBlockStore {
                 return;
             }
 
+            // the frozen blocks above the target are removed before their index entries
+            truncateFreezer(targetLevel);
+
             // walk back removing blocks greater than the given level value
             while (currentLevel > targetLevel) {
                 // remove all the blocks at that level
@@ -911,7 +1110,7 @@ public class AionBlockStore {
                             + "Please reboot your node to trigger automatic database recovery by the kernel.");
                 } else {
                     for (BlockInfo bk_info : currentLevelBlocks) {
-                        blocks.delete(bk_info.getHash());
+                        deleteBlock(bk_info.getHash());
                         currentBatchSize++;
                     }
                 }
@@ -919,7 +1118,7 @@ public class AionBlockStore {
                 // remove the level
                 index.remove(currentLevel);
                 if (currentBatchSize >= TARGET_BATCH_SIZE) {
-                    blocks.commit();
+                    commitBlocks();
                     if (System.nanoTime() - time > TEN_SEC) {
                         log.info("Progress report: current height=" + currentLevel);
                         time = System.nanoTime();
@@ -928,21 +1127,21 @@ public class AionBlockStore {
                 }
                 --currentLevel;
             }
-            blocks.commit();
+            commitBlocks();
 
             log.info("Block store revert COMPLETE.");
             log.warn("Please be aware that the current main chain is the same chain that contained the best block encountered at the start of this operation. "
                     + "To keep this revert operation fast the main chain has not been updated based on existing side chains. The main chain will adjust itself when new blocks are imported.");
         } catch (Exception e) {
             // making sure the blocks get deleted if interrupted
-            blocks.commit();
+            commitBlocks();
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
     public void pruneAndCorrect(Logger log) {
-        lock.lock();
+        writeLock.lock();
 
         try {
             Block block = getBestBlockWithInfo();
@@ -965,7 +1164,7 @@ public class AionBlockStore {
                     start = System.nanoTime();
                 }
                 pruneSideChains(block, log);
-                block = blocks.get(block.getParentHash());
+                block = getBlock(block.getParentHash());
                 if (block == null) {
                     log.error(
                             "Block #"
@@ -1002,13 +1201,13 @@ public class AionBlockStore {
                 level++;
             }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
     /** @implNote The method calling this method must handle the locking. */
     private void pruneSideChains(Block block, Logger log) {
-        lock.lock();
+        writeLock.lock();
 
         try {
             // current level
@@ -1027,9 +1226,9 @@ public class AionBlockStore {
 
             // deleting incorrect parallel blocks
             for (BlockInfo wrongBlock : levelBlocks) {
-                blocks.delete(wrongBlock.getHash());
+                deleteBlock(wrongBlock.getHash());
             }
-            blocks.commit();
+            commitBlocks();
 
             // set new block info with total difficulty set to the block's difficulty
             // This value is corrected in the correctTotalDifficulty() step of pruneAndCorrect()
@@ -1040,7 +1239,7 @@ public class AionBlockStore {
 
             setBlockInfoForLevel(level, levelBlocks);
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -1075,7 +1274,7 @@ public class AionBlockStore {
             throw new NullPointerException();
         }
 
-        lock.lock();
+        writeLock.lock();
 
         try {
             long blockNumber = block.getNumber();
@@ -1120,12 +1319,12 @@ public class AionBlockStore {
 
             return block.getTotalDifficulty();
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
     public String dumpPastBlocks(long numberOfBlocks, String reportsFolder) throws IOException {
-        lock.lock();
+        readLock.lock();
 
         try {
             long firstBlock = getMaxNumber();
@@ -1153,7 +1352,7 @@ public class AionBlockStore {
                                     + "\nBlock on main chain: "
                                     + String.valueOf(bi.isMainChain()).toUpperCase());
                     writer.newLine();
-                    Block blk = blocks.get(bi.getHash());
+                    Block blk = getBlock(bi.getHash());
                     if (blk != null) {
                         writer.append("\nFull block data:\n");
                         writer.append(blk.toString());
@@ -1170,13 +1369,13 @@ public class AionBlockStore {
             writer.close();
             return file.getName();
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
     String dumpPastBlocksForConsensusTest(long firstBlock, String reportsFolder)
             throws IOException {
-        lock.lock();
+        readLock.lock();
 
         try {
             if (firstBlock < 0) {
@@ -1209,7 +1408,7 @@ public class AionBlockStore {
                                         + "\nBlock on main chain: "
                                         + String.valueOf(bi.isMainChain()).toUpperCase());
                         writer.newLine();
-                        Block blk = blocks.get(bi.getHash());
+                        Block blk = getBlock(bi.getHash());
                         if (blk != null) {
                             writer.append("\nFull block data:\n");
                             writer.append(blk.toString());
@@ -1227,7 +1426,7 @@ public class AionBlockStore {
             writer.close();
             return file.getName();
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -1236,13 +1435,13 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             // when null -> there was no block info for the hash
             return getBlockInfoForHash(getBlockInfoForLevel(level), hash) != null;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -1259,13 +1458,13 @@ public class AionBlockStore {
             return false;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             BlockInfo info = getBlockInfoForHash(getBlockInfoForLevel(level), hash);
             return info != null && info.isMainChain();
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -1296,7 +1495,7 @@ public class AionBlockStore {
             throw new IllegalArgumentException("maxnumber is below then zero");
         }
 
-        lock.lock();
+        writeLock.lock();
 
         try {
             // correcting the size if smaller than should be
@@ -1308,7 +1507,7 @@ public class AionBlockStore {
                 log.info("Corrupted index size corrected from {} to {}.", storedSize, index.size());
             }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -1322,7 +1521,7 @@ public class AionBlockStore {
             throw new NullPointerException("log is null");
         }
 
-        lock.lock();
+        writeLock.lock();
 
         try {
             Block currentBlock = block;
@@ -1343,7 +1542,7 @@ public class AionBlockStore {
                 setBlockInfoForLevel(currentBlock.getNumber(), infos);
 
                 // fix the info for parent
-                currentBlock = blocks.get(currentBlock.getParentHash());
+                currentBlock = getBlock(currentBlock.getParentHash());
                 if (currentBlock != null) {
                     infos = getBlockInfoForLevel(currentBlock.getNumber());
                     thisBlockInfo = getBlockInfoForHash(infos, currentBlock.getHash());
@@ -1352,7 +1551,7 @@ public class AionBlockStore {
                 }
             }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -1362,7 +1561,7 @@ public class AionBlockStore {
      * @param block the block that will be re-imported and should not be removed from the database
      */
      void redoIndexWithoutSideChains(Block block) {
-        lock.lock();
+        writeLock.lock();
 
         try {
 
@@ -1373,16 +1572,16 @@ public class AionBlockStore {
                 // delete all the side-chain blocks
                 for (BlockInfo blockInfo : level) {
                     if (!Arrays.equals(currentHash, blockInfo.getHash())) {
-                        blocks.delete(blockInfo.getHash());
+                        deleteBlock(blockInfo.getHash());
                     }
                 }
-                blocks.commit();
+                commitBlocks();
 
                 // replace all the block info with empty list
                 index.set(block.getNumber(), Collections.emptyList());
             }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
@@ -1402,7 +1601,7 @@ public class AionBlockStore {
             return blockFamily;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             Block block = getBlockWithInfo(hash);
@@ -1422,7 +1621,7 @@ public class AionBlockStore {
 
             return blockFamily;
         } finally {
-            lock.unlock();
+            readLock.unlock();
         }
     }
 
@@ -1441,7 +1640,7 @@ public class AionBlockStore {
             return blockFamily;
         }
 
-        lock.lock();
+        readLock.lock();
 
         try {
             Block block = getBlockWithInfo(hash);
@@ -1456,7 +1655,37 @@ public class AionBlockStore {
 
             return blockFamily;
         } finally {
-            lock.unlock();
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the headers of two generations of blocks without reading the block transactions.
+     * <p>
+     * Always returns a 2-element array. If the headers cannot be retrieved the array will contain null values.
+     * BlockHeader[0] is the parent header and has the given hash. BlockHeader[1] is the grandparent header.
+     *
+     * @param hash the hash of the parent block
+     * @return the retrieved two generation headers
+     */
+    public final BlockHeader[] getTwoGenerationHeadersByHash(byte[] hash) {
+        BlockHeader[] headerFamily = new BlockHeader[] { null, null};
+        if (hash == null) {
+            return headerFamily;
+        }
+
+        readLock.lock();
+
+        try {
+            BlockHeader header = getHeader(hash);
+            if (header != null) {
+                headerFamily[0] = header;
+                headerFamily[1] = getHeader(header.getParentHash());
+            }
+
+            return headerFamily;
+        } finally {
+            readLock.unlock();
         }
     }
 
@@ -1598,6 +1827,167 @@ public class AionBlockStore {
                 }
             };
 
+    /**
+     * Retrieves the block with the given hash from the block databases or the freezer.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private Block getBlock(byte[] hash) {
+        BlockHeader header = headers.get(hash);
+        if (header == null) {
+            return freezer == null ? null : freezer.getBlock(hash);
+        }
+        SharedRLPList body = getBody(hash);
+        return body == null ? null : BlockUtil.newBlockWithHeader(header, body);
+    }
+
+    /**
+     * Retrieves the header with the given hash from the header database or the freezer.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private BlockHeader getHeader(byte[] hash) {
+        BlockHeader header = headers.get(hash);
+        if (header == null && freezer != null) {
+            header = freezer.getHeader(hash);
+        }
+        return header;
+    }
+
+    /**
+     * Retrieves the decoded transaction list of the block with the given hash from the body
+     * database, or from the header database for blocks that have not been migrated.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private SharedRLPList getBody(byte[] hash) {
+        Optional<byte[]> body = bodies.get(hash);
+        if (body.isPresent()) {
+            return (SharedRLPList) RLP.decode2SharedList(body.get()).get(0);
+        }
+
+        Optional<byte[]> legacy = headerDatabase.get(hash);
+        if (legacy.isPresent()) {
+            SharedRLPList entry = (SharedRLPList) RLP.decode2SharedList(legacy.get()).get(0);
+            if (isLegacyBlock(entry)) {
+                return (SharedRLPList) entry.get(1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the header and body of the block with the given hash. The changes are applied by
+     * {@link #commitBlocks()}.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void deleteBlock(byte[] hash) {
+        headers.delete(hash);
+        bodies.delete(hash);
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void commitBlocks() {
+        // bodies first so that a stored header always has its body
+        bodies.commit();
+        headers.commit();
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private boolean isFrozen(long level) {
+        return freezer != null && level < freezer.count();
+    }
+
+    /**
+     * Moves the main chain blocks with heights lower than the given limit to the freezer. The
+     * blocks are removed from the block database after being written to disk by the freezer.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void freeze(long limit) {
+        long start = freezer.count();
+        for (long level = start; level < limit; level++) {
+            BlockInfo mainChainInfo = null;
+            List<BlockInfo> levelBlocks = getBlockInfoForLevel(level);
+            if (levelBlocks != null) {
+                for (BlockInfo blockInfo : levelBlocks) {
+                    if (blockInfo.isMainChain()) {
+                        mainChainInfo = blockInfo;
+                        break;
+                    }
+                }
+            }
+
+            Block block = mainChainInfo == null ? null : getBlock(mainChainInfo.getHash());
+            if (block == null) {
+                LOG.error(
+                        "Encountered a kernel database corruption: cannot find the main chain block at level {}. Stopped moving blocks to the freezer.",
+                        level);
+                break;
+            }
+            freezer.append(block);
+        }
+        freezer.sync();
+
+        long time = System.currentTimeMillis();
+        clearFrozenLevels();
+        LOG.debug(
+                "Moved blocks #{} to #{} to the freezer in {} ms.",
+                start,
+                freezer.count() - 1,
+                System.currentTimeMillis() - time);
+    }
+
+    /**
+     * Removes the frozen blocks and the side chain blocks at frozen heights from the block database.
+     * The index keeps only the main chain information at these heights.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void clearFrozenLevels() {
+        long cleared = freezer.getClearedCount();
+        long count = freezer.count();
+        if (cleared >= count) {
+            return;
+        }
+
+        for (long level = cleared; level < count; level++) {
+            byte[] frozenHash = freezer.getHash(level);
+            List<BlockInfo> levelBlocks = getBlockInfoForLevel(level);
+            if (levelBlocks == null) {
+                continue;
+            }
+
+            BlockInfo frozenInfo = null;
+            for (BlockInfo blockInfo : levelBlocks) {
+                deleteBlock(blockInfo.getHash());
+                if (Arrays.equals(frozenHash, blockInfo.getHash())) {
+                    frozenInfo = blockInfo;
+                }
+            }
+
+            if (frozenInfo != null && levelBlocks.size() > 1) {
+                List<BlockInfo> frozenLevel = new ArrayList<>();
+                frozenLevel.add(frozenInfo);
+                setBlockInfoForLevel(level, frozenLevel);
+            }
+        }
+        commitBlocks();
+        freezer.setClearedCount(count);
+    }
+
+    /**
+     * Removes the frozen blocks above the given height, which must also be removed from the index.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void truncateFreezer(long level) {
+        if (freezer != null && level + 1 < freezer.count()) {
+            freezer.truncate(level + 1);
+        }
+    }
+
     /** @implNote The method calling this method must handle the locking. */
     private List<BlockInfo> getBlockInfoForLevel(long level) {
         // locks acquired by calling method
@@ -1627,6 +2017,8 @@ public class AionBlockStore {
     }
 
     public void load() {
+        migrateLegacyBlocks();
+
         if (checkIntegrity) {
             // the integrity check updates the total difficulty of each block on the chain
             // it uses difficulty addition (not the temporary unity multiplication rule)
@@ -1634,6 +2026,88 @@ public class AionBlockStore {
         }
     }
 
+    /**
+     * Moves the transactions of the blocks stored before the headers and bodies were kept in
+     * separate databases to the body database, leaving only the headers in the block database.
+     * Blocks that have not been migrated remain readable, but header reads decode their
+     * transactions as well.
+     *
+     * <p>The chain is walked from the highest level down, so an interrupted migration is detected
+     * at the lowest level and resumed on the next start.
+     */
+    public void migrateLegacyBlocks() {
+        writeLock.lock();
+
+        try {
+            long first = freezer == null ? 0L : freezer.count();
+            long last = index.size() - 1L;
+            // an interrupted migration leaves full blocks at the lowest levels
+            if (first > last || !(hasLegacyBlocks(last) || hasLegacyBlocks(first))) {
+                return;
+            }
+
+            LOG.info("Moving the block bodies from #{} to #{} to a separate database. This may take a while...", first, last);
+            long start = System.currentTimeMillis();
+            long migrated = 0;
+            for (long level = last; level >= first; level--) {
+                List<BlockInfo> levelBlocks = getBlockInfoForLevel(level);
+                if (levelBlocks != null) {
+                    for (BlockInfo blockInfo : levelBlocks) {
+                        if (migrateLegacyBlock(blockInfo.getHash())) {
+                            migrated++;
+                        }
+                    }
+                }
+
+                if (level % MIGRATION_BATCH_SIZE == 0) {
+                    commitBlocks();
+                    LOG.info("Moved the block bodies down to #{}.", level);
+                }
+            }
+            commitBlocks();
+            LOG.info("Moved {} block bodies in {} seconds.", migrated, (System.currentTimeMillis() - start) / 1000);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private boolean hasLegacyBlocks(long level) {
+        List<BlockInfo> levelBlocks = getBlockInfoForLevel(level);
+        if (levelBlocks != null) {
+            for (BlockInfo blockInfo : levelBlocks) {
+                Optional<byte[]> stored = headerDatabase.get(blockInfo.getHash());
+                if (stored.isPresent() && isLegacyBlock((SharedRLPList) RLP.decode2SharedList(stored.get()).get(0))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits the full block stored for the given hash into a header and a body. The changes are
+     * applied by {@link #commitBlocks()}.
+     *
+     * @return {@code true} if a full block was found and split, {@code false} otherwise
+     * @implNote The method calling this method must handle the locking.
+     */
+    private boolean migrateLegacyBlock(byte[] hash) {
+        Optional<byte[]> stored = headerDatabase.get(hash);
+        if (!stored.isPresent()) {
+            return false;
+        }
+
+        SharedRLPList entry = (SharedRLPList) RLP.decode2SharedList(stored.get()).get(0);
+        if (!isLegacyBlock(entry)) {
+            return false;
+        }
+
+        bodies.put(hash, SharedRLPList.getRLPDataCopy((SharedRLPList) entry.get(1)));
+        headerDatabase.put(hash, SharedRLPList.getRLPDataCopy((SharedRLPList) entry.get(0)));
+        return true;
+    }
+
     public enum IntegrityCheckResult {
         ERROR,
         MISSING_GENESIS,
@@ -1646,7 +2120,7 @@ public class AionBlockStore {
      *  Don't remove it, see load method and AKI-370
      */
     public IntegrityCheckResult indexIntegrityCheck() {
-        lock.lock();
+        writeLock.lock();
 
         try {
             if (index.size() > 0) {
@@ -1734,7 +2208,7 @@ public class AionBlockStore {
                     }
 
                     for (BlockInfo bi : infos) {
-                        block = blocks.get(bi.getHash());
+                        block = getBlock(bi.getHash());
                         bi = new BlockInfo(block.getHash(), block.getTotalDifficulty(), bi.isMainChain());
                         LOG_CONS.info(
                                 "Correcting total difficulty for block hash: {} number: {} to {}.",
@@ -1759,7 +2233,7 @@ public class AionBlockStore {
                         }
 
                         for (BlockInfo bi : infos) {
-                            block = blocks.get(bi.getHash());
+                            block = getBlock(bi.getHash());
                             BlockInfo parentBlockInfo = getBlockInfoForHash(parentInfos, block.getParentHash());
                             if (parentBlockInfo == null) {
                                 LOG_CONS.error(
@@ -1792,12 +2266,12 @@ public class AionBlockStore {
                 return IntegrityCheckResult.CORRECT;
             }
         } finally{
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 
     public void close() {
-        lock.lock();
+        writeLock.lock();
 
         try {
             index.close();
@@ -1805,11 +2279,20 @@ public class AionBlockStore {
             LOG.error("Not able to close the index database:", e);
         } finally {
             try {
-                blocks.close();
+                headers.close();
             } catch (Exception e) {
                 LOG.error("Not able to close the blocks database:", e);
             } finally {
-                lock.unlock();
+                try {
+                    bodies.close();
+                } catch (Exception e) {
+                    LOG.error("Not able to close the block bodies database:", e);
+                } finally {
+                    if (freezer != null) {
+                        freezer.close();
+                    }
+                    writeLock.unlock();
+                }
             }
         }
     }
@@ -1819,27 +2302,28 @@ public class AionBlockStore {
             throw new IllegalArgumentException();
         }
 
-        lock.lock();
+        writeLock.lock();
 
         try {
 
             long level = index.size() - 1;
 
             LOG.debug("blockstore rollback block level from {} to {}", level, blockNumber);
+            truncateFreezer(blockNumber);
 
             while (level > blockNumber) {
                 // remove all the blocks at that level
                 List<BlockInfo> currentLevelBlocks = getBlockInfoForLevel(level);
 
                 for (BlockInfo bk_info : currentLevelBlocks) {
-                    blocks.delete(bk_info.getHash());
+                    deleteBlock(bk_info.getHash());
                 }
-                blocks.commit();
+                commitBlocks();
 
                 index.remove(level--);
             }
         } finally {
-            lock.unlock();
+            writeLock.unlock();
         }
     }
 }
@@ -8,7 +8,11 @@ import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.aion.base.db.ContractDetail;
@@ -25,8 +29,25 @@ import org.aion.util.types.ByteArrayWrapper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 
+/**
+ * Tracks the changes made on top of a repository until they are flushed to it.
+ *
+ * <p>A cache is either confined to a single thread or shared between threads. The caches created
+ * by {@link #AionRepositoryCache(Repository)} and {@link #startTracking()} are confined: they are
+ * used by one thread at a time, e.g. the thread executing a transaction, and do not lock their
+ * state, since the virtual machines access them millions of times per block. The caches created by
+ * {@link #createShared(Repository)} and {@link #startSharedTracking()} guard their state with a
+ * lock and can be used concurrently.
+ *
+ * <p>A cache reads the state of the cache it tracks under the lock of the tracked cache, and the
+ * accounts flushed to a cache are copies, so that a shared cache never holds objects updated by
+ * the confined caches that track it.
+ */
 public final class AionRepositoryCache implements RepositoryCache {
 
+    /** The lock of the confined caches, which does nothing. */
+    private static final Lock NO_LOCK = new NoLock();
+
     // Logger
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
@@ -42,20 +63,112 @@ public final class AionRepositoryCache implements RepositoryCache {
     /** local transformed code cache */
     private final Map<AionAddress, TransformedCodeInfoInterface> cachedTransformedCode;
 
-    private final Lock lock = new ReentrantLock();
+    /**
+     * Guards the state of shared caches; {@link #NO_LOCK} for confined caches.
+     *
+     * @implNote Only replaced by {@link #startSpeculativeTracking()} before the speculative caches
+     *     are handed to other threads.
+     */
+    private Lock lock;
+
+    /** addresses read from the tracked cache by a speculative cache; {@code null} otherwise */
+    private final Set<AionAddress> speculativeReads;
 
+    /** Creates a cache confined to a single thread at a time. */
     public AionRepositoryCache(final Repository trackedRepository) {
+        this(trackedRepository, null, NO_LOCK);
+    }
+
+    private AionRepositoryCache(final Repository trackedRepository, Set<AionAddress> speculativeReads, Lock lock) {
         this.repository = trackedRepository;
         this.cachedAccounts = new HashMap<>();
         this.cachedDetails = new HashMap<>();
         this.cachedTransformedCode = new HashMap<>();
+        this.speculativeReads = speculativeReads;
+        this.lock = lock;
     }
 
+    /** Creates a cache that can be used concurrently by several threads. */
+    public static AionRepositoryCache createShared(final Repository trackedRepository) {
+        return new AionRepositoryCache(trackedRepository, null, new ReentrantLock());
+    }
+
+    /** @return a new cache tracking this cache, confined to a single thread at a time */
     @Override
     public RepositoryCache startTracking() {
         return new AionRepositoryCache(this);
     }
 
+    /** @return a new cache tracking this cache, which can be used concurrently by several threads */
+    public AionRepositoryCache startSharedTracking() {
+        return createShared(this);
+    }
+
+    /**
+     * Creates a speculative cache tracking this cache. Several speculative caches of the same cache
+     * can be used concurrently from different threads, as long as this cache is not updated while
+     * they are in use. Each speculative cache must be used from a single thread.
+     *
+     * <p>The speculative cache records the addresses it reads from this cache. The changes
+     * committed to it by its children are applied to this cache by flushing the speculative cache.
+     *
+     * @return a new speculative cache tracking this cache
+     * @see #getAccessedAddresses()
+     */
+    public AionRepositoryCache startSpeculativeTracking() {
+        if (lock == NO_LOCK) {
+            // the speculative caches read this cache concurrently
+            lock = new ReentrantLock();
+        }
+        return new AionRepositoryCache(this, new HashSet<>(), NO_LOCK);
+    }
+
+    /** @return {@code true} if this cache was created by {@link #startSpeculativeTracking()} */
+    public boolean isSpeculative() {
+        return speculativeReads != null;
+    }
+
+    /**
+     * Returns the addresses of the accounts accessed through a speculative cache, i.e. the accounts
+     * read from the tracked cache and the accounts held by the speculative cache.
+     *
+     * @return the accessed addresses
+     * @throws IllegalStateException if this cache was not created by {@link
+     *     #startSpeculativeTracking()}
+     */
+    public Set<AionAddress> getAccessedAddresses() {
+        if (speculativeReads == null) {
+            throw new IllegalStateException("The accessed addresses are only recorded by speculative caches.");
+        }
+        lock.lock();
+        try {
+            Set<AionAddress> accessed = new HashSet<>(speculativeReads);
+            accessed.addAll(cachedAccounts.keySet());
+            accessed.addAll(cachedDetails.keySet());
+            return accessed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards the cached accounts and contract details except the ones of the given addresses,
+     * such that the other accounts are read again from the tracked repository. Used to keep the
+     * changes to the given accounts after the tracked repository has moved to a new state where
+     * these accounts were not modified.
+     *
+     * @param addresses the addresses of the accounts to keep
+     */
+    public void retainAccounts(Set<AionAddress> addresses) {
+        lock.lock();
+        try {
+            cachedAccounts.keySet().retainAll(addresses);
+            cachedDetails.keySet().retainAll(addresses);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public void createAccount(AionAddress address) {
         lock.lock();
@@ -134,6 +247,7 @@ public final class AionRepositoryCache implements RepositoryCache {
                 return !accountState.isDeleted();
             } else {
                 // check repository when not cached
+                recordSpeculativeRead(address);
                 return repository.hasAccountState(address);
             }
         } finally {
@@ -174,6 +288,7 @@ public final class AionRepositoryCache implements RepositoryCache {
 
             if (contractDetails == null) {
                 // ask repository when not cached
+                recordSpeculativeRead(address);
                 return repository.hasContractDetails(address);
             } else {
                 // TODO: may also need to check if the details are empty
@@ -193,19 +308,32 @@ public final class AionRepositoryCache implements RepositoryCache {
      *     ContractDetails} as they are known to the closest ancestor repository
      */
     private Pair<AccountState, InnerContractDetails> getAccountStateFromParent(AionAddress address) {
+        if (speculativeReads != null) {
+            return getAccountStateFromSharedParent(address);
+        }
+
         if (repository instanceof AionRepositoryCache) {
             AionRepositoryCache parent = (AionRepositoryCache) repository;
 
-            AccountState account = parent.cachedAccounts.get(address);
-            ContractDetails details = (ContractDetails) parent.cachedDetails.get(address);
+            parent.lock.lock();
+            try {
+                AccountState account = parent.cachedAccounts.get(address);
+                if (account != null) {
+                    // copy the objects if they were cached locally
+                    ContractDetails details = (ContractDetails) parent.cachedDetails.get(address);
+                    return Pair.of(new AccountState(account), new InnerContractDetails(details));
+                }
+            } finally {
+                parent.lock.unlock();
+            }
 
             // when account not cached load from grandparent
-            if (account == null) {
-                return parent.getAccountStateFromParent(address);
-            } else {
-                // copy the objects if they were cached locally
-                return Pair.of(new AccountState(account), new InnerContractDetails(details));
+            Pair<AccountState, InnerContractDetails> pair = parent.getAccountStateFromParent(address);
+            if (parent.speculativeReads != null) {
+                // the changes committed by this cache must remain in the speculative parent
+                return Pair.of(pair.getLeft(), new InnerContractDetails(pair.getRight()));
             }
+            return pair;
         } else {
             AccountState account = repository.getAccountState(address);
             InnerContractDetails details;
@@ -213,6 +341,9 @@ public final class AionRepositoryCache implements RepositoryCache {
                 account = new AccountState(account);
                 details = new InnerContractDetails(
                     (ContractDetails) repository.getContractDetails(address));
+                if (repository instanceof AionRepositoryImpl) {
+                    details.setSnapshotStorage(((AionRepositoryImpl) repository).getSnapshotStorageView(address));
+                }
             } else {
                 account = new AccountState();
                 details = new InnerContractDetails(null);
@@ -221,6 +352,46 @@ public final class AionRepositoryCache implements RepositoryCache {
         }
     }
 
+    /**
+     * Returns copies of the {@link AccountState} and {@link ContractDetails} from the tracked cache
+     * shared with other speculative caches. The tracked cache is read under its lock, while its
+     * ancestors are only read. When the original contract of the returned details is held by the
+     * tracked cache or its ancestors, it is wrapped to be read under the same lock.
+     */
+    private Pair<AccountState, InnerContractDetails> getAccountStateFromSharedParent(AionAddress address) {
+        AionRepositoryCache parent = (AionRepositoryCache) repository;
+        speculativeReads.add(address);
+
+        Pair<AccountState, InnerContractDetails> pair = null;
+        parent.lock.lock();
+        try {
+            AccountState account = parent.cachedAccounts.get(address);
+            if (account != null) {
+                ContractDetails details = (ContractDetails) parent.cachedDetails.get(address);
+                pair = Pair.of(new AccountState(account), new InnerContractDetails(details));
+            }
+        } finally {
+            parent.lock.unlock();
+        }
+
+        if (pair == null) {
+            // the stored contract details loaded from the repository are not shared
+            pair = parent.getAccountStateFromParent(address);
+        }
+
+        InnerContractDetails details = pair.getRight();
+        if (details.origContract instanceof InnerContractDetails) {
+            details.origContract = new SharedContractDetails(details.origContract, parent.lock);
+        }
+        return pair;
+    }
+
+    private void recordSpeculativeRead(AionAddress address) {
+        if (speculativeReads != null) {
+            speculativeReads.add(address);
+        }
+    }
+
     @Override
     public void deleteAccount(AionAddress address) {
         lock.lock();
@@ -499,6 +670,10 @@ public final class AionRepositoryCache implements RepositoryCache {
             // determine which contracts should get stored
             for (Map.Entry<AionAddress, ContractDetail> entry : cachedDetails.entrySet()) {
                 InnerContractDetails contractDetailsCache = (InnerContractDetails) entry.getValue();
+                if (contractDetailsCache.origContract instanceof SharedContractDetails) {
+                    // speculative changes are committed directly to the shared details
+                    contractDetailsCache.origContract = ((SharedContractDetails) contractDetailsCache.origContract).unwrap();
+                }
                 contractDetailsCache.commit();
 
                 if (contractDetailsCache.origContract == null && other.hasContractDetails(entry.getKey())) {
@@ -536,7 +711,8 @@ public final class AionRepositoryCache implements RepositoryCache {
         try {
 
             for (Map.Entry<AionAddress, AccountState> accEntry : accounts.entrySet()) {
-                this.cachedAccounts.put(accEntry.getKey(), accEntry.getValue());
+                // copied because the flushed cache may keep updating its accounts
+                this.cachedAccounts.put(accEntry.getKey(), new AccountState(accEntry.getValue()));
             }
 
             for (Map.Entry<AionAddress, TransformedCodeInfoInterface> entry : transformedCodeCache.entrySet()) {
@@ -634,4 +810,31 @@ public final class AionRepositoryCache implements RepositoryCache {
 
         return s.toString();
     }
+
+    /** A lock that does nothing, used by the caches confined to a single thread. */
+    private static final class NoLock implements Lock {
+        @Override
+        public void lock() {}
+
+        @Override
+        public void lockInterruptibly() {}
+
+        @Override
+        public boolean tryLock() {
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void unlock() {}
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Confined repository caches do not support conditions.");
+        }
+    }
 }
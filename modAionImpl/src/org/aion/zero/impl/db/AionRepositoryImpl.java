@@ -5,6 +5,8 @@ import static org.aion.crypto.HashUtil.h256;
 import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.aion.util.conversions.Hex.toHexString;
 import static org.aion.zero.impl.config.CfgDb.Names.BLOCK;
+import static org.aion.zero.impl.config.CfgDb.Names.BLOCK_BODY;
+import static org.aion.zero.impl.config.CfgDb.Names.BLOCK_NUMBER;
 import static org.aion.zero.impl.config.CfgDb.Names.CONTRACT_INDEX;
 import static org.aion.zero.impl.config.CfgDb.Names.CONTRACT_PERFORM_CODE;
 import static org.aion.zero.impl.config.CfgDb.Names.DEFAULT;
@@ -14,6 +16,8 @@ import static org.aion.zero.impl.config.CfgDb.Names.INDEX;
 import static org.aion.zero.impl.config.CfgDb.Names.PENDING_BLOCK;
 import static org.aion.zero.impl.config.CfgDb.Names.STATE;
 import static org.aion.zero.impl.config.CfgDb.Names.STATE_ARCHIVE;
+import static org.aion.zero.impl.config.CfgDb.Names.STATE_JOURNAL;
+import static org.aion.zero.impl.config.CfgDb.Names.STATE_SNAPSHOT;
 import static org.aion.zero.impl.config.CfgDb.Names.STORAGE;
 import static org.aion.zero.impl.config.CfgDb.Names.TRANSACTION;
 import static org.aion.zero.impl.config.CfgDb.Names.TX_CACHE;
@@ -41,6 +45,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.AionTransaction;
@@ -51,6 +56,7 @@ import org.aion.base.db.TransformedCodeInfoInterface;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.ByteArrayKeyValueStore;
 import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.rocksdb.RocksDBSharedInstance;
 import org.aion.db.store.ArchivedDataSource;
 import org.aion.db.store.JournalPruneDataSource;
 import org.aion.db.store.ObjectStore;
@@ -69,6 +75,7 @@ import org.aion.zero.impl.config.CfgDb.Props;
 import org.aion.zero.impl.trie.SecureTrie;
 import org.aion.zero.impl.trie.Trie;
 import org.aion.zero.impl.trie.TrieImpl;
+import org.aion.zero.impl.trie.TrieNodeCache;
 import org.aion.zero.impl.trie.TrieNodeResult;
 import org.aion.p2p.V1Constants;
 import org.aion.precompiled.ContractInfo;
@@ -83,6 +90,7 @@ import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.sync.DatabaseType;
 import org.aion.zero.impl.types.AionGenesis;
 import org.aion.zero.impl.types.AionTxInfo;
+import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 
@@ -93,9 +101,15 @@ public final class AionRepositoryImpl implements Repository {
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
     private static final Logger LOGGEN = AionLoggerFactory.getLogger(LogEnum.GEN.name());
 
+    // Directory used for the shared RocksDB instance when databases are stored as column families.
+    private static final String COLUMN_FAMILIES_DIRECTORY = "columnFamilies";
+
     // Read Write Lock
     private ReadWriteLock rwLock = new ReentrantReadWriteLock();
 
+    // Shared RocksDB instance holding all the databases as column families. Null when disabled.
+    private RocksDBSharedInstance sharedInstance;
+
     // Databases used by the repository.
     private Collection<ByteArrayKeyValueDatabase> databaseGroup;
     @VisibleForTesting ByteArrayKeyValueDatabase transactionDatabase;
@@ -105,8 +119,12 @@ public final class AionRepositoryImpl implements Repository {
     @VisibleForTesting ByteArrayKeyValueDatabase graphDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase indexDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase blockDatabase;
+    @VisibleForTesting ByteArrayKeyValueDatabase blockBodyDatabase;
+    @VisibleForTesting ByteArrayKeyValueDatabase blockNumberDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase stateDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase stateArchiveDatabase;
+    @VisibleForTesting ByteArrayKeyValueDatabase stateJournalDatabase;
+    @VisibleForTesting ByteArrayKeyValueDatabase stateSnapshotDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase txPoolDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase pendingTxCacheDatabase;
     @VisibleForTesting ByteArrayKeyValueDatabase contractPerformCodeDatabase;
@@ -123,9 +141,20 @@ public final class AionRepositoryImpl implements Repository {
     private long archiveRate;
     private boolean pruneEnabled;
 
+    // Flat state snapshot used for account and storage reads. Shared with the repository snapshots.
+    private StateSnapshot stateSnapshot;
+    // The state root at which the flat snapshot is read and the changes applied on top of it.
+    private byte[] snapshotRoot = ConstantUtil.EMPTY_TRIE_HASH;
+    private StateSnapshot.Diff snapshotDiff = new StateSnapshot.Diff();
+
     private DetailsDataStore detailsDS;
     private TransactionStore transactionStore;
 
+    // Storage keys recently written by each contract. Shared with the repository snapshots.
+    private static final int RECENT_STORAGE_CONTRACTS = 1024;
+    private static final int RECENT_STORAGE_KEYS = 64;
+    private Map<AionAddress, Set<ByteArrayWrapper>> recentStorageKeys = Collections.synchronizedMap(new LRUMap<>(RECENT_STORAGE_CONTRACTS));
+
     // pending block store
     private PendingBlockStore pendingStore;
 
@@ -135,6 +164,9 @@ public final class AionRepositoryImpl implements Repository {
     // Stored transformed code. Not necessary, but speeds up AVM contract calls.
     private ObjectStore<TransformedCodeInfo> transformedCodeSource;
 
+    // Contract details and transformed code written since the last block commit.
+    private RepositoryWriteBuffer writeBuffer;
+
     // TODO: include in the repository config after the FVM is decoupled or remove RepositoryConfig and pass individual parameters
     private int blockCacheSize;
 
@@ -166,8 +198,16 @@ public final class AionRepositoryImpl implements Repository {
         try {
             initializeDatabasesAndCaches(cfg);
 
+            // Size the cache of decoded trie nodes shared by the state and storage tries.
+            String trieNodeCacheSize = cfg.getDatabaseConfig(DEFAULT).getProperty(Props.TRIE_NODE_CACHE_SIZE);
+            if (trieNodeCacheSize != null) {
+                TrieNodeCache.getInstance().setMaxSize(Long.parseLong(trieNodeCacheSize));
+            }
+
+            writeBuffer = new RepositoryWriteBuffer(LOG);
+
             // Setup the cache for the contract details data source.
-            detailsDS = new DetailsDataStore(detailsDatabase, storageDatabase, graphDatabase, LOG);
+            detailsDS = new DetailsDataStore(detailsDatabase, storageDatabase, graphDatabase, writeBuffer, LOG);
 
             // Setup the cache for transaction data source.
             this.transactionStore =
@@ -175,12 +215,19 @@ public final class AionRepositoryImpl implements Repository {
                             transactionDatabase, AionTransactionStoreSerializer.serializer);
 
             // Setup block store. Read integrity check flag (set to perform a block store integrity check at startup) directly from config.
-            blockStore = new AionBlockStore(indexDatabase, blockDatabase, Boolean.valueOf(cfg.getDatabaseConfig(DEFAULT).getProperty(Props.CHECK_INTEGRITY)), blockCacheSize);
+            blockStore = new AionBlockStore(indexDatabase, blockDatabase, blockBodyDatabase, Boolean.valueOf(cfg.getDatabaseConfig(DEFAULT).getProperty(Props.CHECK_INTEGRITY)), blockCacheSize, createBlockFreezer(cfg));
 
             pendingStore = new PendingBlockStore(getDatabaseConfig(cfg, PENDING_BLOCK, cfg.getDbPath()));
             this.contractInfoSource = Stores.newObjectStoreWithCache(contractIndexDatabase, ContractInformation.RLP_SERIALIZER, 10, true);
             this.transformedCodeSource = Stores.newObjectStore(contractPerformCodeDatabase, TransformedCodeSerializer.RLP_SERIALIZER);
 
+            // Setup the flat state snapshot. An empty snapshot is initialized for new databases.
+            stateSnapshot = new StateSnapshot(stateSnapshotDatabase, stateDatabase.isEmpty(), LOG);
+            Block bestBlock = blockStore.getBestBlock();
+            if (bestBlock != null) {
+                stateSnapshot.checkDiskRoot(bestBlock.getStateRoot());
+            }
+
             // State and pruning config.
             if (cfg.getPruneConfig().isArchived()) {
                 setupSpreadPruning(cfg.getPruneConfig().getCurrentCount(), cfg.getPruneConfig().getArchiveRate(), getDatabaseConfig(cfg, STATE_ARCHIVE, cfg.getDbPath()));
@@ -212,11 +259,11 @@ public final class AionRepositoryImpl implements Repository {
         this.archiveRate = rate;
 
         // using state config for state_archive
-        stateArchiveDatabase = connectAndOpen(dbConfig, LOG);
+        stateArchiveDatabase = connectDatabase(dbConfig);
         databaseGroup.add(stateArchiveDatabase);
 
         stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
-        stateDSPrune = new JournalPruneDataSource(stateWithArchive, LOG);
+        stateDSPrune = new JournalPruneDataSource(stateWithArchive, stateJournalDatabase, LOG);
 
         stateDSPrune.setPruneEnabled(pruneEnabled);
         worldState = createStateTrie();
@@ -232,7 +279,7 @@ public final class AionRepositoryImpl implements Repository {
 
         stateArchiveDatabase = null;
         stateWithArchive = null;
-        stateDSPrune = new JournalPruneDataSource(stateDatabase, LOG);
+        stateDSPrune = new JournalPruneDataSource(stateDatabase, stateJournalDatabase, LOG);
 
         stateDSPrune.setPruneEnabled(pruneEnabled);
         worldState = createStateTrie();
@@ -266,20 +313,45 @@ public final class AionRepositoryImpl implements Repository {
             }
         }
 
+        // store all the databases as column families of a single RocksDB instance when requested
+        Properties defaultProps = cfg.getDatabaseConfig(DEFAULT);
+        if (vendor.equals(DBVendor.ROCKSDB) && Boolean.parseBoolean(defaultProps.getProperty(Props.ENABLE_COLUMN_FAMILIES))) {
+            sharedInstance = new RocksDBSharedInstance(new File(dbPath, COLUMN_FAMILIES_DIRECTORY).getAbsolutePath(), LOG, Boolean.parseBoolean(defaultProps.getProperty(Props.ENABLE_DB_COMPRESSION)));
+            LOGGEN.info("The databases are stored as column families of the RocksDB instance at {}.", sharedInstance.getPath());
+        }
+
         Properties sharedProps;
         databaseGroup = new ArrayList<>();
 
         // getting state specific properties
         sharedProps = getDatabaseConfig(cfg, STATE, dbPath);
-        this.stateDatabase = connectAndOpen(sharedProps, LOG);
+        this.stateDatabase = connectDatabase(sharedProps);
         if (stateDatabase == null || stateDatabase.isClosed()) {
             throw newException(STATE, sharedProps);
         }
         databaseGroup.add(stateDatabase);
 
+        // getting state journal specific properties
+        // this db stores the state changes of recent blocks used for pruning
+        sharedProps = getDatabaseConfig(cfg, STATE_JOURNAL, dbPath);
+        this.stateJournalDatabase = connectDatabase(sharedProps);
+        if (stateJournalDatabase == null || stateJournalDatabase.isClosed()) {
+            throw newException(STATE_JOURNAL, sharedProps);
+        }
+        databaseGroup.add(stateJournalDatabase);
+
+        // getting state snapshot specific properties
+        // this db stores the flat account and storage data used for fast state reads
+        sharedProps = getDatabaseConfig(cfg, STATE_SNAPSHOT, dbPath);
+        this.stateSnapshotDatabase = connectDatabase(sharedProps);
+        if (stateSnapshotDatabase == null || stateSnapshotDatabase.isClosed()) {
+            throw newException(STATE_SNAPSHOT, sharedProps);
+        }
+        databaseGroup.add(stateSnapshotDatabase);
+
         // getting transaction specific properties
         sharedProps = getDatabaseConfig(cfg, TRANSACTION, dbPath);
-        this.transactionDatabase = connectAndOpen(sharedProps, LOG);
+        this.transactionDatabase = connectDatabase(sharedProps);
         if (transactionDatabase == null || transactionDatabase.isClosed()) {
             throw newException(TRANSACTION, sharedProps);
         }
@@ -288,7 +360,7 @@ public final class AionRepositoryImpl implements Repository {
         // getting contract index specific properties
         // this db will be used only for fast sync
         sharedProps = getDatabaseConfig(cfg, CONTRACT_INDEX, dbPath);
-        this.contractIndexDatabase = connectAndOpen(sharedProps, LOG);
+        this.contractIndexDatabase = connectDatabase(sharedProps);
         if (contractIndexDatabase == null || contractIndexDatabase.isClosed()) {
             throw newException(CONTRACT_INDEX, sharedProps);
         }
@@ -296,7 +368,7 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting contract perform code specific properties
         sharedProps = getDatabaseConfig(cfg, CONTRACT_PERFORM_CODE, dbPath);
-        this.contractPerformCodeDatabase = connectAndOpen(sharedProps, LOG);
+        this.contractPerformCodeDatabase = connectDatabase(sharedProps);
         if (contractPerformCodeDatabase == null || contractPerformCodeDatabase.isClosed()) {
             throw newException(CONTRACT_PERFORM_CODE, sharedProps);
         }
@@ -304,7 +376,7 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting details specific properties
         sharedProps = getDatabaseConfig(cfg, DETAILS, dbPath);
-        this.detailsDatabase = connectAndOpen(sharedProps, LOG);
+        this.detailsDatabase = connectDatabase(sharedProps);
         if (detailsDatabase == null || detailsDatabase.isClosed()) {
             throw newException(DETAILS, sharedProps);
         }
@@ -312,7 +384,7 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting storage specific properties
         sharedProps = getDatabaseConfig(cfg, STORAGE, dbPath);
-        this.storageDatabase = connectAndOpen(sharedProps, LOG);
+        this.storageDatabase = connectDatabase(sharedProps);
         if (storageDatabase == null || storageDatabase.isClosed()) {
             throw newException(STORAGE, sharedProps);
         }
@@ -320,7 +392,7 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting graph specific properties
         sharedProps = getDatabaseConfig(cfg, GRAPH, dbPath);
-        this.graphDatabase = connectAndOpen(sharedProps, LOG);
+        this.graphDatabase = connectDatabase(sharedProps);
         if (graphDatabase == null || graphDatabase.isClosed()) {
             throw newException(GRAPH, sharedProps);
         }
@@ -328,7 +400,7 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting index specific properties
         sharedProps = getDatabaseConfig(cfg, INDEX, dbPath);
-        this.indexDatabase = connectAndOpen(sharedProps, LOG);
+        this.indexDatabase = connectDatabase(sharedProps);
         if (indexDatabase == null || indexDatabase.isClosed()) {
             throw newException(INDEX, sharedProps);
         }
@@ -336,15 +408,33 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting block specific properties
         sharedProps = getDatabaseConfig(cfg, BLOCK, dbPath);
-        this.blockDatabase = connectAndOpen(sharedProps, LOG);
+        this.blockDatabase = connectDatabase(sharedProps);
         if (blockDatabase == null || blockDatabase.isClosed()) {
             throw newException(BLOCK, sharedProps);
         }
         databaseGroup.add(blockDatabase);
 
+        // getting block body specific properties
+        // the block database holds only the headers, while the transactions are stored here
+        sharedProps = getDatabaseConfig(cfg, BLOCK_BODY, dbPath);
+        this.blockBodyDatabase = connectDatabase(sharedProps);
+        if (blockBodyDatabase == null || blockBodyDatabase.isClosed()) {
+            throw newException(BLOCK_BODY, sharedProps);
+        }
+        databaseGroup.add(blockBodyDatabase);
+
+        // getting block number specific properties
+        // this db maps the hashes of the blocks moved to the freezer to their numbers
+        sharedProps = getDatabaseConfig(cfg, BLOCK_NUMBER, dbPath);
+        this.blockNumberDatabase = connectDatabase(sharedProps);
+        if (blockNumberDatabase == null || blockNumberDatabase.isClosed()) {
+            throw newException(BLOCK_NUMBER, sharedProps);
+        }
+        databaseGroup.add(blockNumberDatabase);
+
         // getting pending tx pool specific properties
         sharedProps = getDatabaseConfig(cfg, TX_POOL, dbPath);
-        this.txPoolDatabase = connectAndOpen(sharedProps, LOG);
+        this.txPoolDatabase = connectDatabase(sharedProps);
         if (txPoolDatabase == null || txPoolDatabase.isClosed()) {
             throw newException(TX_POOL, sharedProps);
         }
@@ -352,13 +442,52 @@ public final class AionRepositoryImpl implements Repository {
 
         // getting pending tx cache specific properties
         sharedProps = getDatabaseConfig(cfg, TX_CACHE, dbPath);
-        this.pendingTxCacheDatabase = connectAndOpen(sharedProps, LOG);
+        this.pendingTxCacheDatabase = connectDatabase(sharedProps);
         if (pendingTxCacheDatabase == null || pendingTxCacheDatabase.isClosed()) {
             throw newException(TX_CACHE, sharedProps);
         }
         databaseGroup.add(pendingTxCacheDatabase);
     }
 
+    /**
+     * Opens the freezer for the ancient blocks when enabled by the configuration or when blocks were
+     * frozen by a previous run.
+     *
+     * @return the block freezer or {@code null} when it is not used or the databases are not
+     *     persistent
+     */
+    private BlockFreezer createBlockFreezer(RepositoryConfig cfg) throws IOException {
+        Properties props = cfg.getDatabaseConfig(DEFAULT);
+        if (!DBVendor.fromString(props.getProperty(Props.DB_TYPE)).isFileBased()) {
+            return null;
+        }
+
+        long depth = Long.parseLong(props.getProperty(Props.FREEZER_DEPTH, "0"));
+        File directory = new File(props.getProperty(Props.FREEZER_PATH, "ancient"));
+        if (!directory.isAbsolute()) {
+            directory = new File(cfg.getDbPath(), directory.getPath());
+        }
+
+        if (depth <= 0 && !directory.isDirectory()) {
+            return null;
+        } else {
+            depth = depth <= 0 ? 0 : Math.max(depth, BlockFreezer.MIN_DEPTH);
+            return new BlockFreezer(directory, blockNumberDatabase, depth, LOG);
+        }
+    }
+
+    /**
+     * Connects to and opens the database described by the given properties, either as a standalone
+     * database or as a column family of the shared RocksDB instance.
+     */
+    private ByteArrayKeyValueDatabase connectDatabase(Properties props) {
+        if (sharedInstance != null) {
+            return connectAndOpen(sharedInstance, props, LOG);
+        } else {
+            return connectAndOpen(props, LOG);
+        }
+    }
+
     private Properties getDatabaseConfig(RepositoryConfig cfg, String dbName, String dbPath) {
         Properties prop = cfg.getDatabaseConfig(dbName);
         prop.setProperty(Props.ENABLE_LOCKING, "false");
@@ -386,7 +515,7 @@ public final class AionRepositoryImpl implements Repository {
     }
 
     private Trie createStateTrie() {
-        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneEnabled);
+        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneEnabled).withDeferredHashing(true);
     }
 
     @Override
@@ -406,6 +535,7 @@ public final class AionRepositoryImpl implements Repository {
                     // TODO-A: batch operations here
                     try {
                         worldState.delete(address.toByteArray());
+                        snapshotDiff.deleteAccount(address);
                     } catch (Exception e) {
                         LOG.error("key deleted exception [{}]", e.toString());
                     }
@@ -448,6 +578,11 @@ public final class AionRepositoryImpl implements Repository {
                     // this method requires the encoding functionality therefore can be applied only to StoredContractDetails
                     detailsDS.update(address, parentDetails);
 
+                    for (Map.Entry<ByteArrayWrapper, ByteArrayWrapper> storageEntry : contractDetailsCache.getStorageUpdates().entrySet()) {
+                        snapshotDiff.updateStorage(address, storageEntry.getKey(), storageEntry.getValue());
+                    }
+                    recordStorageKeys(address, contractDetailsCache.getStorageUpdates().keySet());
+
                     accountState.setStateRoot(parentDetails.getStorageHash());
 
                     updateAccountState(address, accountState);
@@ -505,6 +640,7 @@ public final class AionRepositoryImpl implements Repository {
             if (LOG.isInfoEnabled()) {
                 LOG.info("flush all databases");
             }
+            flushWriteBuffer();
 
             if (LOG.isInfoEnabled()) {
                 LOG.info("RepositoryImpl.flush took " + (System.currentTimeMillis() - s) + " ms");
@@ -544,6 +680,7 @@ public final class AionRepositoryImpl implements Repository {
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            resetSnapshotRoot(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -571,6 +708,16 @@ public final class AionRepositoryImpl implements Repository {
 
     @Override
     public ByteArrayWrapper getStorageValue(AionAddress address, ByteArrayWrapper key) {
+        rwLock.readLock().lock();
+        try {
+            byte[] value = stateSnapshot.getStorage(snapshotRoot, snapshotDiff, address, key);
+            if (value != null) {
+                return value.length == 0 ? null : ByteArrayWrapper.wrap(value);
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+
         ContractDetails details = getContractDetails(address);
         return (details == null) ? null : details.get(key);
     }
@@ -639,8 +786,7 @@ public final class AionRepositoryImpl implements Repository {
         rwLock.readLock().lock();
 
         try {
-            TransformedCodeInfo transformedCodeInfo = transformedCodeSource
-                .get(address.toByteArray());
+            TransformedCodeInfo transformedCodeInfo = readTransformedCodeInfo(address);
 
             if (transformedCodeInfo == null) {
                 return null;
@@ -658,22 +804,31 @@ public final class AionRepositoryImpl implements Repository {
         rwLock.writeLock().lock();
 
         try {
-            TransformedCodeInfo transformedCodeInfo = transformedCodeSource.get(address.toByteArray());
+            TransformedCodeInfo transformedCodeInfo = readTransformedCodeInfo(address);
 
             if (transformedCodeInfo == null) {
                 transformedCodeInfo = new TransformedCodeInfo();
             }
 
             transformedCodeInfo.add(ByteArrayWrapper.wrap(codeHash), avmVersion, transformedCode);
-            transformedCodeSource.put(address.toByteArray(), transformedCodeInfo);
-            // TODO AKI-309: refactor to flush in bulk
-            transformedCodeSource.commit();
+            // written to disk together with the other updates of the block
+            writeBuffer.put(contractPerformCodeDatabase, address.toByteArray(), TransformedCodeSerializer.RLP_SERIALIZER.serialize(transformedCodeInfo));
         }
         finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    /** Reads the transformed code of the contract from the unflushed updates or the database. */
+    private TransformedCodeInfo readTransformedCodeInfo(AionAddress address) {
+        byte[] buffered = writeBuffer.get(contractPerformCodeDatabase, address.toByteArray());
+        if (buffered != null) {
+            return TransformedCodeSerializer.RLP_SERIALIZER.deserialize(buffered);
+        } else {
+            return transformedCodeSource.get(address.toByteArray());
+        }
+    }
+
     @Override
     public InternalVmType getVmType(AionAddress contract) {
         ContractDetails details = getContractDetails(contract);
@@ -695,7 +850,60 @@ public final class AionRepositoryImpl implements Repository {
     /** @implNote The method calling this method must handle the locking. */
     private void updateAccountState(AionAddress address, AccountState accountState) {
         // locked by calling method
-        worldState.update(address.toByteArray(), accountState.getEncoded());
+        byte[] encoding = accountState.getEncoded();
+        worldState.update(address.toByteArray(), encoding);
+        snapshotDiff.updateAccount(address, encoding);
+    }
+
+    /**
+     * Discards the changes accumulated for the flat state snapshot and sets the root used for
+     * snapshot reads.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void resetSnapshotRoot(byte[] root) {
+        snapshotRoot = root;
+        snapshotDiff = new StateSnapshot.Diff();
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void recordStorageKeys(AionAddress address, Set<ByteArrayWrapper> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Set<ByteArrayWrapper> recent = recentStorageKeys.computeIfAbsent(address, k -> Collections.newSetFromMap(new LRUMap<>(RECENT_STORAGE_KEYS)));
+        synchronized (recent) {
+            recent.addAll(keys);
+        }
+    }
+
+    /**
+     * Returns the storage keys most recently written by the given contract, which are likely to be
+     * accessed again by the following calls to the contract. Used to warm up the caches before the
+     * execution of queued blocks.
+     */
+    public List<ByteArrayWrapper> getRecentStorageKeys(AionAddress address) {
+        Set<ByteArrayWrapper> recent = recentStorageKeys.get(address);
+        if (recent == null) {
+            return Collections.emptyList();
+        }
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * Returns a view of the flat state snapshot for the storage of the given account at the
+     * current state root, or {@code null} when the repository has changes that were not committed
+     * as a block.
+     */
+    StateSnapshot.StorageView getSnapshotStorageView(AionAddress address) {
+        rwLock.readLock().lock();
+        try {
+            return snapshotDiff.isEmpty() ? new StateSnapshot.StorageView(stateSnapshot, snapshotRoot, address) : null;
+        } finally {
+            rwLock.readLock().unlock();
+        }
     }
 
     /**
@@ -751,7 +959,11 @@ public final class AionRepositoryImpl implements Repository {
         AccountState result = null;
 
         try {
-            byte[] accountData = worldState.get(address.toByteArray());
+            byte[] accountData = stateSnapshot.getAccount(snapshotRoot, snapshotDiff, address);
+            if (accountData == null) {
+                // the current root is not covered by the snapshot
+                accountData = worldState.get(address.toByteArray());
+            }
 
             if (accountData.length != 0) {
                 result = new AccountState(accountData);
@@ -798,6 +1010,7 @@ public final class AionRepositoryImpl implements Repository {
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            resetSnapshotRoot(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -813,6 +1026,14 @@ public final class AionRepositoryImpl implements Repository {
         try {
             worldState.sync();
 
+            byte[] root = worldState.getRootHash();
+            stateSnapshot.addLayer(snapshotRoot, root, snapshotDiff);
+            resetSnapshotRoot(root);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Block #{} committed with {}", blockNumber, TrieNodeCache.getInstance());
+            }
+
             if (pruneEnabled) {
                 if (stateDSPrune.isArchiveEnabled() && blockNumber % archiveRate == 0) {
                     // archive block
@@ -822,11 +1043,72 @@ public final class AionRepositoryImpl implements Repository {
                 detailsDS.getStorageDSPrune().storeBlockChanges(blockHash, blockNumber);
                 pruneBlocks(blockNumber);
             }
+
+            // group commit of the contract details and transformed code of the block
+            flushWriteBuffer();
         } finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    /**
+     * Writes the contract details and transformed code buffered for the imported blocks. A failed
+     * write is fatal, because the state trie and block store of the same blocks are already
+     * written and the node cannot continue without the contract updates.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void flushWriteBuffer() {
+        try {
+            writeBuffer.flush();
+        } catch (IllegalStateException e) {
+            LOGGEN.error("Shutdown due to failure to write the contract updates to disk.", e);
+            Throwable cause = e.getCause();
+            if (cause != null && cause.getMessage() != null && cause.getMessage().contains("No space left on device")) {
+                System.exit(SystemExitCodes.OUT_OF_DISK_SPACE);
+            } else {
+                System.exit(SystemExitCodes.DATABASE_CORRUPTION);
+            }
+        }
+    }
+
+    /**
+     * Starts grouping all the database writes performed by the calling thread into a single atomic
+     * batch that is written by {@link #commitAtomicWrite()}. Calls can be nested.
+     *
+     * @implNote Has effect only when the databases are stored as column families of a shared
+     *     RocksDB instance.
+     */
+    public void startAtomicWrite() {
+        if (sharedInstance != null) {
+            sharedInstance.startAtomicWrite();
+        }
+    }
+
+    /**
+     * Atomically writes to disk all the database updates accumulated since {@link
+     * #startAtomicWrite()} by the calling thread.
+     *
+     * @throws IllegalStateException when the updates could not be written to disk
+     */
+    public void commitAtomicWrite() {
+        if (sharedInstance != null) {
+            sharedInstance.commitAtomicWrite();
+        }
+    }
+
+    /**
+     * Discards all the database updates accumulated since {@link #startAtomicWrite()} by the
+     * calling thread, including the ones of enclosing calls.
+     */
+    public void abortAtomicWrite() {
+        if (sharedInstance != null) {
+            sharedInstance.abortAtomicWrite();
+            // the cached encodings may include discarded updates
+            detailsDS.invalidateCache();
+        }
+    }
+
     private void pruneBlocks(long currentBlockNumber) {
         if (currentBlockNumber > bestBlockNumber) {
             // Prune only on increasing blocks
@@ -865,9 +1147,12 @@ public final class AionRepositoryImpl implements Repository {
             repo.blockStore = blockStore;
             repo.contractInfoSource = contractInfoSource;
             repo.transformedCodeSource = transformedCodeSource;
+            repo.contractPerformCodeDatabase = contractPerformCodeDatabase;
+            repo.writeBuffer = writeBuffer;
             repo.stateDatabase = this.stateDatabase;
             repo.stateWithArchive = this.stateWithArchive;
             repo.stateDSPrune = this.stateDSPrune;
+            repo.sharedInstance = this.sharedInstance;
 
             // pruning config
             repo.pruneEnabled = this.pruneEnabled;
@@ -875,11 +1160,16 @@ public final class AionRepositoryImpl implements Repository {
             repo.archiveRate = this.archiveRate;
 
             repo.detailsDS = this.detailsDS;
+            repo.recentStorageKeys = this.recentStorageKeys;
             repo.isSnapshot = true;
 
             repo.worldState = repo.createStateTrie();
             repo.worldState.setRoot(root);
 
+            // snapshots read the flat state at their own root
+            repo.stateSnapshot = this.stateSnapshot;
+            repo.snapshotRoot = root;
+
             // gives snapshots access to the pending store
             repo.pendingStore = this.pendingStore;
 
@@ -946,6 +1236,25 @@ public final class AionRepositoryImpl implements Repository {
     public void close() {
         rwLock.writeLock().lock();
         try {
+            try {
+                if (stateSnapshot != null && !isSnapshot) {
+                    // persist the diff layers leading to the current state
+                    stateSnapshot.flatten(snapshotRoot);
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while persisting the state snapshot.", e);
+            }
+
+            try {
+                if (writeBuffer != null && !isSnapshot) {
+                    // write the updates of the last block before closing the databases
+                    writeBuffer.flush();
+                    writeBuffer = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while flushing the repository write buffer.", e);
+            }
+
             try {
                 if (detailsDS != null) {
                     detailsDS.close();
@@ -987,6 +1296,26 @@ public final class AionRepositoryImpl implements Repository {
                 LOGGEN.error("Exception occurred while closing the state archive database.", e);
             }
 
+            try {
+                if (stateJournalDatabase != null) {
+                    stateJournalDatabase.close();
+                    LOGGEN.info("State journal database closed.");
+                    stateJournalDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state journal database.", e);
+            }
+
+            try {
+                if (stateSnapshotDatabase != null) {
+                    stateSnapshotDatabase.close();
+                    LOGGEN.info("State snapshot database closed.");
+                    stateSnapshotDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the state snapshot database.", e);
+            }
+
             try {
                 if (transactionStore != null) {
                     transactionStore.close();
@@ -1007,6 +1336,16 @@ public final class AionRepositoryImpl implements Repository {
                 LOGGEN.error("Exception occurred while closing the block store.", e);
             }
 
+            try {
+                if (blockNumberDatabase != null) {
+                    blockNumberDatabase.close();
+                    LOGGEN.info("Block number database closed.");
+                    blockNumberDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the block number database.", e);
+            }
+
             try {
                 if (pendingStore != null) {
                     pendingStore.close();
@@ -1048,6 +1387,16 @@ public final class AionRepositoryImpl implements Repository {
                 LOGGEN.error(
                         "Exception occurred while closing the contractTransformedCode store.", e);
             }
+
+            try {
+                if (sharedInstance != null) {
+                    // all the column families should have been released by now
+                    sharedInstance.close();
+                    sharedInstance = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the shared RocksDB instance.", e);
+            }
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -1829,6 +2178,98 @@ public final class AionRepositoryImpl implements Repository {
         }
     }
 
+    /**
+     * Regenerates the flat state snapshot from the state trie of the best block.
+     *
+     * @param log the logger used for reporting progress
+     * @return {@code true} if the snapshot was rebuilt successfully, {@code false} otherwise
+     */
+    public boolean rebuildStateSnapshot(Logger log) {
+        Block block = blockStore.getBestBlock();
+        if (block == null) {
+            log.error("The database is empty. Cannot rebuild the state snapshot.");
+            return false;
+        }
+
+        log.info("Rebuilding the state snapshot for block " + block.getShortHash() + " at level " + block.getNumber() + "...");
+        return rebuildStateSnapshot(block.getStateRoot(), log);
+    }
+
+    @VisibleForTesting
+    boolean rebuildStateSnapshot(byte[] stateRoot, Logger log) {
+        rwLock.writeLock().lock();
+        try {
+            worldState.setRoot(stateRoot);
+            resetSnapshotRoot(stateRoot);
+
+            long start = System.currentTimeMillis();
+            long count = stateSnapshot.rebuild(stateRoot, worldState, detailsDS.keys(), this::getContractDetailsFromTrie);
+            log.info("The state snapshot was rebuilt with " + count + " entries in " + (System.currentTimeMillis() - start) + " ms.");
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Exception encountered while rebuilding the state snapshot.", e);
+            return false;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Verifies that the flat state snapshot is consistent with the state trie of the best block.
+     *
+     * @param log the logger used for reporting the inconsistencies
+     * @return {@code true} if the snapshot matches the state trie, {@code false} otherwise
+     */
+    public boolean verifyStateSnapshot(Logger log) {
+        Block block = blockStore.getBestBlock();
+        if (block == null) {
+            log.error("The database is empty. Cannot verify the state snapshot.");
+            return false;
+        }
+
+        log.info("Verifying the state snapshot for block " + block.getShortHash() + " at level " + block.getNumber() + "...");
+        return verifyStateSnapshot(block.getStateRoot(), log);
+    }
+
+    @VisibleForTesting
+    boolean verifyStateSnapshot(byte[] stateRoot, Logger log) {
+        rwLock.writeLock().lock();
+        try {
+            worldState.setRoot(stateRoot);
+            resetSnapshotRoot(stateRoot);
+
+            boolean isValid = stateSnapshot.verify(stateRoot, worldState, detailsDS.keys(), this::getContractDetailsFromTrie);
+            log.info("The state snapshot is " + (isValid ? "consistent" : "inconsistent") + " with the state trie.");
+            return isValid;
+        } catch (RuntimeException e) {
+            log.error("Exception encountered while verifying the state snapshot.", e);
+            return false;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the contract details for the account as stored in the state trie at the current root,
+     * without using the flat state snapshot, or {@code null} if the account does not exist.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private StoredContractDetails getContractDetailsFromTrie(AionAddress address) {
+        byte[] accountData = worldState.get(address.toByteArray());
+        if (accountData.length == 0) {
+            return null;
+        }
+        AccountState accountState = new AccountState(accountData);
+        InternalVmType vm = getVMUsed(address, accountState.getCodeHash());
+        return detailsDS.getSnapshot(vm, address.toByteArray(), accountState.getStateRoot());
+    }
+
+    @VisibleForTesting
+    StateSnapshot getStateSnapshot() {
+        return stateSnapshot;
+    }
+
     public void printStateTrieDump(long blockNumber, Logger log) {
         Block block;
 
@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.aion.base.ConstantUtil;
 import org.aion.db.impl.ByteArrayKeyValueStore;
@@ -76,6 +77,7 @@ public class AvmContractDetails implements StoredContractDetails {
         this.externalStorageSource = externalStorageSource;
         this.objectGraphSource = objectGraphSource;
         this.storageTrie = new SecureTrie(this.externalStorageSource);
+        this.storageTrie.withDeferredHashing(true);
     }
 
     @Override
@@ -335,6 +337,7 @@ public class AvmContractDetails implements StoredContractDetails {
         if (Arrays.equals(storageRootHash, ConstantUtil.EMPTY_TRIE_HASH)) {
             details.storageTrie = new SecureTrie(details.storageTrie.getCache(), "".getBytes());
         }
+        details.storageTrie.withDeferredHashing(true);
         return details;
     }
 
@@ -372,6 +375,13 @@ public class AvmContractDetails implements StoredContractDetails {
         storageTrie.sync();
     }
 
+    @Override
+    public void scanStorage(BiConsumer<byte[], byte[]> consumer) {
+        storageTrie.scanEntries(
+                storageTrie.getRootHash(),
+                (key, data) -> consumer.accept(key, RLP.decode2SharedList(data).get(0).getRLPData()));
+    }
+
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder();
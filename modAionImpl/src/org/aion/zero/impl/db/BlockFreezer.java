@@ -0,0 +1,273 @@
+package org.aion.zero.impl.db;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.rlp.RLP;
+import org.aion.rlp.SharedRLPList;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.types.BlockHeader;
+import org.aion.zero.impl.types.BlockUtil;
+import org.slf4j.Logger;
+
+/**
+ * Storage for the ancient main chain blocks, i.e. blocks buried deeper than a configured number of
+ * blocks under the best block. Ancient blocks are moved out of the block database by the {@link
+ * AionBlockStore} into append-only {@link FreezerTable}s indexed by block number. The frozen data
+ * is never rewritten, which keeps it out of the database compactions, and can be placed on a
+ * separate disk.
+ *
+ * <p>Each frozen block has an entry in two tables: the headers table holding the block hash and
+ * header encoding, and the bodies table holding the encoded transactions. The block hashes are
+ * mapped to their numbers in a key-value database for retrieving the frozen blocks by hash.
+ *
+ * <p>The total difficulty and main chain information remain in the block index.
+ */
+public final class BlockFreezer {
+
+    /** Minimum number of blocks kept in the block database under the best block. */
+    public static final long MIN_DEPTH = 1024;
+
+    /** Default number of blocks moved to the freezer at once. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final String HEADERS = "headers";
+    private static final String BODIES = "bodies";
+
+    // number of frozen blocks that were also removed from the block database
+    private static final byte[] CLEARED_KEY = "cleared".getBytes();
+
+    private final Logger log;
+    private final File directory;
+    private final long depth;
+    private final int batchSize;
+    private final FreezerTable headers;
+    private final FreezerTable bodies;
+    private final ByteArrayKeyValueDatabase numbers;
+
+    /**
+     * Opens the freezer stored at the given location.
+     *
+     * @param directory the directory containing the freezer files
+     * @param numbers the database mapping the frozen block hashes to their numbers
+     * @param depth the number of blocks under the best block kept in the block database; the value
+     *     {@code 0} stops blocks from being frozen, while the frozen blocks remain available
+     * @throws IOException when the freezer files cannot be opened
+     */
+    public BlockFreezer(File directory, ByteArrayKeyValueDatabase numbers, long depth, Logger log) throws IOException {
+        this(directory, numbers, depth, DEFAULT_BATCH_SIZE, FreezerTable.DEFAULT_SEGMENT_SIZE, log);
+    }
+
+    @VisibleForTesting
+    BlockFreezer(File directory, ByteArrayKeyValueDatabase numbers, long depth, int batchSize, long segmentSize, Logger log) throws IOException {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The freezer depth cannot be negative.");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The freezer batch size must be positive.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the freezer directory " + directory.getAbsolutePath());
+        }
+        this.log = log;
+        this.directory = directory;
+        this.depth = depth;
+        this.batchSize = batchSize;
+        this.numbers = numbers;
+        this.headers = new FreezerTable(directory, HEADERS, segmentSize);
+        this.bodies = new FreezerTable(directory, BODIES, segmentSize);
+
+        // discard blocks that were partially written to the tables
+        long count = Math.min(headers.size(), bodies.size());
+        headers.truncate(count);
+        bodies.truncate(count);
+
+        log.info("Opened block freezer at {} with {} blocks.", directory.getAbsolutePath(), count);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** @return the number of blocks kept in the block database under the best block */
+    public long getDepth() {
+        return depth;
+    }
+
+    /** @return the minimum number of blocks moved to the freezer at once */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** @return {@code true} if new blocks are moved to the freezer */
+    public boolean isFreezing() {
+        return depth > 0;
+    }
+
+    /** @return the number of frozen blocks; the blocks with lower numbers are frozen */
+    public long count() {
+        return headers.size();
+    }
+
+    /**
+     * Appends the given block to the freezer. The block is durable only after {@link #sync()}.
+     *
+     * @throws IllegalArgumentException if the block does not follow the last frozen block
+     */
+    public void append(Block block) {
+        long number = count();
+        if (block.getNumber() != number) {
+            throw new IllegalArgumentException("Block #" + block.getNumber() + " cannot be frozen after " + number + " frozen blocks.");
+        }
+
+        try {
+            headers.append(RLP.encodeList(RLP.encodeElement(block.getHash()), block.getHeader().getEncoded()));
+            bodies.append(AionBlockStore.encodeBody(block));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to append block #" + number + " to the freezer.", e);
+        }
+        numbers.put(block.getHash(), ByteUtil.longToBytes(number));
+    }
+
+    /** Writes the appended blocks to disk. */
+    public void sync() {
+        try {
+            headers.sync();
+            bodies.sync();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write the frozen blocks to disk.", e);
+        }
+        numbers.commit();
+    }
+
+    /** @return the main chain block with the given number or {@code null} if it is not frozen */
+    public Block getBlock(long number) {
+        try {
+            BlockHeader header = getHeader(number);
+            byte[] body = bodies.get(number);
+            if (header == null || body == null) {
+                return null;
+            }
+
+            Block block = BlockUtil.newBlockWithHeader(header, (SharedRLPList) RLP.decode2SharedList(body).get(0));
+            if (block != null) {
+                block.setMainChain();
+            }
+            return block;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read block #" + number + " from the freezer.", e);
+        }
+    }
+
+    /** @return the frozen block with the given hash or {@code null} if it is not frozen */
+    public Block getBlock(byte[] hash) {
+        long number = getNumber(hash);
+        if (number < 0) {
+            return null;
+        }
+        Block block = getBlock(number);
+        return block != null && Arrays.equals(block.getHash(), hash) ? block : null;
+    }
+
+    /**
+     * @return the header of the main chain block with the given number or {@code null} if it is not
+     *     frozen; the bodies table is not read
+     */
+    public BlockHeader getHeader(long number) {
+        try {
+            byte[] header = headers.get(number);
+            if (header == null) {
+                return null;
+            }
+
+            SharedRLPList entry = (SharedRLPList) RLP.decode2SharedList(header).get(0);
+            return BlockUtil.newHeaderFromSharedRLPList((SharedRLPList) entry.get(1));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read block #" + number + " from the freezer.", e);
+        }
+    }
+
+    /** @return the header of the frozen block with the given hash or {@code null} if not frozen */
+    public BlockHeader getHeader(byte[] hash) {
+        long number = getNumber(hash);
+        if (number < 0) {
+            return null;
+        }
+        BlockHeader header = getHeader(number);
+        return header != null && Arrays.equals(header.getHash(), hash) ? header : null;
+    }
+
+    /** @return the hash of the frozen block with the given number or {@code null} if not frozen */
+    public byte[] getHash(long number) {
+        try {
+            byte[] header = headers.get(number);
+            return header == null ? null : ((SharedRLPList) RLP.decode2SharedList(header).get(0)).get(0).getRLPData();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read block #" + number + " from the freezer.", e);
+        }
+    }
+
+    /** @return the number of the frozen block with the given hash or {@code -1} if not frozen */
+    public long getNumber(byte[] hash) {
+        Optional<byte[]> number = numbers.get(hash);
+        if (number.isPresent()) {
+            long value = ByteUtil.byteArrayToLong(number.get());
+            if (value < count()) {
+                return value;
+            }
+        }
+        return -1L;
+    }
+
+    /** @return the number of frozen blocks that were removed from the block database */
+    public long getClearedCount() {
+        Optional<byte[]> cleared = numbers.get(CLEARED_KEY);
+        return cleared.isPresent() ? Math.min(ByteUtil.byteArrayToLong(cleared.get()), count()) : 0L;
+    }
+
+    /** Records that the frozen blocks with numbers lower than the given value were cleared. */
+    public void setClearedCount(long cleared) {
+        numbers.put(CLEARED_KEY, ByteUtil.longToBytes(cleared));
+        numbers.commit();
+    }
+
+    /** Removes the frozen blocks with numbers greater or equal to the given value. */
+    public void truncate(long count) {
+        long current = count();
+        if (count < 0 || count >= current) {
+            return;
+        }
+
+        for (long number = count; number < current; number++) {
+            byte[] hash = getHash(number);
+            if (hash != null) {
+                numbers.delete(hash);
+            }
+        }
+        if (getClearedCount() > count) {
+            numbers.put(CLEARED_KEY, ByteUtil.longToBytes(count));
+        }
+
+        try {
+            headers.truncate(count);
+            bodies.truncate(count);
+            sync();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to truncate the freezer to " + count + " blocks.", e);
+        }
+        log.info("Block freezer truncated from {} to {} blocks.", current, count);
+    }
+
+    public void close() {
+        try {
+            headers.close();
+            bodies.close();
+        } catch (IOException e) {
+            log.error("Unable to close the block freezer.", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.aion.zero.impl.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.AionTxReceipt;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.SharedRLPList;
+import org.aion.types.InternalTransaction;
+import org.aion.types.Log;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * Compact encoding for the information of all the transactions in a block, stored as a single
+ * entry per block by the {@link TransactionStore}.
+ *
+ * <p>Compared to the {@link AionTxInfo#getEncoded()} encoding:
+ *
+ * <ul>
+ *   <li>the block hash and transaction index are implied by the entry key and position;
+ *   <li>the receipt bloom filters are not stored, since they are derived from the logs;
+ *   <li>the log addresses and topics are replaced by their positions in a dictionary of the
+ *       distinct values used in the block.
+ * </ul>
+ *
+ * <p>The encoding is {@code [dictionary, [info_0, ..., info_n]]}, where each info is {@code
+ * [postTxState, logs, executionResult, energyUsed, error, createdWithInternalTxs,
+ * internalTxs?]} and each log is {@code [addressPosition, [topicPosition...], data]}.
+ */
+final class CompactTxInfoEncoding {
+
+    // define the order in which the info data is RLP encoded
+    private static final int INDEX_POST_TX_STATE = 0,
+            INDEX_LOGS = 1,
+            INDEX_EXECUTION_RESULT = 2,
+            INDEX_ENERGY_USED = 3,
+            INDEX_ERROR = 4,
+            INDEX_CREATE_FLAG = 5,
+            INDEX_INTERNAL_TX = 6;
+
+    private static final int SIZE_WITH_BASE_DATA = 6, SIZE_WITH_INTERNAL_TRANSACTIONS = 7;
+
+    private CompactTxInfoEncoding() {}
+
+    /**
+     * Encodes the information of the transactions of a block.
+     *
+     * @param infos the information for all the transactions in the block, ordered by their index
+     * @throws IllegalArgumentException if the information is not ordered by transaction index
+     */
+    static byte[] encode(List<AionTxInfo> infos) {
+        Map<ByteArrayWrapper, Integer> dictionary = new LinkedHashMap<>();
+        byte[][] encodedInfos = new byte[infos.size()][];
+
+        for (int i = 0; i < encodedInfos.length; i++) {
+            AionTxInfo info = infos.get(i);
+            if (info.getIndex() != i) {
+                throw new IllegalArgumentException("Expected the transaction with index " + i + " instead of " + info.getIndex() + ".");
+            }
+            AionTxReceipt receipt = info.getReceipt();
+
+            List<Log> logs = receipt.getLogInfoList();
+            byte[][] encodedLogs = new byte[logs.size()][];
+            for (int j = 0; j < encodedLogs.length; j++) {
+                Log log = logs.get(j);
+                List<byte[]> topics = log.copyOfTopics();
+                byte[][] encodedTopics = new byte[topics.size()][];
+                for (int k = 0; k < encodedTopics.length; k++) {
+                    encodedTopics[k] = RLP.encodeInt(position(dictionary, topics.get(k)));
+                }
+                encodedLogs[j] =
+                        RLP.encodeList(
+                                RLP.encodeInt(position(dictionary, log.copyOfAddress())),
+                                RLP.encodeList(encodedTopics),
+                                RLP.encodeElement(log.copyOfData()));
+            }
+
+            byte[] postTxState = RLP.encodeElement(receipt.getPostTxState());
+            byte[] executionResult = RLP.encodeElement(receipt.getTransactionOutput());
+            byte[] energyUsed = RLP.encodeLong(receipt.getEnergyUsed());
+            byte[] error = RLP.encodeElement(receipt.getError().getBytes(StandardCharsets.UTF_8));
+            byte[] createFlag = RLP.encodeByte(info.isCreatedWithInternalTransactions() ? (byte) 1 : (byte) 0);
+
+            if (info.hasInternalTransactions()) {
+                List<InternalTransaction> internalTransactions = info.getInternalTransactions();
+                byte[][] internal = new byte[internalTransactions.size()][];
+                for (int j = 0; j < internal.length; j++) {
+                    internal[j] = AionTxInfo.toRlp(internalTransactions.get(j));
+                }
+                encodedInfos[i] = RLP.encodeList(postTxState, RLP.encodeList(encodedLogs), executionResult, energyUsed, error, createFlag, RLP.encodeList(internal));
+            } else {
+                encodedInfos[i] = RLP.encodeList(postTxState, RLP.encodeList(encodedLogs), executionResult, energyUsed, error, createFlag);
+            }
+        }
+
+        byte[][] encodedDictionary = new byte[dictionary.size()][];
+        int i = 0;
+        for (ByteArrayWrapper value : dictionary.keySet()) {
+            encodedDictionary[i++] = RLP.encodeElement(value.toBytes());
+        }
+
+        return RLP.encodeList(RLP.encodeList(encodedDictionary), RLP.encodeList(encodedInfos));
+    }
+
+    private static int position(Map<ByteArrayWrapper, Integer> dictionary, byte[] value) {
+        return dictionary.computeIfAbsent(ByteArrayWrapper.wrap(value), k -> dictionary.size());
+    }
+
+    /**
+     * Decodes the information of the transaction with the given index.
+     *
+     * @return the transaction information or {@code null} if the index is not in the encoding
+     */
+    static AionTxInfo decode(byte[] encoding, ByteArrayWrapper blockHash, int index) {
+        SharedRLPList entry = (SharedRLPList) RLP.decode2SharedList(encoding).get(0);
+        SharedRLPList infos = (SharedRLPList) entry.get(1);
+        if (index < 0 || index >= infos.size()) {
+            return null;
+        }
+        return decodeInfo((SharedRLPList) infos.get(index), (SharedRLPList) entry.get(0), blockHash, index);
+    }
+
+    /** Decodes the information of all the transactions in the block. */
+    static List<AionTxInfo> decodeAll(byte[] encoding, ByteArrayWrapper blockHash) {
+        SharedRLPList entry = (SharedRLPList) RLP.decode2SharedList(encoding).get(0);
+        SharedRLPList dictionary = (SharedRLPList) entry.get(0);
+        SharedRLPList infos = (SharedRLPList) entry.get(1);
+
+        List<AionTxInfo> result = new ArrayList<>(infos.size());
+        for (int i = 0; i < infos.size(); i++) {
+            result.add(decodeInfo((SharedRLPList) infos.get(i), dictionary, blockHash, i));
+        }
+        return result;
+    }
+
+    private static AionTxInfo decodeInfo(SharedRLPList info, SharedRLPList dictionary, ByteArrayWrapper blockHash, int index) {
+        List<Log> logs = new ArrayList<>();
+        for (RLPElement element : (SharedRLPList) info.get(INDEX_LOGS)) {
+            SharedRLPList log = (SharedRLPList) element;
+            byte[] address = lookup(dictionary, log.get(0));
+            byte[] data = ArrayUtils.nullToEmpty(log.get(2).getRLPData());
+
+            SharedRLPList encodedTopics = (SharedRLPList) log.get(1);
+            if (encodedTopics.isEmpty()) {
+                logs.add(Log.dataOnly(address, data));
+            } else {
+                List<byte[]> topics = new ArrayList<>(encodedTopics.size());
+                for (RLPElement topic : encodedTopics) {
+                    topics.add(lookup(dictionary, topic));
+                }
+                logs.add(Log.topicsAndData(address, topics, data));
+            }
+        }
+
+        // the bloom filter is rebuilt from the logs
+        AionTxReceipt receipt = new AionTxReceipt();
+        receipt.setPostTxState(ArrayUtils.nullToEmpty(info.get(INDEX_POST_TX_STATE).getRLPData()));
+        receipt.setLogs(logs);
+        receipt.setExecutionResult(ArrayUtils.nullToEmpty(info.get(INDEX_EXECUTION_RESULT).getRLPData()));
+        receipt.setNrgUsed(ByteUtil.byteArrayToLong(info.get(INDEX_ENERGY_USED).getRLPData()));
+        byte[] error = info.get(INDEX_ERROR).getRLPData();
+        receipt.setError(error == null ? "" : new String(error, StandardCharsets.UTF_8));
+
+        // checking the length because zero (i.e. false) decodes to empty byte array
+        byte[] createFlag = info.get(INDEX_CREATE_FLAG).getRLPData();
+        boolean createdWithInternalTx = createFlag != null && createFlag.length == 1;
+
+        List<InternalTransaction> internalTransactions = null;
+        if (info.size() == SIZE_WITH_INTERNAL_TRANSACTIONS) {
+            internalTransactions = new ArrayList<>();
+            for (RLPElement internal : (SharedRLPList) info.get(INDEX_INTERNAL_TX)) {
+                internalTransactions.add(AionTxInfo.fromRlp((SharedRLPList) internal));
+            }
+        } else if (info.size() != SIZE_WITH_BASE_DATA) {
+            throw new IllegalArgumentException("Invalid transaction information encoding of size " + info.size() + ".");
+        }
+
+        return createdWithInternalTx
+                ? AionTxInfo.newInstanceWithInternalTransactions(receipt, blockHash, index, internalTransactions)
+                : AionTxInfo.newInstance(receipt, blockHash, index);
+    }
+
+    private static byte[] lookup(SharedRLPList dictionary, RLPElement position) {
+        return dictionary.get(ByteUtil.byteArrayToInt(position.getRLPData())).getRLPData();
+    }
+}
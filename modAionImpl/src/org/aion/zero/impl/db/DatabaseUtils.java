@@ -15,6 +15,7 @@ import java.util.Properties;
 import java.util.stream.Stream;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.rocksdb.RocksDBSharedInstance;
 import org.slf4j.Logger;
 
 /** @author Alexandra Roatis */
@@ -30,6 +31,18 @@ public class DatabaseUtils {
         return db;
     }
 
+    public static ByteArrayKeyValueDatabase connectAndOpen(RocksDBSharedInstance sharedInstance, Properties info, Logger LOG) {
+        // get the database object stored as a column family of the shared instance
+        ByteArrayKeyValueDatabase db = DatabaseFactory.connect(sharedInstance, info, LOG);
+
+        // open the database connection
+        if (db != null) {
+            db.open();
+        }
+
+        return db;
+    }
+
     /**
      * Ensures that the path defined by the dbFile is valid and generates all the directories that
      * are missing in the path.
@@ -3,6 +3,8 @@ package org.aion.zero.impl.db;
 import static org.aion.crypto.HashUtil.h256;
 import static org.aion.util.types.ByteArrayWrapper.wrap;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.Iterator;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -20,21 +22,39 @@ import org.slf4j.Logger;
 
 /** Detail data storage , */
 public class DetailsDataStore {
+    /** Maximum heap size of the cached contract details encodings. */
+    private static final long MAX_CACHE_SIZE = 32L * 1024 * 1024;
+
     private JournalPruneDataSource storageDSPrune;
 
+    /**
+     * Encodings of recently used contract details. The cache is written through by {@link #update}
+     * and cleared by {@link #invalidateCache()} when the written updates are discarded.
+     */
+    private final Cache<ByteArrayWrapper, byte[]> rawDetailsCache =
+            CacheBuilder.newBuilder()
+                    .maximumWeight(MAX_CACHE_SIZE)
+                    .weigher((ByteArrayWrapper key, byte[] value) -> key.length() + value.length)
+                    .recordStats()
+                    .build();
+
     private ByteArrayKeyValueDatabase detailsSrc;
     private ByteArrayKeyValueDatabase storageSrc;
     private ByteArrayKeyValueDatabase graphSrc;
+    // Holds the updated encodings until the repository flushes the block.
+    private final RepositoryWriteBuffer writeBuffer;
     private Logger log;
 
-    public DetailsDataStore(
+    DetailsDataStore(
             ByteArrayKeyValueDatabase detailsCache,
             ByteArrayKeyValueDatabase storageCache,
             ByteArrayKeyValueDatabase graphCache,
+            RepositoryWriteBuffer writeBuffer,
             Logger log) {
         this.detailsSrc = detailsCache;
         this.storageSrc = storageCache;
         this.graphSrc = graphCache;
+        this.writeBuffer = writeBuffer;
         this.log = log;
         this.storageDSPrune = new JournalPruneDataSource(storageSrc, log);
     }
@@ -72,7 +92,7 @@ public class DetailsDataStore {
      * @return a snapshot of the contract details with the requested root
      */
     public synchronized StoredContractDetails getSnapshot(InternalVmType vm, byte[] key, byte[] storageRoot) {
-        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        Optional<byte[]> rawDetails = getRawDetails(key);
 
         if (rawDetails.isPresent()) {
             // decode raw details and return snapshot
@@ -95,10 +115,38 @@ public class DetailsDataStore {
 
     /** Determine if the contract exists in the database. */
     public synchronized boolean isPresent(byte[] key) {
-        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        Optional<byte[]> rawDetails = getRawDetails(key);
         return rawDetails.isPresent();
     }
 
+    /**
+     * Reads the encoding of the contract details from the cache, the unflushed updates or the
+     * database.
+     */
+    private Optional<byte[]> getRawDetails(byte[] key) {
+        ByteArrayWrapper wrappedKey = wrap(key);
+        byte[] cached = rawDetailsCache.getIfPresent(wrappedKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        byte[] buffered = writeBuffer.get(detailsSrc, key);
+        if (buffered != null) {
+            rawDetailsCache.put(wrappedKey, buffered);
+            return Optional.of(buffered);
+        }
+        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        rawDetails.ifPresent(encoding -> rawDetailsCache.put(wrappedKey, encoding));
+        return rawDetails;
+    }
+
+    public long getCacheHitCount() {
+        return rawDetailsCache.stats().hitCount();
+    }
+
+    public long getCacheMissCount() {
+        return rawDetailsCache.stats().missCount();
+    }
+
     public StoredContractDetails newContractDetails(AionAddress address, InternalVmType vm) {
         ByteArrayKeyValueStore storage = createStorageSource(address);
         if (vm == InternalVmType.AVM) {
@@ -114,16 +162,24 @@ public class DetailsDataStore {
     public synchronized void update(AionAddress key, StoredContractDetails contractDetails) {
         // Put into cache.
         byte[] rawDetails = contractDetails.getEncoded();
-        detailsSrc.put(key.toByteArray(), rawDetails);
-        detailsSrc.commit(); // TODO AKI-309: flush in bulk by the repository
+        // written to disk together with the other updates of the block
+        writeBuffer.put(detailsSrc, key.toByteArray(), rawDetails);
+        rawDetailsCache.put(wrap(key.toByteArray()), rawDetails);
         contractDetails.syncStorage();
     }
 
+    /** Clears the cached encodings, which may include updates that were never written to disk. */
+    public void invalidateCache() {
+        rawDetailsCache.invalidateAll();
+    }
+
     public JournalPruneDataSource getStorageDSPrune() {
         return storageDSPrune;
     }
 
     public synchronized Iterator<ByteArrayWrapper> keys() {
+        // the iterator only sees the encodings that are on disk
+        writeBuffer.flush();
         return new DetailsIteratorWrapper(detailsSrc.keys());
     }
 
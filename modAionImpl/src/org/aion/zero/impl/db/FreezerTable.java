@@ -0,0 +1,237 @@
+package org.aion.zero.impl.db;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only table of items numbered consecutively from zero. The items are written to segment
+ * files of bounded size and read with positional reads. A separate index file holds the segment,
+ * offset and length of each item.
+ *
+ * <p>Appended items are visible to readers immediately, but only durable after {@link #sync()}.
+ * On opening, index entries pointing past the end of the data files and partially written data
+ * left by an interrupted append are discarded.
+ *
+ * @implNote Reads do not lock the table. Appends and truncations are serialized by the monitor
+ *     of the table. An append publishes the new item count only after its data and index entry
+ *     are written, and a reader that overlaps a truncation repeats its read under the monitor.
+ */
+final class FreezerTable implements Closeable {
+
+    /** Default maximum size of a segment file. Must be lower than the mapping limit of 2GB. */
+    static final long DEFAULT_SEGMENT_SIZE = 512L * 1024 * 1024;
+
+    // segment number (int), offset in segment (long), length (int)
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private final File directory;
+    private final String name;
+    private final long maxSegmentSize;
+
+    private final FileChannel index;
+    private final List<FileChannel> segments = new CopyOnWriteArrayList<>();
+
+    private volatile long items;
+    // odd while a truncation is in progress, incremented before and after each truncation
+    private volatile long truncations;
+    private int head;
+    private long headSize;
+    private int syncedHead;
+
+    FreezerTable(File directory, String name, long maxSegmentSize) throws IOException {
+        if (maxSegmentSize <= 0 || maxSegmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid freezer segment size: " + maxSegmentSize);
+        }
+        this.directory = directory;
+        this.name = name;
+        this.maxSegmentSize = maxSegmentSize;
+
+        this.index = FileChannel.open(new File(directory, name + ".idx").toPath(), CREATE, READ, WRITE);
+        for (int segment = 0; segmentFile(segment).exists(); segment++) {
+            openSegment(segment);
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+        repair();
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format("%s.%04d.dat", name, segment));
+    }
+
+    private void openSegment(int segment) throws IOException {
+        segments.add(FileChannel.open(segmentFile(segment).toPath(), CREATE, READ, WRITE));
+    }
+
+    /** Drops the trailing items that are not fully written and any data beyond the last item. */
+    private void repair() throws IOException {
+        items = index.size() / INDEX_ENTRY_SIZE;
+
+        while (items > 0) {
+            ByteBuffer entry = readEntry(items - 1);
+            int segment = entry.getInt(0);
+            long end = entry.getLong(4) + entry.getInt(12);
+            if (segment < segments.size() && segments.get(segment).size() >= end) {
+                break;
+            }
+            items--;
+        }
+        index.truncate(items * INDEX_ENTRY_SIZE);
+
+        if (items == 0) {
+            truncateData(0, 0L);
+        } else {
+            ByteBuffer entry = readEntry(items - 1);
+            truncateData(entry.getInt(0), entry.getLong(4) + entry.getInt(12));
+        }
+        syncedHead = head;
+    }
+
+    /** Removes the data after the given position and the segments following it. */
+    private void truncateData(int segment, long size) throws IOException {
+        while (segments.size() - 1 > segment) {
+            int last = segments.size() - 1;
+            segments.remove(last).close();
+            Files.deleteIfExists(segmentFile(last).toPath());
+        }
+        segments.get(segment).truncate(size);
+        head = segment;
+        headSize = size;
+    }
+
+    private ByteBuffer readEntry(long item) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        readFully(index, entry, item * INDEX_ENTRY_SIZE, "entry " + item + " in the " + name + " freezer index");
+        return entry;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer data, long position, String description) throws IOException {
+        while (data.hasRemaining()) {
+            if (channel.read(data, position + data.position()) < 0) {
+                throw new EOFException("Missing " + description + ".");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data, position + data.position());
+        }
+    }
+
+    /** @return the number of items in the table */
+    long size() {
+        return items;
+    }
+
+    /**
+     * Appends the given data as the next item of the table.
+     *
+     * @return the number of the new item
+     */
+    synchronized long append(byte[] data) throws IOException {
+        if (headSize > 0 && headSize + data.length > maxSegmentSize) {
+            openSegment(segments.size());
+            head = segments.size() - 1;
+            headSize = 0;
+        }
+
+        writeFully(segments.get(head), ByteBuffer.wrap(data), headSize);
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.putInt(head).putLong(headSize).putInt(data.length).flip();
+        writeFully(index, entry, items * INDEX_ENTRY_SIZE);
+
+        headSize += data.length;
+        // publishes the written item to readers
+        long item = items;
+        items = item + 1;
+        return item;
+    }
+
+    /** @return the data of the given item or {@code null} if the item is not in the table */
+    byte[] get(long item) throws IOException {
+        long generation = truncations;
+        if (item < 0 || item >= items) {
+            return null;
+        }
+        try {
+            byte[] data = read(item);
+            if ((generation & 1) == 0 && truncations == generation) {
+                return data;
+            }
+        } catch (IOException | RuntimeException e) {
+            if ((generation & 1) == 0 && truncations == generation) {
+                throw e;
+            }
+        }
+
+        // the item may have been removed or rewritten by a concurrent truncation
+        synchronized (this) {
+            return item < items ? read(item) : null;
+        }
+    }
+
+    private byte[] read(long item) throws IOException {
+        ByteBuffer entry = readEntry(item);
+        int segment = entry.getInt(0);
+        ByteBuffer data = ByteBuffer.allocate(entry.getInt(12));
+        readFully(segments.get(segment), data, entry.getLong(4), "item " + item + " in the " + name + " freezer");
+        return data.array();
+    }
+
+    /** Removes the items starting with the given number. */
+    synchronized void truncate(long count) throws IOException {
+        if (count < 0 || count >= items) {
+            return;
+        }
+
+        truncations++;
+        try {
+            items = count;
+            if (count == 0) {
+                truncateData(0, 0L);
+            } else {
+                ByteBuffer entry = readEntry(count - 1);
+                truncateData(entry.getInt(0), entry.getLong(4) + entry.getInt(12));
+            }
+            index.truncate(count * INDEX_ENTRY_SIZE);
+            syncedHead = Math.min(syncedHead, head);
+        } finally {
+            truncations++;
+        }
+    }
+
+    /** Flushes the appended data and index entries to disk. */
+    synchronized void sync() throws IOException {
+        for (int segment = syncedHead; segment <= head; segment++) {
+            segments.get(segment).force(false);
+        }
+        index.force(false);
+        syncedHead = head;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            index.close();
+        } finally {
+            for (FileChannel segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.aion.base.ConstantUtil;
 import org.aion.db.impl.ByteArrayKeyValueStore;
@@ -59,6 +60,7 @@ public class FvmContractDetails implements StoredContractDetails {
         this.address = address;
         this.externalStorageSource = externalStorageSource;
         this.storageTrie = new SecureTrie(this.externalStorageSource);
+        this.storageTrie.withDeferredHashing(true);
     }
 
     @Override
@@ -261,6 +263,7 @@ public class FvmContractDetails implements StoredContractDetails {
         if (Arrays.equals(consensusRoot, ConstantUtil.EMPTY_TRIE_HASH)) {
             details.storageTrie = new SecureTrie(details.storageTrie.getCache(), "".getBytes());
         }
+        details.storageTrie.withDeferredHashing(true);
         return details;
     }
 
@@ -291,6 +294,13 @@ public class FvmContractDetails implements StoredContractDetails {
         storageTrie.sync();
     }
 
+    @Override
+    public void scanStorage(BiConsumer<byte[], byte[]> consumer) {
+        storageTrie.scanEntries(
+                storageTrie.getRootHash(),
+                (key, data) -> consumer.accept(key, RLP.decode2SharedList(data).get(0).getRLPData()));
+    }
+
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder();
@@ -24,6 +24,9 @@ public class InnerContractDetails implements ContractDetails {
 
     public ContractDetails origContract;
 
+    // flat snapshot of the original contract storage used to avoid trie reads when available
+    private StateSnapshot.StorageView snapshotStorage;
+
     private boolean dirty = false;
     private boolean deleted = false;
 
@@ -48,6 +51,7 @@ public class InnerContractDetails implements ContractDetails {
         if (cache.objectGraph != null) {
             copy.objectGraph = Arrays.copyOf(cache.objectGraph, cache.objectGraph.length);
         }
+        copy.snapshotStorage = cache.snapshotStorage;
         copy.storage = new HashMap<>(cache.storage);
         copy.dirty = cache.dirty;
         copy.deleted = cache.deleted;
@@ -180,7 +184,12 @@ public class InnerContractDetails implements ContractDetails {
             if (origContract == null) {
                 return null;
             }
-            value = origContract.get(key);
+            byte[] snapshotValue = snapshotStorage == null ? null : snapshotStorage.get(key);
+            if (snapshotValue == null) {
+                value = origContract.get(key);
+            } else {
+                value = snapshotValue.length == 0 ? null : ByteArrayWrapper.wrap(snapshotValue);
+            }
 
             // save a copy to local storage
             if (value != null) {
@@ -194,6 +203,23 @@ public class InnerContractDetails implements ContractDetails {
         return value;
     }
 
+    /**
+     * Sets the flat snapshot view used to read the storage of the original contract.
+     *
+     * @param snapshotStorage a view of the original contract storage or {@code null} when not
+     *     available
+     */
+    void setSnapshotStorage(StateSnapshot.StorageView snapshotStorage) {
+        this.snapshotStorage = snapshotStorage;
+    }
+
+    /**
+     * Returns the storage entries stored locally, where deleted keys are mapped to {@code null}.
+     */
+    Map<ByteArrayWrapper, ByteArrayWrapper> getStorageUpdates() {
+        return storage;
+    }
+
     /**
      * Sets the transaction type value used to deploy the contract symbolizing the VM that manages
      * the contract.
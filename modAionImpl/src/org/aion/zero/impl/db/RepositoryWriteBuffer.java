@@ -0,0 +1,147 @@
+package org.aion.zero.impl.db;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.util.types.ByteArrayWrapper;
+import org.slf4j.Logger;
+
+/**
+ * Accumulates the repository writes produced while importing blocks and writes them to disk as a
+ * single batch per database when {@link #flush()} is called at the end of each block.
+ *
+ * <p>The buffered values are visible to {@link #get} until they are written to disk, so readers
+ * must check the buffer before reading the database.
+ *
+ * <p>A failed write is not retried and is reported by this and every later {@link #flush()}. The
+ * values of the failed batch stay visible to readers, but are never written, so the caller must
+ * treat the failure as fatal.
+ *
+ * @implNote Only puts are buffered. The repository does not delete contract details or
+ *     transformed code. The batches are written on the thread calling {@link #flush()}, because the
+ *     block store and the state trie are written by the importing thread and a crash must not leave
+ *     them on disk without the contract updates of the same blocks.
+ */
+final class RepositoryWriteBuffer {
+
+    private final Logger log;
+
+    // The writes that were not flushed yet, guarded by the monitor of this object.
+    private Map<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> pending = new IdentityHashMap<>();
+    // The batch taken from pending that is not on disk yet, guarded by the monitor of this object.
+    private Map<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> writing = null;
+    // Ensures the batches are written one at a time in the order they were taken from pending.
+    private final Object flushLock = new Object();
+
+    // The cause of the failed write, guarded by the flush lock.
+    private RuntimeException failure = null;
+
+    private long batchCount = 0;
+    private long writeCount = 0;
+
+    /** @param log the logger for write errors */
+    RepositoryWriteBuffer(Logger log) {
+        this.log = log;
+    }
+
+    /** Buffers the given value until the next {@link #flush()}. */
+    synchronized void put(ByteArrayKeyValueDatabase database, byte[] key, byte[] value) {
+        pending.computeIfAbsent(database, db -> new HashMap<>()).put(ByteArrayWrapper.wrap(key), value);
+    }
+
+    /**
+     * Returns the buffered value for the given key or {@code null} when the key is not buffered,
+     * in which case the value must be read from the database.
+     */
+    synchronized byte[] get(ByteArrayKeyValueDatabase database, byte[] key) {
+        ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
+        byte[] value = get(pending, database, wrappedKey);
+        if (value == null && writing != null) {
+            value = get(writing, database, wrappedKey);
+        }
+        return value;
+    }
+
+    private static byte[] get(Map<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> batch, ByteArrayKeyValueDatabase database, ByteArrayWrapper key) {
+        Map<ByteArrayWrapper, byte[]> writes = batch.get(database);
+        return writes == null ? null : writes.get(key);
+    }
+
+    /**
+     * Writes the buffered values as a single batch per database.
+     *
+     * @throws IllegalStateException when the values could not be written to disk by this or an
+     *     earlier call
+     */
+    void flush() {
+        synchronized (flushLock) {
+            if (failure != null) {
+                throw new IllegalStateException("An earlier write of the buffered values failed.", failure);
+            }
+
+            Map<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new IdentityHashMap<>();
+                // keeps the values visible to readers until they are written
+                writing = batch;
+            }
+
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // the batch stays visible to readers, but is not written by later calls
+                failure = e;
+                throw new IllegalStateException("Unable to write the buffered values.", e);
+            }
+
+            synchronized (this) {
+                writing = null;
+            }
+        }
+    }
+
+    private void write(Map<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> batch) {
+        int writes = 0;
+        for (Map.Entry<ByteArrayKeyValueDatabase, Map<ByteArrayWrapper, byte[]>> entry : batch.entrySet()) {
+            Map<byte[], byte[]> input = new HashMap<>();
+            for (Map.Entry<ByteArrayWrapper, byte[]> write : entry.getValue().entrySet()) {
+                input.put(write.getKey().toBytes(), write.getValue());
+            }
+            try {
+                entry.getKey().putBatch(input);
+            } catch (RuntimeException e) {
+                log.error("Unable to write " + input.size() + " buffered values to " + entry.getKey() + ".", e);
+                throw e;
+            }
+            writes += input.size();
+        }
+
+        synchronized (this) {
+            batchCount++;
+            writeCount += writes;
+        }
+    }
+
+    /** Returns {@code true} when the buffer holds values that are not on disk yet. */
+    synchronized boolean hasUnflushedWrites() {
+        return !pending.isEmpty() || writing != null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RepositoryWriteBuffer{pendingDatabases="
+                + pending.size()
+                + ", writing="
+                + (writing != null)
+                + ", writtenBatches="
+                + batchCount
+                + ", writtenValues="
+                + writeCount
+                + "}";
+    }
+}
@@ -0,0 +1,157 @@
+package org.aion.zero.impl.db;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import org.aion.base.InternalVmType;
+import org.aion.util.types.ByteArrayWrapper;
+
+/**
+ * Read-only view of contract details owned by a repository cache that is shared by concurrent
+ * speculative caches. The reads are performed under the lock of the owning cache, since reading
+ * {@link InnerContractDetails} lazily caches the values retrieved from its own original contract.
+ *
+ * <p>The view is replaced by the wrapped details before a speculative cache is flushed, so it never
+ * receives updates.
+ */
+final class SharedContractDetails implements ContractDetails {
+
+    private final ContractDetails details;
+    private final Lock lock;
+
+    SharedContractDetails(ContractDetails details, Lock lock) {
+        this.details = details;
+        this.lock = lock;
+    }
+
+    /** @return the wrapped contract details */
+    ContractDetails unwrap() {
+        return details;
+    }
+
+    @Override
+    public ByteArrayWrapper get(ByteArrayWrapper key) {
+        lock.lock();
+        try {
+            return details.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<ByteArrayWrapper, ByteArrayWrapper> getStorage(Collection<ByteArrayWrapper> keys) {
+        lock.lock();
+        try {
+            return details.getStorage(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] getCode(byte[] codeHash) {
+        lock.lock();
+        try {
+            return details.getCode(codeHash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<ByteArrayWrapper, ByteArrayWrapper> getCodes() {
+        lock.lock();
+        try {
+            return new HashMap<>(details.getCodes());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public InternalVmType getVmType() {
+        lock.lock();
+        try {
+            return details.getVmType();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] getObjectGraph() {
+        lock.lock();
+        try {
+            return details.getObjectGraph();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public byte[] getStorageHash() {
+        lock.lock();
+        try {
+            return details.getStorageHash();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isDirty() {
+        lock.lock();
+        try {
+            return details.isDirty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isDeleted() {
+        lock.lock();
+        try {
+            return details.isDeleted();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(ByteArrayWrapper key, ByteArrayWrapper value) {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void delete(ByteArrayWrapper key) {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void setCode(byte[] code) {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void appendCodes(Map<ByteArrayWrapper, ByteArrayWrapper> codes) {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void setObjectGraph(byte[] graph) {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void markAsDirty() {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+
+    @Override
+    public void delete() {
+        throw new UnsupportedOperationException("Shared contract details cannot be updated.");
+    }
+}
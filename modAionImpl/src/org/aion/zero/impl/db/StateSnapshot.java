@@ -0,0 +1,629 @@
+package org.aion.zero.impl.db;
+
+import static org.aion.crypto.HashUtil.h256;
+import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import org.aion.base.ConstantUtil;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.types.AionAddress;
+import org.aion.util.conversions.Hex;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.trie.Trie;
+import org.slf4j.Logger;
+
+/**
+ * A flat representation of the world state stored beside the state trie that answers account and
+ * storage reads with a single lookup instead of a trie traversal.
+ *
+ * <p>The snapshot consists of a persistent disk layer corresponding to a single state root and of
+ * in-memory diff layers for the recent blocks. Each diff layer holds the account and storage
+ * changes applied by a block on top of the state root of its parent. Since the diff layers form a
+ * tree, reads at the state root of any recent block, including side chain blocks, are answered
+ * correctly which keeps the snapshot consistent across chain reorganizations. When the number of
+ * layers on top of the disk layer exceeds {@link #MAX_DIFF_LAYERS}, the oldest layer is merged into
+ * the disk layer and the layers that no longer descend from it are discarded.
+ *
+ * <p>Reads at state roots unknown to the snapshot return {@code null}, in which case the caller
+ * must fall back to reading the trie.
+ *
+ * @implNote Accounts are keyed by the hash of their address and storage entries by the hash of the
+ *     address followed by the hash of the storage key, which are the keys used by the secure tries.
+ *     This allows the snapshot to be rebuilt by traversing the tries.
+ */
+public final class StateSnapshot {
+
+    /** The maximum number of diff layers kept in memory on top of the disk layer. */
+    @VisibleForTesting static final int MAX_DIFF_LAYERS = 128;
+
+    private static final int WRITE_BATCH_SIZE = 10_000;
+
+    private static final byte[] ROOT_KEY = "snapshotRoot".getBytes();
+    private static final byte ACCOUNT_PREFIX = 0x01;
+    private static final byte STORAGE_PREFIX = 0x02;
+    private static final int HASH_SIZE = 32;
+
+    private final ByteArrayKeyValueDatabase database;
+    private final Logger log;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** The state root corresponding to the disk layer or {@code null} when not available. */
+    private ByteArrayWrapper diskRoot;
+
+    private final Map<ByteArrayWrapper, DiffLayer> layers = new HashMap<>();
+
+    /**
+     * Creates a snapshot backed by the given database.
+     *
+     * @param database the database storing the disk layer
+     * @param isNewState {@code true} when the state trie is empty, in which case an empty snapshot
+     *     can be initialized, {@code false} otherwise
+     * @param log the logger used by the snapshot
+     */
+    public StateSnapshot(ByteArrayKeyValueDatabase database, boolean isNewState, Logger log) {
+        this.database = database;
+        this.log = log;
+
+        Optional<byte[]> root = database.get(ROOT_KEY);
+        if (root.isPresent()) {
+            diskRoot = ByteArrayWrapper.wrap(root.get());
+        } else if (isNewState && database.isEmpty()) {
+            diskRoot = ByteArrayWrapper.wrap(ConstantUtil.EMPTY_TRIE_HASH);
+            database.put(ROOT_KEY, diskRoot.toBytes());
+            database.commit();
+        } else {
+            diskRoot = null;
+            log.warn("The state snapshot is not available. State reads will use the trie until the snapshot is rebuilt.");
+        }
+    }
+
+    /**
+     * Disables the snapshot when it does not cover the state root of the best block, which happens
+     * when the node was not shut down cleanly and the disk layer lags behind the chain. Otherwise
+     * every new layer would be skipped for having an unknown parent and every read would fall back
+     * to the trie after a failed lookup.
+     *
+     * @param bestRoot the state root of the best block loaded at startup
+     */
+    public void checkDiskRoot(byte[] bestRoot) {
+        ByteArrayWrapper root = ByteArrayWrapper.wrap(bestRoot);
+
+        lock.writeLock().lock();
+        try {
+            if (diskRoot != null && getChain(root) == null) {
+                log.warn(
+                        "The state snapshot root {} does not match the best block state root {}. State reads will use the trie until the snapshot is rebuilt.",
+                        diskRoot,
+                        root);
+                diskRoot = null;
+                layers.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the encoding of the account at the given state root.
+     *
+     * @param root the state root at which the account is read
+     * @param pending changes applied on top of the given state root that have not been committed
+     *     as a layer yet
+     * @param address the account address
+     * @return the encoding of the account, an empty array if the account does not exist or {@code
+     *     null} if the state root is not covered by the snapshot
+     */
+    public byte[] getAccount(byte[] root, Diff pending, AionAddress address) {
+        ByteArrayWrapper accountHash = ByteArrayWrapper.wrap(h256(address.toByteArray()));
+
+        byte[] value = pending.getAccount(accountHash);
+        if (value != null) {
+            return value;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (diskRoot == null) {
+                return null;
+            }
+
+            ByteArrayWrapper current = ByteArrayWrapper.wrap(root);
+            while (!current.equals(diskRoot)) {
+                DiffLayer layer = layers.get(current);
+                if (layer == null) {
+                    return null;
+                }
+                value = layer.diff.getAccount(accountHash);
+                if (value != null) {
+                    return value;
+                }
+                current = layer.parent;
+            }
+            return database.get(accountKey(accountHash.toBytes())).orElse(EMPTY_BYTE_ARRAY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the storage value for the given key of an account at the given state root.
+     *
+     * @param root the state root at which the storage is read
+     * @param pending changes applied on top of the given state root that have not been committed
+     *     as a layer yet
+     * @param address the account address
+     * @param key the storage key
+     * @return the storage value, an empty array if the key is not present in the account storage or
+     *     {@code null} if the state root is not covered by the snapshot
+     */
+    public byte[] getStorage(byte[] root, Diff pending, AionAddress address, ByteArrayWrapper key) {
+        ByteArrayWrapper accountHash = ByteArrayWrapper.wrap(h256(address.toByteArray()));
+        ByteArrayWrapper keyHash = ByteArrayWrapper.wrap(h256(key.toBytes()));
+
+        byte[] value = pending.getStorage(accountHash, keyHash);
+        return value != null ? value : getStorage(root, accountHash, keyHash);
+    }
+
+    private byte[] getStorage(byte[] root, ByteArrayWrapper accountHash, ByteArrayWrapper keyHash) {
+        lock.readLock().lock();
+        try {
+            if (diskRoot == null) {
+                return null;
+            }
+
+            ByteArrayWrapper current = ByteArrayWrapper.wrap(root);
+            while (!current.equals(diskRoot)) {
+                DiffLayer layer = layers.get(current);
+                if (layer == null) {
+                    return null;
+                }
+                byte[] value = layer.diff.getStorage(accountHash, keyHash);
+                if (value != null) {
+                    return value;
+                }
+                current = layer.parent;
+            }
+            return database.get(storageKey(accountHash.toBytes(), keyHash.toBytes())).orElse(EMPTY_BYTE_ARRAY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a diff layer with the changes that transition the state from the parent root to the
+     * given root. The layer is ignored when the parent root is not covered by the snapshot.
+     *
+     * @param parentRoot the state root before applying the changes
+     * @param root the state root after applying the changes
+     * @param diff the account and storage changes
+     */
+    public void addLayer(byte[] parentRoot, byte[] root, Diff diff) {
+        ByteArrayWrapper parent = ByteArrayWrapper.wrap(parentRoot);
+        ByteArrayWrapper child = ByteArrayWrapper.wrap(root);
+
+        lock.writeLock().lock();
+        try {
+            if (diskRoot == null || child.equals(parent) || child.equals(diskRoot) || layers.containsKey(child)) {
+                return;
+            }
+
+            if (!parent.equals(diskRoot) && !layers.containsKey(parent)) {
+                log.debug("Snapshot layer for root {} skipped due to unknown parent root {}.", child, parent);
+                return;
+            }
+
+            layers.put(child, new DiffLayer(parent, diff));
+
+            List<ByteArrayWrapper> chain = getChain(child);
+            if (chain.size() > MAX_DIFF_LAYERS) {
+                writeLayer(chain.get(chain.size() - 1));
+                removeDetachedLayers();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges into the disk layer all the diff layers leading to the given state root. Used on
+     * shutdown to persist the in-memory layers.
+     *
+     * @param root the state root that the disk layer should correspond to
+     */
+    public void flatten(byte[] root) {
+        lock.writeLock().lock();
+        try {
+            if (diskRoot == null) {
+                return;
+            }
+
+            List<ByteArrayWrapper> chain = getChain(ByteArrayWrapper.wrap(root));
+            if (chain == null) {
+                log.warn("The state snapshot does not cover the root {}. The diff layers will not be persisted.", Hex.toHexString(root));
+                return;
+            }
+
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                writeLayer(chain.get(i));
+            }
+            removeDetachedLayers();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the diff layers leading from the disk layer to the given root, ordered from the given
+     * root downwards, or {@code null} when the root is not covered by the snapshot.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private List<ByteArrayWrapper> getChain(ByteArrayWrapper root) {
+        List<ByteArrayWrapper> chain = new ArrayList<>();
+        ByteArrayWrapper current = root;
+        while (!current.equals(diskRoot)) {
+            DiffLayer layer = layers.get(current);
+            if (layer == null) {
+                return null;
+            }
+            chain.add(current);
+            current = layer.parent;
+        }
+        return chain;
+    }
+
+    /**
+     * Writes the layer for the given root into the disk layer. The parent of the layer must be the
+     * disk root. All the changes of the layer and the new disk root are written by a single commit
+     * so that the disk layer always corresponds to the stored root.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void writeLayer(ByteArrayWrapper root) {
+        Diff diff = layers.remove(root).diff;
+
+        // the storage of destructed accounts must be cleared before applying new storage changes
+        for (ByteArrayWrapper accountHash : diff.destructed) {
+            List<byte[]> deleted = new ArrayList<>();
+            Iterator<byte[]> keys = database.keysWithPrefix(storagePrefix(accountHash.toBytes()));
+            while (keys.hasNext()) {
+                deleted.add(keys.next());
+            }
+            for (byte[] key : deleted) {
+                database.delete(key);
+            }
+        }
+
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : diff.accounts.entrySet()) {
+            byte[] key = accountKey(entry.getKey().toBytes());
+            if (entry.getValue().length == 0) {
+                database.delete(key);
+            } else {
+                database.put(key, entry.getValue());
+            }
+        }
+
+        for (Map.Entry<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> account : diff.storage.entrySet()) {
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : account.getValue().entrySet()) {
+                byte[] key = storageKey(account.getKey().toBytes(), entry.getKey().toBytes());
+                if (entry.getValue().length == 0) {
+                    database.delete(key);
+                } else {
+                    database.put(key, entry.getValue());
+                }
+            }
+        }
+
+        database.put(ROOT_KEY, root.toBytes());
+        database.commit();
+        diskRoot = root;
+    }
+
+    /**
+     * Removes the layers that do not descend from the disk layer.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void removeDetachedLayers() {
+        List<ByteArrayWrapper> detached = new ArrayList<>();
+        for (ByteArrayWrapper root : layers.keySet()) {
+            if (getChain(root) == null) {
+                detached.add(root);
+            }
+        }
+        layers.keySet().removeAll(detached);
+    }
+
+    /**
+     * Regenerates the disk layer from the state trie with the given root and discards all the diff
+     * layers.
+     *
+     * @param root the state root used to generate the snapshot
+     * @param worldState the state trie
+     * @param contracts the addresses of all the contracts with stored details
+     * @param detailsAtRoot returns the details of the given contract at the given state root or
+     *     {@code null} if the account does not exist
+     * @return the number of entries written to the snapshot
+     * @throws RuntimeException when a node referenced by the tries is missing from the database
+     */
+    public long rebuild(
+            byte[] root,
+            Trie worldState,
+            Iterator<ByteArrayWrapper> contracts,
+            Function<AionAddress, StoredContractDetails> detailsAtRoot) {
+        lock.writeLock().lock();
+        try {
+            diskRoot = null;
+            layers.clear();
+            database.drop();
+
+            long[] count = new long[] {0};
+            worldState.scanEntries(
+                    root,
+                    (accountHash, encoding) -> {
+                        database.put(accountKey(accountHash), encoding);
+                        commitPeriodically(++count[0]);
+                    });
+            log.info("Snapshot generated for {} accounts.", count[0]);
+
+            while (contracts.hasNext()) {
+                AionAddress address = new AionAddress(contracts.next().toBytes());
+                StoredContractDetails details = detailsAtRoot.apply(address);
+                if (details != null) {
+                    byte[] accountHash = h256(address.toByteArray());
+                    details.scanStorage(
+                            (keyHash, value) -> {
+                                database.put(storageKey(accountHash, keyHash), value);
+                                commitPeriodically(++count[0]);
+                            });
+                }
+            }
+
+            database.put(ROOT_KEY, root);
+            database.commit();
+            diskRoot = ByteArrayWrapper.wrap(root);
+            log.info("Snapshot generated with {} entries for root {}.", count[0], diskRoot);
+
+            return count[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void commitPeriodically(long count) {
+        if (count % WRITE_BATCH_SIZE == 0) {
+            database.commit();
+        }
+    }
+
+    /**
+     * Verifies that the disk layer matches the state trie with the given root. Every account and
+     * storage entry from the tries must be present in the snapshot with the same value and the
+     * snapshot must not contain any additional entries.
+     *
+     * @param root the state root to verify against
+     * @param worldState the state trie
+     * @param contracts the addresses of all the contracts with stored details
+     * @param detailsAtRoot returns the details of the given contract at the given state root or
+     *     {@code null} if the account does not exist
+     * @return {@code true} if the snapshot is consistent with the trie, {@code false} otherwise
+     * @throws RuntimeException when a node referenced by the tries is missing from the database
+     */
+    public boolean verify(
+            byte[] root,
+            Trie worldState,
+            Iterator<ByteArrayWrapper> contracts,
+            Function<AionAddress, StoredContractDetails> detailsAtRoot) {
+        lock.readLock().lock();
+        try {
+            if (diskRoot == null || !diskRoot.equals(ByteArrayWrapper.wrap(root))) {
+                log.error("The state snapshot corresponds to root {} instead of {}.", diskRoot, Hex.toHexString(root));
+                return false;
+            }
+
+            // count the snapshot entries per account
+            long accountCount = 0;
+            Map<ByteArrayWrapper, Long> storageCount = new HashMap<>();
+            Iterator<byte[]> keys = database.keys();
+            while (keys.hasNext()) {
+                byte[] key = keys.next();
+                if (key.length == 1 + HASH_SIZE && key[0] == ACCOUNT_PREFIX) {
+                    accountCount++;
+                } else if (key.length == 1 + 2 * HASH_SIZE && key[0] == STORAGE_PREFIX) {
+                    storageCount.merge(ByteArrayWrapper.wrap(Arrays.copyOfRange(key, 1, 1 + HASH_SIZE)), 1L, Long::sum);
+                }
+            }
+
+            boolean[] isValid = new boolean[] {true};
+            long[] trieCount = new long[] {0};
+            worldState.scanEntries(
+                    root,
+                    (accountHash, encoding) -> {
+                        trieCount[0]++;
+                        Optional<byte[]> value = database.get(accountKey(accountHash));
+                        if (!value.isPresent() || !Arrays.equals(value.get(), encoding)) {
+                            log.error("Snapshot mismatch for account hash {}.", Hex.toHexString(accountHash));
+                            isValid[0] = false;
+                        }
+                    });
+            if (trieCount[0] != accountCount) {
+                log.error("The snapshot contains {} accounts while the trie contains {}.", accountCount, trieCount[0]);
+                isValid[0] = false;
+            }
+
+            while (contracts.hasNext()) {
+                AionAddress address = new AionAddress(contracts.next().toBytes());
+                StoredContractDetails details = detailsAtRoot.apply(address);
+                if (details != null) {
+                    byte[] accountHash = h256(address.toByteArray());
+                    trieCount[0] = 0;
+                    details.scanStorage(
+                            (keyHash, value) -> {
+                                trieCount[0]++;
+                                Optional<byte[]> stored = database.get(storageKey(accountHash, keyHash));
+                                if (!stored.isPresent() || !Arrays.equals(stored.get(), value)) {
+                                    log.error("Snapshot mismatch for storage key hash {} of contract {}.", Hex.toHexString(keyHash), address);
+                                    isValid[0] = false;
+                                }
+                            });
+                    Long snapshotCount = storageCount.remove(ByteArrayWrapper.wrap(accountHash));
+                    if (trieCount[0] != (snapshotCount == null ? 0 : snapshotCount)) {
+                        log.error("The snapshot contains {} storage entries for contract {} while the trie contains {}.", snapshotCount, address, trieCount[0]);
+                        isValid[0] = false;
+                    }
+                }
+            }
+
+            if (!storageCount.isEmpty()) {
+                log.error("The snapshot contains storage entries for {} accounts without storage.", storageCount.size());
+                isValid[0] = false;
+            }
+
+            return isValid[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Returns the state root corresponding to the disk layer or {@code null} if not available. */
+    public byte[] getDiskRoot() {
+        lock.readLock().lock();
+        try {
+            return diskRoot == null ? null : diskRoot.toBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @VisibleForTesting
+    int getLayerCount() {
+        lock.readLock().lock();
+        try {
+            return layers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static byte[] accountKey(byte[] accountHash) {
+        byte[] key = new byte[1 + HASH_SIZE];
+        key[0] = ACCOUNT_PREFIX;
+        System.arraycopy(accountHash, 0, key, 1, HASH_SIZE);
+        return key;
+    }
+
+    private static byte[] storagePrefix(byte[] accountHash) {
+        byte[] prefix = new byte[1 + HASH_SIZE];
+        prefix[0] = STORAGE_PREFIX;
+        System.arraycopy(accountHash, 0, prefix, 1, HASH_SIZE);
+        return prefix;
+    }
+
+    private static byte[] storageKey(byte[] accountHash, byte[] keyHash) {
+        byte[] key = new byte[1 + 2 * HASH_SIZE];
+        key[0] = STORAGE_PREFIX;
+        System.arraycopy(accountHash, 0, key, 1, HASH_SIZE);
+        System.arraycopy(keyHash, 0, key, 1 + HASH_SIZE, HASH_SIZE);
+        return key;
+    }
+
+    /** Read access to the storage of a single account at a fixed state root. */
+    public static final class StorageView {
+        private final StateSnapshot snapshot;
+        private final byte[] root;
+        private final ByteArrayWrapper accountHash;
+
+        public StorageView(StateSnapshot snapshot, byte[] root, AionAddress address) {
+            this.snapshot = snapshot;
+            this.root = root;
+            this.accountHash = ByteArrayWrapper.wrap(h256(address.toByteArray()));
+        }
+
+        /**
+         * Returns the storage value for the given key.
+         *
+         * @param key the storage key
+         * @return the storage value, an empty array if the key is not present in the account
+         *     storage or {@code null} if the state root is not covered by the snapshot
+         */
+        public byte[] get(ByteArrayWrapper key) {
+            return snapshot.getStorage(root, accountHash, ByteArrayWrapper.wrap(h256(key.toBytes())));
+        }
+    }
+
+    private static final class DiffLayer {
+        final ByteArrayWrapper parent;
+        final Diff diff;
+
+        DiffLayer(ByteArrayWrapper parent, Diff diff) {
+            this.parent = parent;
+            this.diff = diff;
+        }
+    }
+
+    /**
+     * Account and storage changes applied on top of a state root. Deleted accounts and storage
+     * entries are recorded with empty values.
+     *
+     * @implNote Not thread safe. The repository accumulating the changes must handle the locking.
+     */
+    public static final class Diff {
+        private final Map<ByteArrayWrapper, byte[]> accounts = new HashMap<>();
+        private final Map<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> storage = new HashMap<>();
+        private final Set<ByteArrayWrapper> destructed = new HashSet<>();
+
+        public void updateAccount(AionAddress address, byte[] encoding) {
+            accounts.put(ByteArrayWrapper.wrap(h256(address.toByteArray())), encoding);
+        }
+
+        /** Deletes the account and all its storage. */
+        public void deleteAccount(AionAddress address) {
+            ByteArrayWrapper accountHash = ByteArrayWrapper.wrap(h256(address.toByteArray()));
+            accounts.put(accountHash, EMPTY_BYTE_ARRAY);
+            storage.remove(accountHash);
+            destructed.add(accountHash);
+        }
+
+        /**
+         * Updates a storage entry of the given account.
+         *
+         * @param address the account address
+         * @param key the storage key
+         * @param value the storage value or {@code null} when the entry is deleted
+         */
+        public void updateStorage(AionAddress address, ByteArrayWrapper key, ByteArrayWrapper value) {
+            storage.computeIfAbsent(ByteArrayWrapper.wrap(h256(address.toByteArray())), k -> new HashMap<>())
+                    .put(ByteArrayWrapper.wrap(h256(key.toBytes())), value == null ? EMPTY_BYTE_ARRAY : value.toBytes());
+        }
+
+        public boolean isEmpty() {
+            return accounts.isEmpty() && storage.isEmpty();
+        }
+
+        private byte[] getAccount(ByteArrayWrapper accountHash) {
+            return accounts.get(accountHash);
+        }
+
+        private byte[] getStorage(ByteArrayWrapper accountHash, ByteArrayWrapper keyHash) {
+            Map<ByteArrayWrapper, byte[]> entries = storage.get(accountHash);
+            byte[] value = entries == null ? null : entries.get(keyHash);
+            if (value == null && destructed.contains(accountHash)) {
+                // the storage held before the account was deleted is no longer visible
+                return EMPTY_BYTE_ARRAY;
+            }
+            return value;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.aion.zero.impl.db;
 
+import java.util.function.BiConsumer;
+
 /**
  * Interface for contract details that are stored in the database.
  *
@@ -19,4 +21,12 @@ public interface StoredContractDetails extends ContractDetails {
      * external storage trie and the object graph (when applicable).
      */
     void syncStorage();
+
+    /**
+     * Passes each storage entry of the contract to the given consumer. The keys are hashed as they
+     * are stored in the secure storage trie, while the values are decoded.
+     *
+     * @param consumer action to perform on each storage key-value pair
+     */
+    void scanStorage(BiConsumer<byte[], byte[]> consumer);
 }
@@ -2,9 +2,13 @@ package org.aion.zero.impl.db;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -13,42 +17,123 @@ import org.aion.db.store.ObjectStore;
 import org.aion.db.store.Serializer;
 import org.aion.db.store.Stores;
 import org.aion.types.InternalTransaction;
+import org.aion.util.bytes.ByteUtil;
 import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.types.AionTxInfo;
 
+/**
+ * Storage for the transaction information (receipts, block hash, index and internal transactions).
+ *
+ * <p>The information for all the transactions of a block is stored as a single compact entry for
+ * the block (see {@link CompactTxInfoEncoding}), while each transaction hash maps to the list of
+ * blocks and indexes where the transaction was included. A transaction imported on a side chain
+ * therefore only extends its small pointer list instead of rewriting the information from all the
+ * blocks.
+ *
+ * <p>Databases written before the compact encoding hold a map from block hash to {@link
+ * AionTxInfo} for each transaction hash. These entries remain readable and are combined with the
+ * information stored afterwards.
+ */
 public class TransactionStore implements Closeable {
+    private final ByteArrayKeyValueDatabase database;
     private final ObjectStore<Map<ByteArrayWrapper, AionTxInfo>> txInfoSource;
     private final ObjectStore<Set<ByteArrayWrapper>> aliasSource;
 
+    // pointer lists written to the batch but not yet committed
+    private final Map<ByteArrayWrapper, byte[]> pendingPointers = new HashMap<>();
+
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // the prefixes make the keys longer than the transaction hashes used by the older entries
+    private static final byte POINTER_PREFIX = 1, BLOCK_PREFIX = 2;
+    // block hash and transaction index
+    private static final int POINTER_SIZE = 36;
+
     public TransactionStore(ByteArrayKeyValueDatabase txInfoSrc, Serializer<Map<ByteArrayWrapper, AionTxInfo>> serializer) {
         // TODO AKI-436: introduce caching of recent transactions
+        database = txInfoSrc;
         txInfoSource = Stores.newObjectStore(txInfoSrc, serializer);
         aliasSource = Stores.newObjectStore(txInfoSrc, aliasSerializer);
     }
 
-    public void putTxInfoToBatch(AionTxInfo tx) {
+    private static byte[] key(byte prefix, byte[] hash) {
+        byte[] key = new byte[hash.length + 1];
+        key[0] = prefix;
+        System.arraycopy(hash, 0, key, 1, hash.length);
+        return key;
+    }
+
+    /**
+     * Adds the information for all the transactions of a block to the batch, written with a single
+     * entry for the block. The changes are applied by {@link #flushBatch()}.
+     *
+     * @param blockHash the hash of the block including the transactions
+     * @param infos the information for each transaction of the block, ordered by index; the
+     *     receipts must have their transactions set
+     */
+    public void putBlockTxInfoToBatch(byte[] blockHash, List<AionTxInfo> infos) {
+        if (infos.isEmpty()) {
+            return;
+        }
 
         lock.writeLock().lock();
 
         try {
-            byte[] txHash = tx.getReceipt().getTransaction().getTransactionHash();
+            database.put(key(BLOCK_PREFIX, blockHash), CompactTxInfoEncoding.encode(infos));
 
-            Map<ByteArrayWrapper, AionTxInfo> existingInfos = txInfoSource.get(txHash);
-            if (existingInfos == null) {
-                existingInfos = new HashMap<>();
-            }
+            for (AionTxInfo info : infos) {
+                byte[] txHash = info.getReceipt().getTransaction().getTransactionHash();
+                ByteArrayWrapper pointerKey = ByteArrayWrapper.wrap(key(POINTER_PREFIX, txHash));
 
-            // overwrites existing entry to update it with/without internal transactions
-            // depending on the chosen configuration at block import
-            existingInfos.put(tx.blockHash, tx);
-            txInfoSource.put(txHash, existingInfos);
+                byte[] pointers = pendingPointers.get(pointerKey);
+                if (pointers == null) {
+                    pointers = database.get(pointerKey.toBytes()).orElse(new byte[0]);
+                }
+                pointers = withPointer(pointers, blockHash, info.getIndex());
+
+                pendingPointers.put(pointerKey, pointers);
+                database.put(pointerKey.toBytes(), pointers);
+            }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /** @return the pointer list with the given block and index, replacing an existing entry */
+    private static byte[] withPointer(byte[] pointers, byte[] blockHash, int index) {
+        int position = find(pointers, blockHash);
+        byte[] updated;
+        if (position < 0) {
+            position = pointers.length;
+            updated = Arrays.copyOf(pointers, pointers.length + POINTER_SIZE);
+        } else {
+            updated = pointers.clone();
+        }
+        System.arraycopy(blockHash, 0, updated, position, 32);
+        System.arraycopy(ByteUtil.intToBytes(index), 0, updated, position + 32, 4);
+        return updated;
+    }
+
+    /** @return the position of the entry for the given block in the pointer list or -1 */
+    private static int find(byte[] pointers, byte[] blockHash) {
+        for (int position = 0; position + POINTER_SIZE <= pointers.length; position += POINTER_SIZE) {
+            if (Arrays.equals(pointers, position, position + 32, blockHash, 0, 32)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexAt(byte[] pointers, int position) {
+        return ByteUtil.byteArrayToInt(Arrays.copyOfRange(pointers, position + 32, position + POINTER_SIZE));
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private AionTxInfo getFromBlock(byte[] blockHash, int index) {
+        Optional<byte[]> encoding = database.get(key(BLOCK_PREFIX, blockHash));
+        return encoding.isPresent() ? CompactTxInfoEncoding.decode(encoding.get(), ByteArrayWrapper.wrap(blockHash), index) : null;
+    }
+
     public void putAliasesToBatch(AionTxInfo txInfo) {
         byte[] txHash = txInfo.getReceipt().getTransaction().getTransactionHash();
 
@@ -76,8 +161,9 @@ public class TransactionStore implements Closeable {
     public void flushBatch() {
         lock.writeLock().lock();
         try {
-            txInfoSource.commit();
+            database.commit();
             aliasSource.commit();
+            pendingPointers.clear();
         } finally {
             lock.writeLock().unlock();
         }
@@ -90,16 +176,109 @@ public class TransactionStore implements Closeable {
         lock.readLock().lock();
 
         try {
-            return txInfoSource.get(txHash).get(ByteArrayWrapper.wrap(blockHash));
+            Optional<byte[]> pointers = database.get(key(POINTER_PREFIX, txHash));
+            if (pointers.isPresent()) {
+                int position = find(pointers.get(), blockHash);
+                if (position >= 0) {
+                    return getFromBlock(blockHash, indexAt(pointers.get(), position));
+                }
+            }
+
+            Map<ByteArrayWrapper, AionTxInfo> legacy = txInfoSource.get(txHash);
+            return legacy == null ? null : legacy.get(ByteArrayWrapper.wrap(blockHash));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the information for several transactions included in the same block, reading the
+     * transaction pointers with a single batch request and the block entry once.
+     *
+     * @param txHashes the hashes of the transactions
+     * @param blockHash the hash of the block that includes the transactions
+     * @return a list with the transaction information in the order of the given hashes, containing
+     *     {@code null} for transactions without information stored for the given block
+     */
+    public List<AionTxInfo> getTxInfoBatch(List<byte[]> txHashes, byte[] blockHash) {
+        // ensuring non-null input since this can be called with input from the API
+        if (txHashes == null || blockHash == null) return null;
+
+        lock.readLock().lock();
+
+        try {
+            ByteArrayWrapper wrappedBlockHash = ByteArrayWrapper.wrap(blockHash);
+            List<AionTxInfo> result = new ArrayList<>(txHashes.size());
+            if (txHashes.isEmpty()) {
+                return result;
+            }
+
+            List<byte[]> pointerKeys = new ArrayList<>(txHashes.size());
+            for (byte[] txHash : txHashes) {
+                pointerKeys.add(key(POINTER_PREFIX, txHash));
+            }
+            List<byte[]> pointers = database.getBatch(pointerKeys);
+
+            byte[] encoding = null;
+            List<byte[]> legacyHashes = new ArrayList<>();
+            List<Integer> legacyPositions = new ArrayList<>();
+            for (int i = 0; i < txHashes.size(); i++) {
+                int position = pointers.get(i) == null ? -1 : find(pointers.get(i), blockHash);
+                if (position < 0) {
+                    result.add(null);
+                    legacyHashes.add(txHashes.get(i));
+                    legacyPositions.add(i);
+                    continue;
+                }
+
+                if (encoding == null) {
+                    encoding = database.get(key(BLOCK_PREFIX, blockHash)).orElse(null);
+                }
+                result.add(encoding == null ? null : CompactTxInfoEncoding.decode(encoding, wrappedBlockHash, indexAt(pointers.get(i), position)));
+            }
+
+            if (!legacyHashes.isEmpty()) {
+                List<Map<ByteArrayWrapper, AionTxInfo>> legacy = txInfoSource.getBatch(legacyHashes);
+                for (int i = 0; i < legacy.size(); i++) {
+                    Map<ByteArrayWrapper, AionTxInfo> infos = legacy.get(i);
+                    if (infos != null) {
+                        result.set(legacyPositions.get(i), infos.get(wrappedBlockHash));
+                    }
+                }
+            }
+            return result;
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Retrieves the information for the given transaction from all the blocks where it was
+     * included.
+     *
+     * @return a map from block hash to transaction information or {@code null} if the transaction
+     *     is not stored
+     */
     public Map<ByteArrayWrapper, AionTxInfo> getTxInfo(byte[] key) {
         lock.readLock().lock();
         try {
-            return txInfoSource.get(key);
+            Map<ByteArrayWrapper, AionTxInfo> infos = txInfoSource.get(key);
+
+            Optional<byte[]> pointers = database.get(key(POINTER_PREFIX, key));
+            if (pointers.isPresent()) {
+                if (infos == null) {
+                    infos = new HashMap<>();
+                }
+                byte[] list = pointers.get();
+                for (int position = 0; position + POINTER_SIZE <= list.length; position += POINTER_SIZE) {
+                    byte[] blockHash = Arrays.copyOfRange(list, position, position + 32);
+                    AionTxInfo info = getFromBlock(blockHash, indexAt(list, position));
+                    if (info != null) {
+                        infos.put(info.blockHash, info);
+                    }
+                }
+            }
+            return infos;
         } finally {
             lock.readLock().unlock();
         }
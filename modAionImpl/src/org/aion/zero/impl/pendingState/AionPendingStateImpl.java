@@ -1,10 +1,14 @@
 package org.aion.zero.impl.pendingState;
 
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +20,7 @@ import java.util.SortedMap;
 import java.util.Stack;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -25,6 +30,7 @@ import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.blockchain.AionImpl.NetworkBestBlockCallback;
 import org.aion.zero.impl.blockchain.AionImpl.PendingTxCallback;
 import org.aion.zero.impl.blockchain.AionImpl.TransactionBroadcastCallback;
+import org.aion.zero.impl.db.AionRepositoryCache;
 import org.aion.zero.impl.pendingState.v1.PendingTxCacheV1;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.impl.types.PendingTxDetails;
@@ -38,12 +44,15 @@ import org.aion.zero.impl.types.Block;
 import org.aion.zero.impl.blockchain.AionBlockchainImpl;
 import org.aion.zero.impl.types.TxResponse;
 import org.aion.base.AccountState;
+import org.aion.base.db.Repository;
 import org.aion.base.db.RepositoryCache;
+import org.aion.precompiled.ContractInfo;
 import org.aion.types.AionAddress;
 import org.aion.util.bytes.ByteUtil;
 import org.aion.util.conversions.Hex;
 import org.aion.zero.impl.vm.common.BlockCachingContext;
 import org.aion.zero.impl.vm.common.BulkExecutor;
+import org.aion.zero.impl.vm.common.PostExecutionWork;
 import org.aion.zero.impl.SystemExitCodes;
 import org.aion.zero.impl.valid.TXValidator;
 import org.aion.zero.impl.valid.TransactionTypeValidator;
@@ -61,7 +70,51 @@ public final class AionPendingStateImpl implements IPendingState {
     private final AtomicReference<Block> currentBestBlock;
     private final PendingTxCacheV1 pendingTxCache;
 
-    private RepositoryCache pendingState;
+    private AionRepositoryCache pendingState;
+
+    /**
+     * Re-executes only the pool transactions affected by a new best block, instead of the whole
+     * pool. See {@link #rerunAffectedSenders(Block, Map)}.
+     */
+    private final boolean incrementalRerun;
+
+    /** The executions of the pool transactions in the pending state, by sender. */
+    private final Map<AionAddress, SenderExecution> senderExecutions = new HashMap<>();
+
+    /** The best block on top of which the pending state was built. */
+    private Block executedOnBlock;
+
+    private final AtomicLong rerunTransactionCount = new AtomicLong();
+    private final AtomicLong skippedRerunTransactionCount = new AtomicLong();
+
+    /**
+     * The transactions of a sender executed in the pending state, with the accounts they accessed
+     * and the fees they paid to the miner.
+     */
+    private static final class SenderExecution {
+        private final List<ByteArrayWrapper> transactionHashes = new ArrayList<>();
+        private final List<AionTxReceipt> receipts = new ArrayList<>();
+        private final Set<AionAddress> accessedAddresses = new HashSet<>();
+        private BigInteger minerFee = BigInteger.ZERO;
+
+        private void add(AionTransaction tx, AionTxExecSummary summary) {
+            transactionHashes.add(ByteArrayWrapper.wrap(tx.getTransactionHash()));
+            receipts.add(summary.getReceipt());
+            minerFee = minerFee.add(summary.getFee());
+        }
+
+        private boolean isExecutionOf(List<AionTransaction> transactions) {
+            if (transactions.size() != transactionHashes.size()) {
+                return false;
+            }
+            for (int i = 0; i < transactions.size(); i++) {
+                if (!transactionHashes.get(i).equals(ByteArrayWrapper.wrap(transactions.get(i).getTransactionHash()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 
     /**
      * This buffer stores txs that come in with double the energy price as an existing tx with the same nonce
@@ -134,6 +187,7 @@ public final class AionPendingStateImpl implements IPendingState {
             boolean seedMode,
             boolean poolBackup,
             boolean poolDump,
+            boolean incrementalRerun,
             PendingTxCallback pendingTxCallback,
             NetworkBestBlockCallback networkBestBlockCallback,
             TransactionBroadcastCallback transactionBroadcastCallback,
@@ -164,8 +218,10 @@ public final class AionPendingStateImpl implements IPendingState {
         // seedMode has no pool.
         this.poolDumpEnable = poolDump && !seedMode;
         this.poolBackUpEnable = poolBackup && !seedMode;
+        this.incrementalRerun = incrementalRerun;
         this.repayTransaction = new LinkedHashSet<>();
-        this.pendingState = blockchain.getRepository().startTracking();
+        this.pendingState = AionRepositoryCache.createShared(blockchain.getRepository());
+        this.executedOnBlock = currentBestBlock.get();
         this.pendingTxCache = new PendingTxCacheV1(poolBackUpEnable);
 
         if (poolBackUpEnable) {
@@ -188,18 +244,20 @@ public final class AionPendingStateImpl implements IPendingState {
         return isSeedMode ? 0 : this.txPool.size();
     }
 
+    /** The pool is safe for concurrent use, so the block templates are built outside the lock. */
     @Override
-    public synchronized List<AionTransaction> getPendingTransactions() {
+    public List<AionTransaction> getPendingTransactions() {
         return isSeedMode ? new ArrayList<>() : this.txPool.snapshot();
     }
 
     /**
      * Transaction comes from the ApiServer. Validate it first then add into the pendingPool.
-     * Synchronized it because multiple Api interfaces call this method.
+     * The validation runs concurrently, the update of the pending state is synchronized because
+     * multiple Api interfaces call this method.
      * @param tx transaction comes from the ApiServer.
      * @return the TxResponse.
      */
-    public synchronized TxResponse addTransactionFromApiServer(AionTransaction tx) {
+    public TxResponse addTransactionFromApiServer(AionTransaction tx) {
 
         TxResponse response = validateTx(tx);
         if (response.isFail()) {
@@ -207,33 +265,38 @@ public final class AionPendingStateImpl implements IPendingState {
             return response;
         }
 
-        // SeedMode or the syncing status will just broadcast the transaction to the network.
-        if (isSeedMode || !closeToNetworkBest) {
-            transactionBroadcastCallback.broadcastTransactions(Collections.singletonList(tx));
-            return TxResponse.SUCCESS;
-        }
+        synchronized (this) {
+            // SeedMode or the syncing status will just broadcast the transaction to the network.
+            if (isSeedMode || !closeToNetworkBest) {
+                transactionBroadcastCallback.broadcastTransactions(Collections.singletonList(tx));
+                return TxResponse.SUCCESS;
+            }
 
-        return addPendingTransactions(Collections.singletonList(tx)).get(0);
+            return addPendingTransactions(Collections.singletonList(tx)).get(0);
+        }
     }
 
     /**
      * The transactions come from the p2p network. We validate it first then add into the pendingPool.
      * @param transactions transaction list come from the network.
      */
-    public synchronized void addTransactionsFromNetwork(List<AionTransaction> transactions) {
+    public void addTransactionsFromNetwork(List<AionTransaction> transactions) {
         List<AionTransaction> validTransactions = new ArrayList<>();
 
+        // the validation does not depend on the pending state and runs outside the lock
         for (AionTransaction tx : transactions) {
             if (!TXValidator.isInCache(ByteArrayWrapper.wrap(tx.getTransactionHash())) && !validateTx(tx).isFail()) {
                 validTransactions.add(tx);
             }
         }
 
-        // SeedMode or the syncing status will just broadcast the transaction to the network.
-        if (isSeedMode || !closeToNetworkBest) {
-            transactionBroadcastCallback.broadcastTransactions(validTransactions);
-        } else {
-            addPendingTransactions(validTransactions);
+        synchronized (this) {
+            // SeedMode or the syncing status will just broadcast the transaction to the network.
+            if (isSeedMode || !closeToNetworkBest) {
+                transactionBroadcastCallback.broadcastTransactions(validTransactions);
+            } else {
+                addPendingTransactions(validTransactions);
+            }
         }
     }
 
@@ -589,8 +652,7 @@ public final class AionPendingStateImpl implements IPendingState {
         checkNetworkFullSynced();
         checkCloseToNetworkBest();
 
-        // Should update the pendingState before re run the transactions in txPool.
-        pendingState = blockchain.getRepository().startTracking();
+        // The pendingState is updated by re-running the transactions in txPool.
         rerunTxsInPool(currentBestBlock.get());
 
         flushCachedTx();
@@ -795,6 +857,7 @@ public final class AionPendingStateImpl implements IPendingState {
 
         if (!txList.isEmpty()) {
             Map<AionAddress, BigInteger> accountNonce = new HashMap<>();
+            List<AionTxInfo> infos = receipts == null ? getTransactionInfo(txList, block.getHash()) : null;
             int cnt = 0;
             for (AionTransaction tx : txList) {
                 accountNonce.computeIfAbsent(tx.getSenderAddress(), this::bestRepoNonce);
@@ -808,7 +871,7 @@ public final class AionPendingStateImpl implements IPendingState {
                 if (receipts != null) {
                     receipt = receipts.get(cnt);
                 } else {
-                    AionTxInfo info = getTransactionInfo(tx.getTransactionHash(), block.getHash());
+                    AionTxInfo info = infos.get(cnt);
                     if (info != null) {
                         receipt = info.getReceipt();
                     }
@@ -829,20 +892,25 @@ public final class AionPendingStateImpl implements IPendingState {
         }
     }
 
-    private AionTxInfo getTransactionInfo(byte[] txHash, byte[] blockHash) {
-        AionTxInfo info = blockchain.getTransactionStore().getTxInfo(txHash, blockHash);
-        if (info != null) {
-            AionTransaction tx =
-                blockchain
-                    .getBlockByHash(info.getBlockHash())
-                    .getTransactionsList()
-                    .get(info.getIndex());
-            info.setTransaction(tx);
-        } else {
-            LOGGER_TX.warn("Cannot find the txInfo in the TxStore txHash[{}] blockHash[{}]", ByteUtil.toHexString(txHash), ByteUtil.toHexString(blockHash));
+    private List<AionTxInfo> getTransactionInfo(List<AionTransaction> txList, byte[] blockHash) {
+        List<byte[]> txHashes = new ArrayList<>(txList.size());
+        for (AionTransaction tx : txList) {
+            txHashes.add(tx.getTransactionHash());
+        }
+
+        // all the infos are retrieved with a single batch read from the transaction store
+        List<AionTxInfo> infos = blockchain.getTransactionStore().getTxInfoBatch(txHashes, blockHash);
+        for (int i = 0; i < infos.size(); i++) {
+            AionTxInfo info = infos.get(i);
+            if (info != null) {
+                // the transactions are already available from the given block
+                info.setTransaction(txList.get(info.getIndex()));
+            } else {
+                LOGGER_TX.warn("Cannot find the txInfo in the TxStore txHash[{}] blockHash[{}]", ByteUtil.toHexString(txHashes.get(i)), ByteUtil.toHexString(blockHash));
+            }
         }
 
-        return info;
+        return infos;
     }
 
     private void rerunTxsInPool(Block block) {
@@ -852,31 +920,233 @@ public final class AionPendingStateImpl implements IPendingState {
         List<AionTransaction> pendingTxl = txPool.snapshotAll();
         LOGGER_TX.info("rerunTxsInPool - snapshotAll tx[{}]", pendingTxl.size());
 
-        if (!pendingTxl.isEmpty()) {
-            for (AionTransaction tx : pendingTxl) {
-                LOGGER_TX.debug("rerunTxsInPool - loop: {}", tx);
+        // the pool transactions are ordered by sender and nonce
+        Map<AionAddress, List<AionTransaction>> senderTransactions = new LinkedHashMap<>();
+        for (AionTransaction tx : pendingTxl) {
+            senderTransactions.computeIfAbsent(tx.getSenderAddress(), s -> new ArrayList<>()).add(tx);
+        }
 
-                AionTxExecSummary txSum = executeTx(tx);
-                AionTxReceipt receipt = txSum.getReceipt();
-                receipt.setTransaction(tx);
+        int skipped = incrementalRerun ? rerunAffectedSenders(block, senderTransactions) : -1;
+        if (skipped < 0) {
+            pendingState = AionRepositoryCache.createShared(blockchain.getRepository());
+            senderExecutions.clear();
+            for (Map.Entry<AionAddress, List<AionTransaction>> entry : senderTransactions.entrySet()) {
+                Set<AionAddress> accessedAddresses = new HashSet<>();
+                List<AionTxExecSummary> summaries = executeSenderTransactions(entry.getValue(), accessedAddresses);
+                applySenderExecution(entry.getKey(), entry.getValue(), summaries, accessedAddresses, block);
+            }
+            skipped = 0;
+        }
+        executedOnBlock = block;
 
-                if (txSum.isRejected()) {
-                    LOGGER_TX.debug("Invalid transaction in txPool: {}", tx);
+        int rerun = pendingTxl.size() - skipped;
+        rerunTransactionCount.addAndGet(rerun);
+        skippedRerunTransactionCount.addAndGet(skipped);
+        LOGGER_TX.info("rerunTxsInPool - rerun tx[{}] skipped tx[{}]", rerun, skipped);
 
-                    txPool.remove(new PooledTransaction(tx, receipt.getEnergyUsed()));
-                    removeBackupDBPendingTx(tx.getTransactionHash());
-                    fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
-                } else {
-                    if (repayTransaction.contains(tx)) {
-                        txPool.updatePoolTransaction(new PooledTransaction(tx, receipt.getEnergyUsed()));
+        repayTransaction.clear();
+    }
+
+    /**
+     * Re-executes only the pool transactions whose execution may have changed since the pending
+     * state was built on top of {@link #executedOnBlock}, and keeps the pending state changes of
+     * the other transactions.
+     *
+     * <p>The transactions of a sender are re-executed when they are not the ones executed before,
+     * when they interacted with a contract or a coinbase, or when they accessed an account modified
+     * between the two blocks. The senders that accessed the same accounts are re-executed
+     * together. The fees of the transactions which are not re-executed are paid to the new
+     * coinbase.
+     *
+     * @return the number of transactions that were not re-executed, or -1 if the whole pool must be
+     *     re-executed in a new pending state
+     */
+    private int rerunAffectedSenders(Block block, Map<AionAddress, List<AionTransaction>> senderTransactions) {
+        Repository currentState = blockchain.getRepository();
+        if (!sameForksActive(executedOnBlock, block) || !currentState.isValidRoot(executedOnBlock.getStateRoot())) {
+            return -1;
+        }
+        Repository previousState = currentState.getSnapshotTo(executedOnBlock.getStateRoot());
+
+        Set<AionAddress> coinbases = new HashSet<>(Arrays.asList(executedOnBlock.getCoinbase(), block.getCoinbase()));
+        Map<AionAddress, Boolean> affectedAccounts = new HashMap<>();
+
+        // the senders are grouped by the accounts they accessed
+        Map<AionAddress, AionAddress> groups = new HashMap<>();
+        Map<AionAddress, AionAddress> firstSenderByAccount = new HashMap<>();
+        Set<AionAddress> affectedSenders = new HashSet<>();
+
+        Set<AionAddress> senders = new HashSet<>(senderExecutions.keySet());
+        senders.addAll(senderTransactions.keySet());
+        for (AionAddress sender : senders) {
+            groups.putIfAbsent(sender, sender);
+            SenderExecution execution = senderExecutions.get(sender);
+            List<AionTransaction> transactions = senderTransactions.get(sender);
+            if (execution == null || transactions == null || !execution.isExecutionOf(transactions)) {
+                affectedSenders.add(sender);
+            } else {
+                for (AionTransaction tx : transactions) {
+                    if (coinbases.contains(sender) || coinbases.contains(tx.getDestinationAddress())) {
+                        affectedSenders.add(sender);
                     }
+                }
+            }
+
+            if (execution != null) {
+                for (AionAddress account : execution.accessedAddresses) {
+                    if (coinbases.contains(account)) {
+                        // the miner fees are paid separately
+                        continue;
+                    }
+                    if (affectedAccounts.computeIfAbsent(account, a -> isAffectedAccount(a, previousState, currentState))) {
+                        affectedSenders.add(sender);
+                    }
+                    AionAddress other = firstSenderByAccount.putIfAbsent(account, sender);
+                    if (other != null) {
+                        groups.putIfAbsent(other, other);
+                        groups.put(findGroup(groups, sender), findGroup(groups, other));
+                    }
+                }
+            }
+        }
+
+        Set<AionAddress> affectedGroups = new HashSet<>();
+        for (AionAddress sender : affectedSenders) {
+            affectedGroups.add(findGroup(groups, sender));
+        }
+
+        // the pending state changes of the unaffected senders are kept
+        Set<AionAddress> unaffectedAccounts = new HashSet<>();
+        BigInteger unaffectedMinerFee = BigInteger.ZERO;
+        List<AionAddress> sendersToRerun = new ArrayList<>();
+        int skipped = 0;
+        for (Map.Entry<AionAddress, List<AionTransaction>> entry : senderTransactions.entrySet()) {
+            AionAddress sender = entry.getKey();
+            if (affectedGroups.contains(findGroup(groups, sender))) {
+                sendersToRerun.add(sender);
+            } else {
+                SenderExecution execution = senderExecutions.get(sender);
+                unaffectedAccounts.addAll(execution.accessedAddresses);
+                unaffectedMinerFee = unaffectedMinerFee.add(execution.minerFee);
+                skipped += entry.getValue().size();
+            }
+        }
+        unaffectedAccounts.removeAll(coinbases);
+
+        pendingState.retainAccounts(unaffectedAccounts);
+        if (unaffectedMinerFee.signum() > 0) {
+            pendingState.addBalance(block.getCoinbase(), unaffectedMinerFee);
+        }
+
+        Map<AionAddress, List<AionTxExecSummary>> rerunSummaries = new HashMap<>();
+        Map<AionAddress, Set<AionAddress>> rerunAccessedAddresses = new HashMap<>();
+        for (AionAddress sender : sendersToRerun) {
+            Set<AionAddress> accessedAddresses = new HashSet<>();
+            rerunSummaries.put(sender, executeSenderTransactions(senderTransactions.get(sender), accessedAddresses));
+            for (AionAddress account : accessedAddresses) {
+                if (unaffectedAccounts.contains(account)) {
+                    // the transactions may depend on the order of execution of the senders
+                    LOGGER_TX.debug("rerunTxsInPool - sender {} accessed the unaffected account {}", sender, account);
+                    return -1;
+                }
+            }
+            rerunAccessedAddresses.put(sender, accessedAddresses);
+        }
 
+        senderExecutions.keySet().retainAll(senderTransactions.keySet());
+        for (Map.Entry<AionAddress, List<AionTransaction>> entry : senderTransactions.entrySet()) {
+            AionAddress sender = entry.getKey();
+            List<AionTxExecSummary> summaries = rerunSummaries.get(sender);
+            if (summaries != null) {
+                applySenderExecution(sender, entry.getValue(), summaries, rerunAccessedAddresses.get(sender), block);
+            } else {
+                for (AionTxReceipt receipt : senderExecutions.get(sender).receipts) {
                     fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
                 }
             }
         }
 
-        repayTransaction.clear();
+        return skipped;
+    }
+
+    private static AionAddress findGroup(Map<AionAddress, AionAddress> groups, AionAddress sender) {
+        AionAddress group = sender;
+        while (!groups.get(group).equals(group)) {
+            group = groups.get(group);
+        }
+        groups.put(sender, group);
+        return group;
+    }
+
+    /**
+     * @return {@code true} if the account is a contract or it is different in the two states
+     */
+    private static boolean isAffectedAccount(AionAddress address, Repository previousState, Repository currentState) {
+        if (ContractInfo.isPrecompiledContract(address)) {
+            return true;
+        }
+        AccountState current = currentState.getAccountState(address);
+        if (current != null && !Arrays.equals(current.getCodeHash(), EMPTY_DATA_HASH)) {
+            return true;
+        }
+        AccountState previous = previousState.getAccountState(address);
+        return current == null || previous == null
+                ? current != previous
+                : !Arrays.equals(current.getEncoded(), previous.getEncoded());
+    }
+
+    /** @return {@code true} if the same forks are active for the pending transactions on top of both blocks */
+    private boolean sameForksActive(Block previous, Block current) {
+        long previousNumber = previous.getNumber() + 1;
+        long currentNumber = current.getNumber() + 1;
+        return blockchain.forkUtility.is040ForkActive(previousNumber) == blockchain.forkUtility.is040ForkActive(currentNumber)
+                && blockchain.forkUtility.isUnityForkActive(previousNumber) == blockchain.forkUtility.isUnityForkActive(currentNumber)
+                && blockchain.forkUtility.isSignatureSwapForkActive(previousNumber) == blockchain.forkUtility.isSignatureSwapForkActive(currentNumber);
+    }
+
+    /**
+     * Drops the rejected pool transactions of a sender and fires the pending state updates after
+     * they were re-executed.
+     */
+    private void applySenderExecution(AionAddress sender, List<AionTransaction> transactions, List<AionTxExecSummary> summaries, Set<AionAddress> accessedAddresses, Block block) {
+        SenderExecution execution = new SenderExecution();
+        execution.accessedAddresses.addAll(accessedAddresses);
+
+        for (int i = 0; i < transactions.size(); i++) {
+            AionTransaction tx = transactions.get(i);
+            AionTxExecSummary txSum = summaries.get(i);
+            LOGGER_TX.debug("rerunTxsInPool - loop: {}", tx);
+
+            AionTxReceipt receipt = txSum.getReceipt();
+            receipt.setTransaction(tx);
+
+            if (txSum.isRejected()) {
+                LOGGER_TX.debug("Invalid transaction in txPool: {}", tx);
+
+                txPool.remove(new PooledTransaction(tx, receipt.getEnergyUsed()));
+                removeBackupDBPendingTx(tx.getTransactionHash());
+                fireTxUpdate(receipt, PendingTransactionState.DROPPED, block);
+            } else {
+                if (repayTransaction.contains(tx)) {
+                    txPool.updatePoolTransaction(new PooledTransaction(tx, receipt.getEnergyUsed()));
+                }
+
+                execution.add(tx, txSum);
+                fireTxUpdate(receipt, PendingTransactionState.PENDING, block);
+            }
+        }
+
+        senderExecutions.put(sender, execution);
+    }
+
+    /** @return the number of pool transactions executed again after a new best block */
+    public long getRerunTransactionCount() {
+        return rerunTransactionCount.get();
+    }
+
+    /** @return the number of pool transactions kept without execution after a new best block */
+    public long getSkippedRerunTransactionCount() {
+        return skippedRerunTransactionCount.get();
     }
 
     private void addRepayTxToTxPool() {
@@ -896,10 +1166,32 @@ public final class AionPendingStateImpl implements IPendingState {
         }
     }
 
+    /**
+     * Executes a new pool transaction in the pending state and records the accounts it accessed.
+     */
     private AionTxExecSummary executeTx(AionTransaction tx) {
+        LOGGER_TX.debug("executeTx: {}", Hex.toHexString(tx.getTransactionHash()));
+
+        Set<AionAddress> accessedAddresses = new HashSet<>();
+        AionTxExecSummary txSum = executeSenderTransactions(Collections.singletonList(tx), accessedAddresses).get(0);
+        if (!txSum.isRejected()) {
+            SenderExecution execution = senderExecutions.computeIfAbsent(tx.getSenderAddress(), s -> new SenderExecution());
+            execution.add(tx, txSum);
+            execution.accessedAddresses.addAll(accessedAddresses);
+        }
+        return txSum;
+    }
+
+    /**
+     * Executes transactions from the same sender in the pending state, as a single batch.
+     *
+     * @param accessedAddresses collects the accounts accessed by the transactions
+     * @return the execution summaries of the transactions
+     */
+    private List<AionTxExecSummary> executeSenderTransactions(List<AionTransaction> transactions, Set<AionAddress> accessedAddresses) {
 
         Block bestBlk = currentBestBlock.get();
-        LOGGER_TX.debug("executeTx: {}", Hex.toHexString(tx.getTransactionHash()));
+        AionRepositoryCache track = pendingState.startSpeculativeTracking();
 
         try {
             // Booleans moved out here so their meaning is explicit.
@@ -918,23 +1210,30 @@ public final class AionPendingStateImpl implements IPendingState {
             // assuming same person will mine the future block
             AionAddress miner = bestBlk.getCoinbase();
 
-            return BulkExecutor.executeTransactionWithNoPostExecutionWork(
-                    difficulty,
-                    currentBlockNumber,
-                    timestamp,
-                    blockNrgLimit,
-                    miner,
-                    tx,
-                    pendingState,
-                    isLocalCall,
-                    incrementSenderNonce,
-                    blockchain.forkUtility.is040ForkActive(currentBlockNumber),
-                    checkBlockEnergyLimit,
-                    LOGGER_VM,
-                    BlockCachingContext.PENDING,
-                    bestBlk.getNumber(),
-                    blockchain.forkUtility.isUnityForkActive(currentBlockNumber),
-                    blockchain.forkUtility.isSignatureSwapForkActive(currentBlockNumber));
+            List<AionTxExecSummary> summaries =
+                    BulkExecutor.executeAllTransactionsInBlock(
+                            difficulty,
+                            currentBlockNumber,
+                            timestamp,
+                            blockNrgLimit,
+                            miner,
+                            transactions,
+                            track,
+                            isLocalCall,
+                            incrementSenderNonce,
+                            blockchain.forkUtility.is040ForkActive(currentBlockNumber),
+                            checkBlockEnergyLimit,
+                            LOGGER_VM,
+                            // the executed transactions are already applied to the track
+                            new PostExecutionWork(track, (topRepository, childRepository, summary, transaction) -> {}),
+                            BlockCachingContext.PENDING,
+                            bestBlk.getNumber(),
+                            blockchain.forkUtility.isUnityForkActive(currentBlockNumber),
+                            blockchain.forkUtility.isSignatureSwapForkActive(currentBlockNumber));
+
+            accessedAddresses.addAll(track.getAccessedAddresses());
+            track.flushTo(pendingState, true);
+            return summaries;
         } catch (VmFatalException e) {
             LOGGER_VM.error("Shutdown due to a VM fatal error.", e);
             System.exit(SystemExitCodes.FATAL_VM_ERROR);
@@ -0,0 +1,202 @@
+package org.aion.zero.impl.sync;
+
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.base.AccountState;
+import org.aion.base.AionTransaction;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.blockchain.AionBlockchainImpl;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.StoredContractDetails;
+import org.aion.zero.impl.types.Block;
+import org.apache.commons.collections4.map.LRUMap;
+import org.slf4j.Logger;
+
+/**
+ * Reads ahead the state used by the blocks waiting in the import queue, such that their execution
+ * finds the trie nodes and contract details in memory instead of reading them from disk.
+ *
+ * <p>For each queued block the prefetcher reads the accounts of the coinbase, the transaction
+ * senders and recipients, the code of the called contracts and the storage keys that the
+ * contracts wrote recently. The reads are done on a read-only snapshot of the current best state
+ * and only populate the shared caches. The number of queued blocks is bounded and the queue is
+ * discarded when the main chain is reorganized.
+ */
+final class BlockStatePrefetcher {
+
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    /** Maximum number of blocks waiting to be prefetched. Blocks over the limit are skipped. */
+    @VisibleForTesting
+    static final int QUEUE_CAPACITY = 256;
+
+    /** Number of prefetched block hashes kept to compute the hit rate. */
+    private static final int TRACKED_BLOCKS = 1024;
+
+    private final AionBlockchainImpl chain;
+    private final ThreadPoolExecutor executor;
+    private final Map<ByteArrayWrapper, Object> prefetchedBlocks = Collections.synchronizedMap(new LRUMap<>(TRACKED_BLOCKS));
+
+    /** The best block observed by the previous prefetch, used to detect reorganizations. */
+    private Block lastBest;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+
+    BlockStatePrefetcher(AionBlockchainImpl chain) {
+        this.chain = chain;
+        this.executor =
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                        r -> {
+                            Thread thread = new Thread(r, "sync-prefetch");
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /** Queues the given blocks for prefetching in the order of their future import. */
+    void submit(List<Block> blocks) {
+        for (Block block : blocks) {
+            executor.execute(() -> prefetch(block));
+        }
+    }
+
+    /**
+     * Records whether the given blocks were prefetched before the start of their import, which
+     * determines the prefetch hit rate.
+     */
+    void recordImport(List<Block> blocks) {
+        for (Block block : blocks) {
+            if (prefetchedBlocks.remove(block.getHashWrapper()) != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void prefetch(Block block) {
+        Block best = chain.getBestBlock();
+
+        if (lastBest != null && !chain.isMainChain(lastBest.getHash(), lastBest.getNumber())) {
+            // the queued blocks may belong to the abandoned chain
+            cancel();
+            lastBest = best;
+            return;
+        }
+        lastBest = best;
+
+        if (block.getNumber() <= best.getNumber()) {
+            // already imported or not going to be imported on top of the best block
+            return;
+        }
+
+        try {
+            AionRepositoryImpl snapshot = (AionRepositoryImpl) chain.getRepository().getSnapshotTo(best.getStateRoot());
+
+            Set<AionAddress> addresses = new LinkedHashSet<>();
+            addresses.add(block.getCoinbase());
+            for (AionTransaction tx : block.getTransactionsList()) {
+                addresses.add(tx.getSenderAddress());
+                if (tx.getDestinationAddress() != null) {
+                    addresses.add(tx.getDestinationAddress());
+                }
+            }
+
+            for (AionAddress address : addresses) {
+                prefetch(snapshot, address);
+            }
+            prefetchedBlocks.put(block.getHashWrapper(), Boolean.TRUE);
+        } catch (RuntimeException e) {
+            // e.g. the state root was pruned; the import reads the state on demand
+            log.debug("Unable to prefetch the state for block " + block.getShortDescr() + ".", e);
+        }
+    }
+
+    private static void prefetch(AionRepositoryImpl snapshot, AionAddress address) {
+        // loads the flat snapshot entry read during execution
+        AccountState account = snapshot.getAccountState(address);
+        // loads the trie nodes on the path updated when the block state is flushed
+        snapshot.getWorldState().get(address.toByteArray());
+
+        if (account == null || Arrays.equals(account.getCodeHash(), EMPTY_DATA_HASH)) {
+            return;
+        }
+
+        StoredContractDetails details = snapshot.getContractDetails(address);
+        if (details != null) {
+            details.getCode(account.getCodeHash());
+            for (ByteArrayWrapper key : snapshot.getRecentStorageKeys(address)) {
+                details.get(key);
+            }
+        }
+    }
+
+    /** Discards the blocks waiting to be prefetched. */
+    void cancel() {
+        int discarded = executor.getQueue().size();
+        executor.getQueue().clear();
+        prefetchedBlocks.clear();
+        cancelled.addAndGet(discarded);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    @Override
+    public String toString() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return "BlockStatePrefetcher{queued="
+                + executor.getQueue().size()
+                + ", hits="
+                + hit
+                + ", misses="
+                + misses.get()
+                + ", hitRate="
+                + String.format("%.4f", total == 0 ? 0d : (double) hit / total)
+                + ", cancelled="
+                + cancelled.get()
+                + "}";
+    }
+}
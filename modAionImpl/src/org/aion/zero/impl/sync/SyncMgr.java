@@ -82,6 +82,7 @@ public final class SyncMgr {
 
     private final ScheduledExecutorService syncExecutors;
     private final ThreadPoolExecutor importExecutor;
+    private final BlockStatePrefetcher prefetcher;
 
     private BlockHeaderValidator blockHeaderValidator;
     private volatile long timeUpdated = 0;
@@ -100,6 +101,7 @@ public final class SyncMgr {
         evtMgr = _evtMgr;
         syncExecutors = Executors.newScheduledThreadPool(4);
         importExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY));
+        prefetcher = new BlockStatePrefetcher(chain);
 
         blockHeaderValidator = new ChainConfiguration().createBlockHeaderValidator();
 
@@ -124,8 +126,7 @@ public final class SyncMgr {
      */
     private void requestStatus() {
         Thread.currentThread().setName("sync-gs");
-        for (INode node : p2pMgr.getActiveNodes().values()) {
-            p2pMgr.send(node.getIdHash(), node.getIdShort(), cachedReqStatus);
+        for (INode node : p2pMgr.broadcast(cachedReqStatus, node -> true)) {
             stats.updateTotalRequestsToPeer(node.getIdShort(), RequestType.STATUS);
             stats.updateRequestTime(node.getIdShort(), System.nanoTime(), RequestType.STATUS);
         }
@@ -137,6 +138,7 @@ public final class SyncMgr {
     private void showStatus(Set<StatsType> showStatistics) {
         Thread.currentThread().setName("sync-ss");
         p2pLog.info(getStatus(chain, networkStatus, stats));
+        log.debug("<prefetch-status: {}>", prefetcher);
 
         String requestedStats;
         if (showStatistics.contains(StatsType.REQUESTS)) {
@@ -428,7 +430,12 @@ public final class SyncMgr {
             int stored = chain.storePendingBlockRange(downloadedBlocks.blocks, log);
             stats.updatePeerBlocks(downloadedBlocks.displayId, stored, BlockType.STORED);
         } else {
-            importExecutor.execute(() -> TaskImportBlocks.importBlocks(chain, stats, downloadedBlocks, importedBlockHashes, syncHeaderRequestManager));
+            // warm up the state read by the blocks while the ones ahead of them are imported
+            prefetcher.submit(downloadedBlocks.blocks);
+            importExecutor.execute(() -> {
+                prefetcher.recordImport(downloadedBlocks.blocks);
+                TaskImportBlocks.importBlocks(chain, stats, downloadedBlocks, importedBlockHashes, syncHeaderRequestManager);
+            });
         }
     }
 
@@ -462,6 +469,7 @@ public final class SyncMgr {
         }
 
         shutdownAndAwaitTermination(syncExecutors);
+        prefetcher.shutdown();
         shutdownAndAwaitTermination(importExecutor);
     }
 
@@ -1,8 +1,8 @@
 package org.aion.zero.impl.sync.handler;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.zero.impl.types.Block;
@@ -10,6 +10,7 @@ import org.aion.zero.impl.blockchain.BlockWrapper;
 import org.aion.zero.impl.pendingState.AionPendingStateImpl;
 import org.aion.zero.impl.core.ImportResult;
 import org.aion.zero.impl.valid.BlockHeaderValidator;
+import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.util.types.ByteArrayWrapper;
 import org.aion.zero.impl.config.CfgAion;
@@ -101,21 +102,17 @@ public class BlockPropagationHandler {
             this.cacheMap.put(hashWrapped, true);
         }
 
-        this.p2pManager
-                .getActiveNodes()
-                .values()
-                .forEach(
-                        n -> {
-                            if (log.isDebugEnabled())
-                                log.debug(
-                                        "<sending-new-block="
-                                                + block.getShortHash()
-                                                + " to="
-                                                + n.getIdShort()
-                                                + ">");
-                            this.p2pManager.send(
-                                    n.getIdHash(), n.getIdShort(), new BroadcastNewBlock(block));
-                        });
+        List<INode> peers = this.p2pManager.broadcast(new BroadcastNewBlock(block), n -> true);
+        if (log.isDebugEnabled()) {
+            peers.forEach(
+                    n ->
+                            log.debug(
+                                    "<sending-new-block="
+                                            + block.getShortHash()
+                                            + " to="
+                                            + n.getIdShort()
+                                            + ">"));
+        }
     }
 
     public PropStatus processIncomingBlock(
@@ -211,20 +208,19 @@ public class BlockPropagationHandler {
                             BigInteger.valueOf(this.pendingState.getPendingTxSize()).toByteArray(),
                             p2pManager.getAvgLatency());
 
-            this.p2pManager.getActiveNodes().values().stream()
-                    .filter(n -> n.getIdHash() != nodeId)
-                    .filter(n -> n.getTotalDifficulty().compareTo(td) >= 0)
+            this.p2pManager
+                    .broadcast(
+                            rs,
+                            n -> n.getIdHash() != nodeId && n.getTotalDifficulty().compareTo(td) >= 0)
                     .forEach(
-                            n -> {
-                                log.debug(
-                                        "<push-status blk={} hash={} to-node={} dd={} import-result={}>",
-                                        block.getNumber(),
-                                        block.getShortHash(),
-                                        n.getIdShort(),
-                                        td.longValue() - n.getTotalDifficulty().longValue(),
-                                        result.name());
-                                this.p2pManager.send(n.getIdHash(), n.getIdShort(), rs);
-                            });
+                            n ->
+                                    log.debug(
+                                            "<push-status blk={} hash={} to-node={} dd={} import-result={}>",
+                                            block.getNumber(),
+                                            block.getShortHash(),
+                                            n.getIdShort(),
+                                            td.longValue() - n.getTotalDifficulty().longValue(),
+                                            result.name()));
         }
 
         // process resulting state
@@ -242,28 +238,27 @@ public class BlockPropagationHandler {
         if (isSyncOnlyNode) return true;
 
         // current proposal is to send to all peers with lower blockNumbers
-        AtomicBoolean sent = new AtomicBoolean();
-        this.p2pManager.getActiveNodes().values().stream()
-                .filter(n -> n.getIdHash() != nodeId)
-                // peer is within 5 blocks of the block we're about to send
-                .filter(
+        List<INode> peers =
+                this.p2pManager.broadcast(
+                        new BroadcastNewBlock(block),
                         n -> {
+                            if (n.getIdHash() == nodeId) {
+                                return false;
+                            }
+                            // peer is within 5 blocks of the block we're about to send
                             long delta = block.getNumber() - n.getBestBlockNumber();
                             return (delta >= 0 && delta <= 100) || (n.getBestBlockNumber() == 0);
-                        })
-                .forEach(
-                        n -> {
-                            if (log.isDebugEnabled())
-                                log.debug(
-                                        "<sending-new-block hash="
-                                                + block.getShortHash()
-                                                + " to-node="
-                                                + n.getIdShort()
-                                                + ">");
-                            this.p2pManager.send(
-                                    n.getIdHash(), n.getIdShort(), new BroadcastNewBlock(block));
-                            sent.getAndSet(true);
                         });
-        return sent.get();
+        if (log.isDebugEnabled()) {
+            peers.forEach(
+                    n ->
+                            log.debug(
+                                    "<sending-new-block hash="
+                                            + block.getShortHash()
+                                            + " to-node="
+                                            + n.getIdShort()
+                                            + ">"));
+        }
+        return !peers.isEmpty();
     }
 }
@@ -1,5 +1,6 @@
 package org.aion.zero.impl.sync.handler;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
@@ -38,11 +39,20 @@ public final class ResBlocksBodiesHandler extends Handler {
 
     @Override
     public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        receiveBuffer(_nodeIdHashcode, _displayId, ByteBuffer.wrap(_msgBytes));
+    }
+
+    /**
+     * Decodes the bodies by reference to the received buffer. The blocks are assembled from the
+     * bodies before returning, which copies everything they keep out of the buffer.
+     */
+    @Override
+    public void receiveBuffer(int _nodeIdHashcode, String _displayId, final ByteBuffer _msg) {
         // for runtime survey information
         long startTime, duration;
 
         startTime = System.nanoTime();
-        ResBlocksBodies resBlocksBodies = ResBlocksBodies.decodeUsingRef(_msgBytes);
+        ResBlocksBodies resBlocksBodies = ResBlocksBodies.decodeUsingRef(_msg);
         duration = System.nanoTime() - startTime;
         surveyLog.debug("Receive Stage 4: decode bodies, duration = {} ns.", duration);
 
@@ -1,5 +1,6 @@
 package org.aion.zero.impl.sync.handler;
 
+import java.nio.ByteBuffer;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.Ver;
@@ -27,13 +28,21 @@ public final class ResBlocksHeadersHandler extends Handler {
 
     @Override
     public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        if (_msgBytes == null) return;
+
+        receiveBuffer(_nodeIdHashcode, _displayId, ByteBuffer.wrap(_msgBytes));
+    }
+
+    /** Decodes the headers from the received buffer without copying the message first. */
+    @Override
+    public void receiveBuffer(int _nodeIdHashcode, String _displayId, final ByteBuffer _msg) {
         // for runtime survey information
         long startTime, duration;
 
-        if (_msgBytes == null || _msgBytes.length == 0) return;
+        if (!_msg.hasRemaining()) return;
 
         startTime = System.nanoTime();
-        ResBlocksHeaders resHeaders = ResBlocksHeaders.decode(_msgBytes, log);
+        ResBlocksHeaders resHeaders = ResBlocksHeaders.decode(_msg, log);
         duration = System.nanoTime() - startTime;
         surveyLog.debug("Receive Stage 2: decode headers, duration = {} ns.", duration);
 
@@ -42,8 +51,12 @@ public final class ResBlocksHeadersHandler extends Handler {
             syncMgr.getSyncStats().updateResponseTime(_displayId, System.nanoTime(), RequestType.HEADERS);
             syncMgr.validateAndAddHeaders(_nodeIdHashcode, _displayId, resHeaders.getHeaders());
         } else {
-            log.error("<receive-headers: decode error msg-bytes={} node={}>", _msgBytes.length, _displayId);
-            log.trace("<receive-headers: decode error dump: {}>", ByteUtil.toHexString(_msgBytes));
+            log.error("<receive-headers: decode error msg-bytes={} node={}>", _msg.remaining(), _displayId);
+            if (log.isTraceEnabled()) {
+                byte[] msgBytes = new byte[_msg.remaining()];
+                _msg.duplicate().get(msgBytes);
+                log.trace("<receive-headers: decode error dump: {}>", ByteUtil.toHexString(msgBytes));
+            }
         }
         duration = System.nanoTime() - startTime;
         surveyLog.debug("Receive Stage 3: validate headers, duration = {} ns.", duration);
@@ -1,5 +1,6 @@
 package org.aion.zero.impl.sync.msg;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.aion.p2p.Ctrl;
@@ -24,7 +25,18 @@ public final class ResBlocksBodies extends Msg {
     }
 
     public static ResBlocksBodies decodeUsingRef(final byte[] _msgBytes) {
-        SharedRLPList list = RLP.decode2SharedList(_msgBytes);
+        return decodeUsingRef(RLP.decode2SharedList(_msgBytes));
+    }
+
+    /**
+     * Decodes the bodies from the remaining bytes of the buffer without copying the message. The
+     * decoded bodies refer to the buffer, so they can be used only while its content is unchanged.
+     */
+    public static ResBlocksBodies decodeUsingRef(final ByteBuffer _msg) {
+        return decodeUsingRef(RLP.decode2SharedListFromBuffer(_msg));
+    }
+
+    private static ResBlocksBodies decodeUsingRef(SharedRLPList list) {
         if (list.isEmpty()) {
             return new ResBlocksBodies(null);
         } else {
@@ -1,5 +1,6 @@
 package org.aion.zero.impl.sync.msg;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.aion.zero.impl.types.BlockHeader;
@@ -26,9 +27,18 @@ public final class ResBlocksHeaders extends Msg {
 
     public static ResBlocksHeaders decode(final byte[] _msgBytes, Logger logger) {
         if (_msgBytes == null || _msgBytes.length == 0) return null;
+        else return decode(ByteBuffer.wrap(_msgBytes), logger);
+    }
+
+    /**
+     * Decodes the headers from the remaining bytes of the buffer without copying the message. The
+     * decoded headers do not refer to the buffer.
+     */
+    public static ResBlocksHeaders decode(final ByteBuffer _msg, Logger logger) {
+        if (_msg == null || !_msg.hasRemaining()) return null;
         else {
             try {
-                SharedRLPList list = (SharedRLPList) RLP.decode2SharedList(_msgBytes).get(0);
+                SharedRLPList list = (SharedRLPList) RLP.decode2SharedListFromBuffer(_msg).get(0);
                 List<BlockHeader> blockHeaders = new ArrayList<>();
                 for (RLPElement aList : list) {
                     blockHeaders.add(BlockUtil.newHeaderFromUnsafeSource((SharedRLPList) aList));
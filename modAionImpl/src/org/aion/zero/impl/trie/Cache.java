@@ -19,18 +19,28 @@ import org.aion.log.LogEnum;
 import org.aion.util.types.ByteArrayWrapper;
 import org.slf4j.Logger;
 
-/** Cache class */
+/**
+ * Cache class. Holds the nodes modified by a trie until they are committed. Clean nodes are read
+ * through the process-wide {@link TrieNodeCache} before querying the data source.
+ */
 public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
     private ByteArrayKeyValueStore dataSource;
+    private final TrieNodeCache sharedNodes;
     private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
     private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
     private boolean isDirty;
 
     public Cache(ByteArrayKeyValueStore dataSource) {
+        this(dataSource, TrieNodeCache.getInstance());
+    }
+
+    @VisibleForTesting
+    Cache(ByteArrayKeyValueStore dataSource, TrieNodeCache sharedNodes) {
         this.dataSource = dataSource;
+        this.sharedNodes = sharedNodes;
     }
 
     public void markRemoved(byte[] key) {
@@ -53,18 +63,44 @@ public class Cache {
         this.isDirty = true;
     }
 
+    /** Puts the given hashed nodes in the cache. */
+    void putAll(Map<ByteArrayWrapper, Node> hashedNodes) {
+        for (Map.Entry<ByteArrayWrapper, Node> entry : hashedNodes.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     public Node get(byte[] key) {
+        return get(key, true);
+    }
+
+    /**
+     * Retrieves the node with the given hash.
+     *
+     * @param key the hash of the node
+     * @param useSharedCache whether the process-wide node cache may be used; it must be skipped
+     *     when checking that the node is present in this cache's data source
+     * @return the node or {@code null} if it is not found
+     */
+    public Node get(byte[] key, boolean useSharedCache) {
         ByteArrayWrapper wrappedKey = wrap(key);
         Node node = nodes.get(wrappedKey);
         if (node != null) {
             // cachehits++;
             return node;
         } else if (this.dataSource != null) {
+            if (useSharedCache) {
+                node = sharedNodes.get(wrappedKey);
+                if (node != null) {
+                    return node;
+                }
+            }
+
             Optional<byte[]> data = this.dataSource.get(key);
             if (data.isPresent()) {
                 // dbhits++;
                 node = new Node(fromRlpEncoded(data.get()), false);
-                nodes.put(wrappedKey, node);
+                sharedNodes.put(wrappedKey, node);
                 return node;
             }
         }
@@ -75,6 +111,7 @@ public class Cache {
     public void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         this.nodes.remove(wrappedKey);
+        this.sharedNodes.invalidate(wrappedKey);
 
         if (dataSource != null) {
             this.dataSource.delete(key);
@@ -114,6 +151,8 @@ public class Cache {
                 if (node != null) {
                     node.setDirty(false);
                     value = node.getValue().encode();
+                    // the stored nodes are likely to be read by the next blocks
+                    sharedNodes.put(nodeKey, node);
                 } else {
                     value = null;
                 }
@@ -2,6 +2,7 @@ package org.aion.zero.impl.trie;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
 
@@ -99,6 +100,17 @@ public interface Trie {
      */
     Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(byte[] value, int limit);
 
+    /**
+     * Traverses the trie with the given root and passes each stored key-value pair to the given
+     * consumer. The keys are the ones used internally by the trie, i.e. they are hashed for secure
+     * tries.
+     *
+     * @param stateRoot the root of the trie to be traversed
+     * @param consumer action to perform on each key-value pair
+     * @throws RuntimeException when a node referenced by the trie is missing from the database
+     */
+    void scanEntries(byte[] stateRoot, BiConsumer<byte[], byte[]> consumer);
+
     long saveFullStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
 
     long saveDiffStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db);
@@ -22,7 +22,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import org.aion.base.ConstantUtil;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -63,14 +68,28 @@ import org.aion.zero.impl.trie.scan.TraceAllNodes;
  * implemented. As soon as the real life tree keys are hashes it is very unlikely the case so the
  * pruning algorithm is simplified in this implementation.
  *
+ * <p>With deferred hashing enabled the updated nodes are kept in memory and are only encoded and
+ * hashed when the root hash is requested or the trie is synced. Each dirty node is then hashed once
+ * per root computation instead of once per update, and the independent subtrees of the top branch
+ * nodes are hashed in parallel on the common fork-join pool. The resulting root is identical to the
+ * one produced by hashing on every update.
+ *
  * @author Nick Savers
  * @since 20.05.2014
  */
 public class TrieImpl implements Trie {
+    /** Minimum number of pending updates for which the dirty subtrees are hashed in parallel. */
+    @VisibleForTesting
+    static final int PARALLEL_HASHING_THRESHOLD = 128;
+    /** Number of branch levels below the root whose child subtrees are hashed as separate tasks. */
+    private static final int PARALLEL_HASHING_DEPTH = 2;
+
     private Object root;
     private Cache cache;
 
     private boolean pruningEnabled;
+    private boolean deferredHashing;
+    private int pendingUpdates;
     private ReentrantLock lock;
 
     public TrieImpl(ByteArrayKeyValueStore db) {
@@ -102,6 +121,7 @@ public class TrieImpl implements Trie {
     /** for testing TrieTest.testRollbackToRootScenarios */
     public void setRoot(Object root) {
         this.root = root;
+        this.pendingUpdates = 0;
     }
 
     @Override
@@ -109,6 +129,7 @@ public class TrieImpl implements Trie {
         lock.lock();
         try {
             this.root = root;
+            this.pendingUpdates = 0;
         } finally {
             lock.unlock();
         }
@@ -119,6 +140,7 @@ public class TrieImpl implements Trie {
             ByteArrayInputStream b = new ByteArrayInputStream(data);
             ObjectInputStream o = new ObjectInputStream(b);
             root = o.readObject();
+            pendingUpdates = 0;
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
         }
@@ -137,6 +159,25 @@ public class TrieImpl implements Trie {
         return this;
     }
 
+    public boolean isDeferredHashingEnabled() {
+        return deferredHashing;
+    }
+
+    /**
+     * Enables or disables deferring the node hashing to the next root computation. Any updates
+     * pending from the previous mode are hashed before switching.
+     */
+    public TrieImpl withDeferredHashing(boolean deferredHashing) {
+        lock.lock();
+        try {
+            hashPendingNodes();
+            this.deferredHashing = deferredHashing;
+            return this;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /** Retrieve a value from a key as String. */
     @VisibleForTesting
     byte[] get(String key) {
@@ -186,11 +227,22 @@ public class TrieImpl implements Trie {
 
             byte[] k = binToNibbles(key);
 
+            if (deferredHashing) {
+                // skip updates that would not change the trie
+                Object current = this.get(this.root, k);
+                if (current instanceof byte[] && Arrays.equals((byte[]) current, value)) {
+                    return;
+                }
+            }
+
             if (isEmptyNode(root)) {
                 cache.markRemoved(getRootHashInner());
             }
 
             this.root = this.insert(this.root, k, value);
+            if (deferredHashing) {
+                pendingUpdates++;
+            }
         } finally {
             lock.unlock();
         }
@@ -200,6 +252,10 @@ public class TrieImpl implements Trie {
     public boolean isValidRoot(byte[] root) {
         lock.lock();
         try {
+            if (root != null && root.length >= ByteUtil.EMPTY_WORD.length) {
+                // the root node must be present in the database, not only in the shared node cache
+                return this.cache.get(root, false) != null;
+            }
             return this.getNode(root) != null;
         } finally {
             lock.unlock();
@@ -218,11 +274,22 @@ public class TrieImpl implements Trie {
         try {
             byte[] k = binToNibbles(key);
 
+            if (deferredHashing) {
+                // skip deletions of missing keys
+                Object current = this.get(this.root, k);
+                if (current != null && isEmptyNode(current)) {
+                    return;
+                }
+            }
+
             if (isEmptyNode(root)) {
                 cache.markRemoved(getRootHashInner());
             }
 
             this.root = this.delete(this.root, k);
+            if (deferredHashing) {
+                pendingUpdates++;
+            }
         } finally {
             lock.unlock();
         }
@@ -239,6 +306,7 @@ public class TrieImpl implements Trie {
     }
 
     private byte[] getRootHashInner() {
+        hashPendingNodes();
         if (root == null
             || (root instanceof byte[] && ((byte[]) root).length == 0)
             || (root instanceof String && "".equals(root))) {
@@ -336,7 +404,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(node, currentNode);
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -358,10 +426,12 @@ public class TrieImpl implements Trie {
                             copyOfRange(key, 1, key.length),
                             value);
 
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            // with deferred hashing unchanged updates are skipped beforehand
+            if (deferredHashing
+                    || !Arrays.equals(
+                            HashUtil.h256(getNode(newNode).encode()),
+                            HashUtil.h256(currentNode.encode()))) {
+                markRemoved(node, currentNode);
                 if (!isEmptyNode(currentNode.get(key[0]))) {
                     markRemoved(currentNode.get(key[0]).asBytes());
                 }
@@ -403,7 +473,7 @@ public class TrieImpl implements Trie {
                 } else {
                     newNode = new Object[] {currentNode.get(0), hash};
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(node, currentNode);
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -441,10 +511,12 @@ public class TrieImpl implements Trie {
                 newNode = itemList;
             }
 
-            if (!Arrays.equals(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            // with deferred hashing deletions of missing keys are skipped beforehand
+            if (deferredHashing
+                    || !Arrays.equals(
+                            HashUtil.h256(getNode(newNode).encode()),
+                            HashUtil.h256(currentNode.encode()))) {
+                markRemoved(node, currentNode);
             }
 
             return this.putToCache(newNode);
@@ -457,6 +529,20 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /**
+     * Marks the given replaced node for removal. Nodes kept in memory by deferred hashing were
+     * never stored, so only nodes referenced by hash are marked.
+     */
+    private void markRemoved(Object node, Value currentNode) {
+        if (pruningEnabled) {
+            if (node instanceof byte[] && ((byte[]) node).length >= ByteUtil.EMPTY_WORD.length) {
+                cache.markRemoved((byte[]) node);
+            } else if (!deferredHashing) {
+                cache.markRemoved(HashUtil.h256(currentNode.encode()));
+            }
+        }
+    }
+
     /**
      * Helper method to retrieve the actual node. If the node is not a list and length is > 32 bytes
      * get the actual node from the db.
@@ -482,6 +568,11 @@ public class TrieImpl implements Trie {
     }
 
     private Object putToCache(Object node) {
+        if (deferredHashing) {
+            // hashed on the next root computation
+            return node;
+        }
+
         Value value = new Value(node);
         byte[] enc = value.encode();
         if (enc.length >= ByteUtil.EMPTY_WORD.length) {
@@ -493,6 +584,106 @@ public class TrieImpl implements Trie {
         return node;
     }
 
+    /**
+     * Encodes and hashes the nodes kept in memory by deferred hashing and puts them in the cache.
+     * The subtrees of the top branch nodes are hashed in parallel when enough updates are pending.
+     */
+    private void hashPendingNodes() {
+        if (pendingUpdates == 0) {
+            return;
+        }
+
+        Map<ByteArrayWrapper, Node> hashedNodes = new ConcurrentHashMap<>();
+        if (pendingUpdates >= PARALLEL_HASHING_THRESHOLD) {
+            root = ForkJoinPool.commonPool().invoke(new HashTask(root, PARALLEL_HASHING_DEPTH, hashedNodes));
+        } else {
+            root = hashNode(root, 0, hashedNodes);
+        }
+        cache.putAll(hashedNodes);
+        pendingUpdates = 0;
+    }
+
+    /**
+     * Replaces the in-memory nodes of the given subtree by their hashes bottom-up, exactly as they
+     * would have been stored by {@link #putToCache(Object)}, collecting the hashed nodes.
+     *
+     * @param node the node reference to process
+     * @param parallelDepth the number of branch levels for which the children are hashed as
+     *     separate fork-join tasks
+     * @param hashedNodes collects the hashed nodes; may be updated concurrently
+     * @return the hash of the node if its encoding is at least 32 bytes long, otherwise the node
+     */
+    private static Object hashNode(Object node, int parallelDepth, Map<ByteArrayWrapper, Node> hashedNodes) {
+        if (node instanceof Value) {
+            node = ((Value) node).asObj();
+        }
+        if (!(node instanceof Object[])) {
+            // hash references, values and empty nodes are kept
+            return node;
+        }
+
+        Object[] items = ((Object[]) node).clone();
+        if (items.length == Node.PAIR_SIZE) {
+            // the value of a leaf is not a node reference
+            if (!hasTerminator(new Value(items[0]).asBytes())) {
+                items[1] = hashNode(items[1], parallelDepth, hashedNodes);
+            }
+        } else {
+            // the last item of a branch holds a value
+            List<Integer> inMemory = new ArrayList<>();
+            for (int i = 0; i < Node.BRANCH_SIZE - 1; i++) {
+                if (items[i] instanceof Object[] || items[i] instanceof Value && ((Value) items[i]).isList()) {
+                    inMemory.add(i);
+                }
+            }
+
+            if (parallelDepth > 0 && inMemory.size() > 1) {
+                List<HashTask> tasks = new ArrayList<>();
+                for (int i : inMemory) {
+                    tasks.add(new HashTask(items[i], parallelDepth - 1, hashedNodes));
+                }
+                ForkJoinTask.invokeAll(tasks);
+                for (int i = 0; i < tasks.size(); i++) {
+                    items[inMemory.get(i)] = tasks.get(i).join();
+                }
+            } else {
+                for (int i : inMemory) {
+                    items[i] = hashNode(items[i], parallelDepth, hashedNodes);
+                }
+            }
+        }
+
+        Value value = new Value(items);
+        byte[] enc = value.encode();
+        if (enc.length >= ByteUtil.EMPTY_WORD.length) {
+            byte[] sha = HashUtil.h256(enc);
+            hashedNodes.put(ByteArrayWrapper.wrap(sha), new Node(value, true));
+            return sha;
+        }
+
+        return items;
+    }
+
+    /** Hashes the in-memory nodes of a subtree on the fork-join pool. */
+    private static final class HashTask extends RecursiveTask<Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final Object node;
+        private final int parallelDepth;
+        private final Map<ByteArrayWrapper, Node> hashedNodes;
+
+        HashTask(Object node, int parallelDepth, Map<ByteArrayWrapper, Node> hashedNodes) {
+            this.node = node;
+            this.parallelDepth = parallelDepth;
+            this.hashedNodes = hashedNodes;
+        }
+
+        @Override
+        protected Object compute() {
+            return hashNode(node, parallelDepth, hashedNodes);
+        }
+    }
+
     // Simple compare function which compares two tries based on their stateRoot
     @Override
     public boolean equals(Object trie) {
@@ -510,6 +701,7 @@ public class TrieImpl implements Trie {
     public void sync() {
         lock.lock();
         try {
+            hashPendingNodes();
             this.cache.commit();
         } finally {
             lock.unlock();
@@ -520,6 +712,7 @@ public class TrieImpl implements Trie {
     public void syncWithoutFlush() {
         lock.lock();
         try {
+            hashPendingNodes();
             this.cache.commitWithoutFlush();
         } finally {
             lock.unlock();
@@ -651,6 +844,7 @@ public class TrieImpl implements Trie {
     public byte[] serialize() {
         lock.lock();
         try {
+            hashPendingNodes();
             Map<ByteArrayWrapper, Node> map = getCache().getNodes();
 
             int keysTotalSize = 0;
@@ -764,6 +958,7 @@ public class TrieImpl implements Trie {
     public String getTrieDump() {
         lock.lock();
         try {
+            hashPendingNodes();
             TraceAllNodes traceAction = new TraceAllNodes();
             Value value = new Value(root);
             if (value.isHashCode()) {
@@ -834,7 +1029,8 @@ public class TrieImpl implements Trie {
             int items = hashes.size();
             for (int i = 0; i < items; i++) {
                 byte[] hash = hashes.get(i);
-                Node node = this.getCache().get(hash);
+                // nodes found only in the shared node cache are missing from the database
+                Node node = this.getCache().get(hash, false);
                 if (node == null) {
                     // performs action for missing nodes
                     scanAction.doOnNode(hash, null);
@@ -930,6 +1126,65 @@ public class TrieImpl implements Trie {
         return hashes;
     }
 
+    @Override
+    public void scanEntries(byte[] stateRoot, BiConsumer<byte[], byte[]> consumer) {
+        lock.lock();
+        try {
+            if (!Arrays.equals(stateRoot, ConstantUtil.EMPTY_TRIE_HASH)) {
+                scanEntries(stateRoot, new byte[0], consumer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recursively visits the given node, where the path contains the nibbles of the key prefix
+     * leading to the node.
+     */
+    private void scanEntries(Object node, byte[] path, BiConsumer<byte[], byte[]> consumer) {
+        if (isEmptyNode(node)) {
+            return;
+        }
+
+        Value currentNode = this.getNode(node);
+        if (currentNode == null) {
+            throw new RuntimeException("Not found: " + new Value(node));
+        }
+
+        if (currentNode.length() == Node.PAIR_SIZE) {
+            byte[] packedKey = currentNode.get(0).asBytes();
+            byte[] nibbles = concatenate(path, unpackToNibbles(packedKey));
+
+            if (hasTerminator(packedKey)) {
+                consumer.accept(nibblesToBin(nibbles), currentNode.get(1).asBytes());
+            } else {
+                scanEntries(currentNode.get(1).asObj(), nibbles, consumer);
+            }
+        } else {
+            for (int index = 0; index < Node.BRANCH_SIZE - 1; index++) {
+                byte[] nibbles = Arrays.copyOf(path, path.length + 1);
+                nibbles[path.length] = (byte) index;
+                scanEntries(currentNode.get(index).asObj(), nibbles, consumer);
+            }
+
+            // the last item of a branch stores the value for keys ending at this node
+            Object value = currentNode.get(Node.BRANCH_SIZE - 1).asObj();
+            if (!isEmptyNode(value)) {
+                consumer.accept(nibblesToBin(path), currentNode.get(Node.BRANCH_SIZE - 1).asBytes());
+            }
+        }
+    }
+
+    /** Converts a sequence of nibbles without terminator to the corresponding binary array. */
+    private static byte[] nibblesToBin(byte[] nibbles) {
+        byte[] output = new byte[nibbles.length / 2];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = (byte) ((nibbles[2 * i] << 4) + nibbles[2 * i + 1]);
+        }
+        return output;
+    }
+
     @Override
     public long saveFullStateToDatabase(byte[] stateRoot, ByteArrayKeyValueDatabase db) {
         lock.lock();
@@ -0,0 +1,134 @@
+package org.aion.zero.impl.trie;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.aion.rlp.Value;
+import org.aion.util.types.ByteArrayWrapper;
+
+/**
+ * Process-wide cache of decoded trie nodes shared by all the {@link Cache} instances. Trie nodes
+ * are stored under the hash of their encoding, so a node read by one trie can be reused by any
+ * other trie, e.g. the top nodes of the world state or the storage of frequently used contracts.
+ *
+ * <p>The cache is bounded by the approximate heap size of the cached nodes and keeps hit and miss
+ * statistics. Only nodes that were read from or written to a data source are cached.
+ *
+ * @implNote The cached values are fully decoded and encoded before being shared, such that they are
+ *     not modified by concurrent readers. Each lookup returns a new {@link Node} for the shared
+ *     value, because the nodes memoize their items.
+ */
+public final class TrieNodeCache {
+
+    /** Default maximum heap size of the cached nodes. */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /** Approximate heap size of the cache entry, key and node objects besides the encoding. */
+    private static final int ENTRY_OVERHEAD = 192;
+
+    private static final TrieNodeCache INSTANCE = new TrieNodeCache(DEFAULT_MAX_SIZE);
+
+    private volatile com.google.common.cache.Cache<ByteArrayWrapper, Value> nodes;
+    private volatile long maxSize;
+
+    @VisibleForTesting
+    TrieNodeCache(long maxSize) {
+        this.nodes = build(maxSize);
+        this.maxSize = maxSize;
+    }
+
+    public static TrieNodeCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static com.google.common.cache.Cache<ByteArrayWrapper, Value> build(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The trie node cache size cannot be negative.");
+        }
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((ByteArrayWrapper key, Value value) -> weigh(key, value))
+                .recordStats()
+                .build();
+    }
+
+    /** The decoded items hold approximately the same number of bytes as the encoding. */
+    private static int weigh(ByteArrayWrapper key, Value value) {
+        return key.length() + 2 * value.encode().length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Sets the maximum heap size of the cached nodes. Changing the size discards the cached nodes
+     * and the statistics.
+     *
+     * @param maxSize the maximum size in bytes; zero disables the cache
+     * @throws IllegalArgumentException if the given size is negative
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        if (maxSize != this.maxSize) {
+            this.nodes = build(maxSize);
+            this.maxSize = maxSize;
+        }
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return a clean node for the given hash or {@code null} if the node is not cached */
+    public Node get(ByteArrayWrapper hash) {
+        Value value = nodes.getIfPresent(hash);
+        return value == null ? null : new Node(value);
+    }
+
+    /** Adds the given node to the cache, replacing any cached node with the same hash. */
+    public void put(ByteArrayWrapper hash, Node node) {
+        if (maxSize == 0) {
+            return;
+        }
+        Value value = node.getValue();
+        // complete the lazy encoding and decoding before the value is shared
+        value.encode();
+        value.asObj();
+        nodes.put(hash, value);
+    }
+
+    public void invalidate(ByteArrayWrapper hash) {
+        nodes.invalidate(hash);
+    }
+
+    public void clear() {
+        nodes.invalidateAll();
+    }
+
+    /** @return the number of cached nodes */
+    public long size() {
+        return nodes.size();
+    }
+
+    public long getHitCount() {
+        return nodes.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return nodes.stats().missCount();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = nodes.stats();
+        return "TrieNodeCache{nodes="
+                + nodes.size()
+                + ", maxSize="
+                + maxSize
+                + ", hits="
+                + stats.hitCount()
+                + ", misses="
+                + stats.missCount()
+                + ", hitRate="
+                + String.format("%.4f", stats.hitRate())
+                + ", evictions="
+                + stats.evictionCount()
+                + "}";
+    }
+}
@@ -1,11 +1,9 @@
 package org.aion.zero.impl.tx;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.aion.base.AionTransaction;
-import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Msg;
 
@@ -27,12 +25,7 @@ public class A0TxTask implements Callable<List<AionTransaction>> {
     public List<AionTransaction> call() {
 
         try {
-            Map<Integer, INode> activeNodes = this.p2pMgr.getActiveNodes();
-            if (activeNodes != null) {
-                for (Map.Entry<Integer, INode> e : activeNodes.entrySet()) {
-                    this.p2pMgr.send(e.getKey(), e.getValue().getIdShort(), this.msg);
-                }
-            }
+            this.p2pMgr.broadcast(this.msg, node -> true);
 
             return tx;
         } catch (Exception e) {
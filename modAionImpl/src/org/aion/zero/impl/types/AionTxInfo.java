@@ -187,7 +187,8 @@ public class AionTxInfo {
         return !(internalTransactions == null || internalTransactions.isEmpty());
     }
 
-    private static byte[] toRlp(InternalTransaction transaction) {
+    /** @return the encoding of the given internal transaction as stored with the receipts */
+    public static byte[] toRlp(InternalTransaction transaction) {
 
         byte[] from = RLP.encodeElement(transaction.sender.toByteArray());
         byte[] to = RLP.encodeElement(transaction.isCreate ? null : transaction.destination.toByteArray());
@@ -245,7 +246,8 @@ public class AionTxInfo {
         }
     }
 
-    private static InternalTransaction fromRlp(SharedRLPList rlpInternalTx) {
+    /** @return the internal transaction decoded from the given encoding produced by {@link #toRlp} */
+    public static InternalTransaction fromRlp(SharedRLPList rlpInternalTx) {
         Objects.requireNonNull(rlpInternalTx);
         AionAddress from = new AionAddress(rlpInternalTx.get(INDEX_FROM).getRLPData());
         AionAddress to;
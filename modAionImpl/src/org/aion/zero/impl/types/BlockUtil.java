@@ -179,6 +179,34 @@ public final class BlockUtil {
         }
     }
 
+    /**
+     * Assembles a new block instance given its header and the encoding of its transactions.
+     * Returns {@code null} when given invalid data.
+     *
+     * @param header the block header
+     * @param txList the list of encoded transactions in the block
+     * @return a new instance of a block or {@code null} when given invalid data
+     * @implNote Assumes the body data is from a safe (internal) source.
+     */
+    public static Block newBlockWithHeader(BlockHeader header, SharedRLPList txList) {
+        if (header == null || txList == null) {
+            return null;
+        }
+        try {
+            List<AionTransaction> txs = parseTransactions(txList);
+            if (header.getSealType() == Seal.PROOF_OF_WORK) {
+                return new MiningBlock((MiningBlockHeader) header, txs);
+            } else if (header.getSealType() == Seal.PROOF_OF_STAKE) {
+                return new StakingBlock((StakingBlockHeader) header, txs);
+            } else {
+                return null;
+            }
+        } catch (Exception e) {
+            genLog.warn("Unable to decode block with header " + header, e);
+            return null;
+        }
+    }
+
     public static byte[] getTxTrieRootFromUnsafeSource(SharedRLPList txList) {
         Objects.requireNonNull(txList);
 
@@ -205,6 +233,36 @@ public final class BlockUtil {
         return txsState.getRootHash();
     }
 
+    /**
+     * Decodes the given encoding into a new instance of a block header or returns {@code null} if
+     * the RLP encoding does not describe a valid block header.
+     *
+     * @param rlpList an RLPList instance encoding block header data
+     * @return a new instance of a block header or {@code null} if the RLP encoding does not
+     *     describe a valid block header
+     * @implNote Assumes the data is from a safe (internal) source.
+     */
+    public static BlockHeader newHeaderFromSharedRLPList(SharedRLPList rlpList) {
+        // return null when given empty bytes
+        if (rlpList == null || rlpList.isEmpty()) {
+            return null;
+        }
+
+        try {
+            byte[] sealType = rlpList.get(0).getRLPData();
+            if (sealType[0] == Seal.PROOF_OF_WORK.getSealId()) {
+                return MiningBlockHeader.Builder.newInstance().withRlpList(rlpList).build();
+            } else if (sealType[0] == Seal.PROOF_OF_STAKE.getSealId()) {
+                return StakingBlockHeader.Builder.newInstance().withRlpList(rlpList).build();
+            } else {
+                return null;
+            }
+        } catch (Exception e) {
+            genLog.warn("Unable to decode block header bytes " + Arrays.toString(SharedRLPList.getRLPDataCopy(rlpList)), e);
+            return null;
+        }
+    }
+
     /**
      * Decodes the given encoding into a new instance of a block header or returns {@code null} if
      * the RLP encoding does not describe a valid block header.
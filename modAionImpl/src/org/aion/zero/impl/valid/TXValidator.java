@@ -7,11 +7,11 @@ import static org.aion.zero.impl.vm.common.TxNrgRule.isValidNrgContractCreateAft
 import static org.aion.zero.impl.vm.common.TxNrgRule.isValidNrgTx;
 import static org.aion.zero.impl.vm.common.TxNrgRule.isValidNrgTxAfterUnity;
 
+import com.google.common.annotations.VisibleForTesting;
 import java.util.Collections;
 import java.util.Map;
 import org.aion.base.AionTransaction;
 import org.aion.crypto.ISignature;
-import org.aion.crypto.SignatureFac;
 import org.aion.log.LogEnum;
 import org.aion.precompiled.type.PrecompiledContract;
 import org.aion.types.AionAddress;
@@ -65,6 +65,11 @@ public class TXValidator {
         return cache.get(hash) != null;
     }
 
+    @VisibleForTesting
+    public static void clearCache() {
+        cache.clear();
+    }
+
     private static TxResponse isValid0(AionTransaction tx) {
         long nrg = tx.getEnergyLimit();
         if (tx.isContractCreationTransaction()) {
@@ -141,11 +146,7 @@ public class TXValidator {
             return TxResponse.INVALID_TX_SIGNATURE;
         }
 
-        try {
-            return SignatureFac.verify(hash, sig) ? TxResponse.SUCCESS : TxResponse.INVALID_TX_SIGNATURE;
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return TxResponse.INVALID_TX_SIGNATURE;
-        }
+        // memoized by the transaction, usually verified ahead of time during block imports
+        return tx.isSignatureValid() ? TxResponse.SUCCESS : TxResponse.INVALID_TX_SIGNATURE;
     }
 }
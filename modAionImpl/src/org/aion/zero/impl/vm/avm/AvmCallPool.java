@@ -0,0 +1,256 @@
+package org.aion.zero.impl.vm.avm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.aion.avm.stub.AvmVersion;
+import org.aion.avm.stub.IAionVirtualMachine;
+import org.aion.avm.stub.IAvmResourceFactory;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.zero.impl.vm.avm.internal.AvmResourcesVersion1;
+import org.aion.zero.impl.vm.avm.internal.AvmResourcesVersion2;
+import org.slf4j.Logger;
+
+/**
+ * A pool of avm instances reserved for local calls, i.e. {@code eth_call} and gas estimates.
+ *
+ * The avm provided by {@link AvmProvider} is shared with block import and guarded by a single lock,
+ * so local calls would otherwise wait for the import of blocks and delay it. The instances in this
+ * pool are used exclusively for local calls, which never commit state changes, so calls neither
+ * take nor wait for the provider's lock. Each instance runs one call at a time.
+ *
+ * Every pooled instance loads the resources of its avm version in its own class loader, isolated
+ * from the provider's avm and from the other pooled instances. The instances are created on demand,
+ * up to the configured size per avm version. When all the instances of a version are in use, a call
+ * waits up to the configured timeout for one to be released.
+ *
+ * The pool is disabled until it is configured with a positive size.
+ *
+ * This class is thread-safe.
+ */
+public final class AvmCallPool {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.VM.name());
+
+    private static final Object LOCK = new Object();
+
+    // The idle instances and the number of created instances for each version, guarded by LOCK.
+    private static final Map<AvmVersion, LinkedBlockingQueue<PooledAvm>> idle = new EnumMap<>(AvmVersion.class);
+    private static final Map<AvmVersion, Integer> created = new EnumMap<>(AvmVersion.class);
+    // Incremented on shutdown to identify the instances created under previous configurations.
+    private static int generation = 0;
+
+    private static volatile int size = 0;
+    private static volatile long timeoutMillis = 0;
+
+    private AvmCallPool() {}
+
+    /**
+     * Sets the number of instances per avm version and the maximum time a call waits for an
+     * instance. A size of zero disables the pool and local calls use the provider's avm. Any idle
+     * instances of a previous configuration are shut down.
+     *
+     * @param poolSize The maximum number of instances for each avm version.
+     * @param timeout The maximum time to wait for an instance.
+     * @param unit The time units the timeout is specified in.
+     */
+    public static void configure(int poolSize, long timeout, TimeUnit unit) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("The avm call pool size cannot be negative!");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("The avm call pool timeout must be positive!");
+        }
+
+        shutdown();
+        timeoutMillis = unit.toMillis(timeout);
+        size = poolSize;
+    }
+
+    /**
+     * Returns {@code true} only if local calls should be executed by this pool.
+     */
+    public static boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Returns an instance of the specified avm version for the exclusive use of the caller, who must
+     * return it with {@link #release(PooledAvm)} when the call is complete.
+     *
+     * @param version The avm version.
+     * @param enableCoinbaseLock Whether the avm must have the coinbase lock enabled (version 2 only).
+     * @throws IllegalStateException If no instance became available within the timeout.
+     * @return the pooled avm.
+     */
+    public static PooledAvm acquire(AvmVersion version, boolean enableCoinbaseLock) throws IOException, IllegalAccessException, ClassNotFoundException, InstantiationException {
+        boolean create = false;
+        LinkedBlockingQueue<PooledAvm> queue;
+        synchronized (LOCK) {
+            queue = idle.computeIfAbsent(version, v -> new LinkedBlockingQueue<>());
+            if (queue.isEmpty() && created.getOrDefault(version, 0) < size) {
+                created.merge(version, 1, Integer::sum);
+                create = true;
+            }
+        }
+
+        PooledAvm pooled;
+        if (create) {
+            try {
+                pooled = PooledAvm.start(version, enableCoinbaseLock);
+            } catch (Throwable e) {
+                synchronized (LOCK) {
+                    created.merge(version, -1, Integer::sum);
+                }
+                throw e;
+            }
+            LOG.debug("Started a new read-only avm version {} for local calls.", version);
+        } else {
+            try {
+                pooled = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pooled = null;
+            }
+            if (pooled == null) {
+                throw new IllegalStateException("Timed out waiting for a read-only avm version " + version + " to execute the call!");
+            }
+        }
+
+        try {
+            pooled.ensureCoinbaseLock(enableCoinbaseLock);
+        } catch (Throwable e) {
+            // the instance may be left without a running avm, so it is replaced by a new one
+            discard(pooled);
+            throw e;
+        }
+        return pooled;
+    }
+
+    /** Shuts down an instance that cannot be returned to the pool and frees its slot. */
+    private static void discard(PooledAvm pooled) {
+        synchronized (LOCK) {
+            // the counts of previous configurations were already cleared on shutdown
+            if (pooled.generation == generation) {
+                created.merge(pooled.version, -1, Integer::sum);
+            }
+        }
+        try {
+            pooled.close();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to shut down a read-only avm.", e);
+        }
+    }
+
+    /**
+     * Returns the instance to the pool. Instances of a previous configuration are shut down.
+     */
+    public static void release(PooledAvm pooled) {
+        synchronized (LOCK) {
+            LinkedBlockingQueue<PooledAvm> queue = idle.get(pooled.version);
+            if (queue != null && pooled.generation == generation) {
+                queue.offer(pooled);
+                return;
+            }
+        }
+        pooled.close();
+    }
+
+    /**
+     * Shuts down all the idle instances and disables the pool. The instances in use are shut down
+     * when they are released.
+     */
+    public static void shutdown() {
+        List<PooledAvm> instances = new ArrayList<>();
+        synchronized (LOCK) {
+            size = 0;
+            for (LinkedBlockingQueue<PooledAvm> queue : idle.values()) {
+                queue.drainTo(instances);
+            }
+            idle.clear();
+            created.clear();
+            generation++;
+        }
+        for (PooledAvm pooled : instances) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * An avm instance owned by the pool, together with the resources it was loaded from.
+     */
+    public static final class PooledAvm {
+        private final AvmVersion version;
+        private final int generation;
+        private final AvmResourcesVersion1 resourcesVersion1;
+        private final AvmResourcesVersion2 resourcesVersion2;
+        private boolean coinbaseLock;
+
+        private PooledAvm(AvmVersion version, int generation, AvmResourcesVersion1 resourcesVersion1, AvmResourcesVersion2 resourcesVersion2, boolean coinbaseLock) {
+            this.version = version;
+            this.generation = generation;
+            this.resourcesVersion1 = resourcesVersion1;
+            this.resourcesVersion2 = resourcesVersion2;
+            this.coinbaseLock = coinbaseLock;
+        }
+
+        private static PooledAvm start(AvmVersion version, boolean enableCoinbaseLock) throws IOException, IllegalAccessException, ClassNotFoundException, InstantiationException {
+            String projectRootDir = AvmConfigurations.getProjectRootDirectory();
+            int currentGeneration;
+            synchronized (LOCK) {
+                currentGeneration = AvmCallPool.generation;
+            }
+
+            if (version == AvmVersion.VERSION_1) {
+                AvmResourcesVersion1 resources = AvmResourcesVersion1.loadResources(projectRootDir);
+                resources.initializeAndStartNewAvm();
+                return new PooledAvm(version, currentGeneration, resources, null, false);
+            } else if (version == AvmVersion.VERSION_2) {
+                AvmResourcesVersion2 resources = AvmResourcesVersion2.loadResources(projectRootDir);
+                resources.initializeAndStartNewAvm(enableCoinbaseLock);
+                return new PooledAvm(version, currentGeneration, null, resources, enableCoinbaseLock);
+            } else {
+                throw new IllegalStateException("Unknown avm version: " + version);
+            }
+        }
+
+        public AvmVersion getVersion() {
+            return version;
+        }
+
+        public IAvmResourceFactory getResourceFactory() {
+            return version == AvmVersion.VERSION_1 ? resourcesVersion1.resourceFactory : resourcesVersion2.resourceFactory;
+        }
+
+        public IAionVirtualMachine getAvm() {
+            return version == AvmVersion.VERSION_1 ? resourcesVersion1.getAvm() : resourcesVersion2.getAvm();
+        }
+
+        /** Restarts the avm if its coinbase lock setting differs from the required one. */
+        private void ensureCoinbaseLock(boolean enableCoinbaseLock) {
+            if (version == AvmVersion.VERSION_2 && coinbaseLock != enableCoinbaseLock) {
+                resourcesVersion2.shutdownAvm();
+                resourcesVersion2.initializeAndStartNewAvm(enableCoinbaseLock);
+                coinbaseLock = enableCoinbaseLock;
+            }
+        }
+
+        private void close() {
+            try {
+                if (version == AvmVersion.VERSION_1) {
+                    resourcesVersion1.shutdownAvm();
+                    resourcesVersion1.close();
+                } else {
+                    resourcesVersion2.shutdownAvm();
+                    resourcesVersion2.close();
+                }
+            } catch (IOException e) {
+                LOG.error("Unable to close the resources of a read-only avm.", e);
+            }
+        }
+    }
+}
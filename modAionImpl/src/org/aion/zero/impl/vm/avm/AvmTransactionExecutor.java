@@ -8,6 +8,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
+import org.aion.zero.impl.db.AionRepositoryCache;
 import org.aion.zero.impl.vm.avm.schedule.AvmVersionSchedule;
 import org.aion.zero.impl.vm.common.PostExecutionWork;
 import org.aion.zero.impl.vm.common.VmFatalException;
@@ -16,6 +17,7 @@ import org.aion.avm.stub.AvmVersion;
 import org.aion.avm.stub.IAionVirtualMachine;
 import org.aion.avm.stub.IAvmExternalState;
 import org.aion.avm.stub.IAvmFutureResult;
+import org.aion.avm.stub.IAvmResourceFactory;
 import org.aion.base.AionTransaction;
 import org.aion.base.AionTxExecSummary;
 import org.aion.base.AionTxReceipt;
@@ -64,8 +66,12 @@ public final class AvmTransactionExecutor {
      * @throws VmFatalException If a fatal error occurred and the kernel must be shut down.
      */
     public static List<AionTxExecSummary> executeTransactions(RepositoryCache repository, BigInteger blockDifficulty, long blockNumber, long blockTimestamp, long blockEnergyLimit, AionAddress miner, AionTransaction[] transactions, PostExecutionWork postExecutionWork, boolean decrementBlockEnergyLimit, boolean allowNonceIncrement, boolean isLocalCall, long remainingBlockEnergy, AvmExecutionType executionType, long cachedBlockNumber, boolean unityForkEnabled, boolean signatureSchemeSwapEnabled) throws VmFatalException {
-        List<AionTxExecSummary> transactionSummaries = new ArrayList<>();
-        long blockEnergy = remainingBlockEnergy;
+        // Local calls are executed by the read-only avm pool to avoid contending with block import for the provider's lock.
+        if (isLocalCall && executionType == AvmExecutionType.ETH_CALL && AvmCallPool.isEnabled()) {
+            return executeLocalCalls(repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, postExecutionWork, decrementBlockEnergyLimit, allowNonceIncrement, remainingBlockEnergy, cachedBlockNumber, unityForkEnabled, signatureSchemeSwapEnabled);
+        }
+
+        List<AionTxExecSummary> transactionSummaries;
 
         try {
             // We need to acquire the provider's lock before we can do anything meaningful.
@@ -76,45 +82,89 @@ public final class AvmTransactionExecutor {
             // Ensure that the vm is in the correct state and grab the version of the avm we need to use for this block.
             AvmVersion versionToUse = updateAvmsAndGetVersionToUse(AvmConfigurations.getProjectRootDirectory(), blockNumber, signatureSchemeSwapEnabled);
 
-            IAvmFutureResult[] futures = invokeAvm(versionToUse, repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, allowNonceIncrement, isLocalCall, executionType, cachedBlockNumber, unityForkEnabled);
+            IAvmFutureResult[] futures = invokeAvm(AvmProvider.getResourceFactory(versionToUse), AvmProvider.getAvm(versionToUse), repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, allowNonceIncrement, isLocalCall, executionType, cachedBlockNumber, unityForkEnabled);
+            transactionSummaries = processResults(futures, versionToUse, repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, postExecutionWork, decrementBlockEnergyLimit, allowNonceIncrement, isLocalCall, remainingBlockEnergy);
+        } catch (Throwable e) {
+            // If we get here then something unexpected went wrong, we treat this as a fatal situation since shutting down is our only recovery.
+            System.err.println("Encountered an unexpected error while processing the transactions in the avm: " + e.toString());
+            throw new VmFatalException(e);
+        } finally{
+            AvmProvider.releaseLock();
+        }
 
-            // Process the transaction results.
-            int index = 0;
-            for (IAvmFutureResult future : futures) {
-                TransactionResult result = future.getResult();
+        return transactionSummaries;
+    }
 
-                if (result.transactionStatus.isFatal()) {
-                    throw new VmFatalException(result.transactionStatus.causeOfError);
-                }
+    /**
+     * Executes the specified local calls using an avm from the {@link AvmCallPool}, without
+     * acquiring the provider's lock. The parameters are the same as for
+     * {@link #executeTransactions}.
+     *
+     * @throws IllegalStateException If no pooled avm became available within the pool timeout.
+     * @throws VmFatalException If a fatal error occurred and the kernel must be shut down.
+     */
+    private static List<AionTxExecSummary> executeLocalCalls(RepositoryCache repository, BigInteger blockDifficulty, long blockNumber, long blockTimestamp, long blockEnergyLimit, AionAddress miner, AionTransaction[] transactions, PostExecutionWork postExecutionWork, boolean decrementBlockEnergyLimit, boolean allowNonceIncrement, long remainingBlockEnergy, long cachedBlockNumber, boolean unityForkEnabled, boolean signatureSchemeSwapEnabled) throws VmFatalException {
+        AvmVersion versionToUse = AvmConfigurations.getAvmVersionSchedule().whichVersionToRunWith(blockNumber);
+        if (versionToUse == null) {
+            throw new IllegalStateException("Attempted to invoke the avm at a block that has no avm support!");
+        }
+        // AKI-636 workaround, consistent with updateAvmsAndGetVersionToUse
+        boolean enableCoinbaseLock = signatureSchemeSwapEnabled || blockNumber == 4820587;
 
-                // Check the block energy limit and reject if necessary.
-                AionTransaction transaction = transactions[index];
-                if (result.energyUsed > blockEnergy) {
-                    result = markAsBlockEnergyLimitExceeded(result, transaction.getEnergyLimit());
-                }
+        AvmCallPool.PooledAvm pooled;
+        try {
+            pooled = AvmCallPool.acquire(versionToUse, enableCoinbaseLock);
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new VmFatalException(e);
+        }
 
-                AionTxExecSummary summary = buildSummaryAndUpdateState(future, transaction, result, versionToUse, repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, allowNonceIncrement, isLocalCall);
+        try {
+            IAvmFutureResult[] futures = invokeAvm(pooled.getResourceFactory(), pooled.getAvm(), repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, allowNonceIncrement, true, AvmExecutionType.ETH_CALL, cachedBlockNumber, unityForkEnabled);
+            return processResults(futures, versionToUse, repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, transactions, postExecutionWork, decrementBlockEnergyLimit, allowNonceIncrement, true, remainingBlockEnergy);
+        } catch (Throwable e) {
+            System.err.println("Encountered an unexpected error while processing the local calls in the avm: " + e.toString());
+            throw new VmFatalException(e);
+        } finally {
+            AvmCallPool.release(pooled);
+        }
+    }
 
-                // Do any post execution work if any is specified.
-                if (postExecutionWork != null) {
-                    postExecutionWork.doWork(repository, summary, transaction);
-                }
+    /**
+     * Builds the execution summaries of the transactions from their future results, in order.
+     */
+    private static List<AionTxExecSummary> processResults(IAvmFutureResult[] futures, AvmVersion versionToUse, RepositoryCache repository, BigInteger blockDifficulty, long blockNumber, long blockTimestamp, long blockEnergyLimit, AionAddress miner, AionTransaction[] transactions, PostExecutionWork postExecutionWork, boolean decrementBlockEnergyLimit, boolean allowNonceIncrement, boolean isLocalCall, long remainingBlockEnergy) throws VmFatalException {
+        List<AionTxExecSummary> transactionSummaries = new ArrayList<>();
+        long blockEnergy = remainingBlockEnergy;
 
-                // Update the remaining block energy.
-                if (!result.transactionStatus.isRejected() && decrementBlockEnergyLimit) {
-                    blockEnergy -= summary.getReceipt().getEnergyUsed();
-                }
+        // Process the transaction results.
+        int index = 0;
+        for (IAvmFutureResult future : futures) {
+            TransactionResult result = future.getResult();
 
-                transactionSummaries.add(summary);
-                index++;
+            if (result.transactionStatus.isFatal()) {
+                throw new VmFatalException(result.transactionStatus.causeOfError);
             }
 
-        } catch (Throwable e) {
-            // If we get here then something unexpected went wrong, we treat this as a fatal situation since shutting down is our only recovery.
-            System.err.println("Encountered an unexpected error while processing the transactions in the avm: " + e.toString());
-            throw new VmFatalException(e);
-        } finally{
-            AvmProvider.releaseLock();
+            // Check the block energy limit and reject if necessary.
+            AionTransaction transaction = transactions[index];
+            if (result.energyUsed > blockEnergy) {
+                result = markAsBlockEnergyLimitExceeded(result, transaction.getEnergyLimit());
+            }
+
+            AionTxExecSummary summary = buildSummaryAndUpdateState(future, transaction, result, versionToUse, repository, blockDifficulty, blockNumber, blockTimestamp, blockEnergyLimit, miner, allowNonceIncrement, isLocalCall);
+
+            // Do any post execution work if any is specified.
+            if (postExecutionWork != null) {
+                postExecutionWork.doWork(repository, summary, transaction);
+            }
+
+            // Update the remaining block energy.
+            if (!result.transactionStatus.isRejected() && decrementBlockEnergyLimit) {
+                blockEnergy -= summary.getReceipt().getEnergyUsed();
+            }
+
+            transactionSummaries.add(summary);
+            index++;
         }
 
         return transactionSummaries;
@@ -238,7 +288,8 @@ public final class AvmTransactionExecutor {
      * Invokes the avm, whichever is the specified versionToUse, to run the given transactions under
      * the given circumstances. Returns a list of future results pertaining to the transactions.
      *
-     * @param versionToUse The version of the avm to use.
+     * @param resourceFactory The resource factory of the avm version to use.
+     * @param avm The avm to use.
      * @param repository The current world state.
      * @param blockDifficulty The block difficulty.
      * @param blockNumber The current block number.
@@ -253,9 +304,11 @@ public final class AvmTransactionExecutor {
      * @param unityForkEnabled The unityFork feature enabled/disabled.
      * @return the future execution results.
      */
-    private static IAvmFutureResult[] invokeAvm(AvmVersion versionToUse, RepositoryCache repository, BigInteger blockDifficulty, long blockNumber, long blockTimestamp, long blockEnergyLimit, AionAddress miner, AionTransaction[] transactions, boolean allowNonceIncrement, boolean isLocalCall, AvmExecutionType executionType, long cachedBlockNumber, boolean unityForkEnabled) {
-        IAvmExternalState externalState = AvmProvider.newExternalStateBuilder(versionToUse)
-            .withRepository(repository.startTracking())
+    private static IAvmFutureResult[] invokeAvm(IAvmResourceFactory resourceFactory, IAionVirtualMachine avm, RepositoryCache repository, BigInteger blockDifficulty, long blockNumber, long blockTimestamp, long blockEnergyLimit, AionAddress miner, AionTransaction[] transactions, boolean allowNonceIncrement, boolean isLocalCall, AvmExecutionType executionType, long cachedBlockNumber, boolean unityForkEnabled) {
+        // the avm executes the transactions concurrently on top of this cache
+        RepositoryCache track = repository instanceof AionRepositoryCache ? ((AionRepositoryCache) repository).startSharedTracking() : repository.startTracking();
+        IAvmExternalState externalState = resourceFactory.newExternalStateBuilder()
+            .withRepository(track)
             .withMiner(miner)
             .withDifficulty(blockDifficulty)
             .withBlockNumber(blockNumber)
@@ -266,7 +319,6 @@ public final class AvmTransactionExecutor {
             .isLocalCall(isLocalCall)
             .build();
 
-        IAionVirtualMachine avm = AvmProvider.getAvm(versionToUse);
         return avm.run(externalState, toAionTypesTransactions(transactions), executionType, cachedBlockNumber);
     }
 
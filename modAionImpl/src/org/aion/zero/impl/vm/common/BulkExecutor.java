@@ -4,6 +4,9 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.aion.zero.impl.vm.avm.AvmTransactionExecutor;
 import org.aion.avm.stub.AvmExecutionType;
 import org.aion.base.AccountState;
@@ -26,10 +29,56 @@ import org.slf4j.Logger;
  * bundle as possible) to the appropriate virtual machine to be executed and will return the results
  * of these transactions to the caller.
  *
+ * <p>The FVM transactions can optionally be executed optimistically in parallel, see {@link
+ * #enableParallelExecution(int)}.
+ *
  * <p>This class is thread-safe.
  */
 public final class BulkExecutor {
 
+    // executes the fvm transactions speculatively when parallel execution is enabled
+    private static volatile ExecutorService speculativeExecutor = null;
+
+    /**
+     * Enables the optimistic parallel execution of the FVM transactions. The transactions of each
+     * contiguous batch of FVM transactions are run speculatively in parallel on their own copies of
+     * the state, and then applied in order. The transactions that accessed accounts updated by the
+     * preceding transactions are re-executed, so the results are identical to those of the
+     * sequential execution.
+     *
+     * @param threads the number of threads used for the speculative execution
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public static synchronized void enableParallelExecution(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of execution threads must be positive.");
+        }
+        disableParallelExecution();
+
+        AtomicInteger count = new AtomicInteger();
+        speculativeExecutor =
+                Executors.newFixedThreadPool(
+                        threads,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "fvm-speculative-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    /** Disables the optimistic parallel execution of the FVM transactions. */
+    public static synchronized void disableParallelExecution() {
+        if (speculativeExecutor != null) {
+            speculativeExecutor.shutdown();
+            speculativeExecutor = null;
+        }
+    }
+
+    /** Returns {@code true} if the FVM transactions are executed optimistically in parallel. */
+    public static boolean isParallelExecutionEnabled() {
+        return speculativeExecutor != null;
+    }
+
     /**
      * Executes all of the transactions in the specified block and returns a list of summaries such
      * that the i'th summary corresponds to the i'th transaction in the block. The transactions will
@@ -405,7 +454,8 @@ public final class BulkExecutor {
                 fork040enabled,
                 blockRemainingEnergy,
                 unityForkEnabled,
-                signatureSwapForkEnabled);
+                signatureSwapForkEnabled,
+                speculativeExecutor);
     }
 
     /**
@@ -3,7 +3,17 @@ package org.aion.zero.impl.vm.fvm;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.zero.impl.db.AionRepositoryCache;
 import org.aion.zero.impl.vm.common.PostExecutionWork;
 import org.aion.zero.impl.vm.common.VmFatalException;
 import org.aion.base.AionTransaction;
@@ -28,6 +38,7 @@ import org.slf4j.Logger;
  * <p>This class is thread-safe.
  */
 public final class FvmTransactionExecutor {
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.VM.name());
 
     /**
      * Executes the specified array of transactions using the FVM and returns a list of transaction
@@ -74,30 +85,128 @@ public final class FvmTransactionExecutor {
             boolean unityForkEnabled,
             boolean signatureSwapForkEnabled)
             throws VmFatalException {
+        return executeTransactions(
+                repository,
+                blockDifficulty,
+                blockNumber,
+                blockTimestamp,
+                blockNrgLimit,
+                blockCoinbase,
+                transactions,
+                postExecutionWork,
+                logger,
+                decrementBlockEnergyLimit,
+                allowNonceIncrement,
+                isLocalCall,
+                fork040enabled,
+                initialBlockEnergyLimit,
+                unityForkEnabled,
+                signatureSwapForkEnabled,
+                null);
+    }
+
+    /**
+     * Executes the specified array of transactions using the FVM and returns a list of transaction
+     * summaries, such that the i'th summary pertains to the i'th transaction in the input.
+     *
+     * <p>When an executor is given and the repository is not itself a speculative cache, the
+     * transactions are first run speculatively in parallel, each against its own speculative cache
+     * of the repository as it was before the first transaction. The speculative results are then
+     * applied in order, and a transaction is re-executed against the current state whenever it
+     * accessed an account updated by a preceding transaction or its speculative result cannot be
+     * used as is. The summaries and the resulting state are identical to those of the sequential
+     * execution.
+     *
+     * @param speculativeExecutor the executor used to run the transactions speculatively or {@code
+     *     null} to run them sequentially
+     * @see #executeTransactions(RepositoryCache, byte[], long, long, long, AionAddress,
+     *     AionTransaction[], PostExecutionWork, Logger, boolean, boolean, boolean, boolean, long,
+     *     boolean, boolean)
+     */
+    public static List<AionTxExecSummary> executeTransactions(
+            RepositoryCache repository,
+            byte[] blockDifficulty,
+            long blockNumber,
+            long blockTimestamp,
+            long blockNrgLimit,
+            AionAddress blockCoinbase,
+            AionTransaction[] transactions,
+            PostExecutionWork postExecutionWork,
+            Logger logger,
+            boolean decrementBlockEnergyLimit,
+            boolean allowNonceIncrement,
+            boolean isLocalCall,
+            boolean fork040enabled,
+            long initialBlockEnergyLimit,
+            boolean unityForkEnabled,
+            boolean signatureSwapForkEnabled,
+            ExecutorService speculativeExecutor)
+            throws VmFatalException {
 
         List<AionTxExecSummary> transactionSummaries = new ArrayList<>();
 
         long blockRemainingEnergy = initialBlockEnergyLimit;
 
-        // Run the transactions.
-        IExternalStateForFvm externalState =
-                new ExternalStateForFvm(
-                        repository,
-                        blockCoinbase,
-                        getDifficultyAsDataWord(blockDifficulty),
-                        isLocalCall,
-                        allowNonceIncrement,
-                        fork040enabled,
-                        blockNumber,
-                        blockTimestamp,
-                        blockNrgLimit,
-                        unityForkEnabled,
-                        signatureSwapForkEnabled);
+        Function<RepositoryCache, IExternalStateForFvm> newExternalState =
+                track ->
+                        new ExternalStateForFvm(
+                                track,
+                                blockCoinbase,
+                                getDifficultyAsDataWord(blockDifficulty),
+                                isLocalCall,
+                                allowNonceIncrement,
+                                fork040enabled,
+                                blockNumber,
+                                blockTimestamp,
+                                blockNrgLimit,
+                                unityForkEnabled,
+                                signatureSwapForkEnabled);
+
+        // Run the transactions speculatively when possible. The speculative caches are not nested,
+        // because the caches of a speculative cache would read it concurrently without its lock.
+        boolean speculate =
+                speculativeExecutor != null
+                        && !isLocalCall
+                        && transactions.length > 1
+                        && repository instanceof AionRepositoryCache
+                        && !((AionRepositoryCache) repository).isSpeculative();
+        List<Speculation> speculations =
+                speculate
+                        ? speculate((AionRepositoryCache) repository, transactions, newExternalState, fork040enabled, speculativeExecutor)
+                        : null;
+
+        // The addresses updated by the transactions applied so far.
+        Set<AionAddress> updatedAddresses = new HashSet<>();
+
+        // The state used to (re-)execute transactions in order, kept until its changes are committed.
+        IExternalStateForFvm externalState = null;
+        AionRepositoryCache sequentialTrack = null;
 
         // Process the results of the transactions.
-        for (AionTransaction transaction : transactions) {
-            FvmWrappedTransactionResult wrappedResult =
-                    FastVirtualMachine.run(externalState, new ExternalCapabilitiesForFvm(), toAionTypesTransaction(transaction), fork040enabled);
+        for (int index = 0; index < transactions.length; index++) {
+            AionTransaction transaction = transactions[index];
+
+            Speculation speculation = speculations == null ? null : speculations.get(index);
+            boolean useSpeculation =
+                    externalState == null
+                            && speculation != null
+                            && speculation.canBeApplied(updatedAddresses, blockRemainingEnergy);
+
+            FvmWrappedTransactionResult wrappedResult;
+            if (useSpeculation) {
+                wrappedResult = speculation.result;
+            } else {
+                if (externalState == null) {
+                    if (speculations == null) {
+                        externalState = newExternalState.apply(repository);
+                    } else {
+                        // track the addresses updated by the re-executed transactions
+                        sequentialTrack = ((AionRepositoryCache) repository).startSpeculativeTracking();
+                        externalState = newExternalState.apply(sequentialTrack);
+                    }
+                }
+                wrappedResult = FastVirtualMachine.run(externalState, new ExternalCapabilitiesForFvm(), toAionTypesTransaction(transaction), fork040enabled);
+            }
 
             TransactionResult result = wrappedResult.result;
             List<AionAddress> deletedAddresses = wrappedResult.deletedAddresses;
@@ -117,7 +226,21 @@ public final class FvmTransactionExecutor {
 
             // If the transaction was not rejected, then commit the state changes.
             if (!result.transactionStatus.isRejected()) {
-                externalState.commit();
+                if (useSpeculation) {
+                    updatedAddresses.addAll(speculation.accessedAddresses);
+                    speculation.track.flushTo(repository, true);
+                } else {
+                    externalState.commit();
+                    if (sequentialTrack != null) {
+                        updatedAddresses.addAll(sequentialTrack.getAccessedAddresses());
+                        sequentialTrack.flushTo(repository, true);
+                    }
+                    if (speculations != null) {
+                        // the following transactions can use their speculative results again
+                        externalState = null;
+                        sequentialTrack = null;
+                    }
+                }
             }
 
             // For non-rejected non-local transactions, make some final repository updates.
@@ -129,6 +252,10 @@ public final class FvmTransactionExecutor {
                 deleteAccountsMarkedForDeletion(repositoryTracker, summary.getDeletedAccounts(), result);
 
                 repositoryTracker.flushTo(repository, true);
+
+                updatedAddresses.add(transaction.getSenderAddress());
+                updatedAddresses.add(blockCoinbase);
+                updatedAddresses.addAll(summary.getDeletedAccounts());
             }
 
             // Do any post execution work.
@@ -152,6 +279,104 @@ public final class FvmTransactionExecutor {
         return transactionSummaries;
     }
 
+    /**
+     * Runs each of the given transactions in parallel against its own speculative cache of the
+     * given repository and waits for all of them to complete. The repository must not be updated
+     * while the transactions are running.
+     *
+     * @return the speculative results of the transactions, where the i'th result pertains to the
+     *     i'th transaction and is {@code null} if its execution failed
+     */
+    private static List<Speculation> speculate(
+            AionRepositoryCache repository,
+            AionTransaction[] transactions,
+            Function<RepositoryCache, IExternalStateForFvm> newExternalState,
+            boolean fork040enabled,
+            ExecutorService executor) {
+        List<Future<Speculation>> futures = new ArrayList<>(transactions.length);
+        for (AionTransaction transaction : transactions) {
+            Future<Speculation> future;
+            try {
+                future =
+                        executor.submit(
+                                () -> {
+                                    AionRepositoryCache track = repository.startSpeculativeTracking();
+                                    IExternalStateForFvm externalState = newExternalState.apply(track);
+                                    FvmWrappedTransactionResult wrappedResult = FastVirtualMachine.run(externalState, new ExternalCapabilitiesForFvm(), toAionTypesTransaction(transaction), fork040enabled);
+                                    if (!wrappedResult.result.transactionStatus.isRejected()) {
+                                        externalState.commit();
+                                    }
+                                    return new Speculation(wrappedResult, track);
+                                });
+            } catch (RejectedExecutionException e) {
+                // the executor was shut down, the transaction will be executed in order
+                future = null;
+            }
+            futures.add(future);
+        }
+
+        List<Speculation> speculations = new ArrayList<>(transactions.length);
+        boolean interrupted = false;
+        for (Future<Speculation> future : futures) {
+            Speculation speculation = null;
+            if (future == null) {
+                speculations.add(null);
+                continue;
+            }
+            try {
+                // the results are awaited even after an interrupt since the repository cannot be updated before
+                while (true) {
+                    try {
+                        speculation = future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } catch (ExecutionException e) {
+                // the transaction is re-executed and the error is reproduced in order if it persists
+                LOG.debug("Speculative execution failed.", e.getCause());
+            }
+            speculations.add(speculation);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return speculations;
+    }
+
+    /** The result of a transaction run against its own speculative cache. */
+    private static final class Speculation {
+        private final FvmWrappedTransactionResult result;
+        private final AionRepositoryCache track;
+        private final Set<AionAddress> accessedAddresses;
+
+        private Speculation(FvmWrappedTransactionResult result, AionRepositoryCache track) {
+            this.result = result;
+            this.track = track;
+            this.accessedAddresses = track.getAccessedAddresses();
+        }
+
+        /**
+         * Returns {@code true} if the speculative result is the result of executing the transaction
+         * against the current state, i.e. the transaction did not access any of the updated
+         * addresses, and it can be applied without changes, i.e. it is neither rejected nor fatal
+         * and fits in the remaining block energy.
+         */
+        private boolean canBeApplied(Set<AionAddress> updatedAddresses, long blockRemainingEnergy) {
+            TransactionStatus status = result.result.transactionStatus;
+            if (status.isRejected() || status.isFatal() || result.result.energyUsed > blockRemainingEnergy) {
+                return false;
+            }
+            for (AionAddress address : accessedAddresses) {
+                if (updatedAddresses.contains(address)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     private static AionTxExecSummary buildTransactionSummary(
             AionTransaction transaction,
             TransactionResult result,
@@ -0,0 +1,91 @@
+package org.aion.zero.impl.blockchain;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypes;
+import org.aion.types.AionAddress;
+import org.aion.util.types.AddressUtils;
+import org.aion.zero.impl.types.Block;
+import org.junit.Test;
+
+public class CallResultCacheTest {
+    private final AionAddress contract = AddressUtils.wrapAddress("a000000000000000000000000000000000000000000000000000000000000001");
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final BiFunction<AionTransaction, Block, AionTxReceipt> execution =
+            (tx, block) -> {
+                executions.incrementAndGet();
+                AionTxReceipt receipt = new AionTxReceipt();
+                receipt.setTransaction(tx);
+                receipt.setNrgUsed(21_000L);
+                receipt.setExecutionResult(new byte[] {1});
+                return receipt;
+            };
+
+    private static Block mockBlock(byte hash) {
+        Block block = mock(Block.class);
+        when(block.getHash()).thenReturn(new byte[] {hash});
+        when(block.getStateRoot()).thenReturn(new byte[] {hash});
+        return block;
+    }
+
+    private AionTransaction newCall(byte[] data, long energyLimit) {
+        return AionTransaction.createWithoutKey(
+                BigInteger.ZERO.toByteArray(),
+                AddressUtils.ZERO_ADDRESS,
+                contract,
+                BigInteger.ZERO.toByteArray(),
+                data,
+                energyLimit,
+                10_000_000_000L,
+                TransactionTypes.DEFAULT,
+                null);
+    }
+
+    @Test
+    public void testRepeatedCallIsCached() {
+        CallResultCache cache = new CallResultCache(16);
+        Block block = mockBlock((byte) 1);
+
+        AionTxReceipt first = cache.get(newCall(new byte[] {1}, 100_000L), block, execution);
+        AionTxReceipt second = cache.get(newCall(new byte[] {1}, 100_000L), block, execution);
+
+        assertThat(second).isSameAs(first);
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDifferentCallOrBlockIsExecuted() {
+        CallResultCache cache = new CallResultCache(16);
+        Block block = mockBlock((byte) 1);
+
+        cache.get(newCall(new byte[] {1}, 100_000L), block, execution);
+        cache.get(newCall(new byte[] {2}, 100_000L), block, execution);
+        cache.get(newCall(new byte[] {1}, 200_000L), block, execution);
+        // a new best block changes the key
+        cache.get(newCall(new byte[] {1}, 100_000L), mockBlock((byte) 2), execution);
+
+        assertThat(executions.get()).isEqualTo(4);
+        assertThat(cache.getHitCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDisabledCache() {
+        CallResultCache cache = new CallResultCache(0);
+        Block block = mockBlock((byte) 1);
+
+        cache.get(newCall(new byte[] {1}, 100_000L), block, execution);
+        cache.get(newCall(new byte[] {1}, 100_000L), block, execution);
+
+        assertThat(executions.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,153 @@
+package org.aion.zero.impl.blockchain;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.types.BlockUtil;
+import org.aion.zero.impl.valid.TXValidator;
+import org.aion.zero.impl.vm.AvmTestConfig;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the throughput of importing batches of blocks with thousands of transactions when the
+ * signatures are verified by the import thread and when they are verified ahead of time by the
+ * {@link SignatureVerificationStage}.
+ */
+public class SignatureVerificationBenchmark {
+    private static final int BLOCKS = 10;
+    private static final int TRANSACTIONS_PER_BLOCK = 400;
+
+    private List<ECKey> keys;
+    private List<byte[]> encodedBlocks;
+
+    @Before
+    public void setup() {
+        AvmTestConfig.supportOnlyAvmVersion1();
+
+        keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+
+        StandaloneBlockchain producer = newChain();
+        encodedBlocks = new ArrayList<>();
+        long nonce = 0;
+        for (int i = 0; i < BLOCKS; i++) {
+            List<AionTransaction> transactions = new ArrayList<>();
+            for (int j = 0; j < TRANSACTIONS_PER_BLOCK / keys.size(); j++) {
+                for (ECKey key : keys) {
+                    transactions.add(
+                            AionTransaction.create(
+                                    key,
+                                    BigInteger.valueOf(nonce).toByteArray(),
+                                    new AionAddress(ECKeyFac.inst().create().getAddress()),
+                                    BigInteger.ONE.toByteArray(),
+                                    new byte[0],
+                                    21_000L,
+                                    10_000_000_000L,
+                                    TransactionTypes.DEFAULT,
+                                    null));
+                }
+                nonce++;
+            }
+            Block parent = producer.getBestBlock();
+            Block block = producer.createBlock(parent, transactions, false, parent.getTimestamp());
+            assertThat(block.getTransactionsList()).hasSize(TRANSACTIONS_PER_BLOCK);
+            assertThat(producer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            encodedBlocks.add(block.getEncoded());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        AvmTestConfig.clearConfigurations();
+    }
+
+    private StandaloneBlockchain newChain() {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .build()
+                .bc;
+    }
+
+    /** @return new block instances, without memoized signature verifications */
+    private List<Block> decodeBlocks() {
+        TXValidator.clearCache();
+        List<Block> blocks = new ArrayList<>();
+        for (byte[] encoding : encodedBlocks) {
+            blocks.add(BlockUtil.newBlockFromRlp(encoding));
+        }
+        return blocks;
+    }
+
+    @Test
+    public void benchmarkBatchImport() {
+        StandaloneBlockchain chain = newChain();
+        long start = System.nanoTime();
+        for (Block block : decodeBlocks()) {
+            assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        long individualTime = System.nanoTime() - start;
+
+        chain = newChain();
+        List<Block> blocks = decodeBlocks();
+        start = System.nanoTime();
+        Triple<Long, ?, ImportResult> result = chain.tryToConnect(blocks, "benchmark");
+        long batchTime = System.nanoTime() - start;
+        assertThat(result.getLeft()).isEqualTo((long) BLOCKS);
+        assertThat(result.getRight()).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        int transactions = BLOCKS * TRANSACTIONS_PER_BLOCK;
+        System.out.printf("individual imports: %d ms, %.0f tx/s%n", individualTime / 1_000_000, transactions * 1e9 / individualTime);
+        System.out.printf("pipelined batch import: %d ms, %.0f tx/s%n", batchTime / 1_000_000, transactions * 1e9 / batchTime);
+    }
+
+    @Test
+    public void benchmarkSignatureVerification() {
+        List<Block> blocks = decodeBlocks();
+        long start = System.nanoTime();
+        for (Block block : blocks) {
+            for (AionTransaction tx : block.getTransactionsList()) {
+                assertThat(tx.isSignatureValid()).isTrue();
+            }
+        }
+        long sequentialTime = System.nanoTime() - start;
+
+        blocks = decodeBlocks();
+        SignatureVerificationStage stage = new SignatureVerificationStage(Runtime.getRuntime().availableProcessors());
+        long parallelTime;
+        try {
+            start = System.nanoTime();
+            for (List<Future<?>> futures : stage.submit(blocks)) {
+                SignatureVerificationStage.await(futures);
+            }
+            parallelTime = System.nanoTime() - start;
+        } finally {
+            stage.shutdown();
+        }
+        for (Block block : blocks) {
+            for (AionTransaction tx : block.getTransactionsList()) {
+                assertThat(tx.isSignatureChecked()).isTrue();
+                assertThat(tx.isSignatureValid()).isTrue();
+            }
+        }
+
+        int transactions = BLOCKS * TRANSACTIONS_PER_BLOCK;
+        System.out.printf("sequential verification: %d ms, %.0f tx/s%n", sequentialTime / 1_000_000, transactions * 1e9 / sequentialTime);
+        System.out.printf("parallel verification: %d ms, %.0f tx/s%n", parallelTime / 1_000_000, transactions * 1e9 / parallelTime);
+    }
+}
@@ -92,6 +92,14 @@ public class DevCLITest {
         composite = new DevCLI.Composite();
         composite.setFullSync(true);
         composite.checkOptions();
+
+        composite = new DevCLI.Composite();
+        composite.setRebuildSnapshot(true);
+        composite.checkOptions();
+
+        composite = new DevCLI.Composite();
+        composite.setVerifySnapshot(true);
+        composite.checkOptions();
     }
 
     @Parameters(method = "paramatersForTestRunCommand")
@@ -11,10 +11,14 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.zero.impl.types.Block;
@@ -43,6 +47,7 @@ public class AionBlockStoreTest {
     // for some reason index.size() gets called by store.getChainBlockByNumber(X)
     ByteArrayKeyValueDatabase index = new MockDB("index", log);
     ByteArrayKeyValueDatabase blocks = new MockDB("blocks", log);
+    ByteArrayKeyValueDatabase bodies = new MockDB("bodies", log);
 
     // returns a list of blocks in ascending order of height
     List<Block> consecutiveBlocks = TestResources.consecutiveBlocks(4);
@@ -51,23 +56,25 @@ public class AionBlockStoreTest {
     public void openDatabases() {
         index.open();
         blocks.open();
+        bodies.open();
     }
 
     @After
     public void closeDatabases() {
         index.close();
         blocks.close();
+        bodies.close();
     }
 
     @Test
     public void testGetBlocksByRange_withGensisFirstBlock() {
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         assertThat(store.getBlocksByRange(0L, 11L)).isNull();
     }
 
     @Test
     public void testGetBlocksByRange_withNullFirstBlock() {
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(10L)).thenReturn(null);
         when(store.getBlocksByRange(10L, 11L)).thenCallRealMethod();
 
@@ -78,7 +85,7 @@ public class AionBlockStoreTest {
     public void testGetBlocksByRange_withSingleBlock() {
         Block block = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(10L)).thenReturn(block);
         when(store.getBlocksByRange(10L, 10L)).thenCallRealMethod();
 
@@ -93,10 +100,10 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
-        when(store.getBlockByHashWithInfo(first.getParentHash())).thenReturn(middle);
-        when(store.getBlockByHashWithInfo(middle.getParentHash())).thenReturn(last);
+        when(store.getChainBlocksByNumbers(List.of(middle.getNumber(), last.getNumber())))
+                .thenReturn(List.of(middle, last));
         when(store.getBlocksByRange(first.getNumber(), last.getNumber())).thenCallRealMethod();
 
         List<Block> returned = store.getBlocksByRange(first.getNumber(), last.getNumber());
@@ -112,10 +119,10 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(0);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
-        when(store.getBlockByHash(first.getParentHash())).thenReturn(middle);
-        when(store.getBlockByHash(middle.getParentHash())).thenReturn(null);
+        when(store.getChainBlocksByNumbers(List.of(middle.getNumber(), last.getNumber())))
+                .thenReturn(null);
         when(store.getBlocksByRange(first.getNumber(), last.getNumber())).thenCallRealMethod();
 
         // the returned list is null due to missing block in range
@@ -128,10 +135,10 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1); // assumed height 1
         Block last = consecutiveBlocks.get(0); // assumed height 0
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         // returning the block at a different number than its height
         when(store.getChainBlockByNumber(2L)).thenReturn(first);
-        when(store.getBlockByHashWithInfo(first.getParentHash())).thenReturn(middle);
+        when(store.getChainBlocksByNumbers(List.of(1L))).thenReturn(List.of(middle));
         when(store.getBlocksByRange(2L, 0L)).thenCallRealMethod();
 
         // the returned list has only 2 elements due to the null
@@ -141,9 +148,8 @@ public class AionBlockStoreTest {
         assertThat(returned.get(1)).isEqualTo(middle);
 
         // there should be no attempt to retrieve the genesis
-        verify(store, times(0)).getBlockByHashWithInfo(last.getParentHash());
-        verify(store, times(0)).getBlockByHashWithInfo(middle.getParentHash());
-        verify(store, times(1)).getBlockByHashWithInfo(first.getParentHash());
+        verify(store, times(1)).getChainBlocksByNumbers(List.of(1L));
+        verify(store, times(0)).getChainBlockByNumber(0L);
     }
 
     @Test
@@ -152,10 +158,10 @@ public class AionBlockStoreTest {
         Block middle = consecutiveBlocks.get(1);
         Block last = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(last);
-        when(store.getBlockByHashWithInfo(last.getParentHash())).thenReturn(middle);
+        when(store.getChainBlocksByNumbers(List.of(middle.getNumber()))).thenReturn(List.of(middle));
         when(store.getBlocksByRange(first.getNumber(), last.getNumber())).thenCallRealMethod();
 
         List<Block> returned = store.getBlocksByRange(first.getNumber(), last.getNumber());
@@ -170,10 +176,10 @@ public class AionBlockStoreTest {
         Block first = consecutiveBlocks.get(0);
         Block last = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(last);
-        when(store.getBlockByHashWithInfo(last.getParentHash())).thenReturn(null);
+        when(store.getChainBlocksByNumbers(List.of(first.getNumber() + 1))).thenReturn(null);
         when(store.getBlocksByRange(first.getNumber(), last.getNumber())).thenCallRealMethod();
 
         // the returned list is null due to missing block in range
@@ -187,12 +193,12 @@ public class AionBlockStoreTest {
         Block best = consecutiveBlocks.get(2);
         Block last = consecutiveBlocks.get(3);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
 
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
         when(store.getBestBlock()).thenReturn(best);
-        when(store.getBlockByHashWithInfo(best.getParentHash())).thenReturn(middle);
+        when(store.getChainBlocksByNumbers(List.of(middle.getNumber()))).thenReturn(List.of(middle));
         when(store.getBlocksByRange(first.getNumber(), last.getNumber())).thenCallRealMethod();
 
         List<Block> returned = store.getBlocksByRange(first.getNumber(), last.getNumber());
@@ -207,7 +213,7 @@ public class AionBlockStoreTest {
         Block first = consecutiveBlocks.get(0);
         Block last = consecutiveBlocks.get(3);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
         when(store.getBestBlock()).thenReturn(null);
@@ -223,7 +229,7 @@ public class AionBlockStoreTest {
         Block last = consecutiveBlocks.get(1);
         Block best = consecutiveBlocks.get(2);
 
-        AionBlockStore store = spy(new AionBlockStore(index, blocks, false));
+        AionBlockStore store = spy(new AionBlockStore(index, blocks, bodies, false));
         when(store.getChainBlockByNumber(first.getNumber())).thenReturn(first);
         when(store.getChainBlockByNumber(last.getNumber())).thenReturn(null);
         when(store.getBestBlock()).thenReturn(best);
@@ -234,7 +240,7 @@ public class AionBlockStoreTest {
 
     @Test
     public void testGetBlockByHashWithInfo_withNullInput() {
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         Block block = store.getBlockByHashWithInfo(null);
         assertThat(block).isNull();
     }
@@ -243,7 +249,7 @@ public class AionBlockStoreTest {
     public void testGetBlockByHashWithInfo_withMissingBlock() {
         byte[] blockHash = RandomUtils.nextBytes(32);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         assertThat(index.isEmpty()).isTrue();
         assertThat(blocks.isEmpty()).isTrue();
 
@@ -256,7 +262,7 @@ public class AionBlockStoreTest {
         Block givenBlock = consecutiveBlocks.get(0);
         BigInteger totalDifficulty = BigInteger.TEN;
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(givenBlock, totalDifficulty, true);
 
@@ -277,7 +283,7 @@ public class AionBlockStoreTest {
         assertThat(givenBlock.getHash()).isNotEqualTo(sideBlock.getHash());
         assertThat(givenBlock.getEncoded()).isNotEqualTo(sideBlock.getEncoded());
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(givenBlock, totalDifficulty, false);
         store.saveBlock(sideBlock, sideTotalDifficulty, true);
@@ -325,7 +331,7 @@ public class AionBlockStoreTest {
                         new byte[1408],
                         1,
                         1);
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
 
         store.saveBlock(blk1, BigInteger.TEN, true);
         store.saveBlock(blk2, BigInteger.TEN.add(BigInteger.ONE), true);
@@ -337,6 +343,50 @@ public class AionBlockStoreTest {
         assertThat(storedBlk.getDifficulty().equals(BigInteger.TEN.toByteArray()));
     }
 
+    @Test
+    public void testGetChainBlocksByNumbers() {
+        List<Block> chain = new ArrayList<>();
+        byte[] parentHash = new byte[32];
+        for (int i = 1; i <= 3; i++) {
+            MiningBlock blk =
+                    new MiningBlock(
+                            parentHash,
+                            AddressUtils.ZERO_ADDRESS,
+                            new byte[256],
+                            BigInteger.valueOf(i).toByteArray(),
+                            i,
+                            i,
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new byte[32],
+                            new ArrayList<>(),
+                            new byte[1408],
+                            1,
+                            1);
+            chain.add(blk);
+            parentHash = blk.getHash();
+        }
+
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
+        store.saveBlock(chain.get(0), BigInteger.ONE, true);
+        store.saveBlock(chain.get(1), BigInteger.TWO, true);
+        store.saveBlock(chain.get(2), BigInteger.TEN, true);
+
+        // the blocks are returned in the requested order with their total difficulty
+        List<Block> returned = store.getChainBlocksByNumbers(List.of(3L, 1L, 2L));
+        assertThat(returned.size()).isEqualTo(3);
+        assertThat(returned.get(0).getHash()).isEqualTo(chain.get(2).getHash());
+        assertThat(returned.get(0).getTotalDifficulty()).isEqualTo(BigInteger.TEN);
+        assertThat(returned.get(1).getHash()).isEqualTo(chain.get(0).getHash());
+        assertThat(returned.get(2).getHash()).isEqualTo(chain.get(1).getHash());
+        assertThat(returned.get(2).isMainChain()).isTrue();
+
+        // null is returned when a requested level is missing
+        assertThat(store.getChainBlocksByNumbers(List.of(2L, 4L))).isNull();
+    }
+
     private static final int TIME_OUT = 100; // in seconds
 
     private void addThread_saveBlock(List<Runnable> threads, AionBlockStore store, Block block) {
@@ -389,7 +439,7 @@ public class AionBlockStoreTest {
         System.out.println("Note: If this test fails there may be a thread synchronization issue inside the AionBlockStore.");
 
         // set up block store with cache to replicate normal execution
-        AionBlockStore store = new AionBlockStore(index, blocks, false, 10);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false, 10);
 
         List<Block> testBlocks = TestResources.consecutiveBlocks(20);
         List<Runnable> threads = new ArrayList<>();
@@ -415,6 +465,50 @@ public class AionBlockStoreTest {
         assertConcurrent("Testing concurrent use of AionBlockStore", threads, TIME_OUT);
     }
 
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final CountDownLatch bodyRequested = new CountDownLatch(1);
+        final CountDownLatch headerRead = new CountDownLatch(1);
+
+        // the body read blocks until a header is read by another thread
+        ByteArrayKeyValueDatabase blockingBodies =
+                new MockDB("bodies", log) {
+                    @Override
+                    public Optional<byte[]> get(byte[] key) {
+                        bodyRequested.countDown();
+                        try {
+                            assertTrue(headerRead.await(TIME_OUT, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        return super.get(key);
+                    }
+                };
+        blockingBodies.open();
+
+        AionBlockStore store = new AionBlockStore(index, blocks, blockingBodies, false, 10);
+        Block block = consecutiveBlocks.get(0);
+        store.saveBlock(block, BigInteger.ONE, true);
+
+        ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Block> fullRead = threadPool.submit(() -> store.getBlockByHash(block.getHash()));
+            assertTrue(bodyRequested.await(TIME_OUT, TimeUnit.SECONDS));
+
+            // not blocked by the read in progress
+            assertThat(store.getBlockHeaderByHash(block.getHash()).getHash()).isEqualTo(block.getHash());
+            assertThat(store.getBlockHashByNumber(block.getNumber())).isEqualTo(block.getHash());
+            headerRead.countDown();
+
+            assertThat(fullRead.get(TIME_OUT, TimeUnit.SECONDS).getEncoded()).isEqualTo(block.getEncoded());
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AssertionError(e);
+        } finally {
+            threadPool.shutdownNow();
+            blockingBodies.close();
+        }
+    }
+
     /**
      * From <a
      * href="https://github.com/junit-team/junit4/wiki/multithreaded-code-and-concurrency">JUnit
@@ -470,7 +564,7 @@ public class AionBlockStoreTest {
 
     @Test
     public void testGetTwoGenerationBlocksByHashWithInfo_withNullInput() {
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         Block[] blocks = store.getTwoGenerationBlocksByHashWithInfo(null);
         assertThat(blocks.length).isEqualTo(2);
         assertThat(blocks[0]).isNull();
@@ -481,7 +575,7 @@ public class AionBlockStoreTest {
     public void testGetTwoGenerationBlocksByHashWithInfo_withMissingParent() {
         byte[] parentHash = RandomUtils.nextBytes(32);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         assertThat(index.isEmpty()).isTrue();
         assertThat(blocks.isEmpty()).isTrue();
 
@@ -495,7 +589,7 @@ public class AionBlockStoreTest {
     public void testGetTwoGenerationBlocksByHashWithInfo_withMissingGrandParent() {
         Block parent = consecutiveBlocks.get(0);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(parent, BigInteger.TEN, true);
 
@@ -512,7 +606,7 @@ public class AionBlockStoreTest {
         Block grandparent = consecutiveBlocks.get(0);
         Block parent = consecutiveBlocks.get(1);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(grandparent, BigInteger.TWO, true);
         store.saveBlock(parent, BigInteger.TEN, true);
@@ -544,7 +638,7 @@ public class AionBlockStoreTest {
         when(sideParent.getHashWrapper()).thenReturn(ByteArrayWrapper.wrap(newHash));
         assertThat(parent.getHash()).isNotEqualTo(sideParent.getHash());
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(grandparent, BigInteger.TWO, false);
         store.saveBlock(sideGrandparent, sideGrandparent.getTotalDifficulty(), true);
@@ -565,7 +659,7 @@ public class AionBlockStoreTest {
 
     @Test
     public void testGetThreeGenerationBlocksByHashWithInfo_withNullInput() {
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         Block[] blocks = store.getThreeGenerationBlocksByHashWithInfo(null);
         assertThat(blocks.length).isEqualTo(3);
         assertThat(blocks[0]).isNull();
@@ -577,7 +671,7 @@ public class AionBlockStoreTest {
     public void testGetThreeGenerationBlocksByHashWithInfo_withMissingParent() {
         byte[] parentHash = RandomUtils.nextBytes(32);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         assertThat(index.isEmpty()).isTrue();
         assertThat(blocks.isEmpty()).isTrue();
 
@@ -592,7 +686,7 @@ public class AionBlockStoreTest {
     public void testGetThreeGenerationBlocksByHashWithInfo_withMissingGrandparent() {
         Block parent = consecutiveBlocks.get(0);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(parent, BigInteger.TEN, true);
 
@@ -610,7 +704,7 @@ public class AionBlockStoreTest {
         Block grandparent = consecutiveBlocks.get(0);
         Block parent = consecutiveBlocks.get(1);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(grandparent, BigInteger.TWO, true);
         store.saveBlock(parent, BigInteger.TEN, true);
@@ -632,7 +726,7 @@ public class AionBlockStoreTest {
         Block grandparent = consecutiveBlocks.get(1);
         Block parent = consecutiveBlocks.get(2);
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(greatGrandparent, BigInteger.ONE, true);
         store.saveBlock(grandparent, BigInteger.TWO, true);
@@ -675,7 +769,7 @@ public class AionBlockStoreTest {
         when(sideParent.getHashWrapper()).thenReturn(ByteArrayWrapper.wrap(newHash));
         assertThat(parent.getHash()).isNotEqualTo(sideParent.getHash());
 
-        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
         // does not require accurate total difficulty
         store.saveBlock(greatGrandparent, BigInteger.ONE, false);
         store.saveBlock(grandparent, BigInteger.TWO, false);
@@ -699,4 +793,55 @@ public class AionBlockStoreTest {
         assertThat(blocks[2].getTotalDifficulty()).isEqualTo(BigInteger.ONE);
         assertThat(blocks[2].isMainChain()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHeaderReadsWithoutBodies() {
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
+        for (Block block : consecutiveBlocks) {
+            store.saveBlock(block, BigInteger.valueOf(block.getNumber()), true);
+        }
+
+        // the header accessors do not read the body database
+        for (Block block : consecutiveBlocks) {
+            bodies.delete(block.getHash());
+        }
+        bodies.commit();
+
+        Block last = consecutiveBlocks.get(consecutiveBlocks.size() - 1);
+        assertThat(store.getBlockHeaderByHash(last.getHash()).getEncoded()).isEqualTo(last.getHeader().getEncoded());
+        assertThat(store.getListHeadersEndWith(last.getHash(), consecutiveBlocks.size())).hasSize(consecutiveBlocks.size());
+        assertThat(store.getListHashesEndWith(last.getHash(), 2)).hasSize(2);
+        assertThat(store.getTwoGenerationHeadersByHash(last.getHash())[1].getHash()).isEqualTo(last.getParentHash());
+        assertThat(store.getBlockHashByNumber(consecutiveBlocks.get(0).getNumber(), last.getHash())).isEqualTo(consecutiveBlocks.get(0).getHash());
+        assertThat(store.getBlockByHash(last.getHash())).isNull();
+    }
+
+    @Test
+    public void testMigrateLegacyBlocks() {
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
+        for (Block block : consecutiveBlocks) {
+            store.saveBlock(block, BigInteger.valueOf(block.getNumber()), true);
+        }
+
+        // full blocks in the header database, as stored before the bodies were kept separately
+        for (Block block : consecutiveBlocks) {
+            blocks.put(block.getHash(), block.getEncoded());
+            bodies.delete(block.getHash());
+        }
+        blocks.commit();
+        bodies.commit();
+
+        store = new AionBlockStore(index, blocks, bodies, false);
+        Block last = consecutiveBlocks.get(consecutiveBlocks.size() - 1);
+        assertThat(store.getBlockByHash(last.getHash()).getEncoded()).isEqualTo(last.getEncoded());
+        assertThat(store.getBlockHeaderByHash(last.getHash()).getEncoded()).isEqualTo(last.getHeader().getEncoded());
+
+        store.load();
+        for (Block block : consecutiveBlocks) {
+            assertThat(blocks.get(block.getHash()).get()).isEqualTo(block.getHeader().getEncoded());
+            assertThat(bodies.get(block.getHash()).isPresent()).isTrue();
+            assertThat(store.getBlockByHash(block.getHash()).getEncoded()).isEqualTo(block.getEncoded());
+        }
+        assertThat(store.getChainBlocksByNumbers(List.of(consecutiveBlocks.get(0).getNumber(), last.getNumber()))).hasSize(2);
+    }
+}
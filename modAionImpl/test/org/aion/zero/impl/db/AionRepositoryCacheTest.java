@@ -396,6 +396,127 @@ public class AionRepositoryCacheTest {
         }
     }
 
+    @Test
+    public void testSpeculativeTracking() {
+        AionAddress cached = getNewAddress();
+        AionAddress stored = getNewAddress();
+        AionAddress missing = getNewAddress();
+        ByteArrayWrapper key = getRandomWord(false);
+        ByteArrayWrapper value = getRandomWord(false);
+        ByteArrayWrapper newKey = getRandomWord(false);
+        ByteArrayWrapper newValue = getRandomWord(false);
+
+        // one account stored in the repository and one only cached
+        RepositoryCache initial = repository.startTracking();
+        initial.createAccount(stored);
+        initial.addBalance(stored, BigInteger.TEN);
+        initial.addStorageRow(stored, key, value);
+        initial.saveVmType(stored, InternalVmType.FVM);
+        initial.flushTo(repository, true);
+        repository.flush();
+        cache.createAccount(cached);
+        cache.addBalance(cached, BigInteger.TEN);
+        cache.addStorageRow(cached, key, value);
+
+        AionRepositoryCache first = cache.startSpeculativeTracking();
+        AionRepositoryCache second = cache.startSpeculativeTracking();
+
+        // the children of a speculative cache commit their changes to it
+        RepositoryCache child = first.startTracking();
+        child.addBalance(cached, BigInteger.ONE);
+        assertEquals(value, child.getStorageValue(cached, key));
+        child.addStorageRow(cached, newKey, newValue);
+        child.flushTo(first, true);
+
+        child = second.startTracking();
+        child.addBalance(stored, BigInteger.ONE);
+        assertEquals(value, child.getStorageValue(stored, key));
+        child.addStorageRow(stored, newKey, newValue);
+        assertThat(child.hasAccountState(missing)).isFalse();
+        child.flushTo(second, true);
+
+        assertThat(first.getAccessedAddresses()).containsExactly(cached);
+        assertThat(second.getAccessedAddresses()).containsExactly(stored, missing);
+
+        // the shared cache is unchanged until the speculative caches are flushed
+        assertEquals(BigInteger.TEN, cache.getBalance(cached));
+        assertNull(cache.getStorageValue(cached, newKey));
+        assertThat(cache.cachedAccounts).doesNotContainKey(stored);
+
+        first.flushTo(cache, true);
+        second.flushTo(cache, true);
+        assertEquals(BigInteger.valueOf(11), cache.getBalance(cached));
+        assertEquals(value, cache.getStorageValue(cached, key));
+        assertEquals(newValue, cache.getStorageValue(cached, newKey));
+        assertEquals(BigInteger.valueOf(11), cache.getBalance(stored));
+        assertEquals(value, cache.getStorageValue(stored, key));
+        assertEquals(newValue, cache.getStorageValue(stored, newKey));
+    }
+
+    @Test
+    public void testFlushCopiesAccounts() {
+        AionAddress address = getNewAddress();
+        RepositoryCache child = cache.startTracking();
+        child.addBalance(address, BigInteger.TEN);
+
+        // the child keeps its state when it is not cleared
+        child.flushTo(cache, false);
+        child.addBalance(address, BigInteger.ONE);
+
+        assertEquals(BigInteger.TEN, cache.getBalance(address));
+        assertEquals(BigInteger.valueOf(11), child.getBalance(address));
+        assertThat(cache.cachedAccounts.get(address)).isNotSameAs(((AionRepositoryCache) child).cachedAccounts.get(address));
+    }
+
+    @Test
+    public void testSharedCacheWithConcurrentChildren() throws InterruptedException {
+        AionRepositoryCache shared = AionRepositoryCache.createShared(repository);
+        List<AionAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            AionAddress address = getNewAddress();
+            shared.addBalance(address, BigInteger.TEN);
+            addresses.add(address);
+        }
+
+        // confined children read the shared cache while it is updated
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                for (int round = 0; round < 50; round++) {
+                                    RepositoryCache child = shared.startTracking();
+                                    for (AionAddress address : addresses) {
+                                        if (child.getBalance(address).compareTo(BigInteger.TEN) < 0) {
+                                            synchronized (errors) {
+                                                errors.add(new AssertionError("Unexpected balance for " + address));
+                                            }
+                                        }
+                                    }
+                                }
+                            });
+            thread.setUncaughtExceptionHandler((th, e) -> {
+                synchronized (errors) {
+                    errors.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (int round = 0; round < 50; round++) {
+            RepositoryCache child = shared.startTracking();
+            child.addBalance(addresses.get(round), BigInteger.ONE);
+            child.flushTo(shared, true);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(errors).isEmpty();
+        assertEquals(BigInteger.valueOf(11), shared.getBalance(addresses.get(0)));
+    }
+
     /** Returns a list of numKeys keys, every other one is single and then double. */
     private List<ByteArrayWrapper> getKeysInBulk(int numKeys) {
         List<ByteArrayWrapper> keys = new ArrayList<>(numKeys);
@@ -0,0 +1,218 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.db.utils.FileUtils.deleteRecursively;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.types.MiningBlock;
+import org.aion.zero.impl.types.MiningBlockHeader;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit tests for {@link BlockFreezer} and its use by the {@link AionBlockStore}. */
+public class BlockFreezerTest {
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private final ECKey key = ECKeyFac.inst().create();
+
+    private File directory;
+    private ByteArrayKeyValueDatabase index, blocks, bodies, numbers;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("freezer").toFile();
+        index = new MockDB("index", log);
+        index.open();
+        blocks = new MockDB("blocks", log);
+        blocks.open();
+        bodies = new MockDB("bodies", log);
+        bodies.open();
+        numbers = new MockDB("numbers", log);
+        numbers.open();
+    }
+
+    @After
+    public void teardown() {
+        deleteRecursively(directory);
+    }
+
+    /**
+     * @return a chain of blocks starting with a genesis block, each containing a transaction; the
+     *     given timestamp differentiates chains of the same size
+     */
+    private List<Block> chain(int size, long timestamp) {
+        List<Block> chain = new ArrayList<>();
+        byte[] parentHash = new byte[32];
+        for (int number = 0; number < size; number++) {
+            AionTransaction tx =
+                    AionTransaction.create(
+                            key,
+                            BigInteger.valueOf(number).toByteArray(),
+                            new AionAddress(RandomUtils.nextBytes(AionAddress.LENGTH)),
+                            BigInteger.ONE.toByteArray(),
+                            RandomUtils.nextBytes(32),
+                            21_000L,
+                            10_000_000_000L,
+                            (byte) 1,
+                            null);
+            MiningBlockHeader header =
+                    MiningBlockHeader.Builder.newInstance()
+                            .withNumber(number)
+                            .withParentHash(parentHash)
+                            .withDefaultCoinbase()
+                            .withDefaultLogsBloom()
+                            .withDifficulty(ByteUtil.intToBytes(1))
+                            .withDefaultExtraData()
+                            .withEnergyConsumed(21_000L)
+                            .withEnergyLimit(15_000_000L)
+                            .withTimestamp(timestamp + number)
+                            .withDefaultNonce()
+                            .withDefaultSolution()
+                            .withDefaultStateRoot()
+                            .withDefaultTxTrieRoot()
+                            .withDefaultReceiptTrieRoot()
+                            .build();
+            Block block = new MiningBlock(header, List.of(tx));
+            chain.add(block);
+            parentHash = block.getHash();
+        }
+        return chain;
+    }
+
+    private static byte[] item(int value) {
+        byte[] item = new byte[40];
+        Arrays.fill(item, (byte) value);
+        return item;
+    }
+
+    private static void save(AionBlockStore store, List<Block> chain) {
+        for (Block block : chain) {
+            store.saveBlock(block, BigInteger.valueOf(block.getNumber() + 1), true);
+        }
+    }
+
+    @Test
+    public void testFreezerTableSegmentsAndRepair() throws IOException {
+        FreezerTable table = new FreezerTable(directory, "test", 100);
+        for (int i = 0; i < 10; i++) {
+            assertThat(table.append(item(i))).isEqualTo(i);
+        }
+        table.sync();
+
+        // 40 byte items fill segments of 100 bytes with two items each
+        assertThat(new File(directory, "test.0004.dat").exists()).isTrue();
+        assertThat(new File(directory, "test.0005.dat").exists()).isFalse();
+        assertThat(table.get(7)[0]).isEqualTo((byte) 7);
+        assertThat(table.get(10)).isNull();
+
+        // a partially written index entry and data are discarded on opening
+        table.append(new byte[40]);
+        table.close();
+        try (RandomAccessFile indexFile = new RandomAccessFile(new File(directory, "test.idx"), "rw")) {
+            indexFile.setLength(indexFile.length() - 3);
+        }
+        table = new FreezerTable(directory, "test", 100);
+        assertThat(table.size()).isEqualTo(10);
+        assertThat(new File(directory, "test.0005.dat").length()).isEqualTo(0L);
+        assertThat(table.get(9)[39]).isEqualTo((byte) 9);
+
+        // truncating removes the later segments
+        table.truncate(3);
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(new File(directory, "test.0002.dat").exists()).isFalse();
+        assertThat(new File(directory, "test.0001.dat").length()).isEqualTo(40L);
+        assertThat(table.append(new byte[] {42})).isEqualTo(3);
+        assertThat(table.get(3)).isEqualTo(new byte[] {42});
+        table.close();
+    }
+
+    @Test
+    public void testAncientBlocksMovedToFreezer() throws IOException {
+        BlockFreezer freezer = new BlockFreezer(directory, numbers, 4, 8, 1024, log);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false, 0, freezer);
+        List<Block> chain = chain(30, 0);
+
+        // side chain block that is removed with its level
+        Block side = chain(3, 1_000).get(2);
+        save(store, chain.subList(0, 3));
+        store.saveBlock(side, BigInteger.ONE, false);
+        save(store, chain.subList(3, 30));
+
+        // frozen in batches of 8 blocks at least 4 blocks under the best
+        assertThat(freezer.count()).isEqualTo(24);
+        assertThat(freezer.getClearedCount()).isEqualTo(24);
+        assertThat(blocks.get(chain.get(0).getHash()).isPresent()).isFalse();
+        assertThat(blocks.get(chain.get(23).getHash()).isPresent()).isFalse();
+        assertThat(blocks.get(chain.get(24).getHash()).isPresent()).isTrue();
+        assertThat(blocks.get(side.getHash()).isPresent()).isFalse();
+        assertThat(store.getBlocksByNumber(2)).hasSize(1);
+
+        // frozen blocks are read by number and by hash
+        for (Block block : chain) {
+            Block byNumber = store.getChainBlockByNumber(block.getNumber());
+            assertThat(byNumber.getEncoded()).isEqualTo(block.getEncoded());
+            assertThat(byNumber.getTotalDifficulty()).isEqualTo(BigInteger.valueOf(block.getNumber() + 1));
+            assertThat(store.getBlockByHash(block.getHash()).getEncoded()).isEqualTo(block.getEncoded());
+            assertThat(store.isMainChain(block.getHash())).isTrue();
+        }
+        assertThat(store.getBlockByHash(side.getHash())).isNull();
+
+        List<Block> range = store.getBlocksByRange(20, 27);
+        assertThat(range).hasSize(8);
+        for (int i = 0; i < range.size(); i++) {
+            assertThat(range.get(i).getEncoded()).isEqualTo(chain.get(20 + i).getEncoded());
+        }
+        assertThat(store.getListHeadersEndWith(chain.get(26).getHash(), 5)).hasSize(5);
+
+        // reverting below the frozen blocks truncates the freezer
+        store.revert(10, log);
+        assertThat(freezer.count()).isEqualTo(11);
+        assertThat(store.getBestBlock().getNumber()).isEqualTo(10);
+        assertThat(store.getBlockByHash(chain.get(11).getHash())).isNull();
+        assertThat(store.getChainBlockByNumber(10).getEncoded()).isEqualTo(chain.get(10).getEncoded());
+    }
+
+    @Test
+    public void testInterruptedFreezeCompletedOnRestart() throws IOException {
+        List<Block> chain = chain(10, 0);
+        AionBlockStore store = new AionBlockStore(index, blocks, bodies, false);
+        save(store, chain);
+
+        // blocks written to the freezer but still in the block database
+        BlockFreezer freezer = new BlockFreezer(directory, numbers, 4, 8, 1024, log);
+        for (Block block : chain.subList(0, 5)) {
+            freezer.append(block);
+        }
+        freezer.sync();
+        freezer.close();
+        assertThat(blocks.get(chain.get(0).getHash()).isPresent()).isTrue();
+
+        freezer = new BlockFreezer(directory, numbers, 4, 8, 1024, log);
+        assertThat(freezer.count()).isEqualTo(5);
+        store = new AionBlockStore(index, blocks, bodies, false, 0, freezer);
+        assertThat(freezer.getClearedCount()).isEqualTo(5);
+        assertThat(blocks.get(chain.get(4).getHash()).isPresent()).isFalse();
+        assertThat(blocks.get(chain.get(5).getHash()).isPresent()).isTrue();
+        assertThat(store.getChainBlockByNumber(4).getEncoded()).isEqualTo(chain.get(4).getEncoded());
+        assertThat(store.getBestBlock().getNumber()).isEqualTo(9);
+    }
+}
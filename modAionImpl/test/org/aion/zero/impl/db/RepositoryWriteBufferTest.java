@@ -0,0 +1,97 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class RepositoryWriteBufferTest {
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private final byte[] key1 = "key1".getBytes();
+    private final byte[] key2 = "key2".getBytes();
+
+    private ByteArrayKeyValueDatabase details;
+    private ByteArrayKeyValueDatabase code;
+
+    @Before
+    public void setup() {
+        details = new MockDB("details", log);
+        details.open();
+        code = new MockDB("code", log);
+        code.open();
+    }
+
+    @After
+    public void tearDown() {
+        details.close();
+        code.close();
+    }
+
+    @Test
+    public void testSynchronousFlush() {
+        RepositoryWriteBuffer buffer = new RepositoryWriteBuffer(log);
+        buffer.put(details, key1, new byte[] {1});
+        buffer.put(details, key1, new byte[] {2});
+        buffer.put(code, key1, new byte[] {3});
+
+        // the values are only visible through the buffer before the flush
+        assertThat(details.get(key1).isPresent()).isFalse();
+        assertThat(buffer.get(details, key1)).isEqualTo(new byte[] {2});
+        assertThat(buffer.get(code, key1)).isEqualTo(new byte[] {3});
+        assertThat(buffer.get(code, key2)).isNull();
+        assertThat(buffer.hasUnflushedWrites()).isTrue();
+
+        buffer.flush();
+
+        assertThat(details.get(key1).get()).isEqualTo(new byte[] {2});
+        assertThat(code.get(key1).get()).isEqualTo(new byte[] {3});
+        assertThat(buffer.get(details, key1)).isNull();
+        assertThat(buffer.hasUnflushedWrites()).isFalse();
+    }
+
+    @Test
+    public void testFailedWrite() {
+        RepositoryWriteBuffer buffer = new RepositoryWriteBuffer(log);
+        ByteArrayKeyValueDatabase failing =
+                new MockDB("failing", log) {
+                    @Override
+                    public void putBatchInternal(Map<byte[], byte[]> input) {
+                        throw new RuntimeException("No space left on device");
+                    }
+                };
+        failing.open();
+
+        buffer.put(failing, key1, new byte[] {1});
+        try {
+            buffer.flush();
+            fail("The failed write must be reported.");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasCauseThat().hasMessageThat().contains("No space left on device");
+        }
+
+        // the values of the failed batch are not dropped
+        assertThat(buffer.get(failing, key1)).isEqualTo(new byte[] {1});
+        assertThat(buffer.hasUnflushedWrites()).isTrue();
+
+        // later flushes do not write past the failed batch
+        buffer.put(details, key1, new byte[] {2});
+        try {
+            buffer.flush();
+            fail("The failed write must be reported.");
+        } catch (IllegalStateException e) {
+            assertThat(details.get(key1).isPresent()).isFalse();
+            assertThat(buffer.get(details, key1)).isEqualTo(new byte[] {2});
+        }
+
+        failing.close();
+    }
+}
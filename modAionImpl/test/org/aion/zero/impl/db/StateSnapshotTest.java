@@ -0,0 +1,316 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.AccountState;
+import org.aion.base.ConstantUtil;
+import org.aion.base.InternalVmType;
+import org.aion.base.db.RepositoryCache;
+import org.aion.crypto.HashUtil;
+import org.aion.db.generic.LockedDatabase;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.types.AionAddress;
+import org.aion.util.types.AddressUtils;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.util.types.DataWord;
+import org.aion.zero.impl.config.CfgPrune;
+import org.aion.zero.impl.config.PruneConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+public class StateSnapshotTest {
+    private static final Logger log = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private final AionAddress address = AddressUtils.wrapAddress("a0" + "11".repeat(31));
+    private final ByteArrayWrapper key = ByteArrayWrapper.wrap(HashUtil.h256("key".getBytes()));
+    private final byte[] account1 = new AccountState(BigInteger.ONE, BigInteger.ONE).getEncoded();
+    private final byte[] account2 = new AccountState(BigInteger.TWO, BigInteger.TWO).getEncoded();
+    private final byte[] emptyRoot = ConstantUtil.EMPTY_TRIE_HASH;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private ByteArrayKeyValueDatabase db;
+    private StateSnapshot snapshot;
+
+    @Before
+    public void setup() {
+        db = new MockDB("snapshot", log);
+        db.open();
+        snapshot = new StateSnapshot(db, true, log);
+    }
+
+    private static byte[] root(int index) {
+        return HashUtil.h256(BigInteger.valueOf(index).toByteArray());
+    }
+
+    private StateSnapshot.Diff accountDiff(byte[] account) {
+        StateSnapshot.Diff diff = new StateSnapshot.Diff();
+        diff.updateAccount(address, account);
+        return diff;
+    }
+
+    @Test
+    public void testReadsAcrossForks() {
+        StateSnapshot.Diff none = new StateSnapshot.Diff();
+        snapshot.addLayer(emptyRoot, root(1), accountDiff(account1));
+        snapshot.addLayer(root(1), root(2), accountDiff(account2));
+
+        // sibling of root(2) deleting the account
+        StateSnapshot.Diff deleted = new StateSnapshot.Diff();
+        deleted.deleteAccount(address);
+        snapshot.addLayer(root(1), root(3), deleted);
+
+        assertThat(snapshot.getAccount(emptyRoot, none, address)).isEqualTo(EMPTY_BYTE_ARRAY);
+        assertThat(snapshot.getAccount(root(1), none, address)).isEqualTo(account1);
+        assertThat(snapshot.getAccount(root(2), none, address)).isEqualTo(account2);
+        assertThat(snapshot.getAccount(root(3), none, address)).isEqualTo(EMPTY_BYTE_ARRAY);
+
+        // pending changes take precedence over the layers
+        assertThat(snapshot.getAccount(root(1), accountDiff(account2), address)).isEqualTo(account2);
+
+        // unknown roots must be read from the trie
+        assertThat(snapshot.getAccount(root(4), none, address)).isNull();
+        snapshot.addLayer(root(4), root(5), accountDiff(account1));
+        assertThat(snapshot.getAccount(root(5), none, address)).isNull();
+    }
+
+    @Test
+    public void testStorageOfDeletedAccount() {
+        StateSnapshot.Diff none = new StateSnapshot.Diff();
+        StateSnapshot.Diff diff = accountDiff(account1);
+        diff.updateStorage(address, key, ByteArrayWrapper.wrap(account1));
+        snapshot.addLayer(emptyRoot, root(1), diff);
+
+        diff = new StateSnapshot.Diff();
+        diff.deleteAccount(address);
+        snapshot.addLayer(root(1), root(2), diff);
+
+        assertThat(snapshot.getStorage(root(1), none, address, key)).isEqualTo(account1);
+        assertThat(snapshot.getStorage(root(2), none, address, key)).isEqualTo(EMPTY_BYTE_ARRAY);
+
+        // the deletion also applies to the disk layer
+        snapshot.flatten(root(1));
+        assertThat(snapshot.getDiskRoot()).isEqualTo(root(1));
+        assertThat(snapshot.getStorage(root(1), none, address, key)).isEqualTo(account1);
+        snapshot.flatten(root(2));
+        assertThat(snapshot.getStorage(root(2), none, address, key)).isEqualTo(EMPTY_BYTE_ARRAY);
+        assertThat(db.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void testLayersMergedIntoDisk() {
+        StateSnapshot.Diff none = new StateSnapshot.Diff();
+        snapshot.addLayer(emptyRoot, root(0), accountDiff(account1));
+        // side chain layer that gets discarded
+        snapshot.addLayer(emptyRoot, root(-1), accountDiff(account2));
+
+        for (int i = 1; i <= StateSnapshot.MAX_DIFF_LAYERS; i++) {
+            snapshot.addLayer(root(i - 1), root(i), new StateSnapshot.Diff());
+        }
+
+        assertThat(snapshot.getDiskRoot()).isEqualTo(root(0));
+        assertThat(snapshot.getLayerCount()).isEqualTo(StateSnapshot.MAX_DIFF_LAYERS);
+        assertThat(snapshot.getAccount(root(StateSnapshot.MAX_DIFF_LAYERS), none, address)).isEqualTo(account1);
+        assertThat(snapshot.getAccount(root(-1), none, address)).isNull();
+
+        // the disk layer is restored after a restart
+        snapshot.flatten(root(StateSnapshot.MAX_DIFF_LAYERS));
+        StateSnapshot restored = new StateSnapshot(db, false, log);
+        assertThat(restored.getDiskRoot()).isEqualTo(root(StateSnapshot.MAX_DIFF_LAYERS));
+        assertThat(restored.getAccount(root(StateSnapshot.MAX_DIFF_LAYERS), none, address)).isEqualTo(account1);
+    }
+
+    @Test
+    public void testUnavailableSnapshot() {
+        ByteArrayKeyValueDatabase other = new MockDB("other", log);
+        other.open();
+        StateSnapshot unavailable = new StateSnapshot(other, false, log);
+        assertThat(unavailable.getDiskRoot()).isNull();
+        assertThat(unavailable.getAccount(emptyRoot, new StateSnapshot.Diff(), address)).isNull();
+    }
+
+    @Test
+    public void testStaleDiskRoot() {
+        StateSnapshot.Diff none = new StateSnapshot.Diff();
+        snapshot.addLayer(emptyRoot, root(1), accountDiff(account1));
+        snapshot.addLayer(root(1), root(2), accountDiff(account2));
+
+        // layers descending from the disk layer are accepted
+        snapshot.checkDiskRoot(root(2));
+        assertThat(snapshot.getDiskRoot()).isEqualTo(emptyRoot);
+        assertThat(snapshot.getAccount(root(2), none, address)).isEqualTo(account2);
+
+        // the disk layer lags behind the best block after an unclean shutdown
+        snapshot.flatten(root(1));
+        StateSnapshot restarted = new StateSnapshot(db, false, log);
+        restarted.checkDiskRoot(root(1));
+        assertThat(restarted.getDiskRoot()).isEqualTo(root(1));
+        restarted.checkDiskRoot(root(2));
+        assertThat(restarted.getDiskRoot()).isNull();
+        assertThat(restarted.getAccount(root(1), none, address)).isNull();
+
+        // new layers are ignored until the snapshot is rebuilt
+        restarted.addLayer(root(2), root(3), accountDiff(account1));
+        assertThat(restarted.getLayerCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDestructedStorageOnLargeSnapshot() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(DatabaseFactory.Props.DB_TYPE, DBVendor.ROCKSDB.toValue());
+        props.setProperty(DatabaseFactory.Props.DB_NAME, "snapshot");
+        props.setProperty(DatabaseFactory.Props.DB_PATH, folder.getRoot().getAbsolutePath());
+        ByteArrayKeyValueDatabase rocksdb = DatabaseFactory.connect(props, log);
+        assertThat(rocksdb.open()).isTrue();
+
+        // the layers must be written by a single commit without scanning the whole database
+        AtomicInteger commits = new AtomicInteger();
+        ByteArrayKeyValueDatabase database =
+                new LockedDatabase(rocksdb, log) {
+                    @Override
+                    public Iterator<byte[]> keys() {
+                        throw new AssertionError("Unexpected scan of all the snapshot keys.");
+                    }
+
+                    @Override
+                    public void putBatch(Map<byte[], byte[]> keyValuePairs) {
+                        throw new AssertionError("Unexpected write outside of the layer commit.");
+                    }
+
+                    @Override
+                    public void deleteBatch(Collection<byte[]> keys) {
+                        throw new AssertionError("Unexpected write outside of the layer commit.");
+                    }
+
+                    @Override
+                    public void commit() {
+                        commits.incrementAndGet();
+                        super.commit();
+                    }
+                };
+        StateSnapshot large = new StateSnapshot(database, true, log);
+        commits.set(0);
+
+        int accounts = 200;
+        int keys = 100;
+        StateSnapshot.Diff diff = new StateSnapshot.Diff();
+        for (int i = 0; i < accounts; i++) {
+            AionAddress account = AddressUtils.wrapAddress(String.format("a0%062x", i));
+            diff.updateAccount(account, account1);
+            for (int j = 0; j < keys; j++) {
+                diff.updateStorage(account, new DataWord(j).toWrapper(), new DataWord(i + 1).toWrapper());
+            }
+        }
+        large.addLayer(emptyRoot, root(1), diff);
+        large.flatten(root(1));
+        assertThat(commits.get()).isEqualTo(1);
+
+        // destruct one account and recreate it with new storage in the same block
+        AionAddress destructed = AddressUtils.wrapAddress(String.format("a0%062x", 7));
+        ByteArrayWrapper newKey = new DataWord(keys).toWrapper();
+        diff = new StateSnapshot.Diff();
+        diff.deleteAccount(destructed);
+        diff.updateAccount(destructed, account2);
+        diff.updateStorage(destructed, newKey, new DataWord(1).toWrapper());
+        large.addLayer(root(1), root(2), diff);
+        large.flatten(root(2));
+        assertThat(commits.get()).isEqualTo(2);
+
+        StateSnapshot.Diff none = new StateSnapshot.Diff();
+        assertThat(large.getAccount(root(2), none, destructed)).isEqualTo(account2);
+        assertThat(large.getStorage(root(2), none, destructed, newKey)).isEqualTo(new DataWord(1).getData());
+        for (int j = 0; j < keys; j++) {
+            ByteArrayWrapper storageKey = new DataWord(j).toWrapper();
+            assertThat(large.getStorage(root(2), none, destructed, storageKey)).isEqualTo(EMPTY_BYTE_ARRAY);
+            for (int i : new int[] {6, 8}) {
+                AionAddress other = AddressUtils.wrapAddress(String.format("a0%062x", i));
+                assertThat(large.getStorage(root(2), none, other, storageKey)).isEqualTo(new DataWord(i + 1).getData());
+            }
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void testRepositoryReadsRebuildAndVerify() {
+        RepositoryConfig repoConfig =
+                new RepositoryConfig() {
+                    @Override
+                    public String getDbPath() {
+                        return "";
+                    }
+
+                    @Override
+                    public PruneConfig getPruneConfig() {
+                        return new CfgPrune(false);
+                    }
+
+                    @Override
+                    public Properties getDatabaseConfig(String db_name) {
+                        Properties props = new Properties();
+                        props.setProperty(DatabaseFactory.Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+                        return props;
+                    }
+                };
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+        ByteArrayWrapper value1 = new DataWord(1).toWrapper();
+        ByteArrayWrapper value2 = new DataWord(2).toWrapper();
+
+        RepositoryCache track = repository.startTracking();
+        track.addBalance(address, BigInteger.TEN);
+        track.saveVmType(address, InternalVmType.FVM);
+        track.addStorageRow(address, key, value1);
+        track.flushTo(repository, true);
+        repository.commitBlock(ByteArrayWrapper.wrap(root(1)), 1, repository.getRoot());
+        byte[] parentRoot = repository.getRoot();
+
+        track = repository.startTracking();
+        track.addBalance(address, BigInteger.TEN);
+        track.addStorageRow(address, key, value2);
+        track.flushTo(repository, true);
+        repository.commitBlock(ByteArrayWrapper.wrap(root(2)), 2, repository.getRoot());
+        byte[] bestRoot = repository.getRoot();
+
+        assertThat(repository.getStateSnapshot().getLayerCount()).isEqualTo(2);
+        assertThat(repository.getBalance(address)).isEqualTo(BigInteger.valueOf(20));
+        assertThat(repository.startTracking().getStorageValue(address, key)).isEqualTo(value2);
+
+        // reorganizing to the parent state reads the older layer
+        repository.syncToRoot(parentRoot);
+        assertThat(repository.getBalance(address)).isEqualTo(BigInteger.TEN);
+        assertThat(repository.getStorageValue(address, key)).isEqualTo(value1);
+        assertThat(repository.startTracking().getStorageValue(address, key)).isEqualTo(value1);
+
+        // the disk layer only covers the empty state before flattening
+        assertThat(repository.verifyStateSnapshot(bestRoot, log)).isFalse();
+        assertThat(repository.rebuildStateSnapshot(bestRoot, log)).isTrue();
+        assertThat(repository.getStateSnapshot().getDiskRoot()).isEqualTo(bestRoot);
+        assertThat(repository.verifyStateSnapshot(bestRoot, log)).isTrue();
+        assertThat(repository.getBalance(address)).isEqualTo(BigInteger.valueOf(20));
+        assertThat(repository.getStorageValue(address, key)).isEqualTo(value2);
+
+        // a corrupt entry is detected by the verification
+        byte[] unknownKey = new byte[65];
+        unknownKey[0] = 0x02;
+        repository.stateSnapshotDatabase.put(unknownKey, value1.toBytes());
+        repository.stateSnapshotDatabase.commit();
+        assertThat(repository.verifyStateSnapshot(bestRoot, log)).isFalse();
+
+        repository.close();
+    }
+}
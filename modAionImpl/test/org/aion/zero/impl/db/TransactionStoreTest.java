@@ -0,0 +1,176 @@
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.types.AionAddress;
+import org.aion.types.InternalTransaction;
+import org.aion.types.InternalTransaction.RejectedStatus;
+import org.aion.types.Log;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit tests for {@link TransactionStore} and {@link CompactTxInfoEncoding}. */
+public class TransactionStoreTest {
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private final ECKey key = ECKeyFac.inst().create();
+    private final byte[] contract = RandomUtils.nextBytes(AionAddress.LENGTH);
+    private final byte[] topic = RandomUtils.nextBytes(32);
+
+    private MockDB database;
+    private TransactionStore store;
+
+    @Before
+    public void setup() {
+        database = new MockDB("transaction", log);
+        database.open();
+        store = new TransactionStore(database, AionTransactionStoreSerializer.serializer);
+    }
+
+    private AionTransaction transaction(int nonce) {
+        return AionTransaction.create(
+                key,
+                BigInteger.valueOf(nonce).toByteArray(),
+                new AionAddress(contract),
+                BigInteger.ONE.toByteArray(),
+                RandomUtils.nextBytes(32),
+                100_000L,
+                10_000_000_000L,
+                (byte) 1,
+                null);
+    }
+
+    /** @return the information for a block with transactions logging events with shared topics */
+    private List<AionTxInfo> blockInfos(List<AionTransaction> transactions, byte[] blockHash, boolean withInternalTxs) {
+        List<AionTxInfo> infos = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            AionTxReceipt receipt = new AionTxReceipt();
+            receipt.setTransaction(transactions.get(i));
+            List<Log> logs = new ArrayList<>();
+            logs.add(Log.topicsAndData(contract, List.of(topic, RandomUtils.nextBytes(32)), RandomUtils.nextBytes(64)));
+            logs.add(Log.dataOnly(contract, new byte[0]));
+            receipt.setLogs(logs);
+            receipt.setNrgUsed(50_000L + i);
+            receipt.setExecutionResult(RandomUtils.nextBytes(i));
+            receipt.setError(i % 2 == 0 ? "" : "REVERT");
+
+            if (withInternalTxs) {
+                InternalTransaction internal =
+                        InternalTransaction.contractCallTransaction(
+                                RejectedStatus.NOT_REJECTED,
+                                new AionAddress(contract),
+                                new AionAddress(RandomUtils.nextBytes(AionAddress.LENGTH)),
+                                BigInteger.valueOf(i),
+                                BigInteger.TEN,
+                                RandomUtils.nextBytes(10),
+                                21_000L,
+                                10_000_000_000L);
+                infos.add(AionTxInfo.newInstanceWithInternalTransactions(receipt, ByteArrayWrapper.wrap(blockHash), i, List.of(internal)));
+            } else {
+                infos.add(AionTxInfo.newInstance(receipt, ByteArrayWrapper.wrap(blockHash), i));
+            }
+        }
+        return infos;
+    }
+
+    private static void assertSameInfo(AionTxInfo actual, AionTxInfo expected) {
+        assertThat(actual.getBlockHash()).isEqualTo(expected.getBlockHash());
+        assertThat(actual.getIndex()).isEqualTo(expected.getIndex());
+        assertThat(actual.getReceipt().getEncoded()).isEqualTo(expected.getReceipt().getEncoded());
+        assertThat(actual.isCreatedWithInternalTransactions()).isEqualTo(expected.isCreatedWithInternalTransactions());
+        assertThat(actual.getEncoded()).isEqualTo(expected.getEncoded());
+    }
+
+    @Test
+    public void testCompactEncoding() {
+        List<AionTransaction> transactions = List.of(transaction(0), transaction(1), transaction(2));
+        byte[] blockHash = RandomUtils.nextBytes(32);
+        List<AionTxInfo> infos = blockInfos(transactions, blockHash, true);
+
+        byte[] encoding = CompactTxInfoEncoding.encode(infos);
+        List<AionTxInfo> decoded = CompactTxInfoEncoding.decodeAll(encoding, ByteArrayWrapper.wrap(blockHash));
+        assertThat(decoded).hasSize(3);
+        for (int i = 0; i < infos.size(); i++) {
+            assertSameInfo(decoded.get(i), infos.get(i));
+            assertSameInfo(CompactTxInfoEncoding.decode(encoding, ByteArrayWrapper.wrap(blockHash), i), infos.get(i));
+        }
+        assertThat(CompactTxInfoEncoding.decode(encoding, ByteArrayWrapper.wrap(blockHash), 3)).isNull();
+
+        // smaller than the separate encodings without the bloom filters and repeated topics
+        int separateSize = 0;
+        for (AionTxInfo info : infos) {
+            separateSize += info.getEncoded().length;
+        }
+        assertThat(encoding.length).isLessThan(separateSize / 2);
+    }
+
+    @Test
+    public void testMainAndSideChainInfo() {
+        List<AionTransaction> transactions = List.of(transaction(0), transaction(1));
+        byte[] mainHash = RandomUtils.nextBytes(32);
+        byte[] sideHash = RandomUtils.nextBytes(32);
+        List<AionTxInfo> mainInfos = blockInfos(transactions, mainHash, false);
+        // the side chain block includes only the second transaction
+        List<AionTxInfo> sideInfos = blockInfos(List.of(transactions.get(1)), sideHash, true);
+
+        store.putBlockTxInfoToBatch(mainHash, mainInfos);
+        store.flushBatch();
+        store.putBlockTxInfoToBatch(sideHash, sideInfos);
+        store.flushBatch();
+
+        byte[] txHash = transactions.get(1).getTransactionHash();
+        assertSameInfo(store.getTxInfo(txHash, mainHash), mainInfos.get(1));
+        assertSameInfo(store.getTxInfo(txHash, sideHash), sideInfos.get(0));
+        assertThat(store.getTxInfo(transactions.get(0).getTransactionHash(), sideHash)).isNull();
+        assertThat(store.getTxInfo(RandomUtils.nextBytes(32), mainHash)).isNull();
+
+        Map<ByteArrayWrapper, AionTxInfo> all = store.getTxInfo(txHash);
+        assertThat(all.keySet()).containsExactly(ByteArrayWrapper.wrap(mainHash), ByteArrayWrapper.wrap(sideHash));
+
+        List<AionTxInfo> batch =
+                store.getTxInfoBatch(
+                        List.of(transactions.get(0).getTransactionHash(), RandomUtils.nextBytes(32), txHash),
+                        mainHash);
+        assertSameInfo(batch.get(0), mainInfos.get(0));
+        assertThat(batch.get(1)).isNull();
+        assertSameInfo(batch.get(2), mainInfos.get(1));
+    }
+
+    @Test
+    public void testLegacyEntriesRemainReadable() {
+        AionTransaction transaction = transaction(0);
+        byte[] txHash = transaction.getTransactionHash();
+        byte[] oldHash = RandomUtils.nextBytes(32);
+        byte[] newHash = RandomUtils.nextBytes(32);
+
+        // information stored as a map per transaction hash before the compact encoding
+        AionTxInfo oldInfo = blockInfos(List.of(transaction), oldHash, false).get(0);
+        Map<ByteArrayWrapper, AionTxInfo> legacy = new HashMap<>();
+        legacy.put(ByteArrayWrapper.wrap(oldHash), oldInfo);
+        database.putAndCommit(txHash, AionTransactionStoreSerializer.serializer.serialize(legacy));
+
+        AionTxInfo newInfo = blockInfos(List.of(transaction), newHash, false).get(0);
+        store.putBlockTxInfoToBatch(newHash, List.of(newInfo));
+        store.flushBatch();
+
+        assertSameInfo(store.getTxInfo(txHash, oldHash), oldInfo);
+        assertSameInfo(store.getTxInfo(txHash, newHash), newInfo);
+        assertThat(store.getTxInfo(txHash)).hasSize(2);
+        assertSameInfo(store.getTxInfoBatch(List.of(txHash), oldHash).get(0), oldInfo);
+    }
+}
@@ -16,6 +16,7 @@ import org.aion.base.AionTransaction;
 import org.aion.base.TransactionTypes;
 import org.aion.base.TxUtil;
 import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
 import org.aion.txpool.Constant;
 import org.aion.zero.impl.blockchain.AionHub;
 import org.aion.zero.impl.blockchain.AionImpl;
@@ -36,6 +37,7 @@ import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.impl.vm.AvmPathManager;
 import org.aion.zero.impl.vm.AvmTestConfig;
 import org.aion.zero.impl.vm.TestResourceProvider;
+import org.aion.zero.impl.vm.common.BulkExecutor;
 import org.aion.base.AionTxReceipt;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.After;
@@ -915,4 +917,109 @@ public class PendingStateTest {
         assertEquals(0 , pendingState.getCachePoolSize());
         assertEquals(cachedTx.get(1), pendingState.getPendingTransactions().get(0));
     }
+
+    @Test
+    public void incrementalRerunMatchesFullRerun() {
+        checkIncrementalRerunMatchesFullRerun();
+    }
+
+    @Test
+    public void incrementalRerunMatchesFullRerunWithParallelExecution() {
+        // the transactions of each sender are executed as a batch on a speculative cache
+        BulkExecutor.enableParallelExecution(4);
+        try {
+            checkIncrementalRerunMatchesFullRerun();
+        } finally {
+            BulkExecutor.disableParallelExecution();
+        }
+    }
+
+    private void checkIncrementalRerunMatchesFullRerun() {
+        AionPendingStateImpl fullRerunState =
+                new AionPendingStateImpl(
+                        blockchain,
+                        CfgAion.inst().getConsensus().getEnergyStrategy().getUpperBound(),
+                        CfgAion.inst().getTx().getTxPendingTimeout(),
+                        false,
+                        false,
+                        false,
+                        false,
+                        new PendingTxCallback(new ArrayList<>()),
+                        new NetworkBestBlockCallback(AionImpl.inst()),
+                        new TransactionBroadcastCallback(AionImpl.inst()),
+                        true);
+
+        List<AionAddress> destinations = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            destinations.add(new AionAddress(ECKeyFac.inst().create().getAddress()));
+        }
+        // the last two senders transfer to the same account
+        destinations.add(destinations.get(5));
+
+        List<AionTransaction> pooled = new ArrayList<>();
+        for (int sender = 0; sender < destinations.size(); sender++) {
+            for (int nonce = 0; nonce < 4; nonce++) {
+                pooled.add(newTransfer(bundle.privateKeys.get(sender), nonce, destinations.get(sender)));
+            }
+        }
+        for (AionTransaction tx : pooled) {
+            assertEquals(TxResponse.SUCCESS, pendingState.addTransactionFromApiServer(tx));
+            assertEquals(TxResponse.SUCCESS, fullRerunState.addTransactionFromApiServer(tx));
+        }
+        assertEquals(pooled.size(), pendingState.getPendingTxSize());
+        assertEquals(pooled.size(), fullRerunState.getPendingTxSize());
+
+        // the block changes the first sender and the destination of the third sender
+        List<AionTransaction> included = new ArrayList<>(pooled.subList(0, 2));
+        included.add(newTransfer(bundle.privateKeys.get(7), 0, destinations.get(2)));
+        importAndUpdate(included, fullRerunState);
+
+        assertEquals(pooled.size() - 2, pendingState.getPendingTxSize());
+        assertEquals(6, pendingState.getRerunTransactionCount());
+        assertEquals(20, pendingState.getSkippedRerunTransactionCount());
+        assertEquals(26, fullRerunState.getRerunTransactionCount());
+        assertEquals(0, fullRerunState.getSkippedRerunTransactionCount());
+        assertSamePendingState(fullRerunState, destinations);
+
+        // the empty block does not affect the pending transactions
+        importAndUpdate(Collections.emptyList(), fullRerunState);
+
+        assertEquals(6, pendingState.getRerunTransactionCount());
+        assertEquals(46, pendingState.getSkippedRerunTransactionCount());
+        assertSamePendingState(fullRerunState, destinations);
+    }
+
+    private AionTransaction newTransfer(ECKey sender, int nonce, AionAddress destination) {
+        return AionTransaction.create(
+                sender,
+                BigInteger.valueOf(nonce).toByteArray(),
+                destination,
+                BigInteger.TEN.toByteArray(),
+                new byte[0],
+                Constant.MIN_ENERGY_CONSUME,
+                energyPrice,
+                TransactionTypes.DEFAULT,
+                null);
+    }
+
+    private void importAndUpdate(List<AionTransaction> transactions, AionPendingStateImpl other) {
+        MiningBlock block = blockchain.createNewMiningBlock(blockchain.getBestBlock(), transactions, false);
+        Pair<ImportResult, AionBlockSummary> connectResult = blockchain.tryToConnectAndFetchSummary(block);
+        assertEquals(ImportResult.IMPORTED_BEST, connectResult.getLeft());
+        other.applyBlockUpdate(block, connectResult.getRight().getReceipts());
+    }
+
+    private void assertSamePendingState(AionPendingStateImpl expected, List<AionAddress> destinations) {
+        assertEquals(expected.getPendingTransactions(), pendingState.getPendingTransactions());
+
+        List<AionAddress> accounts = new ArrayList<>(destinations);
+        for (ECKey key : bundle.privateKeys.subList(0, 8)) {
+            accounts.add(new AionAddress(key.getAddress()));
+        }
+        accounts.add(blockchain.getBestBlock().getCoinbase());
+        for (AionAddress account : accounts) {
+            assertEquals(expected.getAccountState(account).get().getNonce(), pendingState.getAccountState(account).get().getNonce());
+            assertEquals(expected.getAccountState(account).get().getBalance(), pendingState.getAccountState(account).get().getBalance());
+        }
+    }
 }
@@ -356,6 +356,7 @@ public class BlockPropagationTest {
                                 enablePoolBackup,
                                 enableSeedMode,
                                 enablePoolDump,
+                                true,
                                 new PendingTxCallback(new ArrayList<>()),
                                 new NetworkBestBlockCallback(AionImpl.inst()),
                                 new TransactionBroadcastCallback(AionImpl.inst()),
@@ -432,6 +433,7 @@ public class BlockPropagationTest {
                                 enablePoolBackup,
                                 enableSeedMode,
                                 enablePoolDump,
+                                true,
                                 new PendingTxCallback(new ArrayList<>()),
                                 new NetworkBestBlockCallback(AionImpl.inst()),
                                 new TransactionBroadcastCallback(AionImpl.inst()),
@@ -503,6 +505,7 @@ public class BlockPropagationTest {
                                 enablePoolBackup,
                                 enableSeedMode,
                                 enablePoolDump,
+                                true,
                                 new PendingTxCallback(new ArrayList<>()),
                                 new NetworkBestBlockCallback(AionImpl.inst()),
                                 new TransactionBroadcastCallback(AionImpl.inst()),
@@ -569,6 +572,7 @@ public class BlockPropagationTest {
                                 enablePoolBackup,
                                 enableSeedMode,
                                 enablePoolDump,
+                                true,
                                 new PendingTxCallback(new ArrayList<>()),
                                 new NetworkBestBlockCallback(AionImpl.inst()),
                                 new TransactionBroadcastCallback(AionImpl.inst()),
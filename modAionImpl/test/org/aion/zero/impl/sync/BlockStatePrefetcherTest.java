@@ -0,0 +1,90 @@
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateAccounts;
+import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateNewBlock;
+import static org.aion.zero.impl.blockchain.BlockchainTestUtils.generateNextBlock;
+
+import java.util.Collections;
+import java.util.List;
+import org.aion.crypto.ECKey;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.vm.AvmTestConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockStatePrefetcherTest {
+
+    private final List<ECKey> accounts = generateAccounts(10);
+    private StandaloneBlockchain chain;
+    private BlockStatePrefetcher prefetcher;
+
+    @Before
+    public void setup() {
+        AvmTestConfig.supportOnlyAvmVersion1();
+        chain =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+        prefetcher = new BlockStatePrefetcher(chain);
+    }
+
+    @After
+    public void tearDown() {
+        prefetcher.shutdown();
+        AvmTestConfig.clearConfigurations();
+    }
+
+    @Test
+    public void testHitRate() {
+        Block block = generateNextBlock(chain, accounts, 10);
+        prefetcher.prefetch(block);
+        prefetcher.recordImport(Collections.singletonList(block));
+        assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        assertThat(prefetcher.getHitCount()).isEqualTo(1);
+        assertThat(prefetcher.getMissCount()).isEqualTo(0);
+
+        // blocks at or below the best block are not prefetched
+        prefetcher.prefetch(block);
+        prefetcher.recordImport(Collections.singletonList(block));
+        // blocks that were not prefetched count as misses
+        Block next = generateNextBlock(chain, accounts, 10);
+        prefetcher.recordImport(Collections.singletonList(next));
+
+        assertThat(prefetcher.getHitCount()).isEqualTo(1);
+        assertThat(prefetcher.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCancelOnReorg() {
+        Block genesis = chain.getBestBlock();
+        Block block = generateNextBlock(chain, accounts, 10);
+        assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        prefetcher.prefetch(generateNextBlock(chain, accounts, 10));
+
+        // switch the main chain to a longer fork
+        Block fork = generateNewBlock(chain, genesis, accounts, 10);
+        assertThat(chain.tryToConnect(fork)).isEqualTo(ImportResult.IMPORTED_NOT_BEST);
+        fork = generateNewBlock(chain, fork, accounts, 10);
+        assertThat(chain.tryToConnect(fork)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(chain.isMainChain(block.getHash(), block.getNumber())).isFalse();
+
+        // the first block observed after the reorganization is discarded with the queue
+        Block next = generateNextBlock(chain, accounts, 10);
+        prefetcher.prefetch(next);
+        prefetcher.recordImport(Collections.singletonList(next));
+        assertThat(prefetcher.getMissCount()).isEqualTo(1);
+
+        // the prefetching resumes on the new main chain
+        prefetcher.prefetch(next);
+        prefetcher.recordImport(Collections.singletonList(next));
+        assertThat(prefetcher.getHitCount()).isEqualTo(1);
+    }
+}
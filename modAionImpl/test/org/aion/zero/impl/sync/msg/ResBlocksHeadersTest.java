@@ -4,7 +4,9 @@ import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertArrayEquals;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.aion.zero.impl.types.BlockHeader;
@@ -94,4 +96,27 @@ public class ResBlocksHeadersTest {
         List<BlockHeader> bhs2 = rbhs2.getHeaders();
         assertThat(bhs2.size()).isEqualTo(m);
     }
+
+    @Test
+    public void testHeadersFromBuffer() {
+        List<BlockHeader> bhs1 = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            bhs1.add(bh1);
+        }
+        byte[] rbhsBytes = new ResBlocksHeaders(bhs1).encode();
+
+        // the message is a slice of a larger buffer
+        byte[] received = new byte[rbhsBytes.length + 8];
+        System.arraycopy(rbhsBytes, 0, received, 4, rbhsBytes.length);
+        ByteBuffer msg = ByteBuffer.wrap(received, 4, rbhsBytes.length);
+
+        List<BlockHeader> bhs2 = ResBlocksHeaders.decode(msg, null).getHeaders();
+        assertThat(bhs2.size()).isEqualTo(16);
+
+        // the decoded headers do not refer to the buffer that is reused
+        Arrays.fill(received, (byte) 0);
+        for (BlockHeader bh : bhs2) {
+            assertArrayEquals(bh1.getEncoded(), bh.getEncoded());
+        }
+    }
 }
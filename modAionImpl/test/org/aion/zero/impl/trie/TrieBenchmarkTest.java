@@ -3,6 +3,7 @@ package org.aion.zero.impl.trie;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.util.types.ByteArrayWrapper;
@@ -46,4 +47,39 @@ public class TrieBenchmarkTest {
         }
         log.info("trie delete {} elements cost {} ms", testSets, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t1));
     }
+
+    /**
+     * Imports blocks with many storage writes into a storage trie, computing the root and syncing
+     * the trie after each block, once hashing on every update and once deferring the hashing.
+     */
+    @Test
+    public void storageHeavyBlockImportTest() {
+        int blocks = 20;
+        int writesPerBlock = 2_000;
+
+        long eagerTime = importStorageBlocks(false, blocks, writesPerBlock);
+        long deferredTime = importStorageBlocks(true, blocks, writesPerBlock);
+
+        log.info("import of {} blocks with {} storage writes each cost {} ms with hashing on every update", blocks, writesPerBlock, TimeUnit.NANOSECONDS.toMillis(eagerTime));
+        log.info("import of {} blocks with {} storage writes each cost {} ms with deferred parallel hashing", blocks, writesPerBlock, TimeUnit.NANOSECONDS.toMillis(deferredTime));
+    }
+
+    private long importStorageBlocks(boolean deferredHashing, int blocks, int writesPerBlock) {
+        MockDB mockDb = new MockDB("StorageTrie", log);
+        mockDb.open();
+        TrieImpl storage = new SecureTrie(mockDb).withPruningEnabled(true).withDeferredHashing(deferredHashing);
+        Random random = new Random(7);
+        byte[] value = new byte[32];
+
+        long t1 = System.nanoTime();
+        for (int block = 0; block < blocks; block++) {
+            for (int i = 0; i < writesPerBlock; i++) {
+                random.nextBytes(value);
+                storage.update(("slot" + random.nextInt(50_000)).getBytes(), value.clone());
+            }
+            storage.getRootHash();
+            storage.sync();
+        }
+        return System.nanoTime() - t1;
+    }
 }
@@ -0,0 +1,92 @@
+package org.aion.zero.impl.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.rlp.Value;
+import org.aion.util.types.ByteArrayWrapper;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TrieNodeCacheTest {
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private static Node node(int index) {
+        byte[] value = new byte[64];
+        value[0] = (byte) index;
+        return new Node(new Value(new Object[] {new byte[] {0x20, (byte) index}, value}), true);
+    }
+
+    private static ByteArrayWrapper hash(Node node) {
+        return ByteArrayWrapper.wrap(HashUtil.h256(node.getValue().encode()));
+    }
+
+    @Test
+    public void testHitAndMissCounts() {
+        TrieNodeCache cache = new TrieNodeCache(TrieNodeCache.DEFAULT_MAX_SIZE);
+        Node node = node(1);
+
+        assertThat(cache.get(hash(node))).isNull();
+        cache.put(hash(node), node);
+        Node cached = cache.get(hash(node));
+
+        assertThat(cached).isNotSameAs(node);
+        assertThat(cached.isDirty()).isFalse();
+        assertThat(cached.getValue().encode()).isEqualTo(node.getValue().encode());
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testByteBudget() {
+        // room for a few nodes only
+        TrieNodeCache cache = new TrieNodeCache(2_000);
+        for (int i = 0; i < 100; i++) {
+            Node node = node(i);
+            cache.put(hash(node), node);
+        }
+        assertThat(cache.size()).isLessThan(10L);
+
+        cache.setMaxSize(0);
+        Node node = node(0);
+        cache.put(hash(node), node);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get(hash(node))).isNull();
+    }
+
+    @Test
+    public void testSharedAcrossTrieCaches() {
+        TrieNodeCache shared = new TrieNodeCache(TrieNodeCache.DEFAULT_MAX_SIZE);
+        MockDB db1 = new MockDB("db1", log);
+        db1.open();
+        MockDB db2 = new MockDB("db2", log);
+        db2.open();
+
+        Node node = node(1);
+        Cache cache1 = new Cache(db1, shared);
+        cache1.put(hash(node), node);
+        cache1.commitForTest();
+        assertThat(db1.get(hash(node).toBytes()).isPresent()).isTrue();
+
+        // the committed node is served to other tries without reading the database
+        Cache cache2 = new Cache(db2, shared);
+        assertThat(cache2.get(hash(node).toBytes())).isNotNull();
+        assertThat(shared.getHitCount()).isEqualTo(1);
+
+        // presence checks skip the shared cache
+        assertThat(cache2.get(hash(node).toBytes(), false)).isNull();
+
+        // nodes read from the database are shared
+        Node other = node(2);
+        db2.putAndCommit(hash(other).toBytes(), other.getValue().encode());
+        assertThat(cache2.get(hash(other).toBytes())).isNotNull();
+        assertThat(new Cache(db1, shared).get(hash(other).toBytes())).isNotNull();
+
+        // deleted nodes are no longer shared
+        cache2.delete(hash(other).toBytes());
+        assertThat(new Cache(db1, shared).get(hash(other).toBytes())).isNull();
+    }
+}
@@ -1110,4 +1110,76 @@ public class TrieTest {
             }
         }
     }
+
+    @Test
+    public void testDeferredHashingRoot_withPruning() {
+        compareDeferredAndEagerHashing(true);
+    }
+
+    @Test
+    public void testDeferredHashingRoot_withoutPruning() {
+        compareDeferredAndEagerHashing(false);
+    }
+
+    /**
+     * Applies the same storage-like blocks of updates and deletions to a trie that hashes on every
+     * update and to one that defers the hashing, using both the serial and the parallel hashing.
+     */
+    private void compareDeferredAndEagerHashing(boolean pruning) {
+        MockDB eagerDB = new MockDB("eager", log);
+        eagerDB.open();
+        TrieImpl eager = new SecureTrie(eagerDB).withPruningEnabled(pruning);
+        MockDB deferredDB = new MockDB("deferred", log);
+        deferredDB.open();
+        TrieImpl deferred = new SecureTrie(deferredDB).withPruningEnabled(pruning).withDeferredHashing(true);
+
+        Random random = new Random(42);
+        int[] blockSizes = {1, 10, TrieImpl.PARALLEL_HASHING_THRESHOLD * 4, 50, TrieImpl.PARALLEL_HASHING_THRESHOLD * 2, 3};
+        for (int blockSize : blockSizes) {
+            for (int i = 0; i < blockSize; i++) {
+                byte[] key = intToBytes(random.nextInt(1_000));
+                if (random.nextInt(10) < 2) {
+                    // includes deletions of missing keys
+                    eager.delete(key);
+                    deferred.delete(key);
+                } else {
+                    // includes updates with unchanged values
+                    byte[] value = new byte[1 + random.nextInt(3) * 16];
+                    value[0] = (byte) random.nextInt(4);
+                    eager.update(key, value);
+                    deferred.update(key, value);
+                }
+
+                if (i == blockSize / 2) {
+                    // intermediate roots are computed for transaction receipts
+                    assertThat(deferred.getRootHash()).isEqualTo(eager.getRootHash());
+                }
+            }
+
+            assertThat(deferred.getRootHash()).isEqualTo(eager.getRootHash());
+            eager.sync();
+            deferred.sync();
+
+            byte[] root = deferred.getRootHash();
+            assertThat(new TrieImpl(deferredDB).getMissingNodes(root)).isEmpty();
+
+            // nodes replaced within the same root computation are not stored
+            Set<ByteArrayWrapper> eagerKeys = getKeys(eagerDB);
+            Set<ByteArrayWrapper> deferredKeys = getKeys(deferredDB);
+            if (pruning) {
+                assertThat(deferredKeys.size()).isAtMost(eagerKeys.size());
+            } else {
+                assertThat(eagerKeys).containsAllIn(deferredKeys);
+            }
+        }
+    }
+
+    private static Set<ByteArrayWrapper> getKeys(MockDB db) {
+        Set<ByteArrayWrapper> keys = new HashSet<>();
+        Iterator<byte[]> iterator = db.keys();
+        while (iterator.hasNext()) {
+            keys.add(ByteArrayWrapper.wrap(iterator.next()));
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,178 @@
+package org.aion.zero.impl.vm;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.aion.avm.stub.AvmExecutionType;
+import org.aion.avm.stub.AvmVersion;
+import org.aion.avm.stub.IContractFactory.AvmContract;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxExecSummary;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypeRule;
+import org.aion.base.TransactionTypes;
+import org.aion.crypto.ECKey;
+import org.aion.types.AionAddress;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.types.MiningBlock;
+import org.aion.zero.impl.vm.avm.AvmCallPool;
+import org.aion.zero.impl.vm.avm.AvmProvider;
+import org.aion.zero.impl.vm.avm.AvmTransactionExecutor;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AvmCallPoolTest {
+    private static TestResourceProvider resourceProvider;
+    private StandaloneBlockchain blockchain;
+    private ECKey deployerKey;
+    private AionAddress contract;
+    private long energyPrice = 10_000_000_000L;
+
+    @BeforeClass
+    public static void setupAvm() throws Exception {
+        resourceProvider = TestResourceProvider.initializeAndCreateNewProvider(AvmPathManager.getPathOfProjectRootDirectory());
+        AvmTestConfig.supportOnlyAvmVersion1();
+        TransactionTypeRule.allowAVMContractTransaction();
+    }
+
+    @AfterClass
+    public static void tearDownAvm() throws Exception {
+        TransactionTypeRule.disallowAVMContractTransaction();
+        AvmTestConfig.clearConfigurations();
+        resourceProvider.close();
+    }
+
+    @Before
+    public void setup() {
+        StandaloneBlockchain.Bundle bundle =
+                new StandaloneBlockchain.Builder()
+                        .withDefaultAccounts()
+                        .withValidatorConfiguration("simple")
+                        .withAvmEnabled()
+                        .build();
+        this.blockchain = bundle.bc;
+        this.deployerKey = bundle.privateKeys.get(0);
+
+        byte[] jar = resourceProvider.factoryForVersion1.newContractFactory().getDeploymentBytes(AvmContract.HELLO_WORLD);
+        AionTransaction transaction =
+                AionTransaction.create(
+                        deployerKey,
+                        new byte[0],
+                        null,
+                        new byte[0],
+                        jar,
+                        5_000_000,
+                        energyPrice,
+                        TransactionTypes.AVM_CREATE_CODE, null);
+        MiningBlock block = this.blockchain.createNewMiningBlock(this.blockchain.getBestBlock(), Collections.singletonList(transaction), false);
+        Pair<ImportResult, AionBlockSummary> connectResult = this.blockchain.tryToConnectAndFetchSummary(block);
+        assertThat(connectResult.getLeft()).isEqualTo(ImportResult.IMPORTED_BEST);
+        this.contract = new AionAddress(connectResult.getRight().getReceipts().get(0).getTransactionOutput());
+    }
+
+    @After
+    public void tearDown() {
+        AvmCallPool.shutdown();
+        this.blockchain = null;
+        this.deployerKey = null;
+    }
+
+    @Test(timeout = 60_000)
+    public void testLocalCallDoesNotWaitForImportLock() throws Exception {
+        AvmCallPool.configure(1, 10, TimeUnit.SECONDS);
+
+        // simulate a block import holding the provider's lock
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService importer = Executors.newSingleThreadExecutor();
+        importer.submit(() -> {
+            AvmProvider.tryAcquireLock(1, TimeUnit.MINUTES);
+            locked.countDown();
+            try {
+                done.await();
+            } finally {
+                AvmProvider.releaseLock();
+            }
+            return null;
+        });
+        locked.await();
+
+        AionTxReceipt pooled;
+        try {
+            pooled = callSayHello();
+            // the avm instance is reused by the following calls
+            assertThat(callSayHello().getTransactionOutput()).isEqualTo(pooled.getTransactionOutput());
+        } finally {
+            done.countDown();
+            importer.shutdown();
+        }
+        assertThat(pooled.isSuccessful()).isTrue();
+
+        // the calls executed by the provider's avm have the same results
+        AvmCallPool.shutdown();
+        assertThat(AvmCallPool.isEnabled()).isFalse();
+        AionTxReceipt shared = callSayHello();
+        assertThat(shared.isSuccessful()).isTrue();
+        assertThat(pooled.getTransactionOutput()).isEqualTo(shared.getTransactionOutput());
+        assertThat(pooled.getEnergyUsed()).isEqualTo(shared.getEnergyUsed());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTimeoutWhenPoolIsExhausted() throws Exception {
+        AvmCallPool.configure(1, 100, TimeUnit.MILLISECONDS);
+        AvmCallPool.PooledAvm pooled = AvmCallPool.acquire(AvmVersion.VERSION_1, false);
+        try {
+            AvmCallPool.acquire(AvmVersion.VERSION_1, false);
+        } finally {
+            AvmCallPool.release(pooled);
+        }
+    }
+
+    private AionTxReceipt callSayHello() throws Exception {
+        Block block = blockchain.getBestBlock();
+        byte[] call = resourceProvider.factoryForVersion1.newStreamingEncoder().encodeOneString("sayHello").getEncoding();
+        AionTransaction transaction =
+                AionTransaction.create(
+                        deployerKey,
+                        BigInteger.ONE.toByteArray(),
+                        contract,
+                        new byte[0],
+                        call,
+                        2_000_000,
+                        energyPrice,
+                        TransactionTypes.DEFAULT, null);
+
+        List<AionTxExecSummary> summaries =
+                AvmTransactionExecutor.executeTransactions(
+                        blockchain.getRepository().getSnapshotTo(block.getStateRoot()).startTracking(),
+                        block.getDifficultyBI(),
+                        block.getNumber(),
+                        block.getTimestamp(),
+                        block.getNrgLimit(),
+                        block.getCoinbase(),
+                        new AionTransaction[] {transaction},
+                        null,
+                        false,
+                        true,
+                        true,
+                        block.getNrgLimit(),
+                        AvmExecutionType.ETH_CALL,
+                        0,
+                        false,
+                        false);
+        return summaries.get(0).getReceipt();
+    }
+}
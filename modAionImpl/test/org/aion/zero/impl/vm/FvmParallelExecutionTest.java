@@ -0,0 +1,155 @@
+package org.aion.zero.impl.vm;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.AionTransaction;
+import org.aion.base.AionTxReceipt;
+import org.aion.base.TransactionTypes;
+import org.aion.base.TxUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.types.AionAddress;
+import org.aion.util.bytes.ByteUtil;
+import org.aion.util.conversions.Hex;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.impl.types.Block;
+import org.aion.zero.impl.types.MiningBlock;
+import org.aion.zero.impl.vm.common.BulkExecutor;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the speculative parallel execution of FVM transactions produces the same blocks as
+ * the sequential execution, including when transactions in the same batch conflict.
+ */
+public class FvmParallelExecutionTest {
+    private static final int SENDERS = 8;
+    private static final long ENERGY_PRICE = 10_000_000_000L;
+
+    /** Contract with setValue(uint128) and setValue2(uint128, uint128) updating its storage. */
+    private static final String CONTRACT_CODE =
+            "0x605060405234156100105760006000fd5b5b600a600060005081909090555060006000505460016000506000600060"
+                    + "005054815260100190815260100160002090506000508190909055506064600260005060000160005081909090555060"
+                    + "c86002600050600101600050819090905550600260005060010160005054600160005060006002600050600001600050"
+                    + "54815260100190815260100160002090506000508190909055505b6100ae565b610184806100bd6000396000f3006050"
+                    + "6040526000356c01000000000000000000000000900463ffffffff1680631677b0ff1461004957806320965255146100"
+                    + "7657806362eb702a146100a057610043565b60006000fd5b34156100555760006000fd5b610074600480803590601001"
+                    + "90919080359060100190919050506100c4565b005b34156100825760006000fd5b61008a610111565b60405180828152"
+                    + "60100191505060405180910390f35b34156100ac5760006000fd5b6100c2600480803590601001909190505061012356"
+                    + "5b005b816002600050600001600050819090905550806002600050600101600050819090905550808201600160005060"
+                    + "0084815260100190815260100160002090506000508190909055505b5050565b60006000600050549050610120565b90"
+                    + "565b80600060005081909090555060018101600160005060008381526010019081526010016000209050600050819090"
+                    + "9055505b505600a165627a7a723058205b6e690d70d3703337452467437dc7c4e863ee4ad34b24cc516e2afa71e33470"
+                    + "0029";
+
+    private StandaloneBlockchain sequential;
+    private StandaloneBlockchain parallel;
+    private List<ECKey> keys;
+
+    @Before
+    public void setup() {
+        keys = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+        sequential = new StandaloneBlockchain.Builder().withValidatorConfiguration("simple").withDefaultAccounts(keys).build().bc;
+        parallel = new StandaloneBlockchain.Builder().withValidatorConfiguration("simple").withDefaultAccounts(keys).build().bc;
+    }
+
+    @After
+    public void tearDown() {
+        BulkExecutor.disableParallelExecution();
+    }
+
+    @Test
+    public void testParallelExecutionMatchesSequentialExecution() {
+        byte[] deployCode = ByteUtil.hexStringToBytes(CONTRACT_CODE);
+
+        // independent deployments from different senders
+        List<AionTransaction> deployments = new ArrayList<>();
+        for (ECKey key : keys) {
+            deployments.add(transaction(key, BigInteger.ZERO, null, deployCode, 5_000_000));
+        }
+        AionBlockSummary summary = importIntoBoth(deployments);
+        List<AionAddress> contracts = new ArrayList<>();
+        for (AionTxReceipt receipt : summary.getReceipts()) {
+            assertThat(receipt.isSuccessful()).isTrue();
+            contracts.add(TxUtil.calculateContractAddress(receipt.getTransaction()));
+        }
+
+        // each sender updates its own contract, then some transactions conflict with earlier ones
+        List<AionTransaction> calls = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            calls.add(transaction(keys.get(i), BigInteger.ONE, contracts.get(i), setValue(i), 2_000_000));
+        }
+        calls.add(transaction(keys.get(0), BigInteger.TWO, contracts.get(1), setValue2(5, 6), 2_000_000));
+        calls.add(transaction(keys.get(1), BigInteger.TWO, contracts.get(1), setValue(9), 2_000_000));
+        calls.add(transaction(keys.get(2), BigInteger.TWO, new AionAddress(keys.get(3).getAddress()), new byte[0], 21_000));
+        summary = importIntoBoth(calls);
+        assertThat(summary.getReceipts()).hasSize(SENDERS + 3);
+
+        // transactions from senders whose balances were updated in the same block
+        calls = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            BigInteger nonce = i < 3 ? BigInteger.valueOf(3) : BigInteger.TWO;
+            calls.add(transaction(keys.get(i), nonce, new AionAddress(keys.get((i + 1) % SENDERS).getAddress()), new byte[0], 21_000));
+        }
+        calls.add(transaction(keys.get(3), BigInteger.valueOf(3), contracts.get(3), setValue2(1, 9), 2_000_000));
+        importIntoBoth(calls);
+
+        for (ECKey key : keys) {
+            AionAddress address = new AionAddress(key.getAddress());
+            assertThat(parallel.getRepository().getBalance(address)).isEqualTo(sequential.getRepository().getBalance(address));
+            assertThat(parallel.getRepository().getNonce(address)).isEqualTo(sequential.getRepository().getNonce(address));
+        }
+    }
+
+    /** Creates and imports a block with sequential execution, then imports it with parallel execution. */
+    private AionBlockSummary importIntoBoth(List<AionTransaction> transactions) {
+        BulkExecutor.disableParallelExecution();
+        Block parent = sequential.getBestBlock();
+        MiningBlock block = sequential.createBlock(parent, transactions, false, parent.getTimestamp());
+        Pair<ImportResult, AionBlockSummary> expected = sequential.tryToConnectAndFetchSummary(block);
+        assertThat(expected.getLeft()).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        BulkExecutor.enableParallelExecution(4);
+        Pair<ImportResult, AionBlockSummary> actual = parallel.tryToConnectAndFetchSummary(block);
+        assertThat(actual.getLeft()).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        List<AionTxReceipt> expectedReceipts = expected.getRight().getReceipts();
+        List<AionTxReceipt> actualReceipts = actual.getRight().getReceipts();
+        assertThat(actualReceipts).hasSize(expectedReceipts.size());
+        for (int i = 0; i < expectedReceipts.size(); i++) {
+            assertThat(actualReceipts.get(i).getEncoded()).isEqualTo(expectedReceipts.get(i).getEncoded());
+        }
+        return actual.getRight();
+    }
+
+    private static byte[] setValue(int digit) {
+        return Hex.decode("62eb702a0000000000000000000000000000000" + digit);
+    }
+
+    private static byte[] setValue2(int digit1, int digit2) {
+        return Hex.decode("1677b0ff0000000000000000000000000000000" + digit1 + "0000000000000000000000000000000" + digit2);
+    }
+
+    private static AionTransaction transaction(ECKey sender, BigInteger nonce, AionAddress destination, byte[] data, long energyLimit) {
+        return AionTransaction.create(
+                sender,
+                nonce.toByteArray(),
+                destination,
+                new byte[0],
+                data,
+                energyLimit,
+                ENERGY_PRICE,
+                TransactionTypes.DEFAULT,
+                null);
+    }
+}
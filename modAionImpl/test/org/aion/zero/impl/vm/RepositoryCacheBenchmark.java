@@ -0,0 +1,184 @@
+package org.aion.zero.impl.vm;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.blockchain.BlockchainTestUtils.deployAvmContractTransaction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import org.aion.avm.stub.IContractFactory.AvmContract;
+import org.aion.base.AionTransaction;
+import org.aion.base.TransactionTypeRule;
+import org.aion.base.TransactionTypes;
+import org.aion.base.db.RepositoryCache;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.types.AionAddress;
+import org.aion.util.types.ByteArrayWrapper;
+import org.aion.zero.impl.blockchain.StandaloneBlockchain;
+import org.aion.zero.impl.core.ImportResult;
+import org.aion.zero.impl.types.AionBlockSummary;
+import org.aion.zero.impl.types.Block;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the cost of the nested repository caches used by the virtual machines, both directly
+ * and through the import of blocks with FVM value transfers and AVM storage updates.
+ */
+public class RepositoryCacheBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int BLOCKS = 5;
+    private static final int TRANSACTIONS_PER_BLOCK = 200;
+    private static final int CACHE_OPERATIONS = 2_000_000;
+
+    private static TestResourceProvider resourceProvider;
+    private static List<ECKey> keys;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        resourceProvider = TestResourceProvider.initializeAndCreateNewProvider(AvmPathManager.getPathOfProjectRootDirectory());
+        AvmTestConfig.supportOnlyAvmVersion1();
+        TransactionTypeRule.allowAVMContractTransaction();
+
+        keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        TransactionTypeRule.disallowAVMContractTransaction();
+        AvmTestConfig.clearConfigurations();
+        resourceProvider.close();
+    }
+
+    private static StandaloneBlockchain newChain() {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .withAvmEnabled()
+                .build()
+                .bc;
+    }
+
+    /** Reads and updates accounts and storage through the caches of a block, a transaction and a call. */
+    @Test
+    public void benchmarkNestedCacheAccess() {
+        StandaloneBlockchain chain = newChain();
+        List<AionAddress> addresses = new ArrayList<>();
+        for (ECKey key : keys) {
+            addresses.add(new AionAddress(key.getAddress()));
+        }
+        ByteArrayWrapper storageKey = ByteArrayWrapper.wrap(new byte[] {1});
+        ByteArrayWrapper storageValue = ByteArrayWrapper.wrap(new byte[] {2});
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            RepositoryCache block = chain.getRepository().startTracking();
+            RepositoryCache transaction = block.startTracking();
+            RepositoryCache call = transaction.startTracking();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < CACHE_OPERATIONS / 4; i++) {
+                AionAddress address = addresses.get(i % addresses.size());
+                call.getBalance(address);
+                call.addBalance(address, BigInteger.ONE);
+                call.addStorageRow(address, storageKey, storageValue);
+                call.getStorageValue(address, storageKey);
+            }
+            call.flushTo(transaction, true);
+            transaction.flushTo(block, true);
+            long time = System.nanoTime() - start;
+
+            System.out.printf("round %d: nested cache access: %.1f ns/op%n", round, (double) time / CACHE_OPERATIONS);
+        }
+    }
+
+    /** Imports blocks of FVM value transfers. */
+    @Test
+    public void benchmarkFvmTransfers() {
+        benchmarkImport("fvm transfers", (key, nonce) ->
+                AionTransaction.create(
+                        key,
+                        nonce.toByteArray(),
+                        new AionAddress(ECKeyFac.inst().create().getAddress()),
+                        BigInteger.ONE.toByteArray(),
+                        new byte[0],
+                        21_000L,
+                        10_000_000_000L,
+                        TransactionTypes.DEFAULT,
+                        null));
+    }
+
+    /** Imports blocks of AVM contract calls that update the contract state. */
+    @Test
+    public void benchmarkAvmStateUpdates() {
+        benchmarkImport("avm state updates", null);
+    }
+
+    private void benchmarkImport(String name, BiFunction<ECKey, BigInteger, AionTransaction> transfer) {
+        for (int round = 1; round <= ROUNDS; round++) {
+            StandaloneBlockchain producer = newChain();
+            BiFunction<ECKey, BigInteger, AionTransaction> factory = transfer;
+            Map<ECKey, BigInteger> nonces = new HashMap<>();
+            List<Block> blocks = new ArrayList<>();
+
+            if (factory == null) {
+                // the contract is deployed by the first block
+                AionTransaction deploy = deployAvmContractTransaction(AvmContract.STATEFULNESS, resourceProvider.factoryForVersion1, keys.get(0), BigInteger.ZERO);
+                Block block = producer.createBlock(producer.getBestBlock(), Collections.singletonList(deploy), false, producer.getBestBlock().getTimestamp());
+                Pair<ImportResult, AionBlockSummary> result = producer.tryToConnectAndFetchSummary(block);
+                assertThat(result.getLeft()).isEqualTo(ImportResult.IMPORTED_BEST);
+                AionAddress contract = new AionAddress(result.getRight().getReceipts().get(0).getTransactionOutput());
+                blocks.add(block);
+                nonces.put(keys.get(0), BigInteger.ONE);
+
+                byte[] call = resourceProvider.factoryForVersion1.newStreamingEncoder().encodeOneString("incrementCounter").getEncoding();
+                factory = (key, nonce) ->
+                        AionTransaction.create(
+                                key,
+                                nonce.toByteArray(),
+                                contract,
+                                new byte[0],
+                                call,
+                                2_000_000L,
+                                10_000_000_000L,
+                                TransactionTypes.DEFAULT,
+                                null);
+            }
+
+            for (int i = 0; i < BLOCKS; i++) {
+                List<AionTransaction> transactions = new ArrayList<>();
+                for (int j = 0; j < TRANSACTIONS_PER_BLOCK / keys.size(); j++) {
+                    for (ECKey key : keys) {
+                        BigInteger nonce = nonces.getOrDefault(key, BigInteger.ZERO);
+                        transactions.add(factory.apply(key, nonce));
+                        nonces.put(key, nonce.add(BigInteger.ONE));
+                    }
+                }
+                Block parent = producer.getBestBlock();
+                Block block = producer.createBlock(parent, transactions, false, parent.getTimestamp());
+                assertThat(block.getTransactionsList()).hasSize(TRANSACTIONS_PER_BLOCK);
+                assertThat(producer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+                blocks.add(block);
+            }
+
+            StandaloneBlockchain chain = newChain();
+            long start = System.nanoTime();
+            for (Block block : blocks) {
+                assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            }
+            long time = System.nanoTime() - start;
+
+            int transactions = BLOCKS * TRANSACTIONS_PER_BLOCK;
+            System.out.printf("round %d: %s: %d ms, %.0f tx/s%n", round, name, time / 1_000_000, transactions * 1e9 / time);
+        }
+    }
+}
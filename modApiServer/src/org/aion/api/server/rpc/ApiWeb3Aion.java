@@ -1,6 +1,5 @@
 package org.aion.api.server.rpc;
 
-import static java.util.stream.Collectors.toList;
 import static org.aion.api.server.types.FltrLg.BLOCKS_QUERY_MAX;
 import static org.aion.util.bytes.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.aion.util.conversions.Hex.toHexString;
@@ -26,7 +25,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import org.aion.api.server.ApiAion;
 import org.aion.api.server.ApiTxResponse;
 import org.aion.api.server.account.AccountManager;
@@ -64,6 +62,7 @@ import org.aion.util.types.DataWord;
 import org.aion.zero.impl.Version;
 import org.aion.zero.impl.blockchain.AionBlockchainImpl;
 import org.aion.zero.impl.blockchain.AionImpl;
+import org.aion.zero.impl.blockchain.CallResultCache;
 import org.aion.zero.impl.blockchain.IAionChain;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.config.CfgApi;
@@ -1656,6 +1655,14 @@ public class ApiWeb3Aion extends ApiAion {
         network.put("peerCount", peer.size());
         obj.put("network", network);
 
+        // base.callCache
+        CallResultCache callCache = this.ac.getCallResultCache();
+        JSONObject calls = new JSONObject();
+        calls.put("hits", callCache.getHitCount());
+        calls.put("misses", callCache.getMissCount());
+        // end
+        obj.put("callCache", calls);
+
         return new RpcMsg(obj);
     }
 
@@ -2460,25 +2467,20 @@ public class ApiWeb3Aion extends ApiAion {
         // cast will cause issues after the PoW refactor goes in
         AionBlockchainImpl chain = (AionBlockchainImpl) this.ac.getAionHub().getBlockchain();
 
-        Function<AionTransaction, JSONObject> extractTxReceipt =
-                t -> {
-                    AionTxInfo info =
-                            chain.getTransactionInfoLite(t.getTransactionHash(), b.getHash());
-                    info.setTransaction(t);
-                    return ((new TxRecpt(b, info, 0L, true)).toJson());
-                };
-
-        List<JSONObject> receipts;
-        // use the fork-join pool to parallelize receipt retrieval if necessary
-        int PARALLELIZE_RECEIPT_COUNT = 20;
-        if (b.getTransactionsList().size() > PARALLELIZE_RECEIPT_COUNT) {
-            receipts =
-                    b.getTransactionsList()
-                            .parallelStream()
-                            .map(extractTxReceipt)
-                            .collect(toList());
-        } else {
-            receipts = b.getTransactionsList().stream().map(extractTxReceipt).collect(toList());
+        List<AionTransaction> txs = b.getTransactionsList();
+        List<byte[]> txHashes = new ArrayList<>(txs.size());
+        for (AionTransaction t : txs) {
+            txHashes.add(t.getTransactionHash());
+        }
+
+        // the receipts are retrieved with a single batch read from the database
+        List<AionTxInfo> infos = chain.getTransactionInfoLite(txHashes, b.getHash());
+
+        List<JSONObject> receipts = new ArrayList<>(txs.size());
+        for (int i = 0; i < txs.size(); i++) {
+            AionTxInfo info = infos.get(i);
+            info.setTransaction(txs.get(i));
+            receipts.add((new TxRecpt(b, info, 0L, true)).toJson());
         }
 
         return new RpcMsg(new JSONArray(receipts));
@@ -6,6 +6,7 @@ import org.aion.crypto.ECKey;
 import org.aion.crypto.ECKeyFac;
 import org.aion.crypto.HashUtil;
 import org.aion.crypto.ISignature;
+import org.aion.crypto.SignatureFac;
 import org.aion.types.AionAddress;
 import org.aion.types.Transaction;
 import org.aion.util.bytes.ByteUtil;
@@ -41,6 +42,11 @@ public class AionTransaction {
     /** beacon hash */
     private final byte[] beaconHash;
 
+    /** memoized result of the signature verification (SIGNATURE_UNCHECKED until first verified) */
+    private volatile byte signatureCheck = SIGNATURE_UNCHECKED;
+
+    private static final byte SIGNATURE_UNCHECKED = 0, SIGNATURE_VALID = 1, SIGNATURE_INVALID = 2;
+
     /** Constructor for AionTransaction */
     private AionTransaction(
             byte[] nonce,
@@ -384,6 +390,32 @@ public class AionTransaction {
         return signature;
     }
 
+    /**
+     * Verifies the signature against the hash of the transaction without signature. The result is
+     * memoized, so that the verification can be performed ahead of time by other threads.
+     *
+     * @return {@code true} if the signature is present and valid, {@code false} otherwise
+     */
+    public boolean isSignatureValid() {
+        byte check = signatureCheck;
+        if (check == SIGNATURE_UNCHECKED) {
+            boolean valid;
+            try {
+                valid = signature != null && SignatureFac.verify(transactionHashWithoutSignature, signature);
+            } catch (Exception e) {
+                valid = false;
+            }
+            check = valid ? SIGNATURE_VALID : SIGNATURE_INVALID;
+            signatureCheck = check;
+        }
+        return check == SIGNATURE_VALID;
+    }
+
+    /** @return whether the signature verification result is already available */
+    public boolean isSignatureChecked() {
+        return signatureCheck != SIGNATURE_UNCHECKED;
+    }
+
     public boolean isContractCreationTransaction() {
         return transaction.isCreate;
     }
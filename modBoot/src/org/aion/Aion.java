@@ -35,6 +35,7 @@ import org.aion.api.server.pb.ApiAion0;
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.zmq.HdlrZmq;
 import org.aion.api.server.zmq.ProtocolProcessor;
+import org.aion.zero.impl.vm.avm.AvmCallPool;
 import org.aion.zero.impl.vm.avm.AvmProvider;
 import org.aion.avm.stub.AvmVersion;
 import org.aion.crypto.ECKeyFac;
@@ -206,6 +207,9 @@ public class Aion {
         genLog.info(path);
         genLog.info(logo);
 
+        // local calls use dedicated read-only avm instances instead of the one used for block import
+        AvmCallPool.configure(cfg.getApi().getCallVmPoolSize(), cfg.getApi().getCallVmTimeout(), TimeUnit.SECONDS);
+
         IAionChain ac = AionFactory.create();
 
         EquihashMiner nm = null;
@@ -406,6 +410,7 @@ public class Aion {
      * to exit.
      */
     private static void shutdownAvm() {
+        AvmCallPool.shutdown();
         try {
             // We don't want to block too long, shutdown hooks should execute as fast as possible.
             if (AvmProvider.tryAcquireLock(2, TimeUnit.SECONDS)) {
@@ -2,6 +2,7 @@ package org.aion.db.generic;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -190,6 +191,21 @@ public class LockedDatabase implements ByteArrayKeyValueDatabase {
         }
     }
 
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            return database.keysWithPrefix(prefix);
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         // acquire read lock
@@ -205,6 +221,21 @@ public class LockedDatabase implements ByteArrayKeyValueDatabase {
         }
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            return database.getBatch(keys);
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public void putBatch(Map<byte[], byte[]> keyValuePairs) {
         // acquire write lock
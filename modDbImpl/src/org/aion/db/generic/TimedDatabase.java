@@ -2,6 +2,7 @@ package org.aion.db.generic;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -143,6 +144,16 @@ public class TimedDatabase implements ByteArrayKeyValueDatabase {
         return result;
     }
 
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        long t1 = System.nanoTime();
+        Iterator<byte[]> result = database.keysWithPrefix(prefix);
+        long t2 = System.nanoTime();
+
+        LOG.debug(database.toString() + " keysWithPrefix() in " + (t2 - t1) + " ns.");
+        return result;
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         long t1 = System.nanoTime();
@@ -161,6 +172,22 @@ public class TimedDatabase implements ByteArrayKeyValueDatabase {
         return value;
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        long t1 = System.nanoTime();
+        List<byte[]> values = database.getBatch(keys);
+        long t2 = System.nanoTime();
+
+        LOG.debug(
+                database.toString()
+                        + " getBatch("
+                        + (keys != null ? keys.size() : "null")
+                        + ") in "
+                        + (t2 - t1)
+                        + " ns.");
+        return values;
+    }
+
     @Override
     public void putBatch(Map<byte[], byte[]> keyValuePairs) {
         long t1 = System.nanoTime();
@@ -3,7 +3,11 @@ package org.aion.db.impl;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -154,6 +158,99 @@ public abstract class AbstractDB implements ByteArrayKeyValueDatabase {
      */
     protected abstract byte[] getInternal(byte[] key);
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        check(keys);
+        check();
+
+        return getBatchInternal(keys);
+    }
+
+    /**
+     * Database specific batch get functionality, without locking or integrity checks required.
+     * Locking and checks are applied in {@link #getBatch(Collection)}.
+     *
+     * @param keys a {@link Collection} of keys for which the values must be retrieved
+     * @return the values stored in the database for the given keys in the iteration order of the
+     *     collection, with {@code null} entries for the missing keys
+     * @implNote Implementations that do not support multi-key reads fall back to retrieving the
+     *     keys one at a time.
+     */
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            values.add(getInternal(key));
+        }
+        return values;
+    }
+
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        check(prefix);
+        check();
+
+        return keysWithPrefixInternal(prefix);
+    }
+
+    /**
+     * Database specific prefix key iteration, without locking or integrity checks required.
+     * Locking and checks are applied in {@link #keysWithPrefix(byte[])}.
+     *
+     * @param prefix the leading bytes shared by all the returned keys
+     * @return an iterator over the stored keys that start with the given prefix
+     * @implNote Implementations that cannot seek inside their key space fall back to filtering
+     *     all the keys returned by {@link #keys()}.
+     */
+    protected Iterator<byte[]> keysWithPrefixInternal(byte[] prefix) {
+        return new PrefixFilterIterator(keys(), prefix);
+    }
+
+    /** Returns {@code true} when the given key starts with the given prefix. */
+    protected static boolean hasPrefix(byte[] key, byte[] prefix) {
+        if (key == null || key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Filters the keys of an unordered key iterator down to the ones with a given prefix. */
+    private static class PrefixFilterIterator implements Iterator<byte[]> {
+        private final Iterator<byte[]> keys;
+        private final byte[] prefix;
+        private byte[] next;
+
+        PrefixFilterIterator(Iterator<byte[]> keys, byte[] prefix) {
+            this.keys = keys;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+                byte[] key = keys.next();
+                if (hasPrefix(key, prefix)) {
+                    next = key;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] key = next;
+            next = null;
+            return key;
+        }
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         check(key);
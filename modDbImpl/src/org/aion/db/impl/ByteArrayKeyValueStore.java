@@ -1,3 +1,34 @@
 package org.aion.db.impl;
 
-public interface ByteArrayKeyValueStore extends KeyValueStore<byte[], byte[]> {}
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+public interface ByteArrayKeyValueStore extends KeyValueStore<byte[], byte[]> {
+
+    /**
+     * Retrieves the values stored for the given keys using a single request to the data store when
+     * the underlying implementation allows it.
+     *
+     * @param keys a {@link Collection} of keys for which the values must be retrieved
+     * @return a list containing the values associated with the given keys in the iteration order
+     *     of the collection, with {@code null} entries for the keys that are not present in the
+     *     data store
+     * @throws RuntimeException if the data store is closed
+     * @throws NullPointerException if the collection contains a {@code null} key
+     */
+    List<byte[]> getBatch(Collection<byte[]> keys);
+
+    /**
+     * Returns an {@link Iterator} over the keys starting with the given prefix that are stored in
+     * the database at the time when the keys were requested. Implementations that keep the keys
+     * sorted seek directly to the prefix instead of scanning the whole database.
+     *
+     * @param prefix the leading bytes shared by all the returned keys
+     * @return an iterator over the stored keys that start with the given prefix
+     * @throws RuntimeException if the data store is closed
+     * @throws NullPointerException if the prefix is {@code null}
+     * @apiNote Returns an empty iterator if the database keys could not be retrieved.
+     */
+    Iterator<byte[]> keysWithPrefix(byte[] prefix);
+}
@@ -10,6 +10,7 @@ import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.PersistentMockDB;
 import org.aion.db.impl.mongodb.MongoDB;
 import org.aion.db.impl.rocksdb.RocksDBConstants;
+import org.aion.db.impl.rocksdb.RocksDBSharedInstance;
 import org.aion.db.impl.rocksdb.RocksDBWrapper;
 import org.slf4j.Logger;
 
@@ -150,6 +151,40 @@ public abstract class DatabaseFactory {
         return null;
     }
 
+    /**
+     * Returns a database stored as a column family of the given shared RocksDB instance. The column
+     * family name is given by the {@link Props#DB_NAME} property.
+     *
+     * @return A {@link RocksDBWrapper} in column family mode, wrapped for locking when requested.
+     */
+    public static ByteArrayKeyValueDatabase connect(RocksDBSharedInstance sharedInstance, Properties info, Logger log) {
+        if (log == null) {
+            throw new NullPointerException("Please provide a Logger for recording messages.");
+        }
+
+        String dbName = info.getProperty(Props.DB_NAME);
+
+        // ensure not null name for the column family
+        if (dbName == null) {
+            log.error("Please provide a database name value that is not null.");
+            return null;
+        }
+
+        AbstractDB db =
+                new RocksDBWrapper(
+                        dbName,
+                        sharedInstance,
+                        log,
+                        getBoolean(info, Props.ENABLE_DB_CACHE),
+                        getBoolean(info, Props.ENABLE_DB_COMPRESSION));
+
+        if (getBoolean(info, Props.ENABLE_LOCKING)) {
+            return new LockedDatabase(db, log);
+        } else {
+            return db;
+        }
+    }
+
     /**
      * @return A database implementation based on a driver implementing the {@link IDriver}
      *     interface.
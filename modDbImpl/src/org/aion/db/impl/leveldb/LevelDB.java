@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.aion.db.impl.AbstractDB;
 import org.aion.db.impl.SystemExitCodes;
 import org.fusesource.leveldbjni.JniDBFactory;
@@ -277,6 +278,76 @@ public class LevelDB extends AbstractDB {
         return Collections.emptyIterator();
     }
 
+    @Override
+    protected Iterator<byte[]> keysWithPrefixInternal(byte[] prefix) {
+        try {
+            ReadOptions readOptions = new ReadOptions();
+            readOptions.snapshot(db.getSnapshot());
+            return new LevelDBPrefixIteratorWrapper(readOptions, db.iterator(readOptions), prefix, LOG);
+        } catch (Exception e) {
+            LOG.error("Unable to extract keys from database " + this.toString() + ".", e);
+        }
+
+        // empty when retrieval failed
+        return Collections.emptyIterator();
+    }
+
+    /**
+     * An {@link Iterator} over the keys with a given prefix that seeks to the prefix and stops at
+     * the first key outside of it.
+     */
+    private static class LevelDBPrefixIteratorWrapper implements Iterator<byte[]> {
+        private final DBIterator iterator;
+        private final ReadOptions readOptions;
+        private final byte[] prefix;
+        private boolean closed;
+        private Logger LOG;
+
+        LevelDBPrefixIteratorWrapper(
+                final ReadOptions readOptions,
+                final DBIterator iterator,
+                final byte[] prefix,
+                final Logger log) {
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+            this.prefix = prefix;
+            iterator.seek(prefix);
+            closed = false;
+            this.LOG = log;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!closed) {
+                boolean hasNext =
+                        iterator.hasNext() && hasPrefix(iterator.peekNext().getKey(), prefix);
+
+                // close iterator after last entry
+                if (!hasNext) {
+                    try {
+                        iterator.close();
+                        readOptions.snapshot().close();
+                    } catch (IOException e) {
+                        LOG.error("Unable to close iterator object.", e);
+                    }
+                    closed = true;
+                }
+
+                return hasNext;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return iterator.next().getKey();
+        }
+    }
+
     /**
      * A wrapper for the {@link DBIterator} conforming to the {@link Iterator} interface.
      *
@@ -6,6 +6,7 @@ public class RocksDBConstants {
     public static int WRITE_BUFFER_SIZE = 8 * 1024 * 1024;
     public static int READ_BUFFER_SIZE = 8 * 1024 * 1024;
     public static int CACHE_SIZE = 16 * 1024 * 1024;
+    public static long SHARED_CACHE_SIZE = 256 * 1024 * 1024;
 
     static int BYTES_PER_SYNC = 1024 * 1024;
     static int OPTIMIZE_LEVEL_STYLE_COMPACTION = 128 * 1024 * 1024;
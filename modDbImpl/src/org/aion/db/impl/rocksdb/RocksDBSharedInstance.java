@@ -0,0 +1,434 @@
+package org.aion.db.impl.rocksdb;
+
+import static java.lang.Math.max;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.BLOCK_SIZE;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.BLOOMFILTER_BITS_PER_KEY;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.BYTES_PER_SYNC;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.LEVEL0_SLOWDOWN_WRITES_TRIGGER;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.LEVEL0_STOP_WRITES_TRIGGER;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MAX_BACKGROUND_COMPACTIONS;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MAX_BACKGROUND_FLUSHES;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.MIN_WRITE_BUFFER_NUMBER_TOMERGE;
+import static org.aion.db.impl.rocksdb.RocksDBConstants.OPTIMIZE_LEVEL_STYLE_COMPACTION;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionPriority;
+import org.rocksdb.CompressionType;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatchWithIndex;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+
+/**
+ * A single RocksDB instance whose column families are used as independent logical databases
+ * through {@link RocksDBWrapper}. All column families share the write-ahead log, the background
+ * compaction threads and one LRU block cache.
+ *
+ * <p>The instance also supports atomic commits across column families: after {@link
+ * #startAtomicWrite()} is called, all updates made by the calling thread through any column family
+ * of this instance are accumulated in a single batch which is written by {@link
+ * #commitAtomicWrite()}. Reads made by the same thread while the batch is open see the pending
+ * updates. Other threads continue to read and write directly to the database. Calls to start and
+ * commit may be nested, in which case the batch is written by the outermost commit. A batch can be
+ * discarded instead by {@link #abortAtomicWrite()}.
+ *
+ * @implNote The underlying database is opened when the first column family is acquired and closed
+ *     when the last one is released.
+ */
+public class RocksDBSharedInstance {
+
+    private final String path;
+    private final Logger LOG;
+    private final boolean enableDbCompression;
+    private final int maxOpenFiles;
+    private final int writeBufferSize;
+    private final int readBufferSize;
+    private final long cacheSize;
+
+    private RocksDB db;
+    private DBOptions dbOptions;
+    private ColumnFamilyOptions columnFamilyOptions;
+    private LRUCache blockCache;
+    private WriteOptions writeOptions;
+
+    private final Map<String, ColumnFamilyHandle> handles = new HashMap<>();
+    private final Map<String, Integer> references = new HashMap<>();
+
+    private WriteBatchWithIndex atomicBatch = null;
+    private Thread atomicBatchOwner = null;
+    private int atomicBatchDepth = 0;
+    private ReadOptions atomicReadOptions = null;
+
+    public RocksDBSharedInstance(
+            String path,
+            Logger log,
+            boolean enableDbCompression,
+            int maxOpenFiles,
+            int writeBufferSize,
+            int readBufferSize,
+            long cacheSize) {
+        this.path = new File(path).getAbsolutePath();
+        this.LOG = log;
+        this.enableDbCompression = enableDbCompression;
+        this.maxOpenFiles = maxOpenFiles;
+        this.writeBufferSize = writeBufferSize;
+        this.readBufferSize = readBufferSize;
+        this.cacheSize = cacheSize;
+
+        LOG.info("RocksDb shared instance Options: Path:{} EnableCompression:{} MaxOpenFiles:{} WriteBuffer:{} ReadBuffer:{} SharedCacheSize:{}"
+            , this.path, enableDbCompression, maxOpenFiles, writeBufferSize, readBufferSize, cacheSize);
+
+        RocksDB.loadLibrary();
+    }
+
+    public RocksDBSharedInstance(String path, Logger log, boolean enableDbCompression) {
+        this(
+                path,
+                log,
+                enableDbCompression,
+                RocksDBConstants.MAX_OPEN_FILES,
+                RocksDBConstants.WRITE_BUFFER_SIZE,
+                RocksDBConstants.READ_BUFFER_SIZE,
+                RocksDBConstants.SHARED_CACHE_SIZE);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ":<path=" + path + ",families=" + handles.keySet() + ">";
+    }
+
+    private DBOptions setupDbOptions() {
+        DBOptions options = new DBOptions();
+
+        options.setCreateIfMissing(true);
+        options.setCreateMissingColumnFamilies(true);
+        options.setUseFsync(false);
+        options.setAtomicFlush(true);
+        options.setRandomAccessMaxBufferSize(this.readBufferSize);
+        options.setParanoidChecks(true);
+        options.setMaxOpenFiles(this.maxOpenFiles);
+        options.setIncreaseParallelism(max(1, Runtime.getRuntime().availableProcessors() / 2));
+        options.setMaxBackgroundCompactions(MAX_BACKGROUND_COMPACTIONS);
+        options.setMaxBackgroundFlushes(MAX_BACKGROUND_FLUSHES);
+        options.setBytesPerSync(BYTES_PER_SYNC);
+
+        return options;
+    }
+
+    private ColumnFamilyOptions setupColumnFamilyOptions() {
+        ColumnFamilyOptions options = new ColumnFamilyOptions();
+
+        options.setCompressionType(
+                enableDbCompression
+                        ? CompressionType.LZ4_COMPRESSION
+                        : CompressionType.NO_COMPRESSION);
+
+        options.setBottommostCompressionType(CompressionType.ZLIB_COMPRESSION);
+        options.setMinWriteBufferNumberToMerge(MIN_WRITE_BUFFER_NUMBER_TOMERGE);
+        options.setLevel0StopWritesTrigger(LEVEL0_STOP_WRITES_TRIGGER);
+        options.setLevel0SlowdownWritesTrigger(LEVEL0_SLOWDOWN_WRITES_TRIGGER);
+        options.setWriteBufferSize(this.writeBufferSize);
+        options.setTableFormatConfig(setupBlockBasedTableConfig());
+        options.setDisableAutoCompactions(false);
+        options.setLevelCompactionDynamicLevelBytes(true);
+        options.setCompactionPriority(CompactionPriority.MinOverlappingRatio);
+        options.optimizeLevelStyleCompaction(OPTIMIZE_LEVEL_STYLE_COMPACTION);
+
+        return options;
+    }
+
+    private BlockBasedTableConfig setupBlockBasedTableConfig() {
+        BlockBasedTableConfig bbtc = new BlockBasedTableConfig();
+        bbtc.setBlockSize(BLOCK_SIZE);
+        bbtc.setBlockCache(blockCache);
+        bbtc.setCacheIndexAndFilterBlocks(true);
+        bbtc.setPinL0FilterAndIndexBlocksInCache(true);
+        bbtc.setFilterPolicy(new BloomFilter(BLOOMFILTER_BITS_PER_KEY, false));
+        return bbtc;
+    }
+
+    /**
+     * Opens the database with all the column families already present on disk.
+     *
+     * @return {@code true} if the database is open, {@code false} otherwise
+     */
+    private boolean open() {
+        if (isOpen()) {
+            return true;
+        }
+
+        LOG.debug("Initialising {}", this.toString());
+
+        File f = new File(path);
+        if (!f.exists() && !f.mkdirs()) {
+            LOG.error("Failed to initialize the database storage for " + this.toString() + ".");
+            return false;
+        }
+
+        blockCache = new LRUCache(cacheSize);
+        dbOptions = setupDbOptions();
+        columnFamilyOptions = setupColumnFamilyOptions();
+        writeOptions = new WriteOptions();
+
+        try {
+            List<byte[]> existing;
+            try (Options options = new Options()) {
+                existing = RocksDB.listColumnFamilies(options, path);
+            }
+
+            List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+            descriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY, columnFamilyOptions));
+            for (byte[] name : existing) {
+                if (!new String(name, StandardCharsets.UTF_8).equals(new String(RocksDB.DEFAULT_COLUMN_FAMILY, StandardCharsets.UTF_8))) {
+                    descriptors.add(new ColumnFamilyDescriptor(name, columnFamilyOptions));
+                }
+            }
+
+            List<ColumnFamilyHandle> opened = new ArrayList<>();
+            db = RocksDB.open(dbOptions, path, descriptors, opened);
+
+            for (ColumnFamilyHandle handle : opened) {
+                handles.put(new String(handle.getName(), StandardCharsets.UTF_8), handle);
+            }
+        } catch (RocksDBException e) {
+            if (e.getMessage() != null && e.getMessage().contains("lock")) {
+                LOG.error(
+                        "Failed to open the database "
+                                + this.toString()
+                                + "\nCheck if you have two instances running on the same database."
+                                + "\nFailure due to: ",
+                        e);
+            } else {
+                LOG.error("Failed to open the database " + this.toString() + " due to: ", e);
+            }
+
+            // close the connection and cleanup if needed
+            close();
+        }
+
+        return isOpen();
+    }
+
+    public synchronized boolean isOpen() {
+        return db != null;
+    }
+
+    /**
+     * Working heuristic for Ubuntu: both the LOCK and LOG files should get created on creation.
+     */
+    public boolean isCreatedOnDisk() {
+        return new File(path, "LOCK").exists() && new File(path, "LOG").exists();
+    }
+
+    /**
+     * Retrieves the handle for the column family with the given name, opening the database and
+     * creating the column family if needed.
+     *
+     * @return the handle for the column family or {@code null} if the database could not be opened
+     */
+    synchronized ColumnFamilyHandle acquire(String name) {
+        if (!open()) {
+            return null;
+        }
+
+        ColumnFamilyHandle handle = handles.get(name);
+        if (handle == null) {
+            try {
+                handle = db.createColumnFamily(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+                handles.put(name, handle);
+            } catch (RocksDBException e) {
+                LOG.error("Unable to create column family " + name + " in " + this.toString() + ".", e);
+                return null;
+            }
+        }
+
+        references.merge(name, 1, Integer::sum);
+        return handle;
+    }
+
+    /**
+     * Releases one reference to the column family with the given name. The database is closed
+     * once no column family is referenced any longer.
+     */
+    synchronized void release(String name) {
+        Integer count = references.get(name);
+        if (count == null) {
+            return;
+        }
+
+        if (count > 1) {
+            references.put(name, count - 1);
+        } else {
+            references.remove(name);
+        }
+
+        if (references.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Removes all the data from the column family with the given name.
+     *
+     * @return the handle for the newly created empty column family
+     */
+    synchronized ColumnFamilyHandle dropColumnFamily(String name) {
+        ColumnFamilyHandle handle = handles.remove(name);
+        try {
+            if (handle != null) {
+                db.dropColumnFamily(handle);
+                handle.close();
+            }
+            handle = db.createColumnFamily(new ColumnFamilyDescriptor(name.getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+            handles.put(name, handle);
+            return handle;
+        } catch (RocksDBException e) {
+            LOG.error("Unable to drop column family " + name + " in " + this.toString() + ".", e);
+            return null;
+        }
+    }
+
+    RocksDB getDatabase() {
+        return db;
+    }
+
+    WriteOptions getWriteOptions() {
+        return writeOptions;
+    }
+
+    /**
+     * Starts accumulating all the updates made by the calling thread through the column families
+     * of this instance into a single atomic batch.
+     *
+     * @throws IllegalStateException when another thread already has an open atomic batch
+     */
+    public synchronized void startAtomicWrite() {
+        if (!isOpen()) {
+            return;
+        }
+
+        Thread current = Thread.currentThread();
+        if (atomicBatchOwner != null && atomicBatchOwner != current) {
+            throw new IllegalStateException("An atomic batch is already open on " + this.toString() + " by thread " + atomicBatchOwner.getName() + ".");
+        }
+
+        if (atomicBatch == null) {
+            atomicBatch = new WriteBatchWithIndex(true);
+            atomicReadOptions = new ReadOptions();
+            atomicBatchOwner = current;
+        }
+        atomicBatchDepth++;
+    }
+
+    /**
+     * Writes all the updates accumulated since {@link #startAtomicWrite()} to the database in a
+     * single atomic operation.
+     *
+     * @throws IllegalStateException when the batch could not be written, in which case none of
+     *     its updates were applied to the database
+     */
+    public synchronized void commitAtomicWrite() {
+        if (atomicBatch == null || atomicBatchOwner != Thread.currentThread()) {
+            return;
+        }
+
+        atomicBatchDepth--;
+        if (atomicBatchDepth > 0) {
+            // the outermost caller will perform the write
+            return;
+        }
+
+        try {
+            if (atomicBatch.count() > 0) {
+                db.write(writeOptions, atomicBatch);
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to execute atomic batch operation on " + this.toString() + ".", e);
+            throw new IllegalStateException("Unable to write the atomic batch to " + this.toString() + ": " + e.getMessage(), e);
+        } finally {
+            closeAtomicBatch();
+        }
+    }
+
+    /**
+     * Discards all the updates accumulated since {@link #startAtomicWrite()} by the calling thread,
+     * including the ones made by enclosing calls. The commits of the enclosing calls have no
+     * effect afterwards.
+     */
+    public synchronized void abortAtomicWrite() {
+        if (atomicBatch == null || atomicBatchOwner != Thread.currentThread()) {
+            return;
+        }
+
+        LOG.debug("Discarding {} operations from the atomic batch.", atomicBatch.count());
+        closeAtomicBatch();
+    }
+
+    private void closeAtomicBatch() {
+        atomicBatch.close();
+        atomicReadOptions.close();
+        atomicBatch = null;
+        atomicReadOptions = null;
+        atomicBatchOwner = null;
+        atomicBatchDepth = 0;
+    }
+
+    /** Returns the open atomic batch when the caller is the thread that started it. */
+    WriteBatchWithIndex getAtomicBatchForCurrentThread() {
+        // the owner is only ever set and cleared by itself, so the read does not need locking
+        return atomicBatchOwner == Thread.currentThread() ? atomicBatch : null;
+    }
+
+    /** Reads the given key taking into account the updates from the open atomic batch. */
+    byte[] getFromAtomicBatchAndDB(WriteBatchWithIndex batch, ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+        return batch.getFromBatchAndDB(db, handle, atomicReadOptions, key);
+    }
+
+    public synchronized void close() {
+        // do nothing if already closed
+        if (db == null) {
+            return;
+        }
+
+        LOG.info("Closing database " + this.toString());
+
+        if (atomicBatch != null) {
+            LOG.warn("Discarding {} uncommitted operations from the atomic batch.", atomicBatch.count());
+            closeAtomicBatch();
+        }
+
+        for (ColumnFamilyHandle handle : handles.values()) {
+            handle.close();
+        }
+        handles.clear();
+        references.clear();
+
+        // attempt to close the database
+        db.close();
+        db = null;
+
+        dbOptions.close();
+        columnFamilyOptions.close();
+        writeOptions.close();
+        blockCache.close();
+    }
+}
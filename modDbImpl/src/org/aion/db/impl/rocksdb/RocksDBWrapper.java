@@ -12,14 +12,18 @@ import static org.aion.db.impl.rocksdb.RocksDBConstants.MIN_WRITE_BUFFER_NUMBER_
 import static org.aion.db.impl.rocksdb.RocksDBConstants.OPTIMIZE_LEVEL_STYLE_COMPACTION;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import org.aion.db.impl.AbstractDB;
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.CompactionPriority;
 import org.rocksdb.CompressionType;
 import org.rocksdb.Options;
@@ -27,13 +31,23 @@ import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Snapshot;
 import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteBatchWithIndex;
 import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 
+/**
+ * Database implementation backed by RocksDB. The data is stored either in a dedicated RocksDB
+ * instance or in a column family of a {@link RocksDBSharedInstance}.
+ */
 public class RocksDBWrapper extends AbstractDB {
 
     private RocksDB db;
+    // the column family used for all operations; the default column family for standalone databases
+    private ColumnFamilyHandle handle;
+    // non-null when the database is a column family of a shared instance
+    private final RocksDBSharedInstance sharedInstance;
     private final int maxOpenFiles;
     private final int blockSize;
     private final int writeBufferSize;
@@ -59,6 +73,7 @@ public class RocksDBWrapper extends AbstractDB {
         this.writeBufferSize = writeBufferSize;
         this.readBufferSize = readBufferSize;
         this.cacheSize = cacheSize;
+        this.sharedInstance = null;
 
         LOG.info("RocksDb Options: EnableCompression:{} XaxOpenFiles:{} BlockSize:{} WriteBuffer:{} ReadBuffer:{} EnableCache:{} CacheSize:{}"
             , enableDbCompression, maxOpenFiles, blockSize, writeBufferSize, readBufferSize, enableDbCache, cacheSize);
@@ -66,11 +81,33 @@ public class RocksDBWrapper extends AbstractDB {
         RocksDB.loadLibrary();
     }
 
+    /**
+     * Creates a database stored in the column family with the given name from the shared instance.
+     * The memory and disk settings are the ones of the shared instance.
+     */
+    public RocksDBWrapper(String name, RocksDBSharedInstance sharedInstance, Logger log, boolean enableDbCache, boolean enableDbCompression) {
+        super(name, sharedInstance.getPath(), log, enableDbCache, enableDbCompression);
+
+        this.maxOpenFiles = RocksDBConstants.MAX_OPEN_FILES;
+        this.blockSize = RocksDBConstants.BLOCK_SIZE;
+        this.writeBufferSize = RocksDBConstants.WRITE_BUFFER_SIZE;
+        this.readBufferSize = RocksDBConstants.READ_BUFFER_SIZE;
+        this.cacheSize = RocksDBConstants.CACHE_SIZE;
+        this.sharedInstance = sharedInstance;
+
+        LOG.info("RocksDb column family {} in shared instance {}", name, sharedInstance.getPath());
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + ":" + propertiesInfo();
     }
 
+    /** @return {@code true} when the data is stored in a column family of a shared instance */
+    public boolean isColumnFamily() {
+        return sharedInstance != null;
+    }
+
     private Options setupRocksDbOptions() {
         Options options = new Options();
 
@@ -122,6 +159,10 @@ public class RocksDBWrapper extends AbstractDB {
 
         LOG.debug("Initialising RockDB {}", this.toString());
 
+        if (sharedInstance != null) {
+            return openColumnFamily();
+        }
+
         File f = new File(path);
         File dbRoot = f.getParentFile();
 
@@ -139,6 +180,7 @@ public class RocksDBWrapper extends AbstractDB {
 
         try {
             db = RocksDB.open(options, f.getAbsolutePath());
+            handle = db.getDefaultColumnFamily();
         } catch (RocksDBException e) {
             if (e.getMessage().contains("lock")) {
                 LOG.error(
@@ -158,6 +200,19 @@ public class RocksDBWrapper extends AbstractDB {
         return isOpen();
     }
 
+    private boolean openColumnFamily() {
+        handle = sharedInstance.acquire(name);
+
+        if (handle == null) {
+            LOG.error("Failed to open the database " + this.toString() + " in " + sharedInstance.toString() + ".");
+        } else {
+            db = sharedInstance.getDatabase();
+            writeOptions = sharedInstance.getWriteOptions();
+        }
+
+        return isOpen();
+    }
+
     private WriteOptions setupWriteOptions() {
         WriteOptions options = new WriteOptions();
         options.setLowPri(true);
@@ -173,16 +228,53 @@ public class RocksDBWrapper extends AbstractDB {
 
         LOG.info("Closing database " + this.toString());
 
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+
+        if (sharedInstance != null) {
+            // the handle and the database are owned by the shared instance
+            db = null;
+            handle = null;
+            writeOptions = null;
+            sharedInstance.release(name);
+            return;
+        }
+
         // attempt to close the database
         db.close();
         db = null;
+        handle = null;
+    }
+
+    @Override
+    public void drop() {
+        if (sharedInstance == null) {
+            super.drop();
+            return;
+        }
+
+        check();
+
+        if (batch != null) {
+            batch.close();
+            batch = null;
+        }
+
+        ColumnFamilyHandle newHandle = sharedInstance.dropColumnFamily(name);
+        if (newHandle == null) {
+            LOG.error("Unable to drop " + this.toString() + ".");
+        } else {
+            handle = newHandle;
+        }
     }
 
     @Override
     public void compact() {
         LOG.info("Compacting " + this.toString() + ".");
         try {
-            db.compactRange(new byte[] {(byte) 0x00}, new byte[] {(byte) 0xff});
+            db.compactRange(handle, new byte[] {(byte) 0x00}, new byte[] {(byte) 0xff});
         } catch (RocksDBException e) {
             LOG.error("Cannot compact data.");
             e.printStackTrace();
@@ -196,6 +288,10 @@ public class RocksDBWrapper extends AbstractDB {
 
     @Override
     public boolean isCreatedOnDisk() {
+        if (sharedInstance != null) {
+            return sharedInstance.isCreatedOnDisk();
+        }
+
         // working heuristic for Ubuntu: both the LOCK and LOG files should get created on creation
         // TODO: implement a platform independent way to do this
         return new File(path, "LOCK").exists() && new File(path, "LOG").exists();
@@ -205,6 +301,15 @@ public class RocksDBWrapper extends AbstractDB {
     public long approximateSize() {
         check();
 
+        if (sharedInstance != null) {
+            try {
+                return db.getLongProperty(handle, "rocksdb.total-sst-files-size");
+            } catch (RocksDBException e) {
+                LOG.error("Unable to compute the size of " + this.toString() + ".", e);
+                return -1L;
+            }
+        }
+
         long count = 0;
 
         File[] files = (new File(path)).listFiles();
@@ -228,7 +333,7 @@ public class RocksDBWrapper extends AbstractDB {
     public boolean isEmpty() {
         check();
 
-        try (RocksIterator itr = db.newIterator()) {
+        try (RocksIterator itr = db.newIterator(handle)) {
             itr.seekToFirst();
 
             // check if there is at least one valid item
@@ -247,7 +352,7 @@ public class RocksDBWrapper extends AbstractDB {
         try {
             ReadOptions readOptions = new ReadOptions();
             readOptions.setSnapshot(db.getSnapshot());
-            return new RocksDBIteratorWrapper(readOptions, db.newIterator(readOptions));
+            return new RocksDBIteratorWrapper(readOptions, db.newIterator(handle, readOptions));
         } catch (Exception e) {
             LOG.error("Unable to extract keys from database " + this.toString() + ".", e);
         }
@@ -256,6 +361,87 @@ public class RocksDBWrapper extends AbstractDB {
         return Collections.emptyIterator();
     }
 
+    @Override
+    protected Iterator<byte[]> keysWithPrefixInternal(byte[] prefix) {
+        try {
+            ReadOptions readOptions = new ReadOptions();
+            Snapshot snapshot = db.getSnapshot();
+            readOptions.setSnapshot(snapshot);
+            RocksIterator iterator = db.newIterator(handle, readOptions);
+
+            // include the keys written by the atomic batch open in the current thread
+            if (sharedInstance != null) {
+                WriteBatchWithIndex atomicBatch = sharedInstance.getAtomicBatchForCurrentThread();
+                if (atomicBatch != null) {
+                    iterator = atomicBatch.newIteratorWithBase(handle, iterator);
+                }
+            }
+            return new RocksDBPrefixIteratorWrapper(db, snapshot, readOptions, iterator, prefix);
+        } catch (Exception e) {
+            LOG.error("Unable to extract keys from database " + this.toString() + ".", e);
+        }
+
+        // empty when retrieval failed
+        return Collections.emptyIterator();
+    }
+
+    /**
+     * An {@link Iterator} over the keys with a given prefix that seeks to the prefix and stops at
+     * the first key outside of it.
+     */
+    private static class RocksDBPrefixIteratorWrapper implements Iterator<byte[]> {
+        private final RocksDB db;
+        private final Snapshot snapshot;
+        private final ReadOptions readOptions;
+        private final RocksIterator iterator;
+        private final byte[] prefix;
+        private boolean closed;
+
+        RocksDBPrefixIteratorWrapper(
+                final RocksDB db,
+                final Snapshot snapshot,
+                final ReadOptions readOptions,
+                final RocksIterator iterator,
+                final byte[] prefix) {
+            this.db = db;
+            this.snapshot = snapshot;
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+            this.prefix = prefix;
+            iterator.seek(prefix);
+            closed = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!closed) {
+                boolean hasNext = iterator.isValid() && hasPrefix(iterator.key(), prefix);
+
+                // close iterator after last entry
+                if (!hasNext) {
+                    iterator.close();
+                    readOptions.close();
+                    db.releaseSnapshot(snapshot);
+                    closed = true;
+                }
+
+                return hasNext;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] key = iterator.key();
+            iterator.next();
+            return key;
+        }
+    }
+
     /**
      * A wrapper for the {@link RocksIterator} conforming to the {@link Iterator} interface.
      *
@@ -305,7 +491,13 @@ public class RocksDBWrapper extends AbstractDB {
     @Override
     protected byte[] getInternal(byte[] key) {
         try {
-            return db.get(key);
+            if (sharedInstance != null) {
+                WriteBatchWithIndex atomicBatch = sharedInstance.getAtomicBatchForCurrentThread();
+                if (atomicBatch != null) {
+                    return sharedInstance.getFromAtomicBatchAndDB(atomicBatch, handle, key);
+                }
+            }
+            return db.get(handle, key);
         } catch (RocksDBException e) {
             LOG.error("Unable to get key " + Arrays.toString(key) + ". " + e);
         }
@@ -313,16 +505,43 @@ public class RocksDBWrapper extends AbstractDB {
         return null;
     }
 
+    @Override
+    protected List<byte[]> getBatchInternal(Collection<byte[]> keys) {
+        if (getAtomicBatch() != null) {
+            // pending atomic updates are only visible through single key reads
+            return super.getBatchInternal(keys);
+        }
+
+        try {
+            return db.multiGetAsList(Collections.nCopies(keys.size(), handle), new ArrayList<>(keys));
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get batch of " + keys.size() + " keys. " + e);
+        }
+
+        return new ArrayList<>(Collections.nCopies(keys.size(), null));
+    }
+
     private WriteBatch batch = null;
 
     @Override
     public void putToBatchInternal(byte[] key, byte[] value) {
+        WriteBatchWithIndex atomicBatch = getAtomicBatch();
+        if (atomicBatch != null) {
+            try {
+                atomicBatch.put(handle, key, value);
+                return;
+            } catch (RocksDBException e) {
+                LOG.error("Unable to perform put to atomic batch operation on " + this.toString() + ".", e);
+                throw new RuntimeException(e);
+            }
+        }
+
         if (batch == null) {
             batch = new WriteBatch();
         }
 
         try {
-            batch.put(key, value);
+            batch.put(handle, key, value);
         } catch (RocksDBException e) {
             LOG.error("Unable to perform put to batch operation on " + this.toString() + ".", e);
             throw new RuntimeException(e);
@@ -331,12 +550,23 @@ public class RocksDBWrapper extends AbstractDB {
 
     @Override
     public void deleteInBatchInternal(byte[] key) {
+        WriteBatchWithIndex atomicBatch = getAtomicBatch();
+        if (atomicBatch != null) {
+            try {
+                atomicBatch.delete(handle, key);
+                return;
+            } catch (RocksDBException e) {
+                LOG.error("Unable to perform delete in atomic batch operation on " + this.toString() + ".", e);
+                throw new RuntimeException(e);
+            }
+        }
+
         if (batch == null) {
             batch = new WriteBatch();
         }
 
         try {
-            batch.delete(key);
+            batch.delete(handle, key);
         } catch (RocksDBException e) {
             LOG.error("Unable to perform delete in batch operation on " + this.toString() + ".", e);
             throw new RuntimeException(e);
@@ -364,6 +594,20 @@ public class RocksDBWrapper extends AbstractDB {
 
     @Override
     public void putBatchInternal(Map<byte[], byte[]> input) {
+        WriteBatchWithIndex atomicBatch = getAtomicBatch();
+        if (atomicBatch != null) {
+            try {
+                for (Map.Entry<byte[], byte[]> e : input.entrySet()) {
+                    atomicBatch.put(handle, e.getKey(), e.getValue());
+                }
+            } catch (RocksDBException e) {
+                LOG.error("Unable to execute batch put/update operation on " + this.toString() + ".", e);
+                // the atomic batch must not be committed without this update
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+
         // try-with-resources will automatically close the batch object
         try (WriteBatch batch = new WriteBatch()) {
             // add put and delete operations to batch
@@ -371,7 +615,7 @@ public class RocksDBWrapper extends AbstractDB {
                 byte[] key = e.getKey();
                 byte[] value = e.getValue();
 
-                batch.put(key, value);
+                batch.put(handle, key, value);
             }
 
             // bulk atomic update
@@ -384,10 +628,24 @@ public class RocksDBWrapper extends AbstractDB {
 
     @Override
     public void deleteBatchInternal(Collection<byte[]> keys) {
+        WriteBatchWithIndex atomicBatch = getAtomicBatch();
+        if (atomicBatch != null) {
+            try {
+                for (byte[] key : keys) {
+                    atomicBatch.delete(handle, key);
+                }
+            } catch (RocksDBException e) {
+                LOG.error("Unable to execute batch delete operation on " + this.toString() + ".", e);
+                // the atomic batch must not be committed without this update
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+
         try (WriteBatch batch = new WriteBatch()) {
             // add delete operations to batch
             for (byte[] key : keys) {
-                batch.delete(key);
+                batch.delete(handle, key);
             }
 
             // bulk atomic update
@@ -396,4 +654,12 @@ public class RocksDBWrapper extends AbstractDB {
             LOG.error("Unable to execute batch delete operation on " + this.toString() + ".", e);
         }
     }
+
+    /**
+     * @return the atomic batch of the shared instance when it was started by the current thread,
+     *     {@code null} otherwise
+     */
+    private WriteBatchWithIndex getAtomicBatch() {
+        return sharedInstance == null ? null : sharedInstance.getAtomicBatchForCurrentThread();
+    }
 }
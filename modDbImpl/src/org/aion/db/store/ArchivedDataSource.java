@@ -2,6 +2,7 @@ package org.aion.db.store;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
@@ -31,11 +32,21 @@ public class ArchivedDataSource implements ByteArrayKeyValueStore {
         return data.keys();
     }
 
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        return data.keysWithPrefix(prefix);
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         return data.get(key);
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        return data.getBatch(keys);
+    }
+
     @Override
     public void putBatch(Map<byte[], byte[]> batch) {
         // the data store will check for nulls
@@ -2,6 +2,10 @@ package org.aion.db.store;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
@@ -43,4 +47,21 @@ final class CaffeineDataSource<V> extends ObjectDataSource<V> {
         // the cache automatically loads the entries it is missing as defined in the constructor
         return cache.get(ByteArrayWrapper.wrap(key));
     }
+
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        List<ByteArrayWrapper> wrappedKeys = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            wrappedKeys.add(ByteArrayWrapper.wrap(key));
+        }
+
+        // the entries missing from the cache are loaded with a single batch request
+        Map<ByteArrayWrapper, V> found = cache.getAll(wrappedKeys, this::getAllFromDatabase);
+
+        List<V> result = new ArrayList<>(wrappedKeys.size());
+        for (ByteArrayWrapper wrappedKey : wrappedKeys) {
+            result.add(found.get(wrappedKey));
+        }
+        return result;
+    }
 }
@@ -1,5 +1,7 @@
 package org.aion.db.store;
 
+import java.util.Collection;
+import java.util.List;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
 import org.slf4j.Logger;
@@ -55,6 +57,20 @@ final class DebugLruDataSource<V> extends LruDataSource<V> {
         }
     }
 
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        // gather usage data
+        for (byte[] key : keys) {
+            if (cache.containsKey(ByteArrayWrapper.wrap(key))) {
+                hits++;
+            } else {
+                missed++;
+            }
+        }
+
+        return super.getBatch(keys);
+    }
+
     @Override
     public void close() {
         super.close();
@@ -1,7 +1,11 @@
 package org.aion.db.store;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -15,6 +19,7 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.db.impl.ByteArrayKeyValueStore;
+import org.aion.db.impl.mockdb.MockDB;
 import org.aion.util.types.ByteArrayWrapper;
 import org.slf4j.Logger;
 
@@ -24,12 +29,24 @@ import org.slf4j.Logger;
  * [storeBlockChanges] call). When the [prune] is called for a block the deletes for this block are
  * submitted to the underlying DataSource with respect to following inserts. E.g. if the key was
  * deleted at block N and then inserted at block N + 10 this delete is not passed.
+ *
+ * <p>The changes of each block and the reference counts of the journaled keys are kept in a
+ * separate journal database. Only the changes of the block currently being imported and the
+ * reference counts modified since the last stored block are held in memory, such that the memory
+ * use does not grow with the pruning window and the journal is restored after a restart.
  */
 public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final Logger LOG;
 
+    // prefixes used to distinguish the entries stored in the journal database
+    private static final byte BLOCK_PREFIX = 0x01;
+    private static final byte REF_PREFIX = 0x02;
+
+    // maximum number of keys deleted from the source with a single batch during pruning
+    private static final int PRUNE_BATCH_SIZE = 1_000;
+
     private class Updates {
         ByteArrayWrapper blockHeader;
         long blockNumber;
@@ -56,19 +73,66 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
-    Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
+    // reference counts modified since the last write to the journal
+    private final Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
 
     private ByteArrayKeyValueStore src;
-    // block hash => updates
-    private LinkedHashMap<ByteArrayWrapper, Updates> blockUpdates = new LinkedHashMap<>();
+    private final ByteArrayKeyValueDatabase journal;
+    // block hash => block number for the blocks with updates stored in the journal
+    private LinkedHashMap<ByteArrayWrapper, Long> blockUpdates = new LinkedHashMap<>();
     private Updates currentUpdates = new Updates();
     private AtomicBoolean enabled = new AtomicBoolean(false);
     private final boolean hasArchive;
 
+    /**
+     * Creates a pruning data source that keeps its journal in memory.
+     *
+     * @apiNote The journal is lost when the data source is discarded.
+     */
     public JournalPruneDataSource(ByteArrayKeyValueStore src, Logger log) {
+        this(src, newInMemoryJournal(log), log);
+    }
+
+    /**
+     * Creates a pruning data source that keeps its journal in the given database. The blocks
+     * already present in the journal are restored and will be pruned as usual.
+     *
+     * @param src the data source where the updates are applied
+     * @param journal an open database used exclusively to store the journal
+     * @param log the logger used by this data source
+     */
+    public JournalPruneDataSource(ByteArrayKeyValueStore src, ByteArrayKeyValueDatabase journal, Logger log) {
         this.src = src;
+        this.journal = journal;
         this.hasArchive = src instanceof ArchivedDataSource;
         this.LOG = log;
+        restoreJournal();
+    }
+
+    private static ByteArrayKeyValueDatabase newInMemoryJournal(Logger log) {
+        ByteArrayKeyValueDatabase journal = new MockDB("journal", log);
+        journal.open();
+        return journal;
+    }
+
+    /** Loads the hashes and numbers of the blocks stored in the journal in ascending order. */
+    private void restoreJournal() {
+        List<byte[]> blockKeys = new ArrayList<>();
+        // seeks over the reference counts, which are far more numerous than the blocks
+        Iterator<byte[]> keys = journal.keysWithPrefix(new byte[] {BLOCK_PREFIX});
+        while (keys.hasNext()) {
+            blockKeys.add(keys.next());
+        }
+
+        // sorting is required since not all database implementations return ordered keys
+        blockKeys.sort(Comparator.comparingLong(JournalPruneDataSource::blockNumberFromKey));
+        for (byte[] key : blockKeys) {
+            blockUpdates.put(blockHashFromKey(key), blockNumberFromKey(key));
+        }
+
+        if (!blockUpdates.isEmpty()) {
+            LOG.info("Restored the pruning journal for {} blocks.", blockUpdates.size());
+        }
     }
 
     public void setPruneEnabled(boolean _enabled) {
@@ -191,23 +255,55 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
     }
 
     private void incRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
         if (cnt == null) {
             cnt = new Ref(src.get(keyW.toBytes()).isPresent());
-            refCount.put(keyW, cnt);
         }
         cnt.journalRefs++;
+        refCount.put(keyW, cnt);
     }
 
     private Ref decRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
+        Ref cnt = getRef(keyW);
         cnt.journalRefs -= 1;
-        if (cnt.journalRefs == 0) {
-            refCount.remove(keyW);
-        }
+        // references that reach zero are removed from the journal on flush
+        refCount.put(keyW, cnt);
         return cnt;
     }
 
+    /**
+     * Retrieves the reference count for the given key from the recent updates or the journal.
+     *
+     * @return the reference count or {@code null} if the key is not referenced by the journal
+     */
+    private Ref getRef(ByteArrayWrapper keyW) {
+        Ref cnt = refCount.get(keyW);
+        if (cnt == null) {
+            Optional<byte[]> encoding = journal.get(refKey(keyW));
+            if (encoding.isPresent()) {
+                cnt = decodeRef(encoding.get());
+                refCount.put(keyW, cnt);
+            }
+        }
+        return cnt == null || cnt.journalRefs == 0 ? null : cnt;
+    }
+
+    /** Writes the reference counts modified since the last flush to the journal. */
+    private void flushRefs() {
+        Map<byte[], byte[]> updates = new HashMap<>();
+        List<byte[]> removed = new ArrayList<>();
+        for (Map.Entry<ByteArrayWrapper, Ref> entry : refCount.entrySet()) {
+            if (entry.getValue().journalRefs == 0) {
+                removed.add(refKey(entry.getKey()));
+            } else {
+                updates.put(refKey(entry.getKey()), encodeRef(entry.getValue()));
+            }
+        }
+        journal.putBatch(updates);
+        journal.deleteBatch(removed);
+        refCount.clear();
+    }
+
     public void storeBlockChanges(ByteArrayWrapper blockHash, long blockNumber) {
         if (!enabled.get()) {
             return;
@@ -218,7 +314,12 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         try {
             currentUpdates.blockHeader = blockHash;
             currentUpdates.blockNumber = blockNumber;
-            blockUpdates.put(blockHash, currentUpdates);
+
+            // the block updates and the matching reference counts are journaled together
+            journal.putBatch(Collections.singletonMap(blockKey(blockHash, blockNumber), encodeUpdates(currentUpdates)));
+            flushRefs();
+
+            blockUpdates.put(blockHash, blockNumber);
             currentUpdates = new Updates();
         } finally {
             lock.writeLock().unlock();
@@ -233,7 +334,7 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         lock.writeLock().lock();
 
         try {
-            Updates updates = blockUpdates.remove(blockHash);
+            Updates updates = removeBlockUpdates(blockHash);
             if (updates != null) {
                 for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
                     decRef(insertedKey).dbRef = true;
@@ -241,47 +342,160 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
 
                 List<byte[]> batchRemove = new ArrayList<>();
                 for (ByteArrayWrapper key : updates.deletedKeys) {
-                    Ref ref = refCount.get(key);
-                    if (ref == null || ref.journalRefs == 0) {
+                    Ref ref = getRef(key);
+                    if (ref == null) {
                         batchRemove.add(key.toBytes());
-                    } else if (ref != null) {
+                        batchRemove = deleteIfFull(batchRemove);
+                    } else {
                         ref.dbRef = false;
                     }
                 }
                 src.deleteBatch(batchRemove);
 
                 rollbackForkBlocks(blockNumber);
+                flushRefs();
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Deletes the given keys from the source when the batch has reached {@link #PRUNE_BATCH_SIZE}
+     * such that the deletes are streamed to the source instead of being accumulated.
+     *
+     * @return the batch to be used for the following deletes
+     */
+    private List<byte[]> deleteIfFull(List<byte[]> batchRemove) {
+        if (batchRemove.size() >= PRUNE_BATCH_SIZE) {
+            src.deleteBatch(batchRemove);
+            return new ArrayList<>();
+        } else {
+            return batchRemove;
+        }
+    }
+
     private void rollbackForkBlocks(long blockNum) {
-        for (Updates updates : new ArrayList<>(blockUpdates.values())) {
-            if (updates.blockNumber == blockNum) {
-                rollback(updates.blockHeader);
+        for (Map.Entry<ByteArrayWrapper, Long> entry : new ArrayList<>(blockUpdates.entrySet())) {
+            if (entry.getValue() == blockNum) {
+                rollback(entry.getKey());
             }
         }
     }
 
     private void rollback(ByteArrayWrapper blockHashW) {
-        Updates updates = blockUpdates.remove(blockHashW);
+        Updates updates = removeBlockUpdates(blockHashW);
         List<byte[]> batchRemove = new ArrayList<>();
         for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
             Ref ref = decRef(insertedKey);
             if (ref.getTotRefs() == 0) {
                 batchRemove.add(insertedKey.toBytes());
+                batchRemove = deleteIfFull(batchRemove);
             }
         }
         src.deleteBatch(batchRemove);
     }
 
-    public Map<ByteArrayWrapper, Ref> getRefCount() {
-        return refCount;
+    /**
+     * Removes the updates for the given block from the journal.
+     *
+     * @return the updates stored for the block or {@code null} if the block is not journaled
+     */
+    private Updates removeBlockUpdates(ByteArrayWrapper blockHash) {
+        Long blockNumber = blockUpdates.remove(blockHash);
+        if (blockNumber == null) {
+            return null;
+        }
+
+        byte[] key = blockKey(blockHash, blockNumber);
+        Optional<byte[]> encoding = journal.get(key);
+        journal.deleteBatch(Collections.singletonList(key));
+
+        if (encoding.isPresent()) {
+            Updates updates = decodeUpdates(encoding.get());
+            updates.blockHeader = blockHash;
+            updates.blockNumber = blockNumber;
+            return updates;
+        } else {
+            LOG.error("Missing pruning journal entry for block hash={} number={}.", blockHash, blockNumber);
+            return new Updates();
+        }
+    }
+
+    private static byte[] refKey(ByteArrayWrapper key) {
+        byte[] keyBytes = key.toBytes();
+        byte[] refKey = new byte[keyBytes.length + 1];
+        refKey[0] = REF_PREFIX;
+        System.arraycopy(keyBytes, 0, refKey, 1, keyBytes.length);
+        return refKey;
+    }
+
+    private static byte[] encodeRef(Ref ref) {
+        return ByteBuffer.allocate(Integer.BYTES + 1).putInt(ref.journalRefs).put((byte) (ref.dbRef ? 1 : 0)).array();
+    }
+
+    private static Ref decodeRef(byte[] encoding) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoding);
+        int journalRefs = buffer.getInt();
+        Ref ref = new Ref(buffer.get() == 1);
+        ref.journalRefs = journalRefs;
+        return ref;
+    }
+
+    /** The block number precedes the hash in the key such that the entries are sorted by height. */
+    private static byte[] blockKey(ByteArrayWrapper blockHash, long blockNumber) {
+        byte[] hash = blockHash.toBytes();
+        return ByteBuffer.allocate(1 + Long.BYTES + hash.length).put(BLOCK_PREFIX).putLong(blockNumber).put(hash).array();
+    }
+
+    private static long blockNumberFromKey(byte[] key) {
+        return ByteBuffer.wrap(key, 1, Long.BYTES).getLong();
+    }
+
+    private static ByteArrayWrapper blockHashFromKey(byte[] key) {
+        return ByteArrayWrapper.wrap(Arrays.copyOfRange(key, 1 + Long.BYTES, key.length));
+    }
+
+    private static byte[] encodeUpdates(Updates updates) {
+        int size = 2 * Integer.BYTES;
+        for (ByteArrayWrapper key : updates.insertedKeys) {
+            size += Integer.BYTES + key.length();
+        }
+        for (ByteArrayWrapper key : updates.deletedKeys) {
+            size += Integer.BYTES + key.length();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        encodeKeys(buffer, updates.insertedKeys);
+        encodeKeys(buffer, updates.deletedKeys);
+        return buffer.array();
+    }
+
+    private static void encodeKeys(ByteBuffer buffer, Set<ByteArrayWrapper> keys) {
+        buffer.putInt(keys.size());
+        for (ByteArrayWrapper key : keys) {
+            buffer.putInt(key.length()).put(key.toBytes());
+        }
+    }
+
+    private Updates decodeUpdates(byte[] encoding) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoding);
+        Updates updates = new Updates();
+        decodeKeys(buffer, updates.insertedKeys);
+        decodeKeys(buffer, updates.deletedKeys);
+        return updates;
     }
 
-    public LinkedHashMap<ByteArrayWrapper, Updates> getBlockUpdates() {
+    private static void decodeKeys(ByteBuffer buffer, Set<ByteArrayWrapper> keys) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[buffer.getInt()];
+            buffer.get(key);
+            keys.add(ByteArrayWrapper.wrap(key));
+        }
+    }
+
+    public Map<ByteArrayWrapper, Long> getBlockUpdates() {
         return blockUpdates;
     }
 
@@ -316,6 +530,19 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        lock.readLock().lock();
+        try {
+            return src.getBatch(keys);
+        } catch (Exception e) {
+            LOG.error("Could not get batch due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public Iterator<byte[]> keys() {
         lock.readLock().lock();
@@ -329,6 +556,19 @@ public class JournalPruneDataSource implements ByteArrayKeyValueStore {
         }
     }
 
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        lock.readLock().lock();
+        try {
+            return src.keysWithPrefix(prefix);
+        } catch (Exception e) {
+            LOG.error("Could not get keys due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public void close() {
         lock.writeLock().lock();
@@ -1,5 +1,9 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
 import org.aion.util.types.ByteArrayWrapper;
 import org.apache.commons.collections4.map.LRUMap;
@@ -42,4 +46,28 @@ class LruDataSource<V> extends ObjectDataSource<V> {
             return val;
         }
     }
+
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        List<ByteArrayWrapper> wrappedKeys = new ArrayList<>(keys.size());
+        List<ByteArrayWrapper> missing = new ArrayList<>();
+        for (byte[] key : keys) {
+            ByteArrayWrapper wrappedKey = ByteArrayWrapper.wrap(key);
+            wrappedKeys.add(wrappedKey);
+            if (!cache.containsKey(wrappedKey)) {
+                missing.add(wrappedKey);
+            }
+        }
+
+        Map<ByteArrayWrapper, V> loaded = missing.isEmpty() ? Map.of() : getAllFromDatabase(missing);
+        for (ByteArrayWrapper wrappedKey : missing) {
+            cache.put(wrappedKey, loaded.get(wrappedKey));
+        }
+
+        List<V> result = new ArrayList<>(wrappedKeys.size());
+        for (ByteArrayWrapper wrappedKey : wrappedKeys) {
+            result.add(loaded.containsKey(wrappedKey) ? loaded.get(wrappedKey) : cache.get(wrappedKey));
+        }
+        return result;
+    }
 }
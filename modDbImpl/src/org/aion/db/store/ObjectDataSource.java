@@ -1,7 +1,14 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.util.types.ByteArrayWrapper;
 
 /**
  * Object Datasource.
@@ -46,6 +53,34 @@ class ObjectDataSource<V> implements ObjectStore<V> {
         return val.map(serializer::deserialize).orElse(null);
     }
 
+    @Override
+    public List<V> getBatch(Collection<byte[]> keys) {
+        List<byte[]> values = src.getBatch(keys);
+        List<V> result = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            result.add(value == null ? null : serializer.deserialize(value));
+        }
+        return result;
+    }
+
+    // used by inheriting classes when loading the entries missing from their cache
+    protected Map<ByteArrayWrapper, V> getAllFromDatabase(Iterable<? extends ByteArrayWrapper> keys) {
+        List<byte[]> rawKeys = new ArrayList<>();
+        for (ByteArrayWrapper key : keys) {
+            rawKeys.add(key.toBytes());
+        }
+
+        Map<ByteArrayWrapper, V> found = new HashMap<>();
+        Iterator<byte[]> values = src.getBatch(rawKeys).iterator();
+        for (byte[] key : rawKeys) {
+            byte[] value = values.next();
+            if (value != null) {
+                found.put(ByteArrayWrapper.wrap(key), serializer.deserialize(value));
+            }
+        }
+        return found;
+    }
+
     /** Returns the underlying cache source. */
     protected ByteArrayKeyValueDatabase getSrc() {
         return src;
@@ -1,6 +1,8 @@
 package org.aion.db.store;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A key value store that interacts with objects that are serialized to byte arrays and deserialized
@@ -35,6 +37,16 @@ public interface ObjectStore<V> extends Closeable {
      */
     V get(byte[] key);
 
+    /**
+     * Retrieves the objects stored at the given keys, reading all the entries that must be loaded
+     * from the underlying database with a single batch request.
+     *
+     * @return a list with the objects in the iteration order of the given keys, containing {@code
+     *     null} for keys without a stored object
+     * @apiNote Same as {@link #get(byte[])}, uncommitted changes are not guaranteed to be retrieved.
+     */
+    List<V> getBatch(Collection<byte[]> keys);
+
     /** Returns {@code true} to indicate that the database is open, {@code false} otherwise. */
     boolean isOpen();
 }
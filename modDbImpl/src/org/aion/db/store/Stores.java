@@ -41,6 +41,15 @@ public final class Stores {
         return ds.buildObjectSource();
     }
 
+    /**
+     * Creates an object store with a cache that can be read from multiple threads without
+     * external locking. Concurrent writes must still be coordinated by the caller.
+     */
+    public static <V> ObjectStore<V> newConcurrentObjectStoreWithCache(ByteArrayKeyValueDatabase database, Serializer<V> serializer, int size) {
+        // the Caffeine cache is thread-safe regardless of its size, unlike the LRU map
+        return new DataSource<>(database, serializer).withCache(size, Type.Window_TinyLfu).buildObjectSource();
+    }
+
     public static <V> ObjectStore<V> newObjectStoreWithDebugCache(ByteArrayKeyValueDatabase database,Serializer<V> serializer, int size, Logger log, boolean isLocked) {
         DataSource<V> ds;
         if (size >= 200) {
@@ -1,8 +1,11 @@
 package org.aion.db.store;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.aion.db.impl.ByteArrayKeyValueStore;
@@ -28,11 +31,35 @@ public class XorDataSource implements ByteArrayKeyValueStore {
         return source.get(convertKey(key));
     }
 
+    @Override
+    public List<byte[]> getBatch(Collection<byte[]> keys) {
+        List<byte[]> converted = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            converted.add(convertKey(key));
+        }
+        return source.getBatch(converted);
+    }
+
     @Override
     public Iterator<byte[]> keys() {
         return new XorDSIteratorWrapper(source.keys());
     }
 
+    @Override
+    public Iterator<byte[]> keysWithPrefix(byte[] prefix) {
+        // the converted keys do not preserve prefixes so all the keys must be filtered
+        List<byte[]> keys = new ArrayList<>();
+        Iterator<byte[]> iterator = keys();
+        while (iterator.hasNext()) {
+            byte[] key = iterator.next();
+            if (key.length >= prefix.length
+                    && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length)) {
+                keys.add(key);
+            }
+        }
+        return keys.iterator();
+    }
+
     /**
      * A wrapper for the iterator needed by {@link XorDataSource} conforming to the {@link Iterator}
      * interface.
@@ -174,6 +174,27 @@ public class AccessWithExceptionTest {
         db.deleteBatch(list);
     }
 
+    @Test(expected = RuntimeException.class)
+    @Parameters(method = "databaseInstanceDefinitions")
+    public void testGetBatchWithClosedDatabase(Properties dbDef) {
+        // create database
+        dbDef.setProperty(DB_NAME, DatabaseTestUtils.dbName + DatabaseTestUtils.getNext());
+        ByteArrayKeyValueDatabase db = DatabaseFactory.connect(dbDef, log);
+        assertThat(db.isOpen()).isFalse();
+
+        List<byte[]> list = new ArrayList<>();
+        list.add(DatabaseTestUtils.randomBytes(32));
+        list.add(DatabaseTestUtils.randomBytes(32));
+        list.add(DatabaseTestUtils.randomBytes(32));
+
+        if (VERBOSE) {
+            System.out.println(db.toString());
+        }
+
+        // attempt getBatch on closed db
+        db.getBatch(list);
+    }
+
     @Test(expected = RuntimeException.class)
     @Parameters(method = "databaseInstanceDefinitions")
     public void testCommitWithClosedDatabase(Properties dbDef) {
@@ -20,6 +20,7 @@ import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.PersistentMockDB;
 import org.aion.db.utils.FileUtils;
 import org.aion.log.AionLoggerFactory;
+import org.aion.util.types.ByteArrayWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -528,6 +529,55 @@ public class DriverBaseTest {
         assertThat(db.isLocked()).isFalse();
     }
 
+    @Test
+    public void testGetBatch() {
+        Map<byte[], byte[]> map = new HashMap<>();
+        map.put(k1, v1);
+        map.put(k3, v3);
+        db.putBatch(map);
+
+        // values are returned in the order of the keys with null for missing keys
+        List<byte[]> values = db.getBatch(Arrays.asList(k3, k2, k1));
+        assertThat(values.size()).isEqualTo(3);
+        assertThat(values.get(0)).isEqualTo(v3);
+        assertThat(values.get(1)).isNull();
+        assertThat(values.get(2)).isEqualTo(v1);
+
+        assertThat(db.getBatch(new ArrayList<>())).isEmpty();
+
+        // ensure unlocked
+        assertThat(db.isLocked()).isFalse();
+    }
+
+    @Test
+    public void testKeysWithPrefix() {
+        byte[] prefix = new byte[] {1, 2};
+        Map<byte[], byte[]> map = new HashMap<>();
+        map.put(new byte[] {0, 9}, v1);
+        map.put(new byte[] {1, 2}, v1);
+        map.put(new byte[] {1, 2, 3}, v2);
+        map.put(new byte[] {1, 2, 4}, v3);
+        map.put(new byte[] {1, 3, 0}, v1);
+        map.put(new byte[] {2}, v2);
+        db.putBatch(map);
+
+        List<ByteArrayWrapper> keys = new ArrayList<>();
+        Iterator<byte[]> iterator = db.keysWithPrefix(prefix);
+        while (iterator.hasNext()) {
+            keys.add(ByteArrayWrapper.wrap(iterator.next()));
+        }
+        assertThat(keys)
+                .containsExactly(
+                        ByteArrayWrapper.wrap(new byte[] {1, 2}),
+                        ByteArrayWrapper.wrap(new byte[] {1, 2, 3}),
+                        ByteArrayWrapper.wrap(new byte[] {1, 2, 4}));
+
+        assertThat(db.keysWithPrefix(new byte[] {3}).hasNext()).isFalse();
+
+        // ensure unlocked
+        assertThat(db.isLocked()).isFalse();
+    }
+
     @Test
     public void testUpdate() {
         // ensure existence
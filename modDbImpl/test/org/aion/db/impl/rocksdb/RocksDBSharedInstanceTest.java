@@ -0,0 +1,186 @@
+package org.aion.db.impl.rocksdb;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.db.impl.ByteArrayKeyValueDatabase;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.db.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RocksDBSharedInstanceTest {
+
+    private static final File testDir = new File(System.getProperty("user.dir"), "tmp-shared");
+    private static final Logger log = LoggerFactory.getLogger("DB");
+
+    private final byte[] k1 = "key1".getBytes();
+    private final byte[] k2 = "key2".getBytes();
+    private final byte[] v1 = "value1".getBytes();
+    private final byte[] v2 = "value2".getBytes();
+
+    private RocksDBSharedInstance instance;
+
+    @Before
+    public void setup() {
+        FileUtils.deleteRecursively(testDir);
+        instance = new RocksDBSharedInstance(testDir.getAbsolutePath(), log, false);
+    }
+
+    @After
+    public void teardown() {
+        instance.close();
+        assertThat(FileUtils.deleteRecursively(testDir)).isTrue();
+    }
+
+    private ByteArrayKeyValueDatabase connect(String name) {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_NAME, name);
+        ByteArrayKeyValueDatabase db = DatabaseFactory.connect(instance, props, log);
+        assertThat(db.open()).isTrue();
+        return db;
+    }
+
+    @Test
+    public void testColumnFamiliesAreIndependent() {
+        ByteArrayKeyValueDatabase state = connect("state");
+        ByteArrayKeyValueDatabase block = connect("block");
+
+        state.putBatch(new HashMap<>(Map.of(k1, v1)));
+        block.putBatch(new HashMap<>(Map.of(k1, v2)));
+
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k1).get()).isEqualTo(v2);
+
+        List<byte[]> values = state.getBatch(Arrays.asList(k2, k1));
+        assertThat(values.get(0)).isNull();
+        assertThat(values.get(1)).isEqualTo(v1);
+
+        Iterator<byte[]> keys = state.keys();
+        assertThat(keys.hasNext()).isTrue();
+        assertThat(keys.next()).isEqualTo(k1);
+        assertThat(keys.hasNext()).isFalse();
+
+        block.drop();
+        assertThat(block.isEmpty()).isTrue();
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+
+        state.close();
+        block.close();
+        assertThat(instance.isOpen()).isFalse();
+    }
+
+    @Test
+    public void testDataPersistsAfterReopen() {
+        ByteArrayKeyValueDatabase state = connect("state");
+        state.put(k1, v1);
+        state.commit();
+        state.close();
+        assertThat(instance.isOpen()).isFalse();
+
+        state = connect("state");
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        state.close();
+    }
+
+    @Test
+    public void testAtomicWrite() throws InterruptedException {
+        ByteArrayKeyValueDatabase state = connect("state");
+        ByteArrayKeyValueDatabase block = connect("block");
+
+        instance.startAtomicWrite();
+        state.put(k1, v1);
+        state.commit();
+        block.putBatch(new HashMap<>(Map.of(k2, v2)));
+
+        // the pending updates are visible to the writing thread
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+        assertThat(state.getBatch(Arrays.asList(k1)).get(0)).isEqualTo(v1);
+
+        // nested calls do not write the batch
+        instance.startAtomicWrite();
+        block.delete(k2);
+        instance.commitAtomicWrite();
+        assertThat(block.get(k2).isPresent()).isFalse();
+
+        // other threads do not see the updates before the commit
+        AtomicBoolean presentBeforeCommit = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> presentBeforeCommit.set(state.get(k1).isPresent()));
+        reader.start();
+        reader.join();
+        assertThat(presentBeforeCommit.get()).isFalse();
+
+        instance.commitAtomicWrite();
+
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).isPresent()).isFalse();
+
+        state.close();
+        block.close();
+    }
+
+    @Test
+    public void testAbortAtomicWrite() {
+        ByteArrayKeyValueDatabase state = connect("state");
+        ByteArrayKeyValueDatabase block = connect("block");
+        state.putBatch(new HashMap<>(Map.of(k1, v1)));
+
+        instance.startAtomicWrite();
+        state.deleteBatch(Arrays.asList(k1));
+        instance.startAtomicWrite();
+        block.putBatch(new HashMap<>(Map.of(k2, v2)));
+
+        // discards the updates of the enclosing calls too
+        instance.abortAtomicWrite();
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).isPresent()).isFalse();
+
+        // the commit of the enclosing call has no effect
+        instance.commitAtomicWrite();
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(block.get(k2).isPresent()).isFalse();
+
+        // the following updates are written directly
+        block.putBatch(new HashMap<>(Map.of(k2, v2)));
+        assertThat(block.get(k2).get()).isEqualTo(v2);
+
+        state.close();
+        block.close();
+    }
+
+    @Test
+    public void testKeysWithPrefixInAtomicWrite() {
+        ByteArrayKeyValueDatabase state = connect("state");
+        byte[] k3 = "key3".getBytes();
+        byte[] other = "other".getBytes();
+        state.putBatch(new HashMap<>(Map.of(k1, v1, k2, v2, other, v1)));
+
+        // the keys updated by the atomic batch of the current thread are visible
+        instance.startAtomicWrite();
+        state.deleteBatch(Arrays.asList(k1));
+        state.putBatch(new HashMap<>(Map.of(k3, v2)));
+
+        List<String> keys = new ArrayList<>();
+        Iterator<byte[]> iterator = state.keysWithPrefix("key".getBytes());
+        while (iterator.hasNext()) {
+            keys.add(new String(iterator.next()));
+        }
+        assertThat(keys).containsExactly("key2", "key3").inOrder();
+
+        instance.commitAtomicWrite();
+        state.close();
+    }
+}
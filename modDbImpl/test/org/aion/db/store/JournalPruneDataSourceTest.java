@@ -1278,6 +1278,62 @@ public class JournalPruneDataSourceTest {
         assertThat(source_db.get(k2).isPresent()).isFalse();
     }
 
+    @Test
+    public void pruningTest_wRestart() {
+        MockDB journal = new MockDB("journal", log);
+        assertThat(journal.open()).isTrue();
+        db = new JournalPruneDataSource(source_db, journal, log);
+        db.setPruneEnabled(true);
+
+        // block 0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.put(k3, v3);
+        db.commit();
+        db.storeBlockChanges(b0, 0);
+
+        // block 1
+        db.put(k4, v4);
+        db.delete(k2);
+        db.commit();
+        db.storeBlockChanges(b1, 1);
+
+        // block 2
+        db.put(k2, v3);
+        db.delete(k3);
+        db.commit();
+        db.storeBlockChanges(b2, 2);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(3);
+
+        // restart with the same journal
+        db = new JournalPruneDataSource(source_db, journal, log);
+        db.setPruneEnabled(true);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(3);
+        assertThat(db.getBlockUpdates().get(b0)).isEqualTo(0L);
+        assertThat(db.getBlockUpdates().get(b2)).isEqualTo(2L);
+
+        // prune block 0
+        db.prune(b0, 0);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(2);
+        assertThat(source_db.get(k1).get()).isEqualTo(v1);
+        assertThat(source_db.get(k3).get()).isEqualTo(v3);
+
+        // prune block 1
+        db.prune(b1, 1);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(1);
+        // not deleted due to block 2 insert
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+
+        // prune block 2
+        db.prune(b2, 2);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+
+        // the journal holds no entries after all the blocks were pruned
+        assertThat(journal.isEmpty()).isTrue();
+        journal.close();
+    }
+
     @Test
     public void pruningTest_wBatch() {
         db.setPruneEnabled(true);
@@ -1,5 +1,7 @@
 package org.aion.p2p;
 
+import java.nio.ByteBuffer;
+
 /** @author chris */
 public abstract class Handler {
 
@@ -26,5 +28,21 @@ public abstract class Handler {
      */
     public abstract void receive(int _id, String _displayId, final byte[] _msg);
 
+    /**
+     * Receives a message from the buffer it was read into. The buffer is reused once this method
+     * returns, therefore neither the buffer nor anything decoded by reference from it may be kept
+     * or handed to another thread. The default implementation copies the message for {@link
+     * #receive(int, String, byte[])}.
+     *
+     * @param _id int
+     * @param _displayId String
+     * @param _msg ByteBuffer holding the message between its position and limit
+     */
+    public void receiveBuffer(int _id, String _displayId, final ByteBuffer _msg) {
+        byte[] msg = new byte[_msg.remaining()];
+        _msg.get(msg);
+        receive(_id, _displayId, msg);
+    }
+
     public void shutDown() {}
 }
@@ -8,10 +8,15 @@ public class Header {
     public static final int LEN = 8;
 
     private static final int MAX_BODY_LEN_BYTES = P2pConstant.MAX_BODY_SIZE;
+
+    // the highest bit of the body length marks a compressed body, valid lengths never reach it
+    private static final int FLAG_COMPRESSED = 0x80000000;
+
     private final short ver;
     private final byte ctrl;
     private final byte action;
     private int len;
+    private boolean compressed;
 
     /**
      * @param _ver short
@@ -55,11 +60,30 @@ public class Header {
         this.len = _len;
     }
 
+    /** @return true when the body was compressed by the sender */
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
     /** @return byte[] */
     public byte[] encode() {
         return ByteBuffer.allocate(LEN).putInt(this.getRoute()).putInt(len).array();
     }
 
+    /**
+     * Encodes the header of a message whose body was compressed to the given length. The header
+     * itself is not modified, since message headers are shared between the peers.
+     *
+     * @param _compressedLen the length of the compressed body
+     * @return byte[]
+     */
+    public byte[] encodeCompressed(int _compressedLen) {
+        return ByteBuffer.allocate(LEN)
+                .putInt(this.getRoute())
+                .putInt(_compressedLen | FLAG_COMPRESSED)
+                .array();
+    }
+
     /**
      * @param _headerBytes byte[]
      * @return Header
@@ -73,10 +97,14 @@ public class Header {
             byte ctrl = bb1.get();
             byte action = bb1.get();
             int len = bb1.getInt();
+            boolean compressed = (len & FLAG_COMPRESSED) != 0;
+            len &= ~FLAG_COMPRESSED;
             if (len > MAX_BODY_LEN_BYTES) {
                 throw new IndexOutOfBoundsException("exceed-max-body-size");
             }
-            return new Header(ver, ctrl, action, len);
+            Header header = new Header(ver, ctrl, action, len);
+            header.compressed = compressed;
+            return header;
         }
     }
 }
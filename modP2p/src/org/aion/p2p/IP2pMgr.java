@@ -5,6 +5,8 @@ import java.math.BigInteger;
 import java.nio.channels.SocketChannel;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /** @author chris */
 public interface IP2pMgr {
@@ -24,6 +26,23 @@ public interface IP2pMgr {
      */
     void send(int _id, String _displayId, final Msg _msg);
 
+    /**
+     * Sends the message to the active peers accepted by the given filter.
+     *
+     * @implNote The default implementation sends the message to each peer separately.
+     *     Implementations should encode the message once and share the encoding between the peers.
+     * @param _msg Msg
+     * @param _filter selects the peers that receive the message
+     * @return the peers the message was sent to
+     */
+    default List<INode> broadcast(final Msg _msg, Predicate<INode> _filter) {
+        List<INode> peers = getActiveNodes().values().stream().filter(_filter).collect(Collectors.toList());
+        for (INode peer : peers) {
+            send(peer.getIdHash(), peer.getIdShort(), _msg);
+        }
+        return peers;
+    }
+
     /** Used to hook up with kernel to shutdown threads in network module. */
     void shutdown();
 
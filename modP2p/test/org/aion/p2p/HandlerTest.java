@@ -1,13 +1,17 @@
 package org.aion.p2p;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.nio.ByteBuffer;
 import org.junit.Test;
 
 public class HandlerTest {
 
     class TestHandler extends Handler {
+        byte[] received;
+
         /**
          * @param _ver short
          * @param _ctrl byte
@@ -18,7 +22,9 @@ public class HandlerTest {
         }
 
         @Override
-        public void receive(int _id, String _displayId, byte[] _msg) {}
+        public void receive(int _id, String _displayId, byte[] _msg) {
+            received = _msg;
+        }
     }
 
     @Test
@@ -66,4 +72,18 @@ public class HandlerTest {
 
         mockHandler.shutDown();
     }
+
+    @Test
+    public void testReceiveBuffer() {
+        TestHandler handler = new TestHandler((short) 0, (byte) 0, (byte) 0);
+        byte[] array = new byte[] {0, 1, 2, 3, 4};
+        ByteBuffer msg = ByteBuffer.wrap(array, 1, 3);
+
+        handler.receiveBuffer(0, "node", msg);
+        assertArrayEquals(new byte[] {1, 2, 3}, handler.received);
+
+        // the message is copied from the buffer that is reused after the call
+        array[1] = 9;
+        assertEquals(1, handler.received[0]);
+    }
 }
@@ -1,6 +1,8 @@
 package org.aion.p2p;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.concurrent.ThreadLocalRandom;
 import org.junit.Before;
@@ -71,6 +73,25 @@ public class HeaderTest {
         Header.decode(bytes);
     }
 
+    @Test
+    public void encodeDecodeCompressed() {
+        byte[] bytes = hd.encodeCompressed(P2pConstant.MAX_BODY_SIZE);
+        Header hdr = Header.decode(bytes);
+        assertTrue(hdr.isCompressed());
+        assertEquals(P2pConstant.MAX_BODY_SIZE, hdr.getLen());
+        assertEquals(route, hdr.getRoute());
+
+        // the shared header is left unchanged
+        assertFalse(hd.isCompressed());
+        assertEquals(length, hd.getLen());
+        assertFalse(Header.decode(hd.encode()).isCompressed());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void encodeDecodeCompressedThrow() {
+        Header.decode(hd.encodeCompressed(P2pConstant.MAX_BODY_SIZE + 1));
+    }
+
     @Test
     public void repeatEncodeDecode() {
         for (int i = 0; i < 100; i++) {
@@ -15,10 +15,25 @@ public final class ResHandshake1 extends ResHandshake {
     private final Logger p2pLOG;
     private String binaryVersion;
 
+    // optional trailing byte, ignored by the peers that do not support any capability
+    private final byte capabilities;
+
     public ResHandshake1(final Logger p2pLOG, boolean _success, @Nonnull final String _binaryVersion) {
+        this(p2pLOG, _success, _binaryVersion, (byte) 0);
+    }
+
+    /**
+     * @param _capabilities byte bit set of the optional protocol features supported by the node
+     */
+    public ResHandshake1(
+            final Logger p2pLOG,
+            boolean _success,
+            @Nonnull final String _binaryVersion,
+            byte _capabilities) {
         super(_success);
 
         this.p2pLOG = p2pLOG;
+        this.capabilities = _capabilities;
 
         // truncate string when byte length large then 127
         if (_binaryVersion.getBytes().length > Byte.MAX_VALUE) {
@@ -50,7 +65,11 @@ public final class ResHandshake1 extends ResHandshake {
                         }
                         return null;
                     }
-                    return new ResHandshake1(p2pLOG, _bytes[0] == 0x01, binaryVersion);
+                    // decode capabilities
+                    byte capabilities =
+                            _bytes.length > MIN_LEN + len ? _bytes[MIN_LEN + len] : 0;
+                    return new ResHandshake1(
+                            p2pLOG, _bytes[0] == 0x01, binaryVersion, capabilities);
                 } else {
                     if (p2pLOG.isDebugEnabled()) {
                         p2pLOG.debug(
@@ -73,6 +92,11 @@ public final class ResHandshake1 extends ResHandshake {
         return this.binaryVersion;
     }
 
+    /** @return byte the capabilities of the node, 0 for nodes that do not send any */
+    public byte getCapabilities() {
+        return this.capabilities;
+    }
+
     @Override
     public byte[] encode() {
         byte[] superBytes = super.encode();
@@ -100,10 +124,14 @@ public final class ResHandshake1 extends ResHandshake {
                 return null;
             }
         }
-        ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + len);
+        int capabilitiesLen = this.capabilities == 0 ? 0 : 1;
+        ByteBuffer buf = ByteBuffer.allocate(superBytes.length + 1 + len + capabilitiesLen);
         buf.put(superBytes);
         buf.put((byte) len);
         buf.put(binaryVersionBytes);
+        if (capabilitiesLen > 0) {
+            buf.put(this.capabilities);
+        }
         return buf.array();
     }
 }
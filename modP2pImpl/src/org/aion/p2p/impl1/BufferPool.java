@@ -0,0 +1,105 @@
+package org.aion.p2p.impl1;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.p2p.P2pConstant;
+
+/**
+ * A pool of buffers in power-of-two size classes in which the received messages are assembled.
+ * Reusing the buffers avoids allocating a new array for every message, which for sync responses of
+ * several megabytes means large objects that are allocated directly in the old generation.
+ *
+ * <p>The buffers are backed by arrays so that the decoders can read the messages in place. They are
+ * acquired by the selector loops and released by the workers once the handlers returned, so the
+ * pool is thread safe. A buffer must be released at most once, and buffers that are never released
+ * are reclaimed by the garbage collector.
+ */
+final class BufferPool {
+
+    private static final int MIN_CLASS_SHIFT = 12;
+    static final int MIN_CLASS_SIZE = 1 << MIN_CLASS_SHIFT;
+    static final int MAX_CLASS_SIZE = classSize(classIndex(P2pConstant.MAX_BODY_SIZE));
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final List<Deque<ByteBuffer>> classes;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+
+    /** @param maxPooledBytes the capacity over which released buffers are left to the collector */
+    BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        int count = classIndex(MAX_CLASS_SIZE) + 1;
+        List<Deque<ByteBuffer>> classes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            classes.add(new ConcurrentLinkedDeque<>());
+        }
+        this.classes = Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Returns a buffer with a limit of the given size and a capacity of its size class.
+     *
+     * @throws IllegalArgumentException when the size is negative or above the max body size
+     */
+    ByteBuffer acquire(int size) {
+        if (size < 0 || size > MAX_CLASS_SIZE) {
+            throw new IllegalArgumentException("invalid buffer size: " + size);
+        }
+        if (size == 0) {
+            return EMPTY.duplicate();
+        }
+
+        int index = classIndex(size);
+        // the last released buffer is the most likely to still be cached
+        ByteBuffer buffer = classes.get(index).pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(classSize(index));
+        } else {
+            pooledBytes.addAndGet(-buffer.capacity());
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /** Returns a buffer obtained from {@link #acquire} to the pool. */
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        // ignores the empty buffers and any buffer that does not fill a size class
+        if (capacity < MIN_CLASS_SIZE
+                || capacity > MAX_CLASS_SIZE
+                || Integer.bitCount(capacity) != 1
+                || !buffer.hasArray()
+                || buffer.arrayOffset() != 0
+                || buffer.isReadOnly()) {
+            return;
+        }
+
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        classes.get(classIndex(capacity)).offerFirst(buffer);
+    }
+
+    /** Returns the capacity of the buffers held by the pool. */
+    long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+    }
+
+    private static int classSize(int index) {
+        return MIN_CLASS_SIZE << index;
+    }
+}
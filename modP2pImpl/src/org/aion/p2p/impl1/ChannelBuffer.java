@@ -1,30 +1,46 @@
 package org.aion.p2p.impl1;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import org.aion.p2p.Header;
+import org.aion.p2p.P2pConstant;
 import org.slf4j.Logger;
 
 /** @author chris */
 class ChannelBuffer {
 
-    byte[] body = null;
-    Lock lock = new ReentrantLock();
+    // bounds of the outbound queue, a single message is always accepted by an empty queue
+    static final int MAX_OUTBOUND_MESSAGES = 1024;
+    static final long MAX_OUTBOUND_BYTES = P2pConstant.MAX_BODY_SIZE;
+
+    // pooled buffer in which the body of the current message is assembled
+    ByteBuffer body = null;
     private Header header = null;
-    // buffer for buffer remaining after NIO select read.
-    private byte[] remainBuffer;
-    private int buffRemain = 0;
     private int nodeIdHash;
     private String displayId;
     private byte[] bsHead = new byte[Header.LEN];
+    // header bytes of the current message read so far
+    private int headPos = 0;
     private AtomicBoolean closed = new AtomicBoolean(false);
+    // set by the handshake when the peer can decompress message bodies
+    private volatile boolean compressionEnabled = false;
 
     private Map<Integer, RouteStatus> routes = new HashMap<>();
 
+    // messages waiting to be written by the selector loop, guarded by the monitor of the queue
+    private final Deque<OutboundMessage> outbound = new ArrayDeque<>();
+    private long outboundBytes = 0;
+    // set while a write is scheduled on the selector loop or waiting for OP_WRITE
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
     private final Logger p2pLOG;
 
     ChannelBuffer(final Logger p2pLOG) {
@@ -56,12 +72,13 @@ class ChannelBuffer {
         this.closed.set(true);
     }
 
-    int getBuffRemain() {
-        return buffRemain;
+    /** Indicates whether large message bodies can be sent compressed to the peer. */
+    boolean isCompressionEnabled() {
+        return compressionEnabled;
     }
 
-    void setBuffRemain(int buffRemain) {
-        this.buffRemain = buffRemain;
+    void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
     }
 
     /**
@@ -101,25 +118,36 @@ class ChannelBuffer {
         return routes.get(_route);
     }
 
-    void readHead(ByteBuffer buf) {
-        if (buf.array().length < bsHead.length) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readHead short buffer size");
-            }
+    /**
+     * Reads the available bytes of the header, which is decoded once all its bytes were read.
+     *
+     * @throws IOException when the header is invalid, since the rest of the stream cannot be
+     *     framed anymore
+     */
+    void readHead(ByteBuffer buf) throws IOException {
+        int len = Math.min(buf.remaining(), bsHead.length - headPos);
+        buf.get(bsHead, headPos, len);
+        headPos += len;
+        if (headPos < bsHead.length) {
             return;
         }
 
-        buf.get(bsHead);
+        headPos = 0;
         try {
             header = Header.decode(bsHead);
         } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
             if (p2pLOG.isDebugEnabled()) {
                 p2pLOG.debug("ChannelBuffer readHead exception.", e);
             }
+            throw new IOException("invalid-header", e);
         }
     }
 
-    void readBody(ByteBuffer buf) {
+    /**
+     * Reads the available bytes of the body into a buffer acquired from the given pool once the
+     * header is known.
+     */
+    void readBody(ByteBuffer buf, BufferPool pool) {
         if (isHeaderNotCompleted()) {
             if (p2pLOG.isDebugEnabled()) {
                 p2pLOG.debug("ChannelBuffer readBody no header.");
@@ -127,19 +155,32 @@ class ChannelBuffer {
             return;
         }
 
-        if (buf.array().length < header.getLen()) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readBody short buffer size.");
-            }
-            return;
+        if (body == null) {
+            body = pool.acquire(header.getLen());
         }
 
-        body = new byte[header.getLen()];
-        buf.get(body);
+        int len = Math.min(buf.remaining(), body.remaining());
+        ByteBuffer src = buf.duplicate();
+        src.limit(src.position() + len);
+        body.put(src);
+        buf.position(buf.position() + len);
+    }
+
+    /**
+     * Returns the body of the completed message ready to be read and resets the buffer for the
+     * next message. The body must be released to the pool it was acquired from once handled.
+     */
+    ByteBuffer takeBody() {
+        ByteBuffer completed = body;
+        completed.flip();
+        refreshHeader();
+        refreshBody();
+        return completed;
     }
 
     void refreshHeader() {
         header = null;
+        headPos = 0;
     }
 
     void refreshBody() {
@@ -153,15 +194,7 @@ class ChannelBuffer {
 
     /** @return boolean */
     boolean isBodyNotCompleted() {
-        return header == null || body == null || body.length != header.getLen();
-    }
-
-    byte[] getRemainBuffer() {
-        return remainBuffer;
-    }
-
-    void setRemainBuffer(byte[] remainBuffer) {
-        this.remainBuffer = remainBuffer;
+        return header == null || body == null || body.hasRemaining();
     }
 
     public Header getHeader() {
@@ -172,6 +205,118 @@ class ChannelBuffer {
         header = _header;
     }
 
+    /**
+     * Queues a message to be written by the selector loop.
+     *
+     * @param buffers the header and body of the message
+     * @param timestamp the time in nanoseconds when the message was sent
+     * @return {@code false} when the outbound queue is full and the message was not queued
+     */
+    boolean offerOutbound(ByteBuffer[] buffers, long timestamp) {
+        OutboundMessage message = new OutboundMessage(buffers, timestamp);
+        synchronized (outbound) {
+            if (!outbound.isEmpty()
+                    && (outbound.size() >= MAX_OUTBOUND_MESSAGES
+                            || outboundBytes + message.size > MAX_OUTBOUND_BYTES)) {
+                return false;
+            }
+            outbound.addLast(message);
+            outboundBytes += message.size;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the remaining buffers of up to the given number of queued messages, to be written
+     * with a single gathering write. Messages that were not started within the given timeout are
+     * discarded.
+     *
+     * @return the buffers to write, empty when there are no queued messages
+     */
+    ByteBuffer[] peekOutbound(int maxMessages, long now, long timeout) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        synchronized (outbound) {
+            int count = 0;
+            for (Iterator<OutboundMessage> it = outbound.iterator(); it.hasNext() && count < maxMessages; ) {
+                OutboundMessage message = it.next();
+                if (!message.isStarted() && now - message.timestamp > timeout) {
+                    p2pLOG.debug("timeout-msg to-node={} size={}", displayId, message.size);
+                    it.remove();
+                    outboundBytes -= message.size;
+                    continue;
+                }
+                for (ByteBuffer buffer : message.buffers) {
+                    if (buffer.hasRemaining()) {
+                        buffers.add(buffer);
+                    }
+                }
+                count++;
+            }
+        }
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    /** Removes the queued messages that were completely written. */
+    void removeWritten() {
+        synchronized (outbound) {
+            while (!outbound.isEmpty() && outbound.peekFirst().isWritten()) {
+                outboundBytes -= outbound.pollFirst().size;
+            }
+        }
+    }
+
+    boolean hasOutbound() {
+        synchronized (outbound) {
+            return !outbound.isEmpty();
+        }
+    }
+
+    /** Returns the number of bytes of the queued messages. */
+    long getOutboundBytes() {
+        synchronized (outbound) {
+            return outboundBytes;
+        }
+    }
+
+    /**
+     * Marks that a write was scheduled on the selector loop.
+     *
+     * @return {@code false} if a write was already scheduled, in which case it will also write the
+     *     messages queued meanwhile
+     */
+    boolean scheduleWrite() {
+        return writeScheduled.compareAndSet(false, true);
+    }
+
+    /** Marks that the scheduled write completed with an empty queue. */
+    void writeCompleted() {
+        writeScheduled.set(false);
+    }
+
+    private static final class OutboundMessage {
+        private final ByteBuffer[] buffers;
+        private final long timestamp;
+        private final long size;
+
+        private OutboundMessage(ByteBuffer[] buffers, long timestamp) {
+            this.buffers = buffers;
+            this.timestamp = timestamp;
+            long size = 0;
+            for (ByteBuffer buffer : buffers) {
+                size += buffer.remaining();
+            }
+            this.size = size;
+        }
+
+        private boolean isStarted() {
+            return buffers[0].position() > 0;
+        }
+
+        private boolean isWritten() {
+            return !buffers[buffers.length - 1].hasRemaining();
+        }
+    }
+
     class RouteStatus {
 
         long timestamp;
@@ -0,0 +1,120 @@
+package org.aion.p2p.impl1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.aion.p2p.P2pConstant;
+
+/**
+ * Compresses the bodies of large messages for the peers that advertised in the handshake that
+ * they can decompress them. A compressed body starts with the length of the original body
+ * followed by the zlib stream, and is marked as compressed in the message header.
+ *
+ * <p>The zlib implementation of the JDK is used at its fastest level, which keeps the cost of
+ * compressing a full sync response far below the time it takes to transfer it uncompressed over
+ * a constrained link, and does not require any additional dependency.
+ */
+final class MsgCompression {
+
+    /** The capability bit advertised by the nodes that can decompress deflated message bodies. */
+    static final byte CAPABILITY_DEFLATE = 0x01;
+
+    /** Bodies smaller than this are not worth the compression overhead. */
+    static final int THRESHOLD = 1024;
+
+    // original length (int) prefix
+    private static final int PREFIX_LEN = 4;
+
+    private MsgCompression() {}
+
+    /** @return true when the given peer capabilities allow sending compressed bodies */
+    static boolean isSupported(byte capabilities) {
+        return (capabilities & CAPABILITY_DEFLATE) != 0;
+    }
+
+    /**
+     * @param body the encoded message body
+     * @return the compressed body or {@code null} when compressing does not reduce its size
+     */
+    static byte[] compress(final byte[] body) {
+        // only outputs that are smaller than the original body are kept
+        byte[] output = new byte[body.length];
+        ByteBuffer.wrap(output).putInt(body.length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+
+            int len = PREFIX_LEN;
+            while (!deflater.finished() && len < output.length) {
+                len += deflater.deflate(output, len, output.length - len);
+            }
+            return deflater.finished() ? Arrays.copyOf(output, len) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param body a body produced by {@link #compress}, which is not consumed
+     * @param pool the pool from which the buffer holding the original body is acquired
+     * @return the original message body, to be released to the given pool once handled
+     * @throws DataFormatException when the body is corrupted or exceeds the max body size
+     */
+    static ByteBuffer decompress(final ByteBuffer body, BufferPool pool)
+            throws DataFormatException {
+        if (body.remaining() < PREFIX_LEN) {
+            throw new DataFormatException("missing-original-length");
+        }
+        int len = body.getInt(body.position());
+        if (len < 0 || len > P2pConstant.MAX_BODY_SIZE) {
+            throw new DataFormatException("exceed-max-body-size");
+        }
+
+        ByteBuffer output = pool.acquire(len);
+        Inflater inflater = new Inflater();
+        try {
+            ByteBuffer input = body.duplicate();
+            input.position(input.position() + PREFIX_LEN);
+            inflate(inflater, input, output);
+
+            // rejects bodies that do not match the declared length
+            if (output.hasRemaining()
+                    || !inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+                throw new DataFormatException("invalid-original-length");
+            }
+            output.flip();
+            return output;
+        } catch (DataFormatException e) {
+            pool.release(output);
+            throw e;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void inflate(Inflater inflater, ByteBuffer input, ByteBuffer output)
+            throws DataFormatException {
+        if (input.hasArray()) {
+            inflater.setInput(
+                    input.array(), input.arrayOffset() + input.position(), input.remaining());
+        } else {
+            byte[] copy = new byte[input.remaining()];
+            input.get(copy);
+            inflater.setInput(copy);
+        }
+
+        byte[] out = output.array();
+        int offset = output.arrayOffset();
+        while (!inflater.finished() && output.hasRemaining()) {
+            int n = inflater.inflate(out, offset + output.position(), output.remaining());
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("truncated-body");
+            }
+            output.position(output.position() + n);
+        }
+    }
+}
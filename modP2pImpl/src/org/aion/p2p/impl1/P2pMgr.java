@@ -5,9 +5,8 @@ import java.math.BigInteger;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
-import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
@@ -15,7 +14,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,6 +22,11 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
 import org.aion.p2p.Header;
@@ -50,7 +53,6 @@ import org.slf4j.Logger;
 public final class P2pMgr implements IP2pMgr {
     private static final int DELAY_SHOW_P2P_STATUS = 10; // in seconds
     private static final int DELAY_CLEAR_PEERS = 10; // in seconds
-    private static final int DELAY_SELECT = 100; // in milliseconds
     private static final int DELAY_REQUEST_ACTIVE_NODES = 1; // in seconds
     private static final int PERIOD_UPNP_PORT_MAPPING = 3600000;
     private static final int DELAY_CONNECT_OUTBOUND = 1; // in seconds
@@ -59,13 +61,21 @@ public final class P2pMgr implements IP2pMgr {
 
     // timeout for messages to be sent
     private static final long WRITE_MSG_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
-    private static final long MAX_BUFFER_WRITE_TIME = 1_000_000_000L;
-    private static final long MIN_TRACE_BUFFER_WRITE_TIME = 10_000_000L;
+    // max number of queued messages written by a single gathering write
+    private static final int MAX_GATHERED_MESSAGES = 64;
+    // advertised in the handshake, peers that do not send it get uncompressed messages
+    private static final byte CAPABILITIES = MsgCompression.CAPABILITY_DEFLATE;
 
     public final Logger p2pLOG, surveyLog;
 
     private final int SOCKET_RECV_BUFFER = 1024 * 128;
+    // bytes read from a channel at once, the messages are assembled in the buffers of the pool
+    private static final int READ_BUFFER_SIZE = 512 * 1024;
+    // enough to keep the buffers of a few full sync responses being handled
+    private static final long MAX_POOLED_BYTES = 4L * P2pConstant.MAX_BODY_SIZE;
     private final int SOCKET_BACKLOG = 1024;
+    // each selector thread reads and parses the messages of its share of the channels
+    private final int SELECTOR_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
 
     private final int maxTempNodes, maxActiveNodes, selfNodeIdHash, selfPort;
     private final int selfChainId;
@@ -77,15 +87,16 @@ public final class P2pMgr implements IP2pMgr {
     private final Set<Short> versions = new HashSet<>();
     private final Map<Integer, Integer> errCnt = Collections.synchronizedMap(new LRUMap<>(128));
     private final AtomicBoolean start = new AtomicBoolean(true);
+    private final BufferPool bufferPool = new BufferPool(MAX_POOLED_BYTES);
 
     private ServerSocketChannel tcpServer;
-    private Selector selector;
+    private SelectorLoop[] selectorLoops;
+    private final AtomicInteger nextSelectorLoop = new AtomicInteger(0);
     private ScheduledExecutorService scheduledWorkers;
-    private ScheduledExecutorService inboundExecutor;
     private int errTolerance;
 
-    private static ReqHandshake1 cachedReqHandshake1;
-    private static ResHandshake1 cachedResHandshake1;
+    private ReqHandshake1 cachedReqHandshake1;
+    private ResHandshake1 cachedResHandshake1;
     private static final ReqActiveNodes cachedReqActiveNodesMsg = new ReqActiveNodes();
 
     public enum Dest {
@@ -154,16 +165,21 @@ public final class P2pMgr implements IP2pMgr {
 
         // rem out for bug:
         // nodeMgr.loadPersistedNodes();
-        cachedResHandshake1 = new ResHandshake1(p2pLOG, true, this.selfRevision);
+        cachedResHandshake1 = new ResHandshake1(p2pLOG, true, this.selfRevision, CAPABILITIES);
     }
 
     @Override
     public void run() {
         try {
-            selector = Selector.open();
+            selectorLoops = new SelectorLoop[SELECTOR_THREADS];
+            for (int i = 0; i < selectorLoops.length; i++) {
+                // not thread safe, used only by the thread of its selector loop; a direct buffer
+                // is read into without the temporary copy made by the channel for heap buffers
+                ByteBuffer readBuf = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+                selectorLoops[i] = new SelectorLoop("p2p-in-" + i, key -> handleKey(key, readBuf), p2pLOG);
+            }
             // IO-bounded threads get max-gain from the double of the availableProcessor number
             scheduledWorkers = Executors.newScheduledThreadPool(Math.min(32, 2 * Runtime.getRuntime().availableProcessors()));
-            inboundExecutor = Executors.newSingleThreadScheduledExecutor();
 
             tcpServer = ServerSocketChannel.open();
             tcpServer.configureBlocking(false);
@@ -189,9 +205,11 @@ public final class P2pMgr implements IP2pMgr {
                         e);
             }
 
-            tcpServer.register(selector, SelectionKey.OP_ACCEPT);
-
-            inboundExecutor.scheduleWithFixedDelay(this::checkSelector, DELAY_SELECT, DELAY_SELECT, TimeUnit.MILLISECONDS);
+            for (SelectorLoop loop : selectorLoops) {
+                loop.start();
+            }
+            // the first selector loop also accepts the inbound connections
+            selectorLoops[0].register(tcpServer, SelectionKey.OP_ACCEPT, null);
 
             if (p2pLOG.isDebugEnabled()) {
                 this.handlers.forEach(
@@ -273,7 +291,7 @@ public final class P2pMgr implements IP2pMgr {
             }
         }
 
-        cachedReqHandshake1 = new ReqHandshake1(selfNodeId, selfChainId, selfIp, selfPort, selfRevision.getBytes(), new ArrayList<>(versions));
+        cachedReqHandshake1 = new ReqHandshake1(selfNodeId, selfChainId, selfIp, selfPort, selfRevision.getBytes(), new ArrayList<>(versions), CAPABILITIES);
     }
 
     @Override
@@ -282,10 +300,11 @@ public final class P2pMgr implements IP2pMgr {
     }
 
     public void send(int nodeId, String displayId, final Msg message, Dest peerList) {
+        long timestamp = System.nanoTime();
         scheduledWorkers.execute(() -> {
             Thread.currentThread().setName("p2p-out-" + Thread.currentThread().getId());
             long startTime = System.nanoTime();
-            process(nodeId, displayId, message, peerList, System.nanoTime());
+            process(nodeId, displayId, message, peerList, timestamp);
             long duration = System.nanoTime() - startTime;
             surveyLog.debug("TaskSend: process message, duration = {} ns.", duration);
         });
@@ -313,74 +332,104 @@ public final class P2pMgr implements IP2pMgr {
             if (node == null) {
                 p2pLOG.debug("msg-{} -> {} node-not-exist", peerList.name(), nodeDisplayId);
             } else {
-                SelectionKey sk = node.getChannel().keyFor(selector);
-                if (sk != null && sk.attachment() != null) {
-                    ChannelBuffer channelBuffer = (ChannelBuffer) sk.attachment();
-                    SocketChannel sc = node.getChannel();
-
-                    // reset allocated buffer and clear messages if the channel is closed
-                    if (channelBuffer.isClosed()) {
-                        channelBuffer.refreshHeader();
-                        channelBuffer.refreshBody();
-                        this.dropActive(channelBuffer.getNodeIdHash(), "close-already");
-                        return;
-                    } else {
-                        try {
-                            channelBuffer.lock.lock();
+                write(node, nodeDisplayId, message.getHeader(), cb -> encode(message, cb.isCompressionEnabled()), timestamp);
+            }
+        }
+    }
 
-                            // @warning header set len (body len) before header encode
-                            byte[] bodyBytes = message.encode();
-                            int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
-                            Header h = message.getHeader();
-                            h.setLen(bodyLen);
-                            byte[] headerBytes = h.encode();
+    /**
+     * Sends the message to the active peers accepted by the given filter. The message is encoded
+     * once and the peers share read-only views of the same encoding.
+     */
+    @Override
+    public List<INode> broadcast(final Msg message, Predicate<INode> filter) {
+        List<INode> peers = nodeMgr.getActiveNodesList().stream().filter(filter).collect(Collectors.toList());
+        if (!peers.isEmpty()) {
+            long timestamp = System.nanoTime();
+            scheduledWorkers.execute(() -> {
+                Thread.currentThread().setName("p2p-out-" + Thread.currentThread().getId());
+                long startTime = System.nanoTime();
+                ByteBuffer[] encoding = encode(message, false);
+                for (INode peer : peers) {
+                    write(peer, peer.getIdShort(), message.getHeader(), cb -> encoding, timestamp);
+                }
+                long duration = System.nanoTime() - startTime;
+                surveyLog.debug("TaskBroadcast: process message for {} peers, duration = {} ns.", peers.size(), duration);
+            });
+        }
+        return peers;
+    }
 
-                            p2pLOG.trace("write id:{} {}-{}-{}", nodeDisplayId, h.getVer(), h.getCtrl(), h.getAction());
+    /**
+     * Returns read-only buffers with the header and body of the message. Large sync messages are
+     * compressed when requested, unless compressing does not reduce their size.
+     */
+    private static ByteBuffer[] encode(final Msg message, boolean compress) {
+        // @warning header set len (body len) before header encode
+        byte[] bodyBytes = message.encode();
+        int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
+        Header h = message.getHeader();
+        h.setLen(bodyLen);
+
+        byte[] headerBytes = null;
+        if (compress && h.getCtrl() == Ctrl.SYNC && bodyLen >= MsgCompression.THRESHOLD) {
+            byte[] compressed = MsgCompression.compress(bodyBytes);
+            if (compressed != null) {
+                bodyBytes = compressed;
+                headerBytes = h.encodeCompressed(compressed.length);
+            }
+        }
+        if (headerBytes == null) {
+            headerBytes = h.encode();
+        }
 
-                            ByteBuffer buf = ByteBuffer.allocate(headerBytes.length + bodyLen);
-                            buf.put(headerBytes);
-                            if (bodyBytes != null) {
-                                buf.put(bodyBytes);
-                            }
-                            buf.flip();
-
-                            long t1 = System.nanoTime(), t2;
-                            int wrote = 0;
-                            try {
-                                do {
-                                    int result = sc.write(buf);
-                                    wrote += result;
-
-                                    if (result == 0) {
-                                        // @Attention:  very important sleep , otherwise when NIO write buffer full,
-                                        // without sleep will hangup this thread.
-                                        Thread.sleep(0, 1);
-                                    }
-
-                                    t2 = System.nanoTime() - t1;
-                                } while (buf.hasRemaining() && (t2 < MAX_BUFFER_WRITE_TIME));
-
-                                if (t2 > MIN_TRACE_BUFFER_WRITE_TIME) {
-                                    p2pLOG.trace("msg write: id {} size {} time {} ms length {}", nodeDisplayId, wrote, t2, buf.array().length);
-                                }
-
-                            } catch (ClosedChannelException ex1) {
-                                p2pLOG.debug("closed-channel-exception node=" + nodeDisplayId, ex1);
-                                channelBuffer.setClosed();
-                            } catch (IOException ex2) {
-                                p2pLOG.debug("write-msg-io-exception node=" + nodeDisplayId + " headerBytes=" + headerBytes.length + " bodyLen=" + bodyLen + " time=" + (System.nanoTime() - t1) + "ns", ex2);
-
-                                if (ex2.getMessage().equals("Broken pipe")) {
-                                    channelBuffer.setClosed();
-                                }
-                            } catch (InterruptedException e) {
-                                p2pLOG.error("Interrupted while writing message to node=" + nodeDisplayId + ".", e);
-                            }
-                        } finally {
-                            channelBuffer.lock.unlock();
-                        }
-                    }
+        return bodyLen == 0
+                ? new ByteBuffer[] {ByteBuffer.wrap(headerBytes).asReadOnlyBuffer()}
+                : new ByteBuffer[] {ByteBuffer.wrap(headerBytes).asReadOnlyBuffer(), ByteBuffer.wrap(bodyBytes).asReadOnlyBuffer()};
+    }
+
+    /** @param encoder returns the encoding of the message for the channel of the node */
+    private void write(INode node, String nodeDisplayId, Header h, Function<ChannelBuffer, ByteBuffer[]> encoder, long timestamp) {
+        SelectionKey sk = keyFor(node.getChannel());
+        if (sk != null && sk.attachment() != null) {
+            ChannelBuffer channelBuffer = (ChannelBuffer) sk.attachment();
+
+            // reset allocated buffer and clear messages if the channel is closed
+            if (channelBuffer.isClosed()) {
+                channelBuffer.refreshHeader();
+                channelBuffer.refreshBody();
+                this.dropActive(channelBuffer.getNodeIdHash(), "close-already");
+            } else {
+                p2pLOG.trace("write id:{} {}-{}-{}", nodeDisplayId, h.getVer(), h.getCtrl(), h.getAction());
+
+                // each peer writes from its own position in the shared encoding
+                ByteBuffer[] encoding = encoder.apply(channelBuffer);
+                ByteBuffer[] buffers = new ByteBuffer[encoding.length];
+                for (int i = 0; i < encoding.length; i++) {
+                    buffers[i] = encoding[i].duplicate();
                 }
+                enqueue(sk, channelBuffer, buffers, timestamp);
+            }
+        }
+    }
+
+    /**
+     * Queues the message for the selector loop of the channel. A peer that does not read its
+     * messages fast enough to stay within the bounds of the outbound queue is disconnected.
+     */
+    private void enqueue(SelectionKey sk, ChannelBuffer channelBuffer, ByteBuffer[] buffers, long timestamp) {
+        if (!channelBuffer.offerOutbound(buffers, timestamp)) {
+            p2pLOG.debug("outbound-queue-full node={} queued-bytes={}", channelBuffer.getDisplayId(), channelBuffer.getOutboundBytes());
+            channelBuffer.setClosed();
+            closeSocket((SocketChannel) sk.channel(), channelBuffer.getDisplayId() + "-outbound-queue-full");
+            this.dropActive(channelBuffer.getNodeIdHash(), "outbound-queue-full");
+            return;
+        }
+
+        if (channelBuffer.scheduleWrite()) {
+            SelectorLoop loop = loopFor(sk);
+            if (loop != null) {
+                loop.execute(() -> writeBuffer(sk, channelBuffer));
             }
         }
     }
@@ -393,8 +442,19 @@ public final class P2pMgr implements IP2pMgr {
             scheduledWorkers.shutdownNow();
         }
 
-        if (inboundExecutor != null) {
-            inboundExecutor.shutdownNow();
+        if (selectorLoops != null) {
+            for (SelectorLoop loop : selectorLoops) {
+                loop.shutdown();
+            }
+        }
+
+        if (tcpServer != null) {
+            // releases the port, closing the selector does not close the channels
+            try {
+                tcpServer.close();
+            } catch (IOException e) {
+                p2pLOG.debug("close-tcp-server-io-exception.", e);
+            }
         }
 
         for (List<Handler> hdrs : handlers.values()) {
@@ -442,7 +502,7 @@ public final class P2pMgr implements IP2pMgr {
         }
 
         if (_sc != null) {
-            SelectionKey sk = _sc.keyFor(selector);
+            SelectionKey sk = keyFor(_sc);
             if (sk != null) {
                 sk.cancel();
                 sk.attach(null);
@@ -453,6 +513,11 @@ public final class P2pMgr implements IP2pMgr {
             } catch (IOException ex) {
                 p2pLOG.info("close-socket-io-exception.", ex);
             }
+
+            if (sk != null) {
+                // the socket is released once the key is removed by the next select
+                sk.selector().wakeup();
+            }
         }
     }
 
@@ -557,70 +622,123 @@ public final class P2pMgr implements IP2pMgr {
         nodeMgr.updateChainInfo(blockNumber, blockHash, blockTD);
     }
 
+    /** Returns the key of the given channel in the selector loop it was assigned to. */
+    private SelectionKey keyFor(SocketChannel channel) {
+        if (selectorLoops != null) {
+            for (SelectorLoop loop : selectorLoops) {
+                SelectionKey key = loop.keyFor(channel);
+                if (key != null) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns the selector loop of the given key. */
+    private SelectorLoop loopFor(SelectionKey key) {
+        for (SelectorLoop loop : selectorLoops) {
+            if (loop.keyFor(key.channel()) == key) {
+                return loop;
+            }
+        }
+        return null;
+    }
+
+    /** Assigns new channels to the selector loops in turn. */
+    private SelectorLoop nextSelectorLoop() {
+        return selectorLoops[Math.floorMod(nextSelectorLoop.getAndIncrement(), selectorLoops.length)];
+    }
+
     /**
-     * Not thread safe! Should be used by a single thread at a time. This is why the {@link #inboundExecutor} has a single thread.
+     * Handles a ready key on the thread of its selector loop.
+     *
+     * @param readBuf the read buffer of the selector loop
      */
-    private final ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
+    private void handleKey(SelectionKey key, ByteBuffer readBuf) {
+        if (key.isAcceptable()) {
+            ServerSocketChannel channel = (ServerSocketChannel) key.channel();
+            try {
+                acceptConnection(channel);
+            } catch (IOException e) {
+                p2pLOG.error("Could not accept connection.", e);
+            }
+            return;
+        }
 
-    private void checkSelector() {
-        Thread.currentThread().setName("p2p-in");
-        try {
-            if (selector.selectNow() != 0) {
-                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
-                    SelectionKey key = keys.next();
-                    if (key != null && key.isValid()) {
-                        if (key.isAcceptable()) {
-                            ServerSocketChannel channel = (ServerSocketChannel) key.channel();
-                            try {
-                                acceptConnection(channel);
-                            } catch (IOException e) {
-                                p2pLOG.error("Could not accept connection.", e);
-                                ChannelBuffer cb = (ChannelBuffer) key.attachment();
-                                closeSocket((SocketChannel) key.channel(), (cb != null ? cb.getDisplayId() : null) + "-read-msg-exception ", e);
-                                if (cb != null) {
-                                    cb.setClosed();
-                                }
-                            }
-                        }
+        ChannelBuffer cb = (ChannelBuffer) key.attachment();
+        if (cb == null) {
+            p2pLOG.error("inbound exception: attachment is null");
+            return;
+        }
 
-                        if (key.isReadable()) {
-                            ChannelBuffer cb = (ChannelBuffer) key.attachment();
-                            if (cb == null) {
-                                p2pLOG.error("inbound exception: attachment is null");
-                                continue;
-                            }
-                            try {
-                                readBuffer(key, cb, readBuf);
-                            } catch (IOException e) {
-                                p2pLOG.error("Could not read buffer.", e);
-                                closeSocket((SocketChannel) key.channel(),
-                                    cb.getDisplayId() + "-read-msg-exception ", e);
-                                cb.setClosed();
-                            } catch (NullPointerException npe) {
-                                // TODO: investigate why readBody throw the NPE.
-                                p2pLOG.debug("Parsing msg body failed.", npe);
-                                closeSocket((SocketChannel) key.channel(),
-                                    cb.getDisplayId() + "-read-msg-exception ", npe);
-                                cb.setClosed();
-                            }
-                        }
+        if (key.isWritable()) {
+            writeBuffer(key, cb);
+        }
+
+        if (key.isValid() && key.isReadable()) {
+            try {
+                readBuffer(key, cb, readBuf);
+            } catch (IOException e) {
+                p2pLOG.error("Could not read buffer.", e);
+                closeSocket((SocketChannel) key.channel(), cb.getDisplayId() + "-read-msg-exception ", e);
+                cb.setClosed();
+            } catch (NullPointerException npe) {
+                // TODO: investigate why readBody throw the NPE.
+                p2pLOG.debug("Parsing msg body failed.", npe);
+                closeSocket((SocketChannel) key.channel(), cb.getDisplayId() + "-read-msg-exception ", npe);
+                cb.setClosed();
+            }
+        }
+    }
+
+    /**
+     * Writes the queued messages of the channel on the thread of its selector loop. When the
+     * socket buffer is full, the channel waits for OP_WRITE instead of holding up the thread.
+     */
+    private void writeBuffer(SelectionKey key, ChannelBuffer cb) {
+        SocketChannel sc = (SocketChannel) key.channel();
+        try {
+            while (true) {
+                ByteBuffer[] buffers = cb.peekOutbound(MAX_GATHERED_MESSAGES, System.nanoTime(), WRITE_MSG_TIMEOUT);
+                if (buffers.length == 0) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    cb.writeCompleted();
+                    // messages queued after the last check must be written by this call
+                    if (cb.hasOutbound() && cb.scheduleWrite()) {
+                        continue;
                     }
-                    keys.remove();
+                    return;
+                }
+
+                sc.write(buffers);
+                cb.removeWritten();
+
+                if (buffers[buffers.length - 1].hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
                 }
             }
-        } catch (IOException e) {
-            p2pLOG.error("Exception encountered while selecting keys.", e);
+        } catch (IOException | CancelledKeyException e) {
+            p2pLOG.debug("write-msg-exception node=" + cb.getDisplayId(), e);
+            cb.setClosed();
+            closeSocket(sc, cb.getDisplayId() + "-write-msg-exception");
         }
     }
 
-    private static void receiveMessage(int nodeId, String displayId, byte[] msg, List<Handler> handlers) {
+    private void receiveMessage(int nodeId, String displayId, ByteBuffer msg, List<Handler> handlers) {
         Thread.currentThread().setName("p2p-recv-" + Thread.currentThread().getId());
-        for (Handler hlr : handlers) {
-            if (hlr == null) {
-                continue;
-            }
+        try {
+            for (Handler hlr : handlers) {
+                if (hlr == null) {
+                    continue;
+                }
 
-            hlr.receive(nodeId, displayId, msg);
+                hlr.receiveBuffer(nodeId, displayId, msg.duplicate());
+            }
+        } finally {
+            // the handlers do not retain the message once they returned
+            bufferPool.release(msg);
         }
     }
 
@@ -660,11 +778,10 @@ public final class P2pMgr implements IP2pMgr {
                     p2pLOG.debug("success-connect node-id={} ip={}", node.getIdShort(), node.getIpStr());
 
                     channel.configureBlocking(false);
-                    SelectionKey sk = channel.register(selector, SelectionKey.OP_READ);
                     ChannelBuffer rb = new ChannelBuffer(p2pLOG);
                     rb.setDisplayId(node.getIdShort());
                     rb.setNodeIdHash(nodeIdHash);
-                    sk.attach(rb);
+                    nextSelectorLoop().register(channel, SelectionKey.OP_READ, rb);
 
                     node.refreshTimestamp();
                     node.setChannel(channel);
@@ -721,131 +838,57 @@ public final class P2pMgr implements IP2pMgr {
             p2pLOG.trace("new-node : {}", node.toString());
 
             node.setChannel(channel);
-            SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
-            sk.attach(new ChannelBuffer(p2pLOG));
+            // added before the registration since the handshake can be read by another selector loop
             this.nodeMgr.addInboundNode(node);
+            try {
+                nextSelectorLoop().register(channel, SelectionKey.OP_READ, new ChannelBuffer(p2pLOG));
+            } catch (IOException e) {
+                // the inbound node is removed on timeout
+                closeSocket(channel, "register-inbound-exception", e);
+                return;
+            }
             p2pLOG.debug("new-connection {}:{}", ip, port);
         }
     }
 
+    /**
+     * Reads the available bytes of the channel and handles the messages they complete. The
+     * messages are assembled across reads in the buffer of the channel.
+     */
     private void readBuffer(final SelectionKey sk, final ChannelBuffer cb, final ByteBuffer readBuf) throws IOException {
-        readBuf.rewind();
         SocketChannel sc = (SocketChannel) sk.channel();
 
         int r;
         int cnt = 0;
         do {
+            readBuf.clear();
             r = sc.read(readBuf);
-            cnt += r;
-        } while (r > 0);
+            readBuf.flip();
+            cnt += readBuf.remaining();
 
-        if (cnt < 1) {
-            return;
-        }
+            while (readBuf.hasRemaining()) {
+                if (cb.isHeaderNotCompleted()) {
+                    cb.readHead(readBuf);
+                    if (cb.isHeaderNotCompleted()) {
+                        break;
+                    }
+                }
 
-        int remainBufAll = cb.getBuffRemain() + cnt;
-        ByteBuffer bufferAll = calBuffer(cb, readBuf, cnt);
+                cb.readBody(readBuf, bufferPool);
+                if (cb.isBodyNotCompleted()) {
+                    break;
+                }
 
-        do {
-            r = readMsg(sk, bufferAll, remainBufAll);
-            if (remainBufAll == r) {
-                break;
-            } else {
-                remainBufAll = r;
+                handleMessage(sk, cb);
             }
-        } while (r > 0);
+            // the rest is read on the next select to give the other channels their turn
+        } while (r > 0 && cnt < P2pConstant.MAX_BODY_SIZE);
 
-        cb.setBuffRemain(r);
-
-        if (r != 0) {
-            // there are no perfect cycling buffer in jdk
-            // yet.
-            // simply just buff move for now.
-            // @TODO: looking for more efficient way.
-
-            int currPos = bufferAll.position();
-            cb.setRemainBuffer(new byte[r]);
-            bufferAll.position(currPos - r);
-            bufferAll.get(cb.getRemainBuffer());
+        if (r < 0) {
+            // otherwise the closed channel stays readable and is selected again right away
+            closeSocket(sc, cb.getDisplayId() + "-closed-by-peer");
+            cb.setClosed();
         }
-
-        readBuf.rewind();
-    }
-
-    private static ByteBuffer calBuffer(ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-        ByteBuffer r;
-        if (_cb.getBuffRemain() != 0) {
-            byte[] alreadyRead = new byte[_cnt];
-            _readBuf.position(0);
-            _readBuf.get(alreadyRead);
-            r = ByteBuffer.allocate(_cb.getBuffRemain() + _cnt);
-            r.put(_cb.getRemainBuffer());
-            r.put(alreadyRead);
-        } else {
-            r = _readBuf;
-        }
-
-        return r;
-    }
-
-    private int readMsg(SelectionKey sk, ByteBuffer readBuf, int cnt) throws IOException {
-        ChannelBuffer cb = (ChannelBuffer) sk.attachment();
-        if (cb == null) {
-            throw new IOException("attachment is null");
-        }
-
-        int readCnt;
-        if (cb.isHeaderNotCompleted()) {
-            readCnt = readHeader(cb, readBuf, cnt);
-        } else {
-            readCnt = cnt;
-        }
-
-        if (cb.isBodyNotCompleted()) {
-            readCnt = readBody(cb, readBuf, readCnt);
-        }
-
-        if (cb.isBodyNotCompleted()) {
-            return readCnt;
-        }
-
-        handleMessage(sk, cb);
-
-        return readCnt;
-    }
-
-    private static int readHeader(final ChannelBuffer cb, final ByteBuffer readBuf, int cnt) {
-        if (cnt < Header.LEN) {
-            return cnt;
-        }
-
-        int origPos = readBuf.position();
-        int startP = origPos - cnt;
-        readBuf.position(startP);
-        cb.readHead(readBuf);
-        readBuf.position(origPos);
-        return cnt - Header.LEN;
-    }
-
-    private static int readBody(final ChannelBuffer cb, ByteBuffer readBuf, int cnt) {
-        int bodyLen = cb.getHeader().getLen();
-
-        // some msg have nobody.
-        if (bodyLen == 0) {
-            cb.body = new byte[0];
-            return cnt;
-        }
-
-        if (cnt < bodyLen) {
-            return cnt;
-        }
-
-        int origPos = readBuf.position();
-        int startP = origPos - cnt;
-        readBuf.position(startP);
-        cb.readBody(readBuf);
-        readBuf.position(origPos);
-        return cnt - bodyLen;
     }
 
     // used to impose a low limit to this type of messages
@@ -855,10 +898,7 @@ public final class P2pMgr implements IP2pMgr {
     private void handleMessage(SelectionKey sk, ChannelBuffer cb) {
 
         Header h = cb.getHeader();
-        byte[] bodyBytes = cb.body;
-
-        cb.refreshHeader();
-        cb.refreshBody();
+        ByteBuffer body = cb.takeBody();
 
         int maxRequestsPerSecond = 0;
 
@@ -873,6 +913,7 @@ public final class P2pMgr implements IP2pMgr {
 
         if (!underRC) {
             p2pLOG.debug("over-called-route={}-{}-{} calls={} node={}", h.getVer(), h.getCtrl(), h.getAction(), cb.getRouteCount(h.getRoute()).count, cb.getDisplayId());
+            bufferPool.release(body);
             return;
         }
 
@@ -880,6 +921,9 @@ public final class P2pMgr implements IP2pMgr {
             case Ver.V0:
                 switch (h.getCtrl()) {
                     case Ctrl.NET:
+                        byte[] bodyBytes = new byte[body.remaining()];
+                        body.get(bodyBytes);
+                        bufferPool.release(body);
                         try {
                             handleP2pMessage(sk, h.getAction(), bodyBytes);
                         } catch (Exception ex) {
@@ -889,34 +933,57 @@ public final class P2pMgr implements IP2pMgr {
                     case Ctrl.SYNC:
                         if (!handlers.containsKey(h.getRoute())) {
                             p2pLOG.debug("unregistered-route={}-{}-{} node={}", h.getVer(), h.getCtrl(), h.getAction(), cb.getDisplayId());
+                            bufferPool.release(body);
                             return;
                         }
 
-                        handleKernelMessage(cb.getNodeIdHash(), h.getRoute(), bodyBytes);
+                        handleKernelMessage(cb.getNodeIdHash(), h.getRoute(), body, h.isCompressed());
                         break;
                     default:
                         p2pLOG.debug("invalid-route={}-{}-{} node={}", h.getVer(), h.getCtrl(), h.getAction(), cb.getDisplayId());
+                        bufferPool.release(body);
                         break;
                 }
                 break;
             default:
                 p2pLOG.debug("unhandled-ver={} node={}", h.getVer(), cb.getDisplayId());
+                bufferPool.release(body);
                 break;
         }
     }
 
-    private void handleKernelMessage(int nodeIdHash, int route, final byte[] msgBytes) {
+    /** Hands the body over to the workers, which release it to the pool once handled. */
+    private void handleKernelMessage(int nodeIdHash, int route, final ByteBuffer body, boolean compressed) {
         INode node = nodeMgr.getActiveNode(nodeIdHash);
         if (node != null) {
             String nodeDisplayId = node.getIdShort();
             node.refreshTimestamp();
             List<Handler> hs = handlers.get(route);
             if (hs != null) {
-                scheduledWorkers.execute(() -> receiveMessage(nodeIdHash, nodeDisplayId, msgBytes, hs));
+                if (compressed) {
+                    // decompressed off the selector loop to keep reading the other channels
+                    scheduledWorkers.execute(() -> {
+                        ByteBuffer decompressed;
+                        try {
+                            decompressed = MsgCompression.decompress(body, bufferPool);
+                        } catch (DataFormatException e) {
+                            p2pLOG.debug("decompress-msg error node={} route={}", nodeDisplayId, route);
+                            errCheck(nodeIdHash, nodeDisplayId);
+                            return;
+                        } finally {
+                            bufferPool.release(body);
+                        }
+                        receiveMessage(nodeIdHash, nodeDisplayId, decompressed, hs);
+                    });
+                } else {
+                    scheduledWorkers.execute(() -> receiveMessage(nodeIdHash, nodeDisplayId, body, hs));
+                }
+                return;
             }
         } else {
             p2pLOG.debug("handleKernelMsg can't find hash{}", nodeIdHash);
         }
+        bufferPool.release(body);
     }
 
     private void handleP2pMessage(final SelectionKey sk, byte act, final byte[] msgBytes) {
@@ -927,7 +994,7 @@ public final class P2pMgr implements IP2pMgr {
                 if (msgBytes.length > ReqHandshake.LEN) {
                     ReqHandshake1 reqHandshake1 = ReqHandshake1.decode(msgBytes, p2pLOG);
                     if (reqHandshake1 != null) {
-                        handleHandshakeRequest(rb, sk.channel().hashCode(), reqHandshake1.getNodeId(), reqHandshake1.getNetId(), reqHandshake1.getPort(), reqHandshake1.getRevision());
+                        handleHandshakeRequest(rb, sk.channel().hashCode(), reqHandshake1.getNodeId(), reqHandshake1.getNetId(), reqHandshake1.getPort(), reqHandshake1.getRevision(), reqHandshake1.getCapabilities());
                     }
                 }
                 break;
@@ -937,6 +1004,7 @@ public final class P2pMgr implements IP2pMgr {
                     if (msgBytes.length > ResHandshake.LEN) {
                         ResHandshake1 resHandshake1 = ResHandshake1.decode(msgBytes, p2pLOG);
                         if (resHandshake1 != null && resHandshake1.getSuccess()) {
+                            rb.setCompressionEnabled(MsgCompression.isSupported(resHandshake1.getCapabilities()));
                             handleHandshakeResponse(rb.getNodeIdHash(), resHandshake1.getBinaryVersion());
                         }
                     }
@@ -994,7 +1062,7 @@ public final class P2pMgr implements IP2pMgr {
     /**
      * Constructs node info after handshake request success.
      */
-    private void handleHandshakeRequest(final ChannelBuffer buffer, int channelHash, final byte[] nodeId, int netId, int port, final byte[] revision) {
+    private void handleHandshakeRequest(final ChannelBuffer buffer, int channelHash, final byte[] nodeId, int netId, int port, final byte[] revision, byte capabilities) {
         INode node = nodeMgr.getInboundNode(channelHash);
         if (node != null && node.getPeerMetric().notBan()) {
             p2pLOG.debug("netId={}, nodeId={} port={} rev={}", netId, new String(nodeId), port, revision);
@@ -1003,6 +1071,7 @@ public final class P2pMgr implements IP2pMgr {
             if (isCorrectNetwork(netId)) {
                 buffer.setNodeIdHash(Arrays.hashCode(nodeId));
                 buffer.setDisplayId(new String(Arrays.copyOfRange(nodeId, 0, 6)));
+                buffer.setCompressionEnabled(MsgCompression.isSupported(capabilities));
                 node.setId(nodeId);
                 node.setPort(port);
 
@@ -0,0 +1,183 @@
+package org.aion.p2p.impl1;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+
+/**
+ * A selector thread that blocks until one of its channels is ready or until a task is submitted
+ * to it, in which case the selector is woken up. The ready keys are handed to the given handler
+ * on the selector thread, so each registered channel is only ever read by a single thread.
+ *
+ * <p>Channels must be registered through {@link #register} and any other operation on the
+ * selector must be submitted through {@link #execute} to avoid blocking on a selector that is
+ * waiting for events.
+ */
+final class SelectorLoop implements Runnable {
+    private static final long TIMEOUT_REGISTER = 5; // in seconds
+
+    private final String name;
+    private final Selector selector;
+    private final Consumer<SelectionKey> handler;
+    private final Logger p2pLOG;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // avoids redundant wakeups while the selector is already awake
+    private final AtomicBoolean wakenUp = new AtomicBoolean(false);
+    private volatile boolean running = true;
+    private volatile Thread thread;
+
+    /**
+     * @param name the name of the selector thread
+     * @param handler processes the ready keys on the selector thread
+     * @param p2pLOG the logger for unexpected errors
+     * @throws IOException when the selector cannot be opened
+     */
+    SelectorLoop(String name, Consumer<SelectionKey> handler, Logger p2pLOG) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.p2pLOG = p2pLOG;
+    }
+
+    /** Starts the selector thread. */
+    void start() {
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    if (tasks.isEmpty()) {
+                        selector.select();
+                    } else {
+                        selector.selectNow();
+                    }
+                    // tasks submitted from here on wake up the next select
+                    wakenUp.set(false);
+
+                    runTasks();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            handler.accept(key);
+                        }
+                    }
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (IOException e) {
+                    p2pLOG.error("Exception encountered while selecting keys.", e);
+                } catch (RuntimeException e) {
+                    p2pLOG.error("Exception encountered while processing keys.", e);
+                }
+            }
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                p2pLOG.debug("close-selector-io-exception.", e);
+            }
+            // fails the registrations that were submitted during shutdown
+            runTasks();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                p2pLOG.error("Exception encountered while running selector task.", e);
+            }
+        }
+    }
+
+    /** Runs the given task on the selector thread before the next select. */
+    void execute(Runnable task) {
+        tasks.offer(task);
+        if (!inLoop()) {
+            wakeup();
+        }
+    }
+
+    /** Wakes up the selector if it is waiting for events. */
+    void wakeup() {
+        if (wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Registers the given channel with the selector of this loop and waits for the registration
+     * to complete.
+     *
+     * @throws IOException when the channel or the loop is closed or the registration times out
+     */
+    SelectionKey register(SelectableChannel channel, int ops, Object attachment) throws IOException {
+        if (!running) {
+            throw new ClosedChannelException();
+        }
+        if (inLoop()) {
+            return channel.register(selector, ops, attachment);
+        }
+
+        CompletableFuture<SelectionKey> registration = new CompletableFuture<>();
+        execute(
+                () -> {
+                    try {
+                        registration.complete(channel.register(selector, ops, attachment));
+                    } catch (ClosedChannelException | RuntimeException e) {
+                        registration.completeExceptionally(e);
+                    }
+                });
+
+        try {
+            return registration.get(TIMEOUT_REGISTER, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClosedChannelException) {
+                throw (ClosedChannelException) e.getCause();
+            }
+            throw new ClosedChannelException();
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out registering channel with " + name + ".");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClosedChannelException();
+        }
+    }
+
+    /** Returns the key of the given channel if it is registered with this loop. */
+    SelectionKey keyFor(SelectableChannel channel) {
+        return channel.keyFor(selector);
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Stops the selector thread and closes the selector. */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -1,13 +1,25 @@
 package org.aion.p2p.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.INode;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
 import org.aion.p2p.impl1.P2pMgr;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,11 +63,11 @@ public class P2pMgrTest {
         // to guarantee they don't receive the same port
 
         System.out.println("connector on: " + TestUtilities.formatAddr(id1, ip, port1));
-        P2pMgr connector = new P2pMgr(p2pLOG, surveyLog, 0, "", id1, ip, port1, nodes, false, 128, 128, false, 50);
+        P2pMgr connector = new P2pMgr(p2pLOG, surveyLog, 0, "test", id1, ip, port1, nodes, false, 128, 128, false, 50);
 
         System.out.println("receiver on: " + TestUtilities.formatAddr(id2, ip, port2));
         P2pMgr receiver =
-                new P2pMgr(p2pLOG, surveyLog, 0, "", id2, ip, port2, new String[0], false, 128, 128, false, 50);
+                new P2pMgr(p2pLOG, surveyLog, 0, "test", id2, ip, port2, new String[0], false, 128, 128, false, 50);
 
         return Map.entry(connector, receiver);
     }
@@ -92,4 +104,116 @@ public class P2pMgrTest {
         P2pMgr p2p = new P2pMgr(p2pLOG, surveyLog, 0, "", nodeId1, ip1, port1, nodes, false, 128, 128, false, 50);
         assertEquals(3, p2p.getTempNodesCount());
     }
+
+    @Test(timeout = 30_000)
+    public void testBroadcastEncodesOnce() throws InterruptedException {
+        Map.Entry<P2pMgr, P2pMgr> nodes = newTwoNodeSetup();
+        P2pMgr connector = nodes.getKey();
+        P2pMgr receiver = nodes.getValue();
+
+        byte act = 100;
+        byte[] body = new byte[] {1, 2, 3};
+        CountDownLatch received = new CountDownLatch(1);
+        receiver.register(
+                List.of(
+                        new Handler(Ver.V0, Ctrl.SYNC, act) {
+                            @Override
+                            public void receive(int _id, String _displayId, byte[] _msg) {
+                                if (Arrays.equals(body, _msg)) {
+                                    received.countDown();
+                                }
+                            }
+                        }));
+
+        AtomicInteger encodings = new AtomicInteger();
+        Msg msg =
+                new Msg(Ver.V0, Ctrl.SYNC, act) {
+                    @Override
+                    public byte[] encode() {
+                        encodings.incrementAndGet();
+                        return body;
+                    }
+                };
+
+        // the handshake is created on registration
+        connector.register(List.of());
+
+        try {
+            receiver.run();
+            connector.run();
+            while (connector.getActiveNodes().isEmpty() || receiver.getActiveNodes().isEmpty()) {
+                Thread.sleep(50);
+            }
+
+            // the filter is applied to the active peers
+            assertTrue(connector.broadcast(msg, n -> false).isEmpty());
+            List<INode> peers = connector.broadcast(msg, n -> true);
+            assertEquals(1, peers.size());
+
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(1, encodings.get());
+        } finally {
+            connector.shutdown();
+            receiver.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testSendCompressedSyncMessages() throws InterruptedException {
+        Map.Entry<P2pMgr, P2pMgr> nodes = newTwoNodeSetup();
+        P2pMgr connector = nodes.getKey();
+        P2pMgr receiver = nodes.getValue();
+
+        byte act = 100;
+        // a repetitive body is compressed, a random one is sent as it is
+        byte[] compressible = new byte[2 * 1024 * 1024];
+        for (int i = 0; i < compressible.length; i++) {
+            compressible[i] = (byte) (i % 251);
+        }
+        byte[] random = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(random);
+        List<byte[]> bodies = List.of(compressible, random);
+
+        CountDownLatch received = new CountDownLatch(4);
+        List<Handler> handlers =
+                List.of(
+                        new Handler(Ver.V0, Ctrl.SYNC, act) {
+                            @Override
+                            public void receive(int _id, String _displayId, byte[] _msg) {
+                                if (bodies.stream().anyMatch(body -> Arrays.equals(body, _msg))) {
+                                    received.countDown();
+                                }
+                            }
+                        });
+        receiver.register(handlers);
+        connector.register(handlers);
+
+        try {
+            receiver.run();
+            connector.run();
+            while (connector.getActiveNodes().isEmpty() || receiver.getActiveNodes().isEmpty()) {
+                Thread.sleep(50);
+            }
+
+            // each side compresses according to the capabilities sent by the other side
+            for (byte[] body : bodies) {
+                Msg msg =
+                        new Msg(Ver.V0, Ctrl.SYNC, act) {
+                            @Override
+                            public byte[] encode() {
+                                return body;
+                            }
+                        };
+                for (P2pMgr sender : List.of(connector, receiver)) {
+                    INode peer = sender.getActiveNodes().values().iterator().next();
+                    sender.send(peer.getIdHash(), peer.getIdShort(), msg);
+                }
+            }
+
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+        } finally {
+            connector.shutdown();
+            receiver.shutdown();
+        }
+    }
 }
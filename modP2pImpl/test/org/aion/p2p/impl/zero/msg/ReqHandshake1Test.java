@@ -96,6 +96,56 @@ public class ReqHandshake1Test {
         assertArrayEquals(req1.getRevision(), req2.getRevision());
     }
 
+    @Test
+    public void testCapabilitiesEncodeDecode() {
+        ReqHandshake1 req1 =
+                new ReqHandshake1(
+                        validNodeId,
+                        netId,
+                        Node.ipStrToBytes(randomIp),
+                        port,
+                        randomRevision,
+                        randomVersions,
+                        (byte) 0x01);
+        byte[] bytes = req1.encode();
+
+        ReqHandshake1 req2 = ReqHandshake1.decode(bytes, p2pLOG);
+        assertNotNull(req2);
+        assertEquals(0x01, req2.getCapabilities());
+        assertArrayEquals(req1.getRevision(), req2.getRevision());
+    }
+
+    @Test
+    public void testNoCapabilitiesEncodeDecode() {
+        ReqHandshake1 req1 =
+                new ReqHandshake1(
+                        validNodeId,
+                        netId,
+                        Node.ipStrToBytes(randomIp),
+                        port,
+                        randomRevision,
+                        randomVersions,
+                        (byte) 0x01);
+        byte[] legacy =
+                new ReqHandshake1(
+                                validNodeId,
+                                netId,
+                                Node.ipStrToBytes(randomIp),
+                                port,
+                                randomRevision,
+                                randomVersions)
+                        .encode();
+
+        // the capabilities are appended to the encoding of the nodes without capabilities
+        byte[] bytes = req1.encode();
+        assertEquals(legacy.length + 1, bytes.length);
+        assertArrayEquals(legacy, Arrays.copyOf(bytes, legacy.length));
+
+        ReqHandshake1 req2 = ReqHandshake1.decode(legacy, p2pLOG);
+        assertNotNull(req2);
+        assertEquals(0, req2.getCapabilities());
+    }
+
     @Test
     public void testInvalidEncodeDecode() {
 
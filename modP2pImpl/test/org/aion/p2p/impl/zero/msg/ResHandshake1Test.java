@@ -90,6 +90,28 @@ public class ResHandshake1Test {
         assertArrayEquals(bv.getBytes(), cmp);
     }
 
+    @Test
+    public void testCapabilitiesEncodeDecode() {
+        String bv = "0.2.9";
+        byte[] legacy = new ResHandshake1(p2pLOG, true, bv).encode();
+
+        // the capabilities are appended to the encoding of the nodes without capabilities
+        byte[] ec = new ResHandshake1(p2pLOG, true, bv, (byte) 0x01).encode();
+        assertNotNull(ec);
+        assertEquals(legacy.length + 1, ec.length);
+        assertArrayEquals(legacy, Arrays.copyOf(ec, legacy.length));
+
+        ResHandshake1 rs = ResHandshake1.decode(ec, p2pLOG);
+        assertNotNull(rs);
+        assertEquals(bv, rs.getBinaryVersion());
+        assertEquals(0x01, rs.getCapabilities());
+
+        rs = ResHandshake1.decode(legacy, p2pLOG);
+        assertNotNull(rs);
+        assertEquals(bv, rs.getBinaryVersion());
+        assertEquals(0, rs.getCapabilities());
+    }
+
     @Test
     public void testEncodeVerTruncated() {
         StringBuilder bv = new StringBuilder();
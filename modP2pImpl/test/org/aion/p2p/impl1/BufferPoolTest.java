@@ -0,0 +1,93 @@
+package org.aion.p2p.impl1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.aion.p2p.P2pConstant;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(0);
+
+        assertEquals(0, pool.acquire(0).capacity());
+        assertEquals(BufferPool.MIN_CLASS_SIZE, pool.acquire(1).capacity());
+        assertEquals(BufferPool.MIN_CLASS_SIZE, pool.acquire(BufferPool.MIN_CLASS_SIZE).capacity());
+        assertEquals(
+                BufferPool.MIN_CLASS_SIZE * 2,
+                pool.acquire(BufferPool.MIN_CLASS_SIZE + 1).capacity());
+        assertEquals(
+                BufferPool.MAX_CLASS_SIZE, pool.acquire(P2pConstant.MAX_BODY_SIZE).capacity());
+
+        ByteBuffer buffer = pool.acquire(5000);
+        assertEquals(0, buffer.position());
+        assertEquals(5000, buffer.limit());
+        assertTrue(buffer.hasArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireNegativeSize() {
+        new BufferPool(0).acquire(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireAboveMaxSize() {
+        new BufferPool(0).acquire(BufferPool.MAX_CLASS_SIZE + 1);
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(P2pConstant.MAX_BODY_SIZE);
+
+        ByteBuffer buffer = pool.acquire(5000);
+        buffer.put(new byte[100]);
+        pool.release(buffer);
+        assertEquals(BufferPool.MIN_CLASS_SIZE * 2, pool.getPooledBytes());
+
+        // reused by any size of the same class and reset
+        ByteBuffer reused = pool.acquire(BufferPool.MIN_CLASS_SIZE + 1);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(BufferPool.MIN_CLASS_SIZE + 1, reused.limit());
+        assertEquals(0, pool.getPooledBytes());
+
+        // not reused by another class
+        pool.release(reused);
+        assertNotSame(reused, pool.acquire(100));
+    }
+
+    @Test
+    public void testMaxPooledBytes() {
+        BufferPool pool = new BufferPool(BufferPool.MIN_CLASS_SIZE * 2);
+
+        ByteBuffer b1 = pool.acquire(100);
+        ByteBuffer b2 = pool.acquire(100);
+        ByteBuffer b3 = pool.acquire(100);
+        pool.release(b1);
+        pool.release(b2);
+        pool.release(b3);
+        assertEquals(BufferPool.MIN_CLASS_SIZE * 2, pool.getPooledBytes());
+
+        assertSame(b2, pool.acquire(100));
+        assertSame(b1, pool.acquire(100));
+        assertNotSame(b3, pool.acquire(100));
+    }
+
+    @Test
+    public void testReleaseForeignBuffers() {
+        BufferPool pool = new BufferPool(P2pConstant.MAX_BODY_SIZE);
+
+        pool.release(pool.acquire(0));
+        pool.release(ByteBuffer.allocate(BufferPool.MIN_CLASS_SIZE + 1));
+        pool.release(ByteBuffer.allocateDirect(BufferPool.MIN_CLASS_SIZE));
+        pool.release(ByteBuffer.allocate(BufferPool.MIN_CLASS_SIZE).asReadOnlyBuffer());
+        pool.release(ByteBuffer.wrap(new byte[BufferPool.MIN_CLASS_SIZE * 2], 1, 10).slice());
+
+        assertEquals(0, pool.getPooledBytes());
+    }
+}
@@ -6,13 +6,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
 import org.aion.p2p.Header;
+import org.aion.p2p.P2pConstant;
 import org.aion.p2p.impl1.ChannelBuffer.RouteStatus;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,6 +30,7 @@ public class ChannelBufferTest {
 
     private ChannelBuffer cb;
     private Random r;
+    private BufferPool pool;
 
     @Mock private Header header;
 
@@ -37,6 +42,7 @@ public class ChannelBufferTest {
 
         cb = new ChannelBuffer(p2pLOG);
         r = new Random();
+        pool = new BufferPool(P2pConstant.MAX_BODY_SIZE);
     }
 
     private ByteBuffer genBuffer() {
@@ -82,13 +88,13 @@ public class ChannelBufferTest {
 
     @Test
     public void testRefreshBody() {
-        cb.body = UUID.randomUUID().toString().getBytes();
+        cb.body = ByteBuffer.wrap(UUID.randomUUID().toString().getBytes());
         cb.refreshBody();
         assertNull(cb.body);
     }
 
     @Test
-    public void testReadHead() {
+    public void testReadHead() throws IOException {
         for (int i = 0; i < 100; i++) {
             cb.refreshHeader();
             ByteBuffer bb = genBuffer();
@@ -114,12 +120,14 @@ public class ChannelBufferTest {
         assertTrue(cb.isBodyNotCompleted());
         cb.setHeader(header);
         assertTrue(cb.isBodyNotCompleted());
-        cb.body = UUID.randomUUID().toString().getBytes();
+        cb.body = ByteBuffer.allocate(header.getLen());
+        assertTrue(cb.isBodyNotCompleted());
+        cb.body.position(header.getLen());
         assertFalse(cb.isBodyNotCompleted());
     }
 
     @Test
-    public void testReadBody() {
+    public void testReadBody() throws IOException {
         for (int i = 0; i < 100; i++) {
             cb.refreshHeader();
             cb.refreshBody();
@@ -127,9 +135,10 @@ public class ChannelBufferTest {
             cb.readHead(bb);
             if (bb.array().length >= LEN) {
                 assertArrayEquals(expectHeader.encode(), cb.getHeader().encode());
-                cb.readBody(bb);
+                cb.readBody(bb, pool);
                 assertNotNull(cb.body);
-                assertEquals(cb.getHeader().getLen(), cb.body.length);
+                assertEquals(cb.getHeader().getLen(), cb.body.limit());
+                assertFalse(cb.isBodyNotCompleted());
             } else {
                 assertNull(cb.getHeader());
             }
@@ -139,10 +148,56 @@ public class ChannelBufferTest {
     @Test
     public void testReadBodyNotCompleted() {
         ByteBuffer bb = genBuffer();
-        cb.readBody(bb);
+        cb.readBody(bb, pool);
         assertNull(cb.body);
     }
 
+    @Test
+    public void testReadSplitMessage() throws IOException {
+        byte[] body = new byte[10_000];
+        r.nextBytes(body);
+        byte[] head = ByteBuffer.allocate(LEN).putInt(0x010203).putInt(body.length).array();
+        ByteBuffer message = ByteBuffer.allocate(LEN + body.length).put(head).put(body);
+        message.flip();
+
+        // the message is received in chunks that split both the header and the body
+        for (int chunk : new int[] {3, 1000, 8000, 1005}) {
+            ByteBuffer bb = message.duplicate();
+            bb.limit(bb.position() + chunk);
+            message.position(bb.limit());
+
+            if (cb.isHeaderNotCompleted()) {
+                cb.readHead(bb);
+            }
+            if (!cb.isHeaderNotCompleted()) {
+                cb.readBody(bb, pool);
+            }
+            assertFalse(bb.hasRemaining());
+        }
+
+        assertFalse(cb.isBodyNotCompleted());
+        assertArrayEquals(head, cb.getHeader().encode());
+
+        ByteBuffer received = cb.takeBody();
+        assertEquals(body.length, received.remaining());
+        assertArrayEquals(body, Arrays.copyOf(received.array(), body.length));
+        assertNull(cb.getHeader());
+        assertNull(cb.body);
+
+        // the buffer of the body is reused by the next message
+        pool.release(received);
+        cb.readHead(ByteBuffer.wrap(head));
+        cb.readBody(ByteBuffer.wrap(body), pool);
+        assertSame(received, cb.body);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidHeader() throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(LEN);
+        bb.putInt(0x010203).putInt(P2pConstant.MAX_BODY_SIZE + 1).flip();
+        cb.readHead(bb);
+    }
+
     @Test
     public void testShouldRoute() throws InterruptedException {
         assertTrue(cb.shouldRoute(1, 1));
@@ -158,4 +213,61 @@ public class ChannelBufferTest {
         assertNotNull(rs);
         assertEquals(2, rs.count);
     }
+
+    @Test
+    public void testOutboundQueueBounds() {
+        // an empty queue accepts a message above the byte limit
+        ByteBuffer large = ByteBuffer.allocate((int) ChannelBuffer.MAX_OUTBOUND_BYTES + 1);
+        assertTrue(cb.offerOutbound(new ByteBuffer[] {large}, 0));
+        assertFalse(cb.offerOutbound(new ByteBuffer[] {ByteBuffer.allocate(1)}, 0));
+
+        large.position(large.limit());
+        cb.removeWritten();
+        assertFalse(cb.hasOutbound());
+
+        for (int i = 0; i < ChannelBuffer.MAX_OUTBOUND_MESSAGES; i++) {
+            assertTrue(cb.offerOutbound(new ByteBuffer[] {ByteBuffer.allocate(1)}, 0));
+        }
+        assertFalse(cb.offerOutbound(new ByteBuffer[] {ByteBuffer.allocate(1)}, 0));
+        assertEquals(ChannelBuffer.MAX_OUTBOUND_MESSAGES, cb.getOutboundBytes());
+    }
+
+    @Test
+    public void testPeekOutbound() {
+        ByteBuffer header1 = ByteBuffer.allocate(LEN);
+        ByteBuffer body1 = ByteBuffer.allocate(10);
+        ByteBuffer header2 = ByteBuffer.allocate(LEN);
+        ByteBuffer header3 = ByteBuffer.allocate(LEN);
+        cb.offerOutbound(new ByteBuffer[] {header1, body1}, 0);
+        cb.offerOutbound(new ByteBuffer[] {header2}, 0);
+        cb.offerOutbound(new ByteBuffer[] {header3}, 100);
+
+        // the buffers of several messages are written together
+        assertArrayEquals(new ByteBuffer[] {header1, body1}, cb.peekOutbound(1, 0, 10));
+        assertArrayEquals(new ByteBuffer[] {header1, body1, header2, header3}, cb.peekOutbound(8, 0, 10));
+
+        // the written buffers are skipped
+        header1.position(LEN);
+        assertArrayEquals(new ByteBuffer[] {body1, header2, header3}, cb.peekOutbound(8, 0, 10));
+        cb.removeWritten();
+        assertEquals(LEN * 3 + 10, cb.getOutboundBytes());
+
+        // messages that were not started before the timeout are discarded
+        assertArrayEquals(new ByteBuffer[] {body1, header3}, cb.peekOutbound(8, 105, 10));
+        assertEquals(LEN * 2 + 10, cb.getOutboundBytes());
+
+        body1.position(10);
+        header3.position(LEN);
+        cb.removeWritten();
+        assertFalse(cb.hasOutbound());
+        assertEquals(0, cb.peekOutbound(8, 200, 10).length);
+    }
+
+    @Test
+    public void testScheduleWrite() {
+        assertTrue(cb.scheduleWrite());
+        assertFalse(cb.scheduleWrite());
+        cb.writeCompleted();
+        assertTrue(cb.scheduleWrite());
+    }
 }
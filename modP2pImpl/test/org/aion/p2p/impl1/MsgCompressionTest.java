@@ -0,0 +1,126 @@
+package org.aion.p2p.impl1;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import org.aion.p2p.P2pConstant;
+import org.junit.Test;
+
+public class MsgCompressionTest {
+
+    private final BufferPool pool = new BufferPool(P2pConstant.MAX_BODY_SIZE);
+
+    private static byte[] compressibleBody(int len) {
+        byte[] body = new byte[len];
+        for (int i = 0; i < len; i++) {
+            body[i] = (byte) (i % 17);
+        }
+        return body;
+    }
+
+    @Test
+    public void testCompressDecompress() throws DataFormatException {
+        byte[] body = compressibleBody(64 * 1024);
+
+        byte[] compressed = MsgCompression.compress(body);
+        assertNotNull(compressed);
+        assertTrue(compressed.length < body.length);
+
+        ByteBuffer decompressed = MsgCompression.decompress(ByteBuffer.wrap(compressed), pool);
+        byte[] bytes = new byte[decompressed.remaining()];
+        decompressed.get(bytes);
+        assertArrayEquals(body, bytes);
+    }
+
+    @Test
+    public void testDecompressFromSlice() throws DataFormatException {
+        byte[] body = compressibleBody(64 * 1024);
+        byte[] compressed = MsgCompression.compress(body);
+
+        // the compressed body surrounded by other bytes
+        byte[] received = new byte[compressed.length + 16];
+        System.arraycopy(compressed, 0, received, 8, compressed.length);
+        ByteBuffer slice = ByteBuffer.wrap(received, 8, compressed.length);
+
+        ByteBuffer decompressed = MsgCompression.decompress(slice, pool);
+        assertEquals(8, slice.position());
+        assertEquals(body.length, decompressed.remaining());
+        assertArrayEquals(body, Arrays.copyOf(decompressed.array(), body.length));
+    }
+
+    @Test
+    public void testDecompressReleasesBufferOnFailure() {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        try {
+            MsgCompression.decompress(
+                    ByteBuffer.wrap(Arrays.copyOf(compressed, compressed.length / 2)), pool);
+            fail();
+        } catch (DataFormatException e) {
+            assertEquals(64 * 1024, pool.getPooledBytes());
+        }
+    }
+
+    @Test
+    public void testIncompressibleBody() {
+        byte[] body = new byte[MsgCompression.THRESHOLD];
+        ThreadLocalRandom.current().nextBytes(body);
+
+        assertNull(MsgCompression.compress(body));
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(MsgCompression.isSupported(MsgCompression.CAPABILITY_DEFLATE));
+        assertTrue(MsgCompression.isSupported((byte) 0xff));
+        assertFalse(MsgCompression.isSupported((byte) 0));
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressMissingLength() throws DataFormatException {
+        MsgCompression.decompress(ByteBuffer.allocate(3), pool);
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressTruncatedBody() throws DataFormatException {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        MsgCompression.decompress(
+                ByteBuffer.wrap(Arrays.copyOf(compressed, compressed.length / 2)), pool);
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressCorruptedBody() throws DataFormatException {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        compressed[4] = (byte) ~compressed[4];
+        MsgCompression.decompress(ByteBuffer.wrap(compressed), pool);
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressShorterLength() throws DataFormatException {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        ByteBuffer.wrap(compressed).putInt(64 * 1024 - 1);
+        MsgCompression.decompress(ByteBuffer.wrap(compressed), pool);
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressLongerLength() throws DataFormatException {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        ByteBuffer.wrap(compressed).putInt(64 * 1024 + 1);
+        MsgCompression.decompress(ByteBuffer.wrap(compressed), pool);
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testDecompressExceedsMaxBodySize() throws DataFormatException {
+        byte[] compressed = MsgCompression.compress(compressibleBody(64 * 1024));
+        ByteBuffer.wrap(compressed).putInt(P2pConstant.MAX_BODY_SIZE + 1);
+        MsgCompression.decompress(ByteBuffer.wrap(compressed), pool);
+    }
+}
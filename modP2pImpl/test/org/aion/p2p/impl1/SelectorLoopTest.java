@@ -0,0 +1,87 @@
+package org.aion.p2p.impl1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+
+public class SelectorLoopTest {
+
+    @Mock private Logger p2pLOG;
+
+    private Pipe pipe;
+    private SelectorLoop loop;
+    private final BlockingQueue<String> reads = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+
+        pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+
+        loop =
+                new SelectorLoop(
+                        "p2p-in-test",
+                        key -> {
+                            ByteBuffer buf = ByteBuffer.allocate(16);
+                            try {
+                                ((Pipe.SourceChannel) key.channel()).read(buf);
+                            } catch (IOException e) {
+                                key.cancel();
+                            }
+                            reads.add(Thread.currentThread().getName() + ":" + buf.position());
+                        },
+                        p2pLOG);
+        loop.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        loop.shutdown();
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    @Test
+    public void testReadyChannelIsHandledWithoutPolling() throws Exception {
+        SelectionKey key = loop.register(pipe.source(), SelectionKey.OP_READ, null);
+        assertEquals(key, loop.keyFor(pipe.source()));
+
+        pipe.sink().write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+
+        // the blocking select returns as soon as the data is available
+        assertEquals("p2p-in-test:3", reads.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskWakesUpTheSelector() throws Exception {
+        CountDownLatch executed = new CountDownLatch(1);
+        loop.execute(executed::countDown);
+
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void testRegisterAfterShutdown() throws Exception {
+        loop.shutdown();
+        // the selector is closed by the loop thread
+        Thread.sleep(100);
+
+        loop.register(pipe.source(), SelectionKey.OP_READ, null);
+    }
+}
@@ -9,6 +9,7 @@ import static org.aion.util.bytes.ByteUtil.isNullOrZeroArray;
 import static org.aion.util.bytes.ByteUtil.isSingleZero;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.aion.util.bytes.ByteUtil;
@@ -165,6 +166,26 @@ public class RLP {
         return rlpList;
     }
 
+    /**
+     * Decodes the remaining bytes of the given buffer. When the buffer is backed by an array the
+     * decoded elements refer to that array, so its content must not change while they are in use.
+     *
+     * @param msgData the buffer positioned at the start of the encoding
+     * @return the decoded list
+     */
+    public static SharedRLPList decode2SharedListFromBuffer(ByteBuffer msgData) {
+        if (!msgData.hasArray()) {
+            byte[] copy = new byte[msgData.remaining()];
+            msgData.duplicate().get(copy);
+            return decode2SharedList(copy);
+        }
+
+        int pos = msgData.arrayOffset() + msgData.position();
+        SharedRLPList rlpList = new SharedRLPList(msgData.array(), pos, msgData.remaining());
+        fullTraverseFromSharedRlpList(rlpList, 0, pos, pos + rlpList.length);
+        return rlpList;
+    }
+
     /** @implNote Considers only encodings of one byte. */
     public static RLPElement decode2OneItem(byte[] msgData, int startPos) {
         if (msgData == null || msgData.length == 0) {
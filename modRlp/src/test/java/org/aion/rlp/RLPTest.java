@@ -3,6 +3,7 @@ package org.aion.rlp;
 import static org.aion.rlp.RLP.decode;
 import static org.aion.rlp.RLP.decode2;
 import static org.aion.rlp.RLP.decode2SharedList;
+import static org.aion.rlp.RLP.decode2SharedListFromBuffer;
 import static org.aion.rlp.RLP.decodeInt;
 import static org.aion.rlp.RLP.encodeBigInteger;
 import static org.aion.rlp.RLP.encodeByte;
@@ -54,6 +55,8 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 import org.aion.util.conversions.Hex;
 import org.junit.Ignore;
@@ -1269,4 +1272,37 @@ public class RLPTest {
         long out = RLP.decodeBigInteger(encoded, 0).longValue();
         assertThat(out, is(equalTo(largeLong)));
     }
+
+    @Test
+    public void testDecode2SharedListFromBuffer() {
+        byte[] longItem = new byte[100];
+        Arrays.fill(longItem, (byte) 0x42);
+        byte[] encoded =
+                encodeList(
+                        encodeElement("dog".getBytes()),
+                        encodeList(encodeElement("cat".getBytes()), encodeElement(longItem)));
+
+        // the encoding is surrounded by unrelated bytes in the backing array
+        byte[] array = new byte[encoded.length + 20];
+        Arrays.fill(array, (byte) 0xff);
+        System.arraycopy(encoded, 0, array, 10, encoded.length);
+        ByteBuffer buffer = ByteBuffer.wrap(array, 5, encoded.length + 10).slice();
+        buffer.position(5).limit(5 + encoded.length);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length).put(encoded);
+        direct.flip();
+
+        for (ByteBuffer msg : new ByteBuffer[] {buffer, direct}) {
+            SharedRLPList list = (SharedRLPList) decode2SharedListFromBuffer(msg).get(0);
+            assertArrayEquals(encoded, SharedRLPList.getRLPDataCopy(list));
+            assertArrayEquals("dog".getBytes(), list.get(0).getRLPData());
+
+            SharedRLPList inner = (SharedRLPList) list.get(1);
+            assertArrayEquals("cat".getBytes(), inner.get(0).getRLPData());
+            assertArrayEquals(longItem, inner.get(1).getRLPData());
+
+            // the buffer is not consumed
+            assertEquals(encoded.length, msg.remaining());
+        }
+    }
 }
@@ -4,20 +4,27 @@ import com.google.common.annotations.VisibleForTesting;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.AionTransaction;
 import org.aion.base.PooledTransaction;
 import org.aion.log.AionLoggerFactory;
@@ -26,45 +33,87 @@ import org.aion.txpool.Constant;
 import org.aion.txpool.Constant.TXPOOL_PROPERTY;
 import org.aion.types.AionAddress;
 import org.aion.util.types.ByteArrayWrapper;
-import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 
+/**
+ * Transaction pool that allows concurrent updates for different senders.
+ *
+ * <p>The updates and queries for a single sender hold the shared pool lock and the lock of the
+ * stripe the sender belongs to. The operations on the whole pool, i.e. building a block template,
+ * listing all the transactions and removing the outdated ones, hold the exclusive pool lock and
+ * see a consistent pool.
+ */
 public final class TxPoolV1 {
 
     /**
-     * poolTransactions : Map<ByteArrayWrapper, PooledTransaction>
+     * poolTransactions : Map<ByteArrayWrapper, PoolEntry>
      *     @ByteArrayWrapper transaction hash
-     *     @PooledTransaction transaction data with the actual energy consume
+     *     @PoolEntry transaction data with the actual energy consume and its fee view key
      */
-    private final Map<ByteArrayWrapper, PooledTransaction> poolTransactions;
+    private final Map<ByteArrayWrapper, PoolEntry> poolTransactions;
     /**
-     * timeView : SortedMap<Long, LinkedHashSet<ByteArrayWrapper>>
+     * timeView : SortedMap<Long, Set<ByteArrayWrapper>>
      *     @Long the transaction timeout in the pool by the second unit.
-     *     @LinkedHashSet<ByteArrayWrapper> the hashSet of the transaction hash
+     *     @Set<ByteArrayWrapper> the hashSet of the transaction hash
+     *     The empty sets are removed together with the outdated transactions.
      */
-    private final SortedMap<Long, Set<ByteArrayWrapper>> timeView = new TreeMap<>();
+    private final ConcurrentSkipListMap<Long, Set<ByteArrayWrapper>> timeView = new ConcurrentSkipListMap<>();
     /**
-     * feeView : SortedMap<Long, LinkedHashSet<ByteArrayWrapper>>
-     *     @Long energy price
-     *     @LinkedHashSet<ByteArrayWrapper> the transaction hash set relate with the transaction has the energy price
+     * feeView : SortedMap<FeeKey, ByteArrayWrapper>
+     *     @FeeKey energy price (descending) and the insertion order of the transaction
+     *     @ByteArrayWrapper the transaction hash
      */
-    private final SortedMap<Long, Set<ByteArrayWrapper>> feeView =
-            new TreeMap<>(Collections.reverseOrder());
+    private final ConcurrentSkipListMap<FeeKey, ByteArrayWrapper> feeView = new ConcurrentSkipListMap<>();
     /**
      * accountView : Map<AionAddress, SortedMap<BigInteger, ByteArrayWrapper>>
      *     @AionAddress account
      *     @BigInteger transaction nonce
      *     @ByteArrayWrapper TransactionHash
+     *     Each sorted map is only accessed while holding the lock of the account stripe or the
+     *     exclusive pool lock.
      */
-    private final Map<AionAddress, SortedMap<BigInteger, ByteArrayWrapper>> accountView = new HashMap<>();
+    private final Map<AionAddress, SortedMap<BigInteger, ByteArrayWrapper>> accountView = new ConcurrentHashMap<>();
+
+    private static final int SENDER_LOCK_STRIPES = 64;
+    private final ReadWriteLock poolLock = new ReentrantReadWriteLock();
+    private final Lock[] senderLocks = new Lock[SENDER_LOCK_STRIPES];
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final AtomicLong insertionCount = new AtomicLong();
 
-    private final Lock lock = new ReentrantLock();
     private final Logger LOG_TXPOOL;
-    private long blockEnergyLimit;
+    private volatile long blockEnergyLimit;
     public final int maxPoolSize;
     public final int transactionTimeout;
 
-    private PooledTransaction droppedPoolTx;
+    private volatile PooledTransaction droppedPoolTx;
+
+    /** A pool transaction with the key ordering it in the fee view. */
+    private static final class PoolEntry {
+        private final PooledTransaction pooledTx;
+        private final FeeKey feeKey;
+
+        private PoolEntry(PooledTransaction pooledTx, FeeKey feeKey) {
+            this.pooledTx = pooledTx;
+            this.feeKey = feeKey;
+        }
+    }
+
+    /** Orders the transactions by descending energy price, then by insertion order. */
+    private static final class FeeKey implements Comparable<FeeKey> {
+        private final long energyPrice;
+        private final long insertion;
+
+        private FeeKey(long energyPrice, long insertion) {
+            this.energyPrice = energyPrice;
+            this.insertion = insertion;
+        }
+
+        @Override
+        public int compareTo(FeeKey other) {
+            int cmp = Long.compare(other.energyPrice, energyPrice);
+            return cmp != 0 ? cmp : Long.compare(insertion, other.insertion);
+        }
+    }
 
     /**
      * @implNote construct the transaction pool with Java.Properties setup.
@@ -90,7 +139,10 @@ public final class TxPoolV1 {
             maxPoolSize = Constant.TXPOOL_SIZE_DEFAULT;
         }
 
-        poolTransactions = new HashMap<>();
+        poolTransactions = new ConcurrentHashMap<>();
+        for (int i = 0; i < SENDER_LOCK_STRIPES; i++) {
+            senderLocks[i] = new ReentrantLock();
+        }
         LOG_TXPOOL = AionLoggerFactory.getLogger(LogEnum.TXPOOL.toString());
     }
 
@@ -107,22 +159,24 @@ public final class TxPoolV1 {
             return Collections.emptyList();
         }
 
-        lock.lock();
-        try {
-            List<PooledTransaction> addedTransactions = new ArrayList<>();
-
-            for (PooledTransaction poolTx : list) {
+        List<PooledTransaction> addedTransactions = new ArrayList<>();
 
-                if (poolTransactions.size() == maxPoolSize) {
-                    LOG_TXPOOL.warn("txPool is full. No transaction has been added!");
-                    return addedTransactions;
-                }
+        for (PooledTransaction poolTx : list) {
+            // reserve the space for the transaction
+            if (poolSize.incrementAndGet() > maxPoolSize) {
+                poolSize.decrementAndGet();
+                LOG_TXPOOL.warn("txPool is full. No transaction has been added!");
+                return addedTransactions;
+            }
 
+            Lock senderLock = lockSender(poolTx.tx.getSenderAddress());
+            try {
                 ByteArrayWrapper repayOldTx = checkRepayTransaction(poolTx.tx);
                 ByteArrayWrapper poolTxHash = ByteArrayWrapper.wrap(poolTx.tx.getTransactionHash());
                 if (repayOldTx != null) {
                     if (repayOldTx.equals(poolTxHash)) {
                         LOG_TXPOOL.debug("skip adding the tx [{}] because it's not a valid repay transaction.", poolTx.tx);
+                        poolSize.decrementAndGet();
                         continue;
                     } else {
                         LOG_TXPOOL.debug("repay tx found! Remove original tx");
@@ -132,57 +186,68 @@ public final class TxPoolV1 {
 
                 poolAdd(poolTxHash, poolTx);
                 addedTransactions.add(poolTx);
+            } finally {
+                unlockSender(senderLock);
             }
-
-            return addedTransactions;
-        } finally {
-            lock.unlock();
         }
+
+        return addedTransactions;
+    }
+
+    /**
+     * Acquires the shared pool lock and the lock of the stripe the sender belongs to.
+     *
+     * @return the sender lock, to be released with {@link #unlockSender(Lock)}
+     */
+    private Lock lockSender(AionAddress sender) {
+        poolLock.readLock().lock();
+        Lock senderLock = senderLocks[Math.floorMod(sender.hashCode(), SENDER_LOCK_STRIPES)];
+        senderLock.lock();
+        return senderLock;
+    }
+
+    private void unlockSender(Lock senderLock) {
+        senderLock.unlock();
+        poolLock.readLock().unlock();
     }
 
     private void poolAdd(ByteArrayWrapper txHash, PooledTransaction poolTx) {
 
         LOG_TXPOOL.debug("Adding tx[{}]", poolTx.tx);
 
-        poolTransactions.put(txHash, poolTx);
+        FeeKey feeKey = new FeeKey(poolTx.tx.getEnergyPrice(), insertionCount.getAndIncrement());
+        poolTransactions.put(txHash, new PoolEntry(poolTx, feeKey));
+
+        // the time sets are only removed while holding the exclusive pool lock
         long txTime = TimeUnit.MICROSECONDS.toSeconds(poolTx.tx.getTimeStampBI().longValue()) + transactionTimeout;
-        Set<ByteArrayWrapper> timeSet = timeView.getOrDefault(txTime, new LinkedHashSet<>());
-        timeView.putIfAbsent(txTime, timeSet);
-        timeSet.add(txHash);
+        timeView.computeIfAbsent(txTime, t -> ConcurrentHashMap.newKeySet()).add(txHash);
 
-        long txEnergyPrice = poolTx.tx.getEnergyPrice();
-        Set<ByteArrayWrapper> feeSet = feeView.getOrDefault(txEnergyPrice, new LinkedHashSet<>());
-        feeView.putIfAbsent(txEnergyPrice, feeSet);
-        feeSet.add(txHash);
+        feeView.put(feeKey, txHash);
 
-        SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.getOrDefault(poolTx.tx.getSenderAddress(), new TreeMap<>());
-        accountView.putIfAbsent(poolTx.tx.getSenderAddress(), accountInfo);
-        accountInfo.put(poolTx.tx.getNonceBI(), txHash);
+        accountView.computeIfAbsent(poolTx.tx.getSenderAddress(), a -> new TreeMap<>()).put(poolTx.tx.getNonceBI(), txHash);
 
         LOG_TXPOOL.debug("Added tx[{}]", poolTx.tx);
     }
 
+    /** Removes a transaction while holding the lock of its sender or the exclusive pool lock. */
     private PooledTransaction poolRemove(ByteArrayWrapper txHash) {
-        PooledTransaction removedTx = poolTransactions.remove(txHash);
-        if (removedTx == null) {
+        PoolEntry removedEntry = poolTransactions.remove(txHash);
+        if (removedEntry == null) {
             LOG_TXPOOL.debug("Did not find the transaction hash:{} in the pool", txHash);
             return null;
         }
+        PooledTransaction removedTx = removedEntry.pooledTx;
+        poolSize.decrementAndGet();
 
         LOG_TXPOOL.debug("Removing tx[{}]", removedTx.tx);
 
         long time = TimeUnit.MICROSECONDS.toSeconds(removedTx.tx.getTimeStampBI().longValue()) + transactionTimeout;
         Set<ByteArrayWrapper> timeSet = timeView.get(time);
-        timeSet.remove(txHash);
-        if (timeSet.isEmpty()) {
-            timeView.remove(time);
+        if (timeSet != null) {
+            timeSet.remove(txHash);
         }
 
-        Set<ByteArrayWrapper> feeSet = feeView.get(removedTx.tx.getEnergyPrice());
-        feeSet.remove(txHash);
-        if (feeSet.isEmpty()) {
-            feeView.remove(removedTx.tx.getEnergyPrice());
-        }
+        feeView.remove(removedEntry.feeKey);
 
         SortedMap<BigInteger, ByteArrayWrapper> accountInfo =
                 accountView.get(removedTx.tx.getSenderAddress());
@@ -209,7 +274,7 @@ public final class TxPoolV1 {
                 return null;
             }
 
-            PooledTransaction pTx = poolTransactions.get(oldTx);
+            PooledTransaction pTx = poolTransactions.get(oldTx).pooledTx;
             LOG_TXPOOL.debug("Original tx[{}], Repay tx[{}]", pTx.tx, tx);
 
             long pTxPrice = pTx.tx.getEnergyPrice();
@@ -240,22 +305,22 @@ public final class TxPoolV1 {
     public List<PooledTransaction> remove(List<PooledTransaction> tx) {
         Objects.requireNonNull(tx);
 
-        lock.lock();
-        try {
-            List<PooledTransaction> removedTx = new ArrayList<>();
+        List<PooledTransaction> removedTx = new ArrayList<>();
 
-            for (PooledTransaction pTx : tx) {
-                ByteArrayWrapper txHash = ByteArrayWrapper.wrap(pTx.tx.getTransactionHash());
+        for (PooledTransaction pTx : tx) {
+            ByteArrayWrapper txHash = ByteArrayWrapper.wrap(pTx.tx.getTransactionHash());
+            Lock senderLock = lockSender(pTx.tx.getSenderAddress());
+            try {
                 PooledTransaction removedPoolTx = poolRemove(txHash);
                 if (removedPoolTx != null) {
                     removedTx.add(removedPoolTx);
                 }
+            } finally {
+                unlockSender(senderLock);
             }
-
-            return removedTx;
-        } finally {
-            lock.unlock();
         }
+
+        return removedTx;
     }
 
     /**
@@ -281,28 +346,25 @@ public final class TxPoolV1 {
             return Collections.emptyList();
         }
 
-        lock.lock();
-        try {
-            List<PooledTransaction> removedTransaction = new ArrayList<>();
-            List<ByteArrayWrapper> removeTxHash = new ArrayList<>();
-            for (Map.Entry<AionAddress, BigInteger> account : accountsWithNonce.entrySet()) {
-                if (accountView.containsKey(account.getKey())) {
-                    SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(account.getKey());
-                    removeTxHash.addAll(accountInfo.headMap(account.getValue()).values());
-                }
-            }
-
-            for (ByteArrayWrapper hash : removeTxHash) {
-                PooledTransaction pTx = poolRemove(hash);
-                if (pTx != null) {
-                    removedTransaction.add(pTx);
+        List<PooledTransaction> removedTransaction = new ArrayList<>();
+        for (Map.Entry<AionAddress, BigInteger> account : accountsWithNonce.entrySet()) {
+            Lock senderLock = lockSender(account.getKey());
+            try {
+                SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(account.getKey());
+                if (accountInfo != null) {
+                    for (ByteArrayWrapper hash : new ArrayList<>(accountInfo.headMap(account.getValue()).values())) {
+                        PooledTransaction pTx = poolRemove(hash);
+                        if (pTx != null) {
+                            removedTransaction.add(pTx);
+                        }
+                    }
                 }
+            } finally {
+                unlockSender(senderLock);
             }
-
-            return removedTransaction;
-        } finally {
-            lock.unlock();
         }
+
+        return removedTransaction;
     }
 
     /**
@@ -310,12 +372,7 @@ public final class TxPoolV1 {
      * @return the total transaction number in the transaction pool.
      */
     public int size() {
-        lock.lock();
-        try {
-            return poolTransactions.size();
-        } finally {
-            lock.unlock();
-        }
+        return poolSize.get();
     }
 
     /**
@@ -323,118 +380,128 @@ public final class TxPoolV1 {
      * @return a boolean value represent the pool size reach to the max.
      */
     public boolean isFull() {
-        lock.lock();
-        try {
-            return poolTransactions.size() >= maxPoolSize;
-        } finally {
-            lock.unlock();
-        }
+        return poolSize.get() >= maxPoolSize;
     }
 
     /**
-     * @implNote snapshot the transactions for creating new block template.
+     * @implNote snapshot the transactions for creating new block template. The pool is copied
+     *     while holding the exclusive lock and the transactions are picked afterwards, see {@link
+     *     #pickTransactions(List, long)}.
      * @return the transactions ready to be seal into the new blocks.
      */
     public List<AionTransaction> snapshot() {
+        List<Candidate> firstCandidates;
+        long energyLimit;
 
-        lock.lock();
+        poolLock.writeLock().lock();
         try {
             if (poolTransactions.isEmpty()) {
                 return Collections.emptyList();
             }
 
-            Map<AionAddress, BigInteger> accountPickingInfo = new HashMap<>();
-            Set<ByteArrayWrapper> pickedTxHash = new HashSet<>();
-
-            // We use the multi rounds picking strategy.
-            List<AionTransaction> pickedTransactions = new ArrayList<>();
-            int totalPicked;
-            long cumulatedTxEncodedSize = 0;
-            long cumulatedTxEnergyConsumed = 0;
-            LOG_TXPOOL.info("Start to pick transaction");
-            do {
-                totalPicked = pickedTransactions.size();
-
-                Triple<List<AionTransaction>, Long, Long> newPicked =
-                        pickTransaction(
-                                accountPickingInfo,
-                                pickedTxHash,
-                                cumulatedTxEncodedSize,
-                                cumulatedTxEnergyConsumed);
-                cumulatedTxEncodedSize += newPicked.getMiddle();
-                cumulatedTxEnergyConsumed += newPicked.getRight();
-                LOG_TXPOOL.debug(
-                        "transaction picked: {}, newPickedEncodedSize: {}, newPickedEnergyConsumed: {}",
-                        newPicked.getLeft().size(),
-                        newPicked.getMiddle(),
-                        newPicked.getRight());
-                pickedTransactions.addAll(newPicked.getLeft());
-
-            } while (totalPicked < pickedTransactions.size());
-
-            LOG_TXPOOL.info(
-                    "snapshot {} tx, totalEncodedSize: {}, totalEnergyConsumed: {}",
-                    pickedTransactions.size(),
-                    cumulatedTxEncodedSize,
-                    cumulatedTxEnergyConsumed);
-            return pickedTransactions;
-        } finally {
-            lock.unlock();
-        }
-    }
+            // the candidates are ranked in the order of the fee view
+            Map<ByteArrayWrapper, Candidate> candidates = new HashMap<>();
+            int rank = 0;
+            for (ByteArrayWrapper hash : feeView.values()) {
+                candidates.put(hash, new Candidate(poolTransactions.get(hash).pooledTx, rank++));
+            }
 
-    private Triple<List<AionTransaction>, Long, Long> pickTransaction(
-            Map<AionAddress, BigInteger> accountPickingInfo,
-            Set<ByteArrayWrapper> pickedTxHash,
-            long cumulatedTxEncodedSize,
-            long cumulatedTxEnergy) {
-
-        List<AionTransaction> pickedTx = new ArrayList<>();
-        long pickedTxEncodedSize = 0;
-        long pickedEnergyConsumed = 0;
-        for (Set<ByteArrayWrapper> s : feeView.values()) {
-            for (ByteArrayWrapper hash : s) {
-
-                if (!pickedTxHash.contains(hash)) {
-                    PooledTransaction pendingTx = poolTransactions.get(hash);
-
-                    AionAddress sender = pendingTx.tx.getSenderAddress();
-                    BigInteger currentAccountPickingNonce =
-                        accountPickingInfo.getOrDefault(sender, getAccountFirstPickingNonce(sender));
-
-                    if (currentAccountPickingNonce.equals(pendingTx.tx.getNonceBI())) {
-                        long txEncodedSize = pendingTx.tx.getEncoded().length;
-                        long txEnergyConsumed = Math.max(pendingTx.energyConsumed, (Constant.MIN_ENERGY_CONSUME / 2));
-
-                        if ((cumulatedTxEncodedSize + pickedTxEncodedSize + txEncodedSize) <= Constant.MAX_BLK_SIZE
-                            && (cumulatedTxEnergy + pickedEnergyConsumed + txEncodedSize) <= blockEnergyLimit) {
-                            LOG_TXPOOL.trace("Transaction picked: [{}]", pendingTx.tx);
-                            pickedTx.add(pendingTx.tx);
-                            pickedTxHash.add(hash);
-
-                            currentAccountPickingNonce = currentAccountPickingNonce.add(BigInteger.ONE);
-                            accountPickingInfo.put(sender, currentAccountPickingNonce);
-
-                            pickedTxEncodedSize += txEncodedSize;
-                            pickedEnergyConsumed += txEnergyConsumed;
-                        } else {
-                            return Triple.of(pickedTx, pickedTxEncodedSize, pickedEnergyConsumed);
-                        }
+            // link the transactions of each account with consecutive nonces
+            firstCandidates = new ArrayList<>(accountView.size());
+            for (SortedMap<BigInteger, ByteArrayWrapper> accountInfo : accountView.values()) {
+                Candidate previous = null;
+                BigInteger expectedNonce = null;
+                for (Map.Entry<BigInteger, ByteArrayWrapper> entry : accountInfo.entrySet()) {
+                    if (previous != null && !entry.getKey().equals(expectedNonce)) {
+                        break;
                     }
+                    Candidate candidate = candidates.get(entry.getValue());
+                    if (previous == null) {
+                        firstCandidates.add(candidate);
+                    } else {
+                        previous.nextNonce = candidate;
+                    }
+                    previous = candidate;
+                    expectedNonce = entry.getKey().add(BigInteger.ONE);
                 }
             }
+            energyLimit = blockEnergyLimit;
+        } finally {
+            poolLock.writeLock().unlock();
         }
 
-        return Triple.of(pickedTx, pickedTxEncodedSize, pickedEnergyConsumed);
+        LOG_TXPOOL.info("Start to pick transaction");
+        return pickTransactions(firstCandidates, energyLimit);
     }
 
-    private BigInteger getAccountFirstPickingNonce(AionAddress sender) {
-        SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(sender);
-        if (accountInfo == null) {
-            throw new IllegalStateException("Can't find the account info relate with sender: " + sender);
+    /** A pool transaction with its rank in the fee view, linked to the next nonce of its sender. */
+    private static final class Candidate {
+        private final PooledTransaction pooledTx;
+        private final int rank;
+        private Candidate nextNonce;
+
+        private Candidate(PooledTransaction pooledTx, int rank) {
+            this.pooledTx = pooledTx;
+            this.rank = rank;
         }
+    }
 
-        return accountInfo.firstKey();
+    /**
+     * Picks the transactions using multiple rounds. Each round scans the pool by decreasing energy
+     * price and picks the transactions that have the next nonce of their sender, until one does
+     * not fit in the block. The picking stops after a round without new transactions.
+     *
+     * <p>Instead of rescanning the whole pool, only the next transaction of each sender is kept in a
+     * heap ordered by rank. The next transaction of a picked sender joins the current round if it
+     * ranks after the picked one and the following round otherwise. The transactions ranked after
+     * one that did not fit are never picked, since every later round stops there again.
+     */
+    private List<AionTransaction> pickTransactions(List<Candidate> firstCandidates, long energyLimit) {
+        Comparator<Candidate> byRank = Comparator.comparingInt(c -> c.rank);
+        PriorityQueue<Candidate> round = new PriorityQueue<>(Math.max(1, firstCandidates.size()), byRank);
+        round.addAll(firstCandidates);
+        PriorityQueue<Candidate> nextRound = new PriorityQueue<>(byRank);
+
+        List<AionTransaction> pickedTransactions = new ArrayList<>();
+        long cumulatedTxEncodedSize = 0;
+        long cumulatedTxEnergyConsumed = 0;
+        int blockingRank = Integer.MAX_VALUE;
+        boolean picked;
+        do {
+            picked = false;
+            Candidate candidate;
+            while ((candidate = round.poll()) != null && candidate.rank < blockingRank) {
+                AionTransaction tx = candidate.pooledTx.tx;
+                long txEncodedSize = tx.getEncoded().length;
+
+                if ((cumulatedTxEncodedSize + txEncodedSize) <= Constant.MAX_BLK_SIZE
+                    && (cumulatedTxEnergyConsumed + txEncodedSize) <= energyLimit) {
+                    LOG_TXPOOL.trace("Transaction picked: [{}]", tx);
+                    pickedTransactions.add(tx);
+                    picked = true;
+
+                    cumulatedTxEncodedSize += txEncodedSize;
+                    cumulatedTxEnergyConsumed += Math.max(candidate.pooledTx.energyConsumed, (Constant.MIN_ENERGY_CONSUME / 2));
+
+                    Candidate next = candidate.nextNonce;
+                    if (next != null) {
+                        (next.rank > candidate.rank ? round : nextRound).add(next);
+                    }
+                } else {
+                    blockingRank = candidate.rank;
+                }
+            }
+
+            round = nextRound;
+            nextRound = new PriorityQueue<>(byRank);
+        } while (picked);
+
+        LOG_TXPOOL.info(
+                "snapshot {} tx, totalEncodedSize: {}, totalEnergyConsumed: {}",
+                pickedTransactions.size(),
+                cumulatedTxEncodedSize,
+                cumulatedTxEnergyConsumed);
+        return pickedTransactions;
     }
 
     /**
@@ -442,48 +509,46 @@ public final class TxPoolV1 {
      * @return removed transactions.
      */
     public List<PooledTransaction> clearOutDateTransaction() {
-        lock.lock();
-        try {
-            return clearOutDateTransaction(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
-        } finally {
-            lock.unlock();
-        }
+        return clearOutDateTransaction(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
     }
 
     List<PooledTransaction> clearOutDateTransaction(long outDateTime) {
-        List<PooledTransaction> clearedTransactions = new ArrayList<>();
-
-        for (Set<ByteArrayWrapper> set : timeView.headMap(outDateTime).values()) {
-            for (ByteArrayWrapper txHash : set) {
-                PooledTransaction removedTx = poolTransactions.remove(txHash);
-                if (removedTx == null) {
-                    LOG_TXPOOL.debug("Did not find the transaction hash:{} in the pool", txHash);
-                    continue;
-                }
+        poolLock.writeLock().lock();
+        try {
+            List<PooledTransaction> clearedTransactions = new ArrayList<>();
 
-                LOG_TXPOOL.debug("Removing tx[{}]", removedTx.tx);
+            for (Set<ByteArrayWrapper> set : timeView.headMap(outDateTime).values()) {
+                for (ByteArrayWrapper txHash : set) {
+                    PoolEntry removedEntry = poolTransactions.remove(txHash);
+                    if (removedEntry == null) {
+                        LOG_TXPOOL.debug("Did not find the transaction hash:{} in the pool", txHash);
+                        continue;
+                    }
+                    PooledTransaction removedTx = removedEntry.pooledTx;
+                    poolSize.decrementAndGet();
 
-                Set<ByteArrayWrapper> feeSet = feeView.get(removedTx.tx.getEnergyPrice());
-                feeSet.remove(txHash);
-                if (feeSet.isEmpty()) {
-                    feeView.remove(removedTx.tx.getEnergyPrice());
-                }
+                    LOG_TXPOOL.debug("Removing tx[{}]", removedTx.tx);
 
-                SortedMap<BigInteger, ByteArrayWrapper> accountInfo =
-                    accountView.get(removedTx.tx.getSenderAddress());
+                    feeView.remove(removedEntry.feeKey);
 
-                accountInfo.remove(removedTx.tx.getNonceBI());
-                if (accountInfo.isEmpty()) {
-                    accountView.remove(removedTx.tx.getSenderAddress());
-                }
+                    SortedMap<BigInteger, ByteArrayWrapper> accountInfo =
+                        accountView.get(removedTx.tx.getSenderAddress());
+
+                    accountInfo.remove(removedTx.tx.getNonceBI());
+                    if (accountInfo.isEmpty()) {
+                        accountView.remove(removedTx.tx.getSenderAddress());
+                    }
 
-                clearedTransactions.add(removedTx);
-                LOG_TXPOOL.debug("Removed tx[{}]", removedTx.tx);
+                    clearedTransactions.add(removedTx);
+                    LOG_TXPOOL.debug("Removed tx[{}]", removedTx.tx);
+                }
             }
-        }
-        timeView.headMap(outDateTime).clear();
+            timeView.headMap(outDateTime).clear();
 
-        return clearedTransactions;
+            return clearedTransactions;
+        } finally {
+            poolLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -495,7 +560,7 @@ public final class TxPoolV1 {
     public BigInteger bestPoolNonce(AionAddress sender) {
         Objects.requireNonNull(sender);
 
-        lock.lock();
+        Lock senderLock = lockSender(sender);
         try {
             SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(sender);
             if (accountInfo == null) {
@@ -504,7 +569,7 @@ public final class TxPoolV1 {
 
             return accountInfo.lastKey();
         } finally {
-            lock.unlock();
+            unlockSender(senderLock);
         }
     }
 
@@ -520,7 +585,7 @@ public final class TxPoolV1 {
         Objects.requireNonNull(sender);
         Objects.requireNonNull(txNonce);
 
-        lock.lock();
+        Lock senderLock = lockSender(sender);
         try {
             SortedMap<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(sender);
             if (accountInfo == null) {
@@ -529,7 +594,7 @@ public final class TxPoolV1 {
                 return accountInfo.containsKey(txNonce);
             }
         } finally {
-            lock.unlock();
+            unlockSender(senderLock);
         }
     }
 
@@ -541,21 +606,16 @@ public final class TxPoolV1 {
         int BLK_NRG_MAX = 100_000_000;
         int BLK_NRG_MIN = 1_000_000;
 
-        lock.lock();
-        try {
-            if (nrg < BLK_NRG_MIN) {
-                blockEnergyLimit = BLK_NRG_MIN;
-            } else if (nrg > BLK_NRG_MAX) {
-                blockEnergyLimit = BLK_NRG_MAX;
-            } else {
-                blockEnergyLimit = nrg;
-            }
-
-            LOG_TXPOOL.debug(
-                    "TxPoolA1.updateBlkNrgLimit nrg[{}] blkNrgLimit[{}]", nrg, blockEnergyLimit);
-        } finally {
-            lock.unlock();
+        if (nrg < BLK_NRG_MIN) {
+            blockEnergyLimit = BLK_NRG_MIN;
+        } else if (nrg > BLK_NRG_MAX) {
+            blockEnergyLimit = BLK_NRG_MAX;
+        } else {
+            blockEnergyLimit = nrg;
         }
+
+        LOG_TXPOOL.debug(
+                "TxPoolA1.updateBlkNrgLimit nrg[{}] blkNrgLimit[{}]", nrg, blockEnergyLimit);
     }
 
     /**
@@ -573,16 +633,16 @@ public final class TxPoolV1 {
      */
     public List<AionTransaction> snapshotAll() {
 
-        lock.lock();
+        poolLock.writeLock().lock();
         try {
             List<AionTransaction> allPoolTransactions = new ArrayList<>();
             for (SortedMap<BigInteger, ByteArrayWrapper> txHashes : accountView.values()) {
                 for (ByteArrayWrapper hash : txHashes.values()) {
-                    PooledTransaction pTx = poolTransactions.get(hash);
-                    if (pTx == null) {
+                    PoolEntry entry = poolTransactions.get(hash);
+                    if (entry == null) {
                         throw new IllegalStateException("The pool data has broken, cannot find the txHash:" + hash);
                     }
-                    allPoolTransactions.add(pTx.tx);
+                    allPoolTransactions.add(entry.pooledTx.tx);
                 }
             }
 
@@ -590,7 +650,7 @@ public final class TxPoolV1 {
 
             return allPoolTransactions;
         } finally {
-            lock.unlock();
+            poolLock.writeLock().unlock();
         }
     }
 
@@ -604,7 +664,7 @@ public final class TxPoolV1 {
         Objects.requireNonNull(sender);
         Objects.requireNonNull(nonce);
 
-        lock.lock();
+        Lock senderLock = lockSender(sender);
         try {
             Map<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(sender);
             if (accountInfo == null) {
@@ -616,36 +676,40 @@ public final class TxPoolV1 {
                 return null;
             }
 
-            return poolTransactions.get(txHash);
+            return poolTransactions.get(txHash).pooledTx;
         } finally {
-            lock.unlock();
+            unlockSender(senderLock);
         }
     }
 
     @VisibleForTesting
     public List<BigInteger> getNonceList(AionAddress acc) {
-        lock.lock();
+        Lock senderLock = lockSender(acc);
         try {
             Map<BigInteger, ByteArrayWrapper> accountInfo = accountView.get(acc);
             return new ArrayList<>(accountInfo.keySet());
         } finally {
-            lock.unlock();
+            unlockSender(senderLock);
         }
     }
 
     @VisibleForTesting
     public List<Long> getFeeList() {
-        lock.lock();
+        poolLock.writeLock().lock();
         try {
-            return new ArrayList<>(feeView.keySet());
+            Set<Long> fees = new LinkedHashSet<>();
+            for (FeeKey key : feeView.keySet()) {
+                fees.add(key.energyPrice);
+            }
+            return new ArrayList<>(fees);
         } finally {
-            lock.unlock();
+            poolLock.writeLock().unlock();
         }
     }
 
     @VisibleForTesting
     public List<AionTransaction> snapshot(long outDateTime) {
-        lock.lock();
+        poolLock.writeLock().lock();
         try {
             for (Set<ByteArrayWrapper> hashes : new ArrayList<>(timeView.headMap(outDateTime).values())) {
                 for (ByteArrayWrapper hash : new ArrayList<>(hashes)) {
@@ -655,8 +719,9 @@ public final class TxPoolV1 {
                     }
                 }
             }
+            timeView.headMap(outDateTime).clear();
         } finally {
-            lock.unlock();
+            poolLock.writeLock().unlock();
         }
 
         return snapshot();
@@ -669,14 +734,12 @@ public final class TxPoolV1 {
     public void updatePoolTransaction(PooledTransaction pooledTransaction) {
         Objects.requireNonNull(pooledTransaction);
 
-        lock.lock();
+        Lock senderLock = lockSender(pooledTransaction.tx.getSenderAddress());
         try {
             ByteArrayWrapper txHash = ByteArrayWrapper.wrap(pooledTransaction.tx.getTransactionHash());
-            if (poolTransactions.containsKey(txHash)) {
-                poolTransactions.put(txHash, pooledTransaction);
-            }
+            poolTransactions.computeIfPresent(txHash, (hash, entry) -> new PoolEntry(pooledTransaction, entry.feeKey));
         } finally{
-            lock.unlock();
+            unlockSender(senderLock);
         }
     }
 
@@ -686,11 +749,6 @@ public final class TxPoolV1 {
      * @return the original transaction has been dropped by new repay transaction.
      */
     public PooledTransaction getDroppedPoolTx() {
-        lock.lock();
-        try {
-            return droppedPoolTx;
-        } finally{
-            lock.unlock();
-        }
+        return droppedPoolTx;
     }
 }
@@ -13,6 +13,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.aion.base.AionTransaction;
 import org.aion.base.PooledTransaction;
@@ -1245,4 +1248,140 @@ public class TxPoolV1Test {
         tp.clearOutDateTransaction(TimeUnit.MICROSECONDS.toSeconds(txl.get(0).tx.getTimeStampBI().longValue()) + 11);
         Assert.assertEquals(0, tp.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void snapshotMatchesRoundBasedPicking() {
+        Properties config = new Properties();
+        config.put(TXPOOL_PROPERTY.PROP_TX_TIMEOUT, "100");
+        config.put(TXPOOL_PROPERTY.PROP_POOL_SIZE_MAX, "4096");
+        // the minimum limit makes the picking stop before the end of the pool
+        config.put(TXPOOL_PROPERTY.PROP_BLOCK_NRG_LIMIT, String.valueOf(Constant.BLOCK_ENERGY_LIMIT_MIN));
+
+        for (int iteration = 0; iteration < 5; iteration++) {
+            TxPoolV1 tp = new TxPoolV1(config);
+            List<PooledTransaction> added = new ArrayList<>();
+            for (ECKey sender : key) {
+                // some accounts have a nonce gap, the transactions after the gap cannot be picked
+                int gap = r.nextBoolean() ? -1 : r.nextInt(20);
+                for (int i = 0; i < 20 + r.nextInt(40); i++) {
+                    if (i == gap) {
+                        continue;
+                    }
+                    AionTransaction tx =
+                            AionTransaction.create(
+                                    sender,
+                                    BigInteger.valueOf(i).toByteArray(),
+                                    AddressUtils.wrapAddress("0000000000000000000000000000000000000000000000000000000000000001"),
+                                    ByteUtils.fromHexString("1"),
+                                    new byte[r.nextInt(2000)],
+                                    Constant.MIN_ENERGY_CONSUME * 10,
+                                    1 + r.nextInt(10),
+                                    TransactionTypes.DEFAULT,
+                                    null);
+                    added.add(new PooledTransaction(tx, r.nextInt(30_000)));
+                }
+            }
+            Collections.shuffle(added, r);
+            assertEquals(added.size(), tp.add(added).size());
+
+            List<AionTransaction> expected = roundBasedPicking(added, Constant.BLOCK_ENERGY_LIMIT_MIN);
+            assertThat(expected.size()).isLessThan(added.size());
+            assertEquals(expected, tp.snapshot());
+        }
+    }
+
+    @Test
+    public void concurrentAddsFromDifferentSenders() throws Exception {
+        Properties config = new Properties();
+        config.put(TXPOOL_PROPERTY.PROP_TX_TIMEOUT, "100");
+        config.put(TXPOOL_PROPERTY.PROP_POOL_SIZE_MAX, "4096");
+
+        TxPoolV1 tp = new TxPoolV1(config);
+        int txPerSender = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(key.size() + 1);
+        List<Future<?>> adds = new ArrayList<>();
+        for (ECKey sender : key) {
+            adds.add(
+                    executor.submit(
+                            () -> {
+                                for (int i = 0; i < txPerSender; i++) {
+                                    AionTransaction tx =
+                                            AionTransaction.create(
+                                                    sender,
+                                                    BigInteger.valueOf(i).toByteArray(),
+                                                    AddressUtils.wrapAddress("0000000000000000000000000000000000000000000000000000000000000001"),
+                                                    ByteUtils.fromHexString("1"),
+                                                    ByteUtils.fromHexString("1"),
+                                                    Constant.MIN_ENERGY_CONSUME,
+                                                    1 + i % 10,
+                                                    TransactionTypes.DEFAULT,
+                                                    null);
+                                    assertEquals(1, tp.add(Collections.singletonList(new PooledTransaction(tx, Constant.MIN_ENERGY_CONSUME))).size());
+                                }
+                            }));
+        }
+
+        // the block templates built during the updates only contain consecutive nonces
+        Future<?> snapshots =
+                executor.submit(
+                        () -> {
+                            for (int i = 0; i < 20; i++) {
+                                Map<AionAddress, BigInteger> nextNonce = new HashMap<>();
+                                for (AionTransaction tx : tp.snapshot()) {
+                                    BigInteger expected = nextNonce.getOrDefault(tx.getSenderAddress(), BigInteger.ZERO);
+                                    assertEquals(expected, tx.getNonceBI());
+                                    nextNonce.put(tx.getSenderAddress(), expected.add(BigInteger.ONE));
+                                }
+                            }
+                        });
+
+        for (Future<?> add : adds) {
+            add.get();
+        }
+        snapshots.get();
+        executor.shutdown();
+
+        assertEquals(key.size() * txPerSender, tp.size());
+        assertEquals(key.size() * txPerSender, tp.snapshotAll().size());
+        for (ECKey sender : key) {
+            List<BigInteger> nonces = tp.getNonceList(new AionAddress(sender.getAddress()));
+            assertEquals(txPerSender, nonces.size());
+            for (int i = 0; i < txPerSender; i++) {
+                assertEquals(BigInteger.valueOf(i), nonces.get(i));
+            }
+        }
+        assertEquals(10, tp.getFeeList().size());
+    }
+
+    /** Reference for the picking policy: rescan the pool by fee until a round picks nothing. */
+    private static List<AionTransaction> roundBasedPicking(List<PooledTransaction> addedInOrder, long energyLimit) {
+        List<PooledTransaction> byFee = new ArrayList<>(addedInOrder);
+        byFee.sort((a, b) -> Long.compare(b.tx.getEnergyPrice(), a.tx.getEnergyPrice()));
+
+        Map<AionAddress, BigInteger> nextNonce = new HashMap<>();
+        for (PooledTransaction pTx : addedInOrder) {
+            nextNonce.merge(pTx.tx.getSenderAddress(), pTx.tx.getNonceBI(), BigInteger::min);
+        }
+
+        List<AionTransaction> picked = new ArrayList<>();
+        long size = 0, energy = 0;
+        int previouslyPicked;
+        do {
+            previouslyPicked = picked.size();
+            for (PooledTransaction pTx : byFee) {
+                if (!picked.contains(pTx.tx) && pTx.tx.getNonceBI().equals(nextNonce.get(pTx.tx.getSenderAddress()))) {
+                    long txSize = pTx.tx.getEncoded().length;
+                    if (size + txSize <= Constant.MAX_BLK_SIZE && energy + txSize <= energyLimit) {
+                        picked.add(pTx.tx);
+                        size += txSize;
+                        energy += Math.max(pTx.energyConsumed, Constant.MIN_ENERGY_CONSUME / 2);
+                        nextNonce.put(pTx.tx.getSenderAddress(), pTx.tx.getNonceBI().add(BigInteger.ONE));
+                    } else {
+                        break;
+                    }
+                }
+            }
+        } while (previouslyPicked < picked.size());
+        return picked;
+    }
+}
@@ -2,7 +2,9 @@ package org.aion.txpool.v1;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import org.aion.base.AionTransaction;
@@ -333,4 +335,65 @@ public class TxnPoolV1BenchmarkTest {
             }
         }
     }
+
+    @Test
+    public void benchmarkSnapshotWithManySenders() {
+        benchmarkSnapshotWithManySenders(false);
+    }
+
+    @Test
+    public void benchmarkSnapshotWithPricesIncreasingByNonce() {
+        // every nonce is picked in a separate round
+        benchmarkSnapshotWithManySenders(true);
+    }
+
+    private void benchmarkSnapshotWithManySenders(boolean priceIncreasingByNonce) {
+        Properties config = new Properties();
+        config.put(TXPOOL_PROPERTY.PROP_TX_TIMEOUT, "100");
+        config.put(TXPOOL_PROPERTY.PROP_POOL_SIZE_MAX, "50000");
+        config.put(TXPOOL_PROPERTY.PROP_BLOCK_NRG_LIMIT, "1000000000");
+
+        TxPoolV1 tp = new TxPoolV1(config);
+
+        int senders = 5000;
+        int cnt = 10;
+        System.out.println("Gen new transactions --");
+        long start = System.currentTimeMillis();
+        List<PooledTransaction> txnl = new ArrayList<>();
+        for (int s = 0; s < senders; s++) {
+            ECKey sender = ECKeyFac.inst().create();
+            for (int i = 0; i < cnt; i++) {
+                AionTransaction txn =
+                        AionTransaction.create(
+                                sender,
+                                BigInteger.valueOf(i).toByteArray(),
+                                AddressUtils.wrapAddress(
+                                        "0000000000000000000000000000000000000000000000000000000000000001"),
+                                ByteUtils.fromHexString("1"),
+                                ByteUtils.fromHexString("1"),
+                                Constant.MIN_ENERGY_CONSUME,
+                                priceIncreasingByNonce ? 1 + i * 1000 + r.nextInt(1000) : 1 + r.nextInt(1000),
+                                TransactionTypes.DEFAULT,
+                                null);
+                txnl.add(new PooledTransaction(txn, Constant.MIN_ENERGY_CONSUME));
+            }
+        }
+        System.out.println("time spent: " + (System.currentTimeMillis() - start) + " ms.");
+
+        tp.add(txnl);
+        Assert.assertEquals(senders * cnt, tp.size());
+
+        System.out.println("Snapshoting --");
+        start = System.currentTimeMillis();
+        List<AionTransaction> picked = tp.snapshot();
+        System.out.println("picked " + picked.size() + " tx, time spent: " + (System.currentTimeMillis() - start) + " ms.");
+
+        // the block size limit is reached before the end of the pool
+        Assert.assertTrue(picked.size() > 0 && picked.size() < senders * cnt);
+        Map<AionAddress, BigInteger> nextNonce = new HashMap<>();
+        for (AionTransaction tx : picked) {
+            Assert.assertEquals(nextNonce.getOrDefault(tx.getSenderAddress(), BigInteger.ZERO), tx.getNonceBI());
+            nextNonce.put(tx.getSenderAddress(), tx.getNonceBI().add(BigInteger.ONE));
+        }
+    }
 }